@@ -0,0 +1,12 @@
+package com.envarcade.brennon.api.stats;
+
+/**
+ * Time windows a stat leaderboard can cover.
+ * Windows are calendar periods in UTC; weeks start on Monday.
+ */
+public enum StatPeriod {
+    DAILY,
+    WEEKLY,
+    MONTHLY,
+    ALL_TIME
+}
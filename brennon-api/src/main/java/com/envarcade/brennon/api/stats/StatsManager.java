@@ -18,12 +18,18 @@ public interface StatsManager {
     /** Increments a stat by a given amount. */
     CompletableFuture<Void> incrementStat(UUID player, String statId, double amount);
 
+    /** Increments one stat for many players at once, with a single batched write. */
+    CompletableFuture<Void> incrementMany(Map<UUID, Double> amounts, String statId);
+
     /** Sets a stat to a specific value. */
     CompletableFuture<Void> setStat(UUID player, String statId, double value);
 
     /** Gets the top N players for a stat (leaderboard). */
     CompletableFuture<Map<UUID, Double>> getLeaderboard(String statId, int limit);
 
+    /** Gets the top N players for a stat within the current day, week or month. */
+    CompletableFuture<Map<UUID, Double>> getLeaderboard(String statId, StatPeriod period, int limit);
+
     /** Gets a player's rank on a leaderboard. */
     CompletableFuture<Integer> getLeaderboardPosition(UUID player, String statId);
 
@@ -0,0 +1 @@
+// brennon-benchmarks: JMH benchmarks for core hot paths
@@ -0,0 +1,91 @@
+package com.envarcade.brennon.benchmarks
+
+import com.envarcade.brennon.api.chat.ChatFilter
+import com.envarcade.brennon.common.config.BrennonConfig
+import com.envarcade.brennon.common.config.ChatConfig
+import com.envarcade.brennon.common.model.ChatFilterData
+import com.envarcade.brennon.core.chat.CoreChatManager
+import com.envarcade.brennon.core.punishment.CorePunishmentManager
+import net.kyori.adventure.text.Component
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Chat filter evaluation for a clean, a censored and a blocked message, and
+ * `deliverLocalMessage` (format parse plus per-player permission checks)
+ * for the default channel and the permission-gated staff channel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ChatBenchmark {
+
+    @Param("10", "100")
+    @JvmField
+    var players = 0
+
+    private lateinit var network: LocalNetwork
+    private lateinit var chat: CoreChatManager
+
+    /** Written by the message sender so delivery can't be optimized away */
+    @Volatile
+    private var delivered: Component? = null
+
+    @Setup
+    fun setup() {
+        network = LocalNetwork("chat-$players")
+        network.join(players)
+        val config = BrennonConfig(serverName = LocalNetwork.SERVER, chat = ChatConfig(filters = FILTERS))
+        val punishments = CorePunishmentManager(network.database, network.players, network.messaging, network.eventBus)
+        chat = CoreChatManager(network.players, punishments, network.messaging, network.eventBus, config)
+        chat.localMessageSender = { _, component -> delivered = component }
+    }
+
+    @TearDown
+    fun tearDown() {
+        network.close()
+    }
+
+    @Benchmark
+    fun filterClean(): String? = chat.applyFilters("Steve", "anyone want to trade diamonds for emeralds at spawn?")
+
+    @Benchmark
+    fun filterCensored(): String? = chat.applyFilters("Steve", "darn it, the creeper blew up my heck of a house")
+
+    @Benchmark
+    fun filterBlocked(): String? = chat.applyFilters("Steve", "join my server at play.example.com for free ranks")
+
+    @Benchmark
+    fun deliverGlobal(): Component? {
+        chat.deliverLocalMessage("global", "Steve", "hello everyone")
+        return delivered
+    }
+
+    @Benchmark
+    fun deliverStaff(): Component? {
+        chat.deliverLocalMessage("staff", "Steve", "watch Player7, possible x-ray")
+        return delivered
+    }
+
+    companion object {
+        private val FILTERS = listOf(
+            ChatFilterData("profanity", listOf("\\bdarn\\b", "\\bheck\\b"), ChatFilter.FilterAction.CENSOR),
+            ChatFilterData("advertising", listOf("\\b[\\w-]+\\.(?:com|net|org|gg)\\b"), ChatFilter.FilterAction.BLOCK),
+            ChatFilterData("caps", listOf("[A-Z]{12,}"), ChatFilter.FilterAction.CENSOR, replacement = "...")
+        )
+    }
+}
@@ -0,0 +1,50 @@
+package com.envarcade.brennon.benchmarks
+
+import com.envarcade.brennon.core.event.ChatMessageEvent
+import com.envarcade.brennon.core.event.CoreEventBus
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.infra.Blackhole
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+import java.util.function.Consumer
+
+/**
+ * `CoreEventBus.publish` of a chat event to [listeners] subscribers, including
+ * the dispatch histogram it records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class EventBusBenchmark {
+
+    @Param("1", "10")
+    @JvmField
+    var listeners = 0
+
+    private val eventBus = CoreEventBus()
+    private val sender = UUID(0L, 1L)
+
+    @Setup
+    fun setup(blackhole: Blackhole) {
+        repeat(listeners) {
+            eventBus.subscribe(ChatMessageEvent::class.java, Consumer { blackhole.consume(it.message) })
+        }
+    }
+
+    @Benchmark
+    fun publish(): ChatMessageEvent =
+        eventBus.publish(ChatMessageEvent(sender, "Player1", "global", "hello everyone", "bench-1"))
+}
@@ -0,0 +1,50 @@
+package com.envarcade.brennon.benchmarks
+
+import com.envarcade.brennon.common.config.DataSharingConfig
+import com.envarcade.brennon.common.config.DatabaseConfig
+import com.envarcade.brennon.common.config.DatabaseDriver
+import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.config.RedisConfig
+import com.envarcade.brennon.core.event.CoreEventBus
+import com.envarcade.brennon.core.player.CorePlayerManager
+import com.envarcade.brennon.core.rank.CoreRankManager
+import com.envarcade.brennon.database.DatabaseManager
+import com.envarcade.brennon.messaging.redis.RedisMessagingService
+import java.util.UUID
+
+/**
+ * The managers a benchmark needs, wired as in `Brennon.enable()` but backed
+ * by an in-memory H2 database. Redis is never connected: session writes
+ * fail quietly, and benchmarks avoid paths that publish.
+ */
+class LocalNetwork(name: String) : AutoCloseable {
+
+    val networkContext = NetworkContext("bench", DataSharingConfig())
+    val database = DatabaseManager(DatabaseConfig(driver = DatabaseDriver.H2, uri = "mem:$name"), networkContext)
+    val eventBus = CoreEventBus()
+    val messaging = RedisMessagingService(RedisConfig())
+    val ranks: CoreRankManager
+    val players: CorePlayerManager
+
+    init {
+        database.initialize()
+        ranks = CoreRankManager(database, messaging, eventBus)
+        ranks.initialize().join()
+        players = CorePlayerManager(database, messaging, ranks, eventBus, SERVER)
+    }
+
+    /** Joins [count] players to this server and returns their ids */
+    fun join(count: Int): List<UUID> = (1..count).map { i ->
+        val uuid = UUID(0L, i.toLong())
+        players.handleJoin(uuid, "Player$i", SERVER, "127.0.0.1").join()
+        uuid
+    }
+
+    override fun close() {
+        database.shutdown()
+    }
+
+    companion object {
+        const val SERVER = "bench-1"
+    }
+}
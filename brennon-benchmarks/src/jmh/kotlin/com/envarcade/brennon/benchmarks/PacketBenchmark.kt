@@ -0,0 +1,43 @@
+package com.envarcade.brennon.benchmarks
+
+import com.envarcade.brennon.messaging.packet.ChatMessagePacket
+import com.envarcade.brennon.messaging.packet.Packet
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * Gson round trip of the packet published for every cross-server chat
+ * message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class PacketBenchmark {
+
+    private val packet = ChatMessagePacket(
+        senderUuid = UUID(0L, 1L).toString(),
+        senderName = "Player1",
+        channelId = "global",
+        message = "anyone want to trade diamonds for emeralds at spawn?",
+        server = "bench-1"
+    )
+    private val json = Packet.serialize(packet)
+
+    @Benchmark
+    fun serialize(): String = Packet.serialize(packet)
+
+    @Benchmark
+    fun deserialize(): ChatMessagePacket = Packet.deserialize(json, ChatMessagePacket::class.java)
+}
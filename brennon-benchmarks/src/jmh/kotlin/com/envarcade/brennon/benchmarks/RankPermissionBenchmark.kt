@@ -0,0 +1,51 @@
+package com.envarcade.brennon.benchmarks
+
+import com.envarcade.brennon.common.model.RankData
+import com.envarcade.brennon.core.rank.CoreRank
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * `CoreRank.hasPermission` for an exact node, a node granted through a
+ * wildcard, and a node the rank doesn't have (which walks every wildcard).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class RankPermissionBenchmark {
+
+    @Param("20", "500")
+    @JvmField
+    var permissions = 0
+
+    private lateinit var rank: CoreRank
+
+    @Setup
+    fun setup() {
+        val nodes = (0 until permissions).mapTo(mutableSetOf()) { "brennon.plugin$it.command.use" }
+        nodes.add("brennon.admin.*")
+        rank = CoreRank(RankData(id = "staff", permissions = nodes))
+    }
+
+    @Benchmark
+    fun exact(): Boolean = rank.hasPermission("brennon.plugin7.command.use")
+
+    @Benchmark
+    fun wildcard(): Boolean = rank.hasPermission("brennon.admin.ban.temp")
+
+    @Benchmark
+    fun missing(): Boolean = rank.hasPermission("brennon.economy.give.others")
+}
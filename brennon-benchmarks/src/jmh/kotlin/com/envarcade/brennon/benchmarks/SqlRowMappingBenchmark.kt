@@ -0,0 +1,74 @@
+package com.envarcade.brennon.benchmarks
+
+import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.common.model.PlayerData
+import com.envarcade.brennon.common.model.PunishmentData
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.time.Instant
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * SQL row mapping, measured through repository reads against in-memory H2:
+ * the row mappers are private to the SQL repositories, so each timing also
+ * includes H2 executing the query. A single player row shows the fixed cost
+ * per call; a player's 100 punishments show the per-row mapping cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class SqlRowMappingBenchmark {
+
+    private lateinit var network: LocalNetwork
+    private val target = UUID(0L, 1L)
+
+    @Setup
+    fun setup() {
+        network = LocalNetwork("rows")
+        val database = network.database
+        database.players.save(PlayerData(uuid = target, name = "Player1")).join()
+        val issuedAt = Instant.now()
+        repeat(PUNISHMENTS) { i ->
+            database.punishments.save(
+                PunishmentData(
+                    id = "bench-$i",
+                    target = target,
+                    issuer = null,
+                    type = if (i % 2 == 0) PunishmentType.WARN else PunishmentType.MUTE,
+                    reason = "Benchmark punishment $i",
+                    issuedAt = issuedAt.minusSeconds(i.toLong()),
+                    expiresAt = issuedAt.plusSeconds(3600),
+                    active = i % 3 != 0
+                )
+            ).join()
+        }
+    }
+
+    @TearDown
+    fun tearDown() {
+        network.close()
+    }
+
+    @Benchmark
+    fun player(): PlayerData? = network.database.players.findByUuid(target).join()
+
+    @Benchmark
+    fun punishments(): List<PunishmentData> = network.database.punishments.findByTarget(target).join()
+
+    companion object {
+        private const val PUNISHMENTS = 100
+    }
+}
@@ -0,0 +1,38 @@
+package com.envarcade.brennon.benchmarks
+
+import com.envarcade.brennon.common.util.TextUtil
+import net.kyori.adventure.text.Component
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * MiniMessage parsing through `TextUtil`, for a plain chat line and for the
+ * gradient prefix every Brennon feedback message carries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class TextParseBenchmark {
+
+    @Benchmark
+    fun chatFormat(): Component =
+        TextUtil.parse("<gray>[Member]</gray> Player1 <dark_gray>» <white>anyone want to trade diamonds?")
+
+    @Benchmark
+    fun placeholders(): Component =
+        TextUtil.parse("<gray><rank> <player>: <white><message>", "rank" to "[Member]", "player" to "Player1", "message" to "hello")
+
+    @Benchmark
+    fun prefixed(): Component = TextUtil.prefixed("You have been moved to <white>lobby-1</white>.")
+}
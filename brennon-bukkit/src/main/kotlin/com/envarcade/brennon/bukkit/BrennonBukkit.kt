@@ -6,6 +6,9 @@ import com.envarcade.brennon.bukkit.listener.BukkitChatListener
 import com.envarcade.brennon.bukkit.listener.BukkitGuiListener
 import com.envarcade.brennon.bukkit.listener.BukkitPlayerListener
 import com.envarcade.brennon.bukkit.luckperms.EditorUrlCapture
+import com.envarcade.brennon.common.logging.JulLogSink
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.logging.Slf4jLogSink
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.messaging.channel.Channels
 import com.google.gson.JsonParser
@@ -28,6 +31,8 @@ class BrennonBukkit : JavaPlugin() {
         private set
 
     override fun onEnable() {
+        // Paper exposes an SLF4J logger; plain Spigot only has the JUL one
+        Log.install(try { Slf4jLogSink(slF4JLogger) } catch (e: LinkageError) { JulLogSink(logger) })
         brennon = Brennon(Platform.PAPER, dataFolder)
         brennon.enable()
 
@@ -132,7 +137,7 @@ class BrennonBukkit : JavaPlugin() {
                     })
                 }
             } catch (e: Exception) {
-                logger.warning("[Brennon] Failed to process kick request: ${e.message}")
+                Log.warn("Failed to process kick request", e)
             }
         }
 
@@ -174,11 +179,12 @@ class BrennonBukkit : JavaPlugin() {
         // Register commands
         BukkitCommandBridge(brennon, this).registerAll()
 
-        logger.info("[Brennon] Bukkit plugin loaded. ${brennon.commandRegistry.getCommands().size} commands registered.")
+        Log.info("Bukkit plugin loaded.", "commands" to brennon.commandRegistry.getCommands().size)
     }
 
     override fun onDisable() {
         brennon.disable()
-        logger.info("[Brennon] Bukkit plugin unloaded.")
+        Log.info("Bukkit plugin unloaded.")
+        Log.shutdown()
     }
 }
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.bukkit.listener
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.util.TextUtil
 import com.envarcade.brennon.core.Brennon
 import io.papermc.paper.event.player.AsyncChatEvent
@@ -42,7 +43,7 @@ class BukkitChatListener(private val brennon: Brennon) : Listener {
                 return
             }
         } catch (e: Exception) {
-            println("[Brennon] Error checking mute for ${player.name}: ${e.message}")
+            Log.warn("Error checking mute", e, "player" to player.name)
         }
 
         // Format chat with rank prefix
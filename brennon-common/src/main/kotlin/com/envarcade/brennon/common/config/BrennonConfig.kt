@@ -1,5 +1,6 @@
 package com.envarcade.brennon.common.config
 
+import com.envarcade.brennon.common.logging.LogLevel
 import com.envarcade.brennon.common.model.ChatChannelData
 import com.envarcade.brennon.common.model.ChatFilterData
 
@@ -12,11 +13,14 @@ data class BrennonConfig(
     val database: DatabaseConfig = DatabaseConfig(),
     val redis: RedisConfig = RedisConfig(),
     val modules: ModulesConfig = ModulesConfig(),
+    val leaderboards: LeaderboardConfig = LeaderboardConfig(),
     val serverRegistry: ServerRegistryConfig = ServerRegistryConfig(),
     val chat: ChatConfig = ChatConfig(),
     val discord: DiscordConfig = DiscordConfig(),
     val web: WebConfig = WebConfig(),
-    val luckperms: LuckPermsConfig = LuckPermsConfig()
+    val luckperms: LuckPermsConfig = LuckPermsConfig(),
+    val metrics: MetricsConfig = MetricsConfig(),
+    val logging: LoggingConfig = LoggingConfig()
 )
 
 data class DatabaseConfig(
@@ -27,14 +31,56 @@ data class DatabaseConfig(
     val username: String = "",
     val password: String = "",
     val poolSize: Int = 10,
-    val uri: String = ""
+    val uri: String = "",
+    val statsLayout: StatsStorageLayout = StatsStorageLayout.ROWS,
+    val countReconcileSeconds: Int = 60,
+    val queryDiagnostics: Boolean = false,
+    val slowQueryMillis: Long = 100,
+    val mongoAsync: Boolean = false,
+    val replica: ReplicaConfig = ReplicaConfig(),
+    val metrics: DatabaseMetricsConfig = DatabaseMetricsConfig()
+)
+
+/**
+ * Optional read replica for SQL drivers. Blank or zero fields fall back to
+ * the primary's values.
+ */
+data class ReplicaConfig(
+    val enabled: Boolean = false,
+    val host: String = "",
+    val port: Int = 0,
+    val username: String = "",
+    val password: String = "",
+    val poolSize: Int = 5
+)
+
+/**
+ * Query instrumentation: pool, statement and repository histograms, and
+ * the SQL slow-query log. Off by default, since it proxies every
+ * connection, statement and repository call.
+ */
+data class DatabaseMetricsConfig(
+    val enabled: Boolean = false,
+    val slowQueryLog: Boolean = true,
+    val slowQueryMillis: Long = 250,
+    val recentSlowQueries: Int = 50
 )
 
 enum class DatabaseDriver {
     MONGODB,
     MYSQL,
     MARIADB,
-    POSTGRESQL
+    POSTGRESQL,
+    /** Embedded, in-process H2 database; needs no external service */
+    H2
+}
+
+/** How SQL drivers store lifetime stats. */
+enum class StatsStorageLayout {
+    /** One row per player, stat and network */
+    ROWS,
+    /** One row per player and network holding all stats packed against interned stat ids */
+    PACKED
 }
 
 data class RedisConfig(
@@ -59,6 +105,16 @@ data class ModulesConfig(
     val gui: Boolean = true
 )
 
+data class LeaderboardConfig(
+    val balanceSeedSize: Int = 10_000,
+    val stats: List<String> = listOf("playtime", "kills", "deaths", "money_earned", "blocks_broken"),
+    val reconcileIntervalMinutes: Int = 30,
+    val periodStats: List<String> = listOf("playtime", "kills", "deaths", "money_earned", "blocks_broken"),
+    val dailyRetention: Int = 31,
+    val weeklyRetention: Int = 12,
+    val monthlyRetention: Int = 12
+)
+
 data class ChatConfig(
     val channels: List<ChatChannelData> = listOf(
         ChatChannelData(
@@ -128,6 +184,30 @@ data class WebConfig(
     val corsOrigins: String = "*"
 )
 
+/**
+ * Prometheus export of the metrics registry. The webserver serves
+ * `/metrics` itself; other servers can open a small exporter of their own,
+ * on loopback unless [exporterHost] says otherwise.
+ */
+data class MetricsConfig(
+    val exporter: Boolean = false,
+    val exporterHost: String = "127.0.0.1",
+    val exporterPort: Int = 9464,
+    val exporterToken: String = "" // bearer token for the exporter; blank = unauthenticated
+)
+
+/**
+ * Logging through `Log`. Events are written by a background thread from a
+ * ring buffer of [bufferSize] events; warnings and errors repeating more
+ * than [errorsPerMinute] times a minute are dropped (0 = no limit).
+ */
+data class LoggingConfig(
+    val level: LogLevel = LogLevel.INFO,
+    val async: Boolean = true,
+    val bufferSize: Int = 8192,
+    val errorsPerMinute: Int = 20
+)
+
 data class LuckPermsConfig(
     val enabled: Boolean = true,
     val syncDirection: LuckPermsSyncDirection = LuckPermsSyncDirection.BIDIRECTIONAL,
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.common.config
 
+import com.envarcade.brennon.common.logging.Log
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
 import java.io.File
@@ -25,8 +26,8 @@ object ConfigLoader {
                 gson.fromJson(reader, clazz)
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to load config ${file.name}: ${e.message}")
-            println("[Brennon] Using default configuration.")
+            Log.warn("Failed to load config", e, "file" to file.name)
+            Log.info("Using default configuration.")
             default
         }
     }
@@ -0,0 +1,136 @@
+package com.envarcade.brennon.common.logging
+
+import com.envarcade.brennon.common.metrics.Metrics
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Hands log events to one writer thread through a bounded, lock-free ring
+ * buffer (Vyukov's bounded queue, with a single consumer).
+ *
+ * Logging threads only claim a slot; the console or platform logger is
+ * written to from the `Brennon-Log` thread. When the buffer is full the
+ * event is dropped rather than blocking the caller, and the writer reports
+ * how many were lost once it catches up. An idle writer parks until a
+ * producer sees it [sleeping] and unparks it.
+ */
+class AsyncAppender(capacity: Int, private val write: (LogEvent) -> Unit) {
+
+    /** [capacity] rounded up to a power of two */
+    val size: Int = sizeFor(capacity)
+
+    private val mask = size - 1L
+    private val slots = AtomicReferenceArray<LogEvent?>(size)
+    private val sequences = AtomicLongArray(size).apply { for (i in 0 until size) set(i, i.toLong()) }
+    private val tail = AtomicLong()
+
+    /** Next slot to read; only touched by the writer thread */
+    private var head = 0L
+
+    private val dropped = AtomicLong()
+    private val droppedTotal = Metrics.counter("brennon_log_dropped_total", "Log events dropped because the log buffer was full")
+
+    /** Set by the writer before it parks, so producers know to wake it */
+    @Volatile
+    private var sleeping = false
+
+    @Volatile
+    private var running = false
+    private val writer = Thread(::run, "Brennon-Log").apply { isDaemon = true }
+
+    fun start() {
+        running = true
+        writer.start()
+    }
+
+    /** Queues [event]; false if the buffer was full or the appender is closed */
+    fun offer(event: LogEvent): Boolean {
+        if (!running) return false
+        var position = tail.get()
+        while (true) {
+            val index = (position and mask).toInt()
+            val lag = sequences.get(index) - position
+            if (lag == 0L) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, event)
+                    sequences.set(index, position + 1)
+                    wake()
+                    return true
+                }
+                position = tail.get()
+            } else if (lag < 0L) {
+                dropped.incrementAndGet()
+                droppedTotal.inc()
+                wake()
+                return false
+            } else {
+                position = tail.get()
+            }
+        }
+    }
+
+    /** Stops accepting events and waits for the writer to flush the buffer */
+    fun close() {
+        if (!running) return
+        running = false
+        LockSupport.unpark(writer)
+        writer.join(TimeUnit.SECONDS.toMillis(5))
+    }
+
+    private fun run() {
+        while (running) {
+            if (drain()) continue
+            sleeping = true
+            // A producer may have published after the drain but before it could see the flag
+            if (running && !hasEvents()) LockSupport.park(this)
+            sleeping = false
+        }
+        drain()
+    }
+
+    private fun wake() {
+        if (sleeping) LockSupport.unpark(writer)
+    }
+
+    private fun hasEvents(): Boolean =
+        sequences.get((head and mask).toInt()) == head + 1 || dropped.get() > 0
+
+    /** Writes every queued event; returns whether there were any */
+    private fun drain(): Boolean {
+        var wrote = false
+        while (true) {
+            val index = (head and mask).toInt()
+            if (sequences.get(index) != head + 1) break
+            val event = slots.get(index)
+            slots.set(index, null)
+            sequences.set(index, head + size)
+            head++
+            event?.let { writeSafely(it) }
+            wrote = true
+        }
+
+        val lost = dropped.getAndSet(0)
+        if (lost > 0) {
+            writeSafely(LogEvent(
+                LogLevel.WARN, "Log buffer full, dropped events", mapOf("dropped" to lost), null,
+                System.currentTimeMillis(), writer.name
+            ))
+        }
+        return wrote
+    }
+
+    private fun writeSafely(event: LogEvent) {
+        try {
+            write(event)
+        } catch (e: Exception) {
+            System.err.println("[Brennon] Log sink failed: ${e.message}")
+        }
+    }
+
+    companion object {
+        fun sizeFor(capacity: Int): Int = Integer.highestOneBit(capacity.coerceAtLeast(2) - 1) shl 1
+    }
+}
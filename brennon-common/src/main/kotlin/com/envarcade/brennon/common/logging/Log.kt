@@ -0,0 +1,120 @@
+package com.envarcade.brennon.common.logging
+
+import com.envarcade.brennon.common.config.LoggingConfig
+import com.envarcade.brennon.common.metrics.Metrics
+import java.util.concurrent.CompletionException
+
+/**
+ * Brennon's logging facade, used instead of `println`.
+ *
+ * Events go to a [LogSink] bridging to the platform's logger: platforms
+ * [install] one before enabling Brennon, and until then events go to
+ * java.util.logging. Once [configure]d, events pass through an
+ * [AsyncAppender], so a logging thread never waits on console output.
+ *
+ * Structured fields ride along with the message rather than inside it:
+ *
+ * ```kotlin
+ * Log.debug("Player switched servers", "player" to name, "server" to target)
+ * ```
+ *
+ * Warnings and errors are rate-limited per message (see
+ * [LoggingConfig.errorsPerMinute]); the next one let through carries a
+ * `suppressed` count. A warning given an exception shows its message, an
+ * error also its stack trace.
+ */
+object Log {
+
+    @Volatile
+    var level: LogLevel = LogLevel.INFO
+        private set
+
+    @Volatile
+    private var sink: LogSink = JulLogSink()
+
+    @Volatile
+    private var appender: AsyncAppender? = null
+
+    @Volatile
+    private var limiter = LogRateLimiter(LoggingConfig().errorsPerMinute)
+
+    private val suppressedTotal = Metrics.counter(
+        "brennon_log_suppressed_total", "Warnings and errors dropped by rate limiting"
+    )
+
+    /** Sends events to [sink] from now on */
+    fun install(sink: LogSink) {
+        this.sink = sink
+    }
+
+    /** Applies the `logging` config section; called by `Brennon.enable()` once the config is loaded */
+    @Synchronized
+    fun configure(config: LoggingConfig) {
+        level = config.level
+        limiter = LogRateLimiter(config.errorsPerMinute)
+
+        // Keep a running appender of the right size, so several instances in one JVM don't churn it
+        val current = appender
+        if (config.async && current?.size == AsyncAppender.sizeFor(config.bufferSize)) return
+        appender = if (config.async) AsyncAppender(config.bufferSize) { sink.write(it) }.apply { start() } else null
+        current?.close()
+    }
+
+    /**
+     * Flushes and stops the async appender; events after this are written
+     * synchronously. Called by the host entry point (plugin disable, main,
+     * shutdown hook), not by `Brennon.disable()`, since other instances in
+     * the same JVM may still be logging.
+     */
+    @Synchronized
+    fun shutdown() {
+        val current = appender ?: return
+        appender = null
+        current.close()
+    }
+
+    fun isEnabled(level: LogLevel): Boolean = level >= this.level
+
+    fun trace(message: String, vararg fields: Pair<String, Any?>) = log(LogLevel.TRACE, message, null, fields)
+
+    fun debug(message: String, vararg fields: Pair<String, Any?>) = log(LogLevel.DEBUG, message, null, fields)
+
+    fun info(message: String, vararg fields: Pair<String, Any?>) = log(LogLevel.INFO, message, null, fields)
+
+    fun warn(message: String, vararg fields: Pair<String, Any?>) = log(LogLevel.WARN, message, null, fields)
+
+    fun warn(message: String, error: Throwable, vararg fields: Pair<String, Any?>) = log(LogLevel.WARN, message, error, fields)
+
+    fun error(message: String, vararg fields: Pair<String, Any?>) = log(LogLevel.ERROR, message, null, fields)
+
+    fun error(message: String, error: Throwable, vararg fields: Pair<String, Any?>) = log(LogLevel.ERROR, message, error, fields)
+
+    private fun log(level: LogLevel, message: String, error: Throwable?, fields: Array<out Pair<String, Any?>>) {
+        if (level < this.level) return
+
+        var context: Map<String, Any?> = if (fields.isEmpty()) emptyMap() else mapOf(*fields)
+        if (level >= LogLevel.WARN) {
+            val suppressed = limiter.acquire("$level $message")
+            if (suppressed < 0) {
+                suppressedTotal.inc()
+                return
+            }
+            if (suppressed > 0) context = context + ("suppressed" to suppressed)
+        }
+
+        val cause = (error as? CompletionException)?.cause ?: error
+        val text = if (cause != null && level < LogLevel.ERROR) "$message: ${cause.message ?: cause.javaClass.simpleName}" else message
+        val event = LogEvent(
+            level, text, context, if (level == LogLevel.ERROR) cause else null,
+            System.currentTimeMillis(), Thread.currentThread().name
+        )
+
+        val async = appender
+        if (async == null) {
+            sink.write(event)
+        } else {
+            // A full buffer drops the event (counted by the appender) instead of blocking
+            async.offer(event)
+        }
+    }
+}
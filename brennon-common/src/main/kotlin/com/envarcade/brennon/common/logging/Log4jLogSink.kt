@@ -0,0 +1,30 @@
+package com.envarcade.brennon.common.logging
+
+import org.apache.logging.log4j.Level
+import org.apache.logging.log4j.Logger
+import org.apache.logging.log4j.ThreadContext
+
+/**
+ * Bridges to a Log4j 2 logger (Sponge). Fields are appended to the message
+ * and also put in the ThreadContext while the event is written.
+ *
+ * Log4j is not bundled: only construct this where the platform provides it.
+ */
+class Log4jLogSink(private val logger: Logger) : LogSink {
+
+    override fun write(event: LogEvent) {
+        for ((key, value) in event.fields) ThreadContext.put(key, value.toString())
+        try {
+            val level = when (event.level) {
+                LogLevel.TRACE -> Level.TRACE
+                LogLevel.DEBUG -> Level.DEBUG
+                LogLevel.INFO -> Level.INFO
+                LogLevel.WARN -> Level.WARN
+                LogLevel.ERROR -> Level.ERROR
+            }
+            logger.log(level, event.formatted(), event.error)
+        } finally {
+            ThreadContext.removeAll(event.fields.keys)
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.envarcade.brennon.common.logging
+
+/**
+ * One log record. [fields] are structured context such as server, player
+ * and packet ids; [error] is only set for errors, whose stack trace is
+ * logged.
+ */
+class LogEvent(
+    val level: LogLevel,
+    val message: String,
+    val fields: Map<String, Any?>,
+    val error: Throwable?,
+    val timestamp: Long,
+    val thread: String
+) {
+
+    /** [message] followed by the fields as `{key=value, ...}`, for sinks that only take text */
+    fun formatted(): String {
+        if (fields.isEmpty()) return message
+        return fields.entries.joinToString(", ", "$message {", "}") { "${it.key}=${it.value}" }
+    }
+}
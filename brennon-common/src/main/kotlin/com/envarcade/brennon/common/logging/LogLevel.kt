@@ -0,0 +1,10 @@
+package com.envarcade.brennon.common.logging
+
+/** Log levels, least to most severe. */
+enum class LogLevel {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR
+}
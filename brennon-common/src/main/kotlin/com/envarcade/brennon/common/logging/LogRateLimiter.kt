@@ -0,0 +1,50 @@
+package com.envarcade.brennon.common.logging
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Lets through at most [perMinute] events per key in each one-minute
+ * window, so a failing dependency can't flood the console with the same
+ * warning. Zero or less disables the limit.
+ */
+internal class LogRateLimiter(private val perMinute: Int) {
+
+    private class Window(var start: Long) {
+        var count = 0
+        var suppressed = 0
+    }
+
+    private val windows = ConcurrentHashMap<String, Window>()
+
+    /**
+     * @return -1 if this event should be dropped, otherwise how many events
+     *         with the same key were dropped since the last one let through
+     */
+    fun acquire(key: String): Int {
+        if (perMinute <= 0) return 0
+        val now = System.currentTimeMillis()
+        // Messages with values baked in can produce unbounded keys
+        if (windows.size > MAX_KEYS) windows.clear()
+
+        val window = windows.computeIfAbsent(key) { Window(now) }
+        synchronized(window) {
+            if (now - window.start >= WINDOW_MILLIS) {
+                window.start = now
+                window.count = 0
+            }
+            if (window.count >= perMinute) {
+                window.suppressed++
+                return -1
+            }
+            window.count++
+            val suppressed = window.suppressed
+            window.suppressed = 0
+            return suppressed
+        }
+    }
+
+    companion object {
+        private const val WINDOW_MILLIS = 60_000L
+        private const val MAX_KEYS = 1024
+    }
+}
@@ -0,0 +1,39 @@
+package com.envarcade.brennon.common.logging
+
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * Where log events end up: the platform's logger or the console. Called
+ * from the async appender's thread, or the caller's when logging is
+ * synchronous.
+ */
+fun interface LogSink {
+
+    fun write(event: LogEvent)
+}
+
+/** Plain `[Brennon] message` lines on stdout, for processes without a logging framework. */
+class ConsoleLogSink : LogSink {
+
+    override fun write(event: LogEvent) {
+        val prefix = if (event.level == LogLevel.INFO) "[Brennon]" else "[Brennon] [${event.level}]"
+        println("$prefix ${event.formatted()}")
+        event.error?.printStackTrace(System.out)
+    }
+}
+
+/** java.util.logging, the fallback when the platform offers neither SLF4J nor Log4j. */
+class JulLogSink(private val logger: Logger = Logger.getLogger("Brennon")) : LogSink {
+
+    override fun write(event: LogEvent) {
+        val level = when (event.level) {
+            LogLevel.TRACE -> Level.FINER
+            LogLevel.DEBUG -> Level.FINE
+            LogLevel.INFO -> Level.INFO
+            LogLevel.WARN -> Level.WARNING
+            LogLevel.ERROR -> Level.SEVERE
+        }
+        logger.log(level, event.formatted(), event.error)
+    }
+}
@@ -0,0 +1,30 @@
+package com.envarcade.brennon.common.logging
+
+import org.slf4j.Logger
+import org.slf4j.MDC
+
+/**
+ * Bridges to an SLF4J logger (Paper, Folia, Velocity, Forge, NeoForge and
+ * the webserver). Fields are appended to the message and also put
+ * in the MDC while the event is written, for layouts that show them.
+ *
+ * SLF4J is not bundled: only construct this where the platform provides it.
+ */
+class Slf4jLogSink(private val logger: Logger) : LogSink {
+
+    override fun write(event: LogEvent) {
+        for ((key, value) in event.fields) MDC.put(key, value.toString())
+        try {
+            val message = event.formatted()
+            when (event.level) {
+                LogLevel.TRACE -> logger.trace(message, event.error)
+                LogLevel.DEBUG -> logger.debug(message, event.error)
+                LogLevel.INFO -> logger.info(message, event.error)
+                LogLevel.WARN -> logger.warn(message, event.error)
+                LogLevel.ERROR -> logger.error(message, event.error)
+            }
+        } finally {
+            for (key in event.fields.keys) MDC.remove(key)
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.envarcade.brennon.common.metrics
+
+/**
+ * Hit and miss counts for one cache, exported as
+ * `brennon_cache_requests_total{cache, result}` so hit rates can be graphed.
+ */
+class CacheMetrics(cache: String, registry: MetricsRegistry = Metrics) {
+
+    private val hits = registry.counter(NAME, HELP, "cache" to cache, "result" to "hit")
+    private val misses = registry.counter(NAME, HELP, "cache" to cache, "result" to "miss")
+
+    fun hit() = hits.inc()
+
+    fun miss() = misses.inc()
+
+    private companion object {
+        const val NAME = "brennon_cache_requests_total"
+        const val HELP = "Cache lookups by result"
+    }
+}
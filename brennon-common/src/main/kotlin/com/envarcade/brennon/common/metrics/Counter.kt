@@ -0,0 +1,21 @@
+package com.envarcade.brennon.common.metrics
+
+import java.util.concurrent.atomic.LongAdder
+
+/** A monotonically increasing count, cheap to update from many threads. */
+class Counter {
+
+    private val adder = LongAdder()
+
+    val value: Long get() = adder.sum()
+
+    fun inc() = adder.increment()
+
+    fun add(amount: Long) = adder.add(amount)
+}
+
+/** A value read when metrics are exported, such as a queue size or pool count. */
+class Gauge(@Volatile internal var supplier: () -> Double) {
+
+    val value: Double get() = supplier()
+}
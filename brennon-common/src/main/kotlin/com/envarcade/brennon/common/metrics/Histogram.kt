@@ -0,0 +1,94 @@
+package com.envarcade.brennon.common.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.DoubleAdder
+import java.util.concurrent.atomic.LongAdder
+import kotlin.math.ceil
+
+/**
+ * A lock-free histogram with fixed, cumulative-friendly bucket bounds.
+ *
+ * Values are counted into the first bucket whose upper bound they do not
+ * exceed, or the overflow bucket. The buckets are exported as-is as a
+ * Prometheus histogram. Quantiles are estimated from the bucket bounds, so
+ * they are only as precise as the buckets.
+ */
+class Histogram(private val bounds: DoubleArray) {
+
+    private val buckets = Array(bounds.size + 1) { LongAdder() }
+    private val count = LongAdder()
+    private val sum = DoubleAdder()
+    private val maxBits = AtomicLong(0.0.toRawBits())
+
+    fun record(value: Double) {
+        var index = 0
+        while (index < bounds.size && value > bounds[index]) index++
+        buckets[index].increment()
+        count.increment()
+        sum.add(value)
+        maxBits.accumulateAndGet(value.toRawBits()) { current, new ->
+            if (Double.fromBits(new) > Double.fromBits(current)) new else current
+        }
+    }
+
+    /** Runs [block] and records how long it took, in milliseconds */
+    inline fun <T> time(block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record((System.nanoTime() - start) / 1_000_000.0)
+        }
+    }
+
+    fun snapshot(): Snapshot {
+        val counts = LongArray(buckets.size) { buckets[it].sum() }
+        return Snapshot(bounds, counts, count.sum(), sum.sum(), Double.fromBits(maxBits.get()))
+    }
+
+    /**
+     * A point-in-time copy. [counts] has one entry per bound plus the
+     * overflow bucket; they are not cumulative.
+     */
+    class Snapshot(
+        val bounds: DoubleArray,
+        val counts: LongArray,
+        val count: Long,
+        val sum: Double,
+        val max: Double
+    ) {
+        val mean: Double get() = if (count == 0L) 0.0 else sum / count
+
+        /** Upper bound of the bucket holding quantile [q]; [max] for the overflow bucket. */
+        fun quantile(q: Double): Double {
+            if (count == 0L) return 0.0
+            val rank = ceil(q * count).toLong().coerceAtLeast(1)
+            var seen = 0L
+            for (i in counts.indices) {
+                seen += counts[i]
+                if (seen >= rank) return if (i < bounds.size) minOf(bounds[i], max) else max
+            }
+            return max
+        }
+
+        fun toMap(): Map<String, Any> = mapOf(
+            "count" to count,
+            "mean" to mean,
+            "p50" to quantile(0.5),
+            "p95" to quantile(0.95),
+            "p99" to quantile(0.99),
+            "max" to max
+        )
+    }
+
+    companion object {
+        /** Bucket bounds for latencies, in milliseconds */
+        val LATENCY_MILLIS = doubleArrayOf(0.5, 1.0, 2.5, 5.0, 10.0, 25.0, 50.0, 100.0, 250.0, 500.0, 1000.0, 2500.0, 5000.0)
+
+        /** Bucket bounds for in-memory work (event dispatch, chat delivery), in milliseconds */
+        val FAST_MILLIS = doubleArrayOf(0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0, 25.0, 100.0)
+
+        /** Bucket bounds for result sizes, in rows */
+        val ROWS = doubleArrayOf(0.0, 1.0, 5.0, 10.0, 25.0, 50.0, 100.0, 250.0, 500.0, 1000.0)
+    }
+}
@@ -0,0 +1,64 @@
+package com.envarcade.brennon.common.metrics
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Named counters, gauges and histograms, grouped into families by metric
+ * name and told apart by their labels.
+ *
+ * Lookups return the same instance for the same name and labels, so
+ * callers may either keep the instance or look it up on every use. Hot
+ * paths with a fixed set of labels should keep it.
+ */
+open class MetricsRegistry {
+
+    private val families = ConcurrentHashMap<String, Family>()
+
+    fun counter(name: String, help: String, vararg labels: Pair<String, String>): Counter =
+        family(name, help, Type.COUNTER).series(labels) { Counter() } as Counter
+
+    fun histogram(name: String, help: String, bounds: DoubleArray, vararg labels: Pair<String, String>): Histogram =
+        family(name, help, Type.HISTOGRAM).series(labels) { Histogram(bounds) } as Histogram
+
+    /** Registers a gauge, or replaces the supplier of an existing one (e.g. after a reconnect). */
+    fun gauge(name: String, help: String, vararg labels: Pair<String, String>, supplier: () -> Double): Gauge {
+        val gauge = family(name, help, Type.GAUGE).series(labels) { Gauge(supplier) } as Gauge
+        gauge.supplier = supplier
+        return gauge
+    }
+
+    fun families(): List<Family> = families.values.sortedBy { it.name }
+
+    private fun family(name: String, help: String, type: Type): Family {
+        val family = families.computeIfAbsent(name) { Family(name, help, type) }
+        require(family.type == type) { "Metric $name is already registered as a ${family.type}" }
+        return family
+    }
+
+    enum class Type { COUNTER, GAUGE, HISTOGRAM }
+
+    /**
+     * Every series of one metric. Series are keyed by their rendered label
+     * set (`key="value",...`), which is also how they are exported.
+     */
+    class Family(val name: String, val help: String, val type: Type) {
+
+        private val series = ConcurrentHashMap<String, Any>()
+
+        fun series(): Map<String, Any> = series.toSortedMap()
+
+        internal fun series(labels: Array<out Pair<String, String>>, create: () -> Any): Any =
+            series.computeIfAbsent(renderLabels(labels)) { create() }
+    }
+
+    companion object {
+        fun renderLabels(labels: Array<out Pair<String, String>>): String =
+            labels.joinToString(",") { (key, value) -> "$key=\"${escape(value)}\"" }
+
+        private fun escape(value: String): String =
+            value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")
+    }
+}
+
+/** The process-wide registry every module records into and the exporters read. */
+object Metrics : MetricsRegistry()
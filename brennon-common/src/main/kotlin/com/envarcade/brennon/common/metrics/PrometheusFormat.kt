@@ -0,0 +1,54 @@
+package com.envarcade.brennon.common.metrics
+
+/**
+ * Renders a [MetricsRegistry] in the Prometheus text exposition format
+ * (version 0.0.4), as served by `/metrics`.
+ */
+object PrometheusFormat {
+
+    const val CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8"
+
+    fun write(registry: MetricsRegistry = Metrics): String {
+        val out = StringBuilder()
+        for (family in registry.families()) {
+            val series = family.series()
+            if (series.isEmpty()) continue
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n')
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.name.lowercase()).append('\n')
+            for ((labels, metric) in series) {
+                when (metric) {
+                    is Counter -> sample(out, family.name, labels, metric.value.toDouble())
+                    is Gauge -> sample(out, family.name, labels, runCatching { metric.value }.getOrDefault(Double.NaN))
+                    is Histogram -> histogram(out, family.name, labels, metric.snapshot())
+                }
+            }
+        }
+        return out.toString()
+    }
+
+    private fun histogram(out: StringBuilder, name: String, labels: String, snapshot: Histogram.Snapshot) {
+        val separator = if (labels.isEmpty()) "" else ","
+        var cumulative = 0L
+        for (i in snapshot.bounds.indices) {
+            cumulative += snapshot.counts[i]
+            sample(out, "${name}_bucket", "$labels${separator}le=\"${snapshot.bounds[i]}\"", cumulative.toDouble())
+        }
+        sample(out, "${name}_bucket", "$labels${separator}le=\"+Inf\"", snapshot.count.toDouble())
+        sample(out, "${name}_sum", labels, snapshot.sum)
+        sample(out, "${name}_count", labels, snapshot.count.toDouble())
+    }
+
+    private fun sample(out: StringBuilder, name: String, labels: String, value: Double) {
+        out.append(name)
+        if (labels.isNotEmpty()) out.append('{').append(labels).append('}')
+        out.append(' ').append(format(value)).append('\n')
+    }
+
+    private fun format(value: Double): String = when {
+        value.isNaN() -> "NaN"
+        value == Double.POSITIVE_INFINITY -> "+Inf"
+        value == Double.NEGATIVE_INFINITY -> "-Inf"
+        value == Math.rint(value) && Math.abs(value) < 1e15 -> value.toLong().toString()
+        else -> value.toString()
+    }
+}
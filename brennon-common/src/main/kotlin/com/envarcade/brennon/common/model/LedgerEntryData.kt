@@ -0,0 +1,20 @@
+package com.envarcade.brennon.common.model
+
+import java.time.Instant
+import java.util.UUID
+
+/**
+ * A single append-only record of a balance change.
+ *
+ * [delta] is signed (negative for withdrawals), [balanceAfter] is the
+ * balance the database reported once the change was applied.
+ */
+data class LedgerEntryData(
+    val uuid: UUID,
+    val delta: Double,
+    val balanceAfter: Double,
+    val reason: String,
+    val counterparty: UUID? = null,
+    val server: String = "",
+    val timestamp: Instant = Instant.now()
+)
@@ -0,0 +1,34 @@
+package com.envarcade.brennon.common.model
+
+/**
+ * One page of a keyset-paginated query. [nextCursor] resumes after the
+ * last item, and is null when there are no more pages.
+ */
+data class Page<T>(
+    val items: List<T>,
+    val nextCursor: PageCursor?
+) {
+    fun <R> map(transform: (T) -> R): Page<R> = Page(items.map(transform), nextCursor)
+}
+
+/**
+ * Position in a keyset ordering: the sort column of the last item seen
+ * plus its id as a tie-breaker. Serialized as `sortKey,id` for URLs.
+ */
+data class PageCursor(
+    val sortKey: Long,
+    val id: String
+) {
+    fun encode(): String = "$sortKey,$id"
+
+    companion object {
+        /** Parses an encoded cursor, or returns null if it is malformed. */
+        fun decode(value: String?): PageCursor? {
+            if (value.isNullOrBlank()) return null
+            val sortKey = value.substringBefore(',').toLongOrNull() ?: return null
+            val id = value.substringAfter(',', "")
+            if (id.isEmpty()) return null
+            return PageCursor(sortKey, id)
+        }
+    }
+}
@@ -5,6 +5,11 @@ import com.envarcade.brennon.api.ticket.TicketStatus
 import java.time.Instant
 import java.util.UUID
 
+/**
+ * A support ticket. List queries return headers only, with [messagesLoaded]
+ * false and [messages] empty; saving such a ticket leaves its stored
+ * messages untouched.
+ */
 data class TicketData(
     val id: String,
     val creator: UUID,
@@ -18,5 +23,6 @@ data class TicketData(
     var updatedAt: Instant = Instant.now(),
     var closedAt: Instant? = null,
     val messages: MutableList<TicketMessageData> = mutableListOf(),
-    val networkId: String? = null
+    val networkId: String? = null,
+    val messagesLoaded: Boolean = true
 )
@@ -0,0 +1,61 @@
+package com.envarcade.brennon.common.util
+
+import com.envarcade.brennon.api.stats.StatPeriod
+import java.time.DayOfWeek
+import java.time.Instant
+import java.time.LocalDate
+import java.time.ZoneOffset
+import java.time.temporal.IsoFields
+import java.time.temporal.TemporalAdjusters
+
+/**
+ * Bucket naming for time-windowed stats.
+ *
+ * Each timed [StatPeriod] maps an instant to a bucket key (`2026-10-19`,
+ * `2026-W42`, `2026-10`) and the UTC start of that bucket, which is what
+ * retention pruning compares against.
+ */
+object StatPeriods {
+
+    /** Periods that have buckets (everything except ALL_TIME) */
+    val TIMED: List<StatPeriod> = listOf(StatPeriod.DAILY, StatPeriod.WEEKLY, StatPeriod.MONTHLY)
+
+    fun bucketKey(period: StatPeriod, at: Instant = Instant.now()): String {
+        val date = LocalDate.ofInstant(at, ZoneOffset.UTC)
+        return when (period) {
+            StatPeriod.DAILY -> date.toString()
+            StatPeriod.WEEKLY -> "%d-W%02d".format(
+                date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)
+            )
+            StatPeriod.MONTHLY -> "%d-%02d".format(date.year, date.monthValue)
+            StatPeriod.ALL_TIME -> "all"
+        }
+    }
+
+    fun bucketStart(period: StatPeriod, at: Instant = Instant.now()): Instant {
+        val date = LocalDate.ofInstant(at, ZoneOffset.UTC)
+        val start = when (period) {
+            StatPeriod.DAILY -> date
+            StatPeriod.WEEKLY -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+            StatPeriod.MONTHLY -> date.withDayOfMonth(1)
+            StatPeriod.ALL_TIME -> LocalDate.EPOCH
+        }
+        return start.atStartOfDay(ZoneOffset.UTC).toInstant()
+    }
+
+    /**
+     * Start of the oldest bucket to keep when retaining [count] buckets
+     * (including the current one).
+     */
+    fun retentionCutoff(period: StatPeriod, count: Int, now: Instant = Instant.now()): Instant {
+        val current = LocalDate.ofInstant(bucketStart(period, now), ZoneOffset.UTC)
+        val keep = (count - 1).coerceAtLeast(0).toLong()
+        val oldest = when (period) {
+            StatPeriod.DAILY -> current.minusDays(keep)
+            StatPeriod.WEEKLY -> current.minusWeeks(keep)
+            StatPeriod.MONTHLY -> current.minusMonths(keep)
+            StatPeriod.ALL_TIME -> LocalDate.EPOCH
+        }
+        return oldest.atStartOfDay(ZoneOffset.UTC).toInstant()
+    }
+}
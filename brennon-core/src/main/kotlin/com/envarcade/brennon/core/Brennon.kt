@@ -18,12 +18,15 @@ import com.envarcade.brennon.api.ticket.TicketManager
 import com.envarcade.brennon.common.config.BrennonConfig
 import com.envarcade.brennon.common.config.ConfigLoader
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.chat.CoreChatManager
 import com.envarcade.brennon.core.command.CommandRegistry
 import com.envarcade.brennon.core.command.impl.*
+import com.envarcade.brennon.core.economy.BalanceLeaderboard
 import com.envarcade.brennon.core.economy.CoreEconomyManager
 import com.envarcade.brennon.core.event.CoreEventBus
 import com.envarcade.brennon.core.gui.CoreGuiManager
+import com.envarcade.brennon.core.metrics.MetricsExporter
 import com.envarcade.brennon.core.module.CoreModuleManager
 import com.envarcade.brennon.core.player.CorePlayerManager
 import com.envarcade.brennon.core.punishment.CorePunishmentManager
@@ -35,11 +38,14 @@ import com.envarcade.brennon.core.scheduler.BrennonScheduler
 import com.envarcade.brennon.core.server.CoreServerManager
 import com.envarcade.brennon.core.server.ServerRegistryService
 import com.envarcade.brennon.core.staff.ReportManager
+import com.envarcade.brennon.core.network.CountTracker
 import com.envarcade.brennon.core.network.CrossNetworkService
 import com.envarcade.brennon.core.staff.StaffManager
 import com.envarcade.brennon.core.stats.CoreStatsManager
+import com.envarcade.brennon.core.stats.StatLeaderboardCache
 import com.envarcade.brennon.core.ticket.CoreTicketManager
 import com.envarcade.brennon.database.DatabaseManager
+import com.envarcade.brennon.database.driver.MongoDatabaseDriver
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
 import com.envarcade.brennon.messaging.channel.Channels
 import com.google.gson.JsonObject
@@ -79,6 +85,8 @@ class Brennon(
         private set
     lateinit var coreEconomyManager: CoreEconomyManager
         private set
+    lateinit var balanceLeaderboard: BalanceLeaderboard
+        private set
     lateinit var corePunishmentManager: CorePunishmentManager
         private set
     lateinit var coreServerManager: CoreServerManager
@@ -88,6 +96,10 @@ class Brennon(
     lateinit var scheduler: BrennonScheduler
         private set
 
+    /** Prometheus exporter, when `metrics.exporter` is enabled */
+    var metricsExporter: MetricsExporter? = null
+        private set
+
     // Feature managers
     lateinit var coreChatManager: CoreChatManager
         private set
@@ -126,27 +138,33 @@ class Brennon(
     lateinit var commandRegistry: CommandRegistry
         private set
 
-    fun enable(preloadedConfig: BrennonConfig? = null) {
+    private var apiRegistered = false
+
+    /**
+     * Starts every subsystem.
+     *
+     * @param registerApi whether to publish this instance through [BrennonProvider];
+     *        false lets several instances share a JVM, as the load generator does
+     */
+    fun enable(preloadedConfig: BrennonConfig? = null, registerApi: Boolean = true) {
         val startTime = System.currentTimeMillis()
 
-        println("========================================")
-        println(" Brennon Network Core v${VERSION}")
-        println(" Platform: ${platform.displayName}")
-        println("========================================")
+        Log.info("Brennon Network Core v${VERSION} on ${platform.displayName}")
 
         // Load configuration
         config = preloadedConfig ?: ConfigLoader.loadBrennonConfig(dataFolder)
-        println("[Brennon] Configuration loaded. Server: ${config.serverName} (${config.serverGroup})")
+        Log.configure(config.logging)
+        Log.info("Configuration loaded. Server: ${config.serverName} (${config.serverGroup})")
 
         // Create network context
         networkContext = NetworkContext(
             networkId = config.network.networkId,
             sharing = config.network.sharing
         )
-        println("[Brennon] Network: ${config.network.displayName} (${networkContext.networkId})")
+        Log.info("Network: ${config.network.displayName} (${networkContext.networkId})")
 
         // Initialize infrastructure
-        databaseManager = DatabaseManager(config.database, networkContext)
+        databaseManager = DatabaseManager(config.database, networkContext, config.leaderboards.stats.toSet())
         databaseManager.initialize()
 
         redisMessaging = RedisMessagingService(config.redis)
@@ -155,6 +173,7 @@ class Brennon(
         // Initialize core systems
         coreEventBus = CoreEventBus()
         coreModuleManager = CoreModuleManager()
+        CountTracker(databaseManager.counts, coreEventBus).initialize()
 
         coreRankManager = CoreRankManager(databaseManager, redisMessaging, coreEventBus)
         coreRankManager.initialize().join()
@@ -168,7 +187,7 @@ class Brennon(
                     coreRankManager.luckPermsHook = hook
                 }
             } catch (e: Exception) {
-                println("[Brennon] LuckPerms initialization failed: ${e.message}")
+                Log.warn("LuckPerms initialization failed", e)
             }
         }
 
@@ -211,8 +230,15 @@ class Brennon(
         ) { permissionRefreshCallback }.initialize()
 
         coreEconomyManager = CoreEconomyManager(
-            databaseManager, corePlayerManager, redisMessaging, coreEventBus
+            databaseManager, corePlayerManager, redisMessaging, coreEventBus, config.serverName
+        )
+        coreEconomyManager.initialize()
+
+        balanceLeaderboard = BalanceLeaderboard(
+            databaseManager, redisMessaging, coreEventBus, networkContext.networkId,
+            config.leaderboards.balanceSeedSize, config.leaderboards.reconcileIntervalMinutes
         )
+        balanceLeaderboard.initialize()
 
         // Network-scoped managers
         val punishmentNetworkId = networkContext.effectiveNetworkId(networkContext.sharing.punishments)
@@ -247,7 +273,18 @@ class Brennon(
         }
 
         if (config.modules.stats) {
-            coreStatsManager = CoreStatsManager(databaseManager, redisMessaging, coreEventBus)
+            (databaseManager.driver as? MongoDatabaseDriver)?.ensureStatIndexes(
+                config.leaderboards.stats + config.leaderboards.periodStats
+            )
+            val statsNetworkId = networkContext.effectiveNetworkId(networkContext.sharing.stats) ?: "__global__"
+            val statLeaderboards = StatLeaderboardCache(
+                databaseManager, redisMessaging, statsNetworkId,
+                config.leaderboards.stats, config.leaderboards.reconcileIntervalMinutes
+            )
+            statLeaderboards.initialize()
+            coreStatsManager = CoreStatsManager(
+                databaseManager, redisMessaging, coreEventBus, statLeaderboards, config.leaderboards
+            )
 
             // Wire stats auto-tracking hooks
             corePunishmentManager.statsTracker = { uuid, statId ->
@@ -283,26 +320,55 @@ class Brennon(
         // Start scheduler
         scheduler = BrennonScheduler(
             corePlayerManager,
-            if (::coreStatsManager.isInitialized) coreStatsManager else null
+            if (::coreStatsManager.isInitialized) coreStatsManager else null,
+            coreEconomyManager,
+            balanceLeaderboard,
+            databaseManager.counts,
+            config.database.countReconcileSeconds
         )
         scheduler.start()
 
+        if (config.metrics.exporter) {
+            try {
+                metricsExporter = MetricsExporter(config.metrics).apply { start() }
+            } catch (e: Exception) {
+                Log.warn("Failed to start metrics exporter", e)
+            }
+        }
+
         // Register the API
-        BrennonProvider.register(this)
+        if (registerApi) {
+            BrennonProvider.register(this)
+            apiRegistered = true
+        }
 
         val elapsed = System.currentTimeMillis() - startTime
-        println("[Brennon] All systems online. Enabled in ${elapsed}ms.")
+        Log.info("All systems online. Enabled in ${elapsed}ms.")
     }
 
+    /** Leaves logging running; the host calls `Log.shutdown()` once every instance in the JVM is down */
     fun disable() {
-        println("[Brennon] Shutting down...")
+        Log.info("Shutting down...")
 
         luckPermsHook?.shutdown()
 
-        if (::coreStatsManager.isInitialized) coreStatsManager.flushAll()
+        if (::coreStatsManager.isInitialized) {
+            try {
+                coreStatsManager.flushAll().join()
+            } catch (e: Exception) {
+                Log.warn("Failed to flush stats on shutdown", e)
+            }
+        }
+        try {
+            coreEconomyManager.flushBalances().join()
+            coreEconomyManager.flushLedger().join()
+        } catch (e: Exception) {
+            Log.warn("Failed to flush economy on shutdown", e)
+        }
         if (::coreChatManager.isInitialized) coreChatManager.shutdown()
 
         scheduler.stop()
+        metricsExporter?.stop()
         coreServerManager.shutdown()
         serverRegistryService.shutdown()
         corePlayerManager.shutdown()
@@ -311,8 +377,11 @@ class Brennon(
         redisMessaging.shutdown()
         databaseManager.shutdown()
 
-        BrennonProvider.unregister()
-        println("[Brennon] Disabled. Goodbye!")
+        if (apiRegistered) {
+            BrennonProvider.unregister()
+            apiRegistered = false
+        }
+        Log.info("Disabled. Goodbye!")
     }
 
     private fun registerCommands() {
@@ -334,6 +403,7 @@ class Brennon(
 
         // Economy commands
         commandRegistry.register(EconomyCommand(this))
+        commandRegistry.register(BalanceTopCommand(this))
 
         // Server commands
         commandRegistry.register(ServerCommand(this))
@@ -370,7 +440,7 @@ class Brennon(
             commandRegistry.register(LeaderboardCommand(this))
         }
 
-        println("[Brennon] Registered ${commandRegistry.getCommands().size} commands.")
+        Log.info("Registered ${commandRegistry.getCommands().size} commands.")
     }
 
     // BrennonAPI
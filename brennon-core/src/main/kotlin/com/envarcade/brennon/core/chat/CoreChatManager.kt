@@ -4,6 +4,9 @@ import com.envarcade.brennon.api.chat.ChatChannel
 import com.envarcade.brennon.api.chat.ChatFilter
 import com.envarcade.brennon.api.chat.ChatManager
 import com.envarcade.brennon.common.config.BrennonConfig
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.Metrics
 import com.envarcade.brennon.core.event.ChatMessageEvent
 import com.envarcade.brennon.core.event.ChannelSwitchEvent
 import com.envarcade.brennon.core.event.CoreEventBus
@@ -34,13 +37,24 @@ class CoreChatManager(
     private val playerSubscriptions = ConcurrentHashMap<UUID, MutableSet<String>>()
     val lastMessageRecipients = ConcurrentHashMap<UUID, UUID>()
 
+    private val filterTime = Metrics.histogram(
+        "brennon_chat_filter_milliseconds", "Time to run the chat filters over one message", Histogram.FAST_MILLIS
+    )
+    private val deliveryTime = Metrics.histogram(
+        "brennon_chat_delivery_milliseconds", "Time to format and deliver one message to local players", Histogram.FAST_MILLIS
+    )
+    private val filterHits = ChatFilter.FilterAction.values().associateWith {
+        Metrics.counter("brennon_chat_filter_hits_total", "Chat filter matches", "action" to it.name.lowercase())
+    }
+    private val messagesSent = Metrics.counter("brennon_chat_messages_total", "Chat messages sent from this server")
+
     /** Platform hook — delivers a message component to a local player. */
     var localMessageSender: ((UUID, net.kyori.adventure.text.Component) -> Unit)? = null
 
     /** Optional stats tracking — set by Brennon bootstrap when stats module is enabled. */
     var statsTracker: ((UUID, String) -> Unit)? = null
 
-    fun initialize() {
+    init {
         // Load channels from config
         for (channelData in config.chat.channels) {
             channels[channelData.id] = CoreChatChannel(channelData)
@@ -50,21 +64,23 @@ class CoreChatManager(
         for (filterData in config.chat.filters) {
             filters.add(CoreChatFilter(filterData))
         }
+    }
 
+    fun initialize() {
         // Subscribe to cross-server chat messages (network-scoped if configured)
-        messaging.subscribe(Channels.chatMessage(chatNetworkId)) { _, message ->
+        messaging.subscribe(Channels.chatMessage(chatNetworkId)) { channel, message ->
             try {
                 val packet = Packet.deserialize(message, ChatMessagePacket::class.java)
                 if (packet.server != config.serverName) {
                     deliverLocalMessage(packet.channelId, packet.senderName, packet.message)
                 }
             } catch (e: Exception) {
-                println("[Brennon] Error receiving chat message: ${e.message}")
+                Log.warn("Error receiving chat message", e, "channel" to channel)
             }
         }
 
         // Subscribe to private messages (network-scoped if configured)
-        messaging.subscribe(Channels.chatPrivate(chatNetworkId)) { _, message ->
+        messaging.subscribe(Channels.chatPrivate(chatNetworkId)) { channel, message ->
             try {
                 val packet = Packet.deserialize(message, PrivateMessagePacket::class.java)
                 val recipientUuid = UUID.fromString(packet.recipientUuid)
@@ -76,11 +92,11 @@ class CoreChatManager(
                     lastMessageRecipients[recipientUuid] = UUID.fromString(packet.senderUuid)
                 }
             } catch (e: Exception) {
-                println("[Brennon] Error receiving private message: ${e.message}")
+                Log.warn("Error receiving private message", e, "channel" to channel)
             }
         }
 
-        println("[Brennon] Chat manager initialized with ${channels.size} channels and ${filters.size} filters.")
+        Log.info("Chat manager initialized.", "channels" to channels.size, "filters" to filters.size)
     }
 
     fun shutdown() {
@@ -123,32 +139,15 @@ class CoreChatManager(
         if (isMutedInChannel(sender, channelId)) return
 
         // Apply filters
-        var processedMessage = message
-        for (filter in filters) {
-            if (!filter.isEnabled) continue
-            for (pattern in filter.patterns) {
-                if (pattern.matcher(processedMessage).find()) {
-                    when (filter.action) {
-                        ChatFilter.FilterAction.BLOCK -> return
-                        ChatFilter.FilterAction.CENSOR -> {
-                            processedMessage = pattern.matcher(processedMessage).replaceAll(filter.replacement)
-                        }
-                        ChatFilter.FilterAction.FLAG -> {
-                            messaging.publish(Channels.STAFF_ALERT, "[ChatFilter] ${filter.id} flagged message from $senderName: $message")
-                        }
-                        ChatFilter.FilterAction.LOG -> {
-                            println("[Brennon] [ChatFilter] ${filter.id} logged message from $senderName: $message")
-                        }
-                    }
-                }
-            }
-        }
+        val processedMessage = applyFilters(senderName, message) ?: return
 
         // Publish event
         val event = ChatMessageEvent(sender, senderName, channelId, processedMessage, config.serverName)
         eventBus.publish(event)
         if (event.isCancelled) return
 
+        messagesSent.inc()
+
         // Track stat
         statsTracker?.invoke(sender, com.envarcade.brennon.api.stats.StatTypes.MESSAGES_SENT)
 
@@ -168,6 +167,36 @@ class CoreChatManager(
         }
     }
 
+    /**
+     * Runs a message through the enabled filters, applying their actions.
+     *
+     * @return the message to send, censored where filters matched, or null if a filter blocks it
+     */
+    fun applyFilters(senderName: String, message: String): String? = filterTime.time {
+        var processedMessage = message
+        for (filter in filters) {
+            if (!filter.isEnabled) continue
+            for (pattern in filter.patterns) {
+                if (pattern.matcher(processedMessage).find()) {
+                    filterHits[filter.action]?.inc()
+                    when (filter.action) {
+                        ChatFilter.FilterAction.BLOCK -> return@time null
+                        ChatFilter.FilterAction.CENSOR -> {
+                            processedMessage = pattern.matcher(processedMessage).replaceAll(filter.replacement)
+                        }
+                        ChatFilter.FilterAction.FLAG -> {
+                            messaging.publish(Channels.STAFF_ALERT, "[ChatFilter] ${filter.id} flagged message from $senderName: $message")
+                        }
+                        ChatFilter.FilterAction.LOG -> {
+                            Log.info("Chat filter matched", "filter" to filter.id, "player" to senderName, "message" to message)
+                        }
+                    }
+                }
+            }
+        }
+        processedMessage
+    }
+
     override fun sendPrivateMessage(sender: UUID, senderName: String, recipient: UUID, message: String) {
         // Publish event
         val event = PrivateMessageEvent(sender, senderName, recipient, message)
@@ -217,19 +246,25 @@ class CoreChatManager(
         lastMessageRecipients.remove(uuid)
     }
 
-    private fun deliverLocalMessage(channelId: String, senderName: String, message: String) {
+    /**
+     * Formats a channel message and sends it to every player on this server
+     * allowed to read the channel.
+     */
+    fun deliverLocalMessage(channelId: String, senderName: String, message: String) {
         val channel = channels[channelId] ?: return
-        val formatted = com.envarcade.brennon.common.util.TextUtil.parse(
-            channel.format
-                .replace("<player>", senderName)
-                .replace("<message>", message)
-        )
-        // Deliver to all online players subscribed to this channel
-        for (player in playerManager.getOnlinePlayers()) {
-            val uuid = player.uniqueId
-            val permission = channel.permission
-            if (permission.isNotEmpty() && !player.hasPermission(permission)) continue
-            localMessageSender?.invoke(uuid, formatted)
+        deliveryTime.time {
+            val formatted = com.envarcade.brennon.common.util.TextUtil.parse(
+                channel.format
+                    .replace("<player>", senderName)
+                    .replace("<message>", message)
+            )
+            // Deliver to all online players subscribed to this channel
+            for (player in playerManager.getOnlinePlayers()) {
+                val uuid = player.uniqueId
+                val permission = channel.permission
+                if (permission.isNotEmpty() && !player.hasPermission(permission)) continue
+                localMessageSender?.invoke(uuid, formatted)
+            }
         }
     }
 }
@@ -151,6 +151,47 @@ class EconomyCommand(private val brennon: Brennon) : BrennonCommand(
     }
 }
 
+/**
+ * /baltop [page] — View the richest players
+ */
+class BalanceTopCommand(private val brennon: Brennon) : BrennonCommand(
+    name = "baltop",
+    permission = "brennon.command.baltop",
+    aliases = listOf("balancetop", "moneytop"),
+    usage = "/baltop [page]",
+    description = "View the richest players"
+) {
+    override fun execute(sender: BrennonCommandSender, args: Array<String>) {
+        val page = (args.firstOrNull()?.toIntOrNull() ?: 1).coerceAtLeast(1)
+        val perPage = 10
+
+        brennon.balanceLeaderboard.getPage(page, perPage).thenAccept { entries ->
+            if (entries.isEmpty()) {
+                sender.sendMessage(TextUtil.prefixed("No more entries."))
+                return@thenAccept
+            }
+
+            sender.sendMessage(TextUtil.prefixed("Balance Top <gray>(Page $page)"))
+            entries.entries.forEachIndexed { index, (uuid, balance) ->
+                val rank = (page - 1) * perPage + index + 1
+                val playerName = brennon.corePlayerManager.getCachedPlayer(uuid)?.name ?: uuid.toString().substring(0, 8)
+                val color = when (rank) {
+                    1 -> "<gold>"
+                    2 -> "<gray>"
+                    3 -> "<#CD7F32>"
+                    else -> "<white>"
+                }
+                sender.sendMessage(TextUtil.parse("  $color#$rank <yellow>$playerName <dark_gray>- <green>$${"%.2f".format(balance)}"))
+            }
+
+            val uuid = sender.uuid ?: return@thenAccept
+            brennon.balanceLeaderboard.getRank(uuid).thenAccept { rank ->
+                if (rank > 0) sender.sendMessage(TextUtil.parse("  <gray>Your rank: <white>#$rank"))
+            }
+        }
+    }
+}
+
 /**
  * /server [name] — List servers or send player to a server
  */
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.core.command.impl
 
+import com.envarcade.brennon.api.stats.StatPeriod
 import com.envarcade.brennon.api.stats.StatTypes
 import com.envarcade.brennon.common.util.TextUtil
 import com.envarcade.brennon.common.util.TimeUtil
@@ -97,13 +98,13 @@ class StatsCommand(private val brennon: Brennon) : BrennonCommand(
 }
 
 /**
- * /leaderboard <stat> [page] — View stat leaderboards
+ * /leaderboard <stat> [daily|weekly|monthly] [page] — View stat leaderboards
  */
 class LeaderboardCommand(private val brennon: Brennon) : BrennonCommand(
     name = "leaderboard",
     permission = "brennon.command.leaderboard",
     aliases = listOf("lb", "top"),
-    usage = "/leaderboard <stat> [page]",
+    usage = "/leaderboard <stat> [daily|weekly|monthly] [page]",
     description = "View stat leaderboards"
 ) {
     private val statNames = listOf(
@@ -118,23 +119,26 @@ class LeaderboardCommand(private val brennon: Brennon) : BrennonCommand(
 
     override fun execute(sender: BrennonCommandSender, args: Array<String>) {
         if (args.isEmpty()) {
-            sender.sendMessage(TextUtil.error("Usage: /leaderboard <stat> [page]"))
+            sender.sendMessage(TextUtil.error("Usage: /leaderboard <stat> [daily|weekly|monthly] [page]"))
             sender.sendMessage(TextUtil.parse("  <gray>Available stats: <yellow>${statNames.joinToString(", ")}"))
             return
         }
 
         val statId = args[0].lowercase()
-        val page = if (args.size > 1) (args[1].toIntOrNull() ?: 1) else 1
+        val period = args.getOrNull(1)?.let { parsePeriod(it) }
+        val pageArg = if (period != null) args.getOrNull(2) else args.getOrNull(1)
+        val page = pageArg?.toIntOrNull() ?: 1
         val perPage = 10
 
-        brennon.coreStatsManager.getLeaderboard(statId, perPage * page).thenAccept { leaderboard ->
+        brennon.coreStatsManager.getLeaderboard(statId, period ?: StatPeriod.ALL_TIME, perPage * page).thenAccept { leaderboard ->
             if (leaderboard.isEmpty()) {
                 sender.sendMessage(TextUtil.prefixed("No data for stat: <yellow>$statId"))
                 return@thenAccept
             }
 
             val displayName = statId.replace("_", " ").replaceFirstChar { it.uppercase() }
-            sender.sendMessage(TextUtil.prefixed("Leaderboard: <yellow>$displayName <gray>(Page $page)"))
+            val periodLabel = period?.let { " <gray>(${it.name.lowercase().replaceFirstChar { c -> c.uppercase() }})" } ?: ""
+            sender.sendMessage(TextUtil.prefixed("Leaderboard: <yellow>$displayName$periodLabel <gray>(Page $page)"))
 
             val entries = leaderboard.entries.toList()
             val startIndex = (page - 1) * perPage
@@ -167,10 +171,21 @@ class LeaderboardCommand(private val brennon: Brennon) : BrennonCommand(
         }
     }
 
+    private fun parsePeriod(arg: String): StatPeriod? = when (arg.lowercase()) {
+        "daily", "day", "today" -> StatPeriod.DAILY
+        "weekly", "week" -> StatPeriod.WEEKLY
+        "monthly", "month" -> StatPeriod.MONTHLY
+        "alltime", "all" -> StatPeriod.ALL_TIME
+        else -> null
+    }
+
     override fun tabComplete(sender: BrennonCommandSender, args: Array<String>): List<String> {
         if (args.size == 1) {
             return statNames.filter { it.startsWith(args[0], ignoreCase = true) }
         }
+        if (args.size == 2) {
+            return listOf("daily", "weekly", "monthly", "alltime").filter { it.startsWith(args[1], ignoreCase = true) }
+        }
         return emptyList()
     }
 }
@@ -0,0 +1,133 @@
+package com.envarcade.brennon.core.economy
+
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.core.event.BalanceChangeEvent
+import com.envarcade.brennon.core.event.CoreEventBus
+import com.envarcade.brennon.core.leaderboard.RedisLeaderboard
+import com.envarcade.brennon.database.DatabaseManager
+import com.envarcade.brennon.messaging.redis.RedisMessagingService
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * Balance top ("baltop") rankings.
+ *
+ * The top [seedSize] balances are loaded into a Redis sorted set from one
+ * indexed query, and every [BalanceChangeEvent] then updates the changed
+ * player's score. Anyone outside the seed only enters the set once their
+ * balance changes, so the set is exact down to the lowest seeded balance
+ * (the floor). Pages and ranks below the floor are answered by the database.
+ *
+ * The set and its floor live under `brennon:baltop:{networkId}`, and
+ * [reconcile] periodically reloads both from the database, trimming
+ * players who changed after seeding back to the top [seedSize].
+ */
+class BalanceLeaderboard(
+    private val database: DatabaseManager,
+    private val messaging: RedisMessagingService,
+    private val eventBus: CoreEventBus,
+    private val networkId: String,
+    private val seedSize: Int,
+    val reconcileIntervalMinutes: Int
+) {
+
+    private val board = RedisLeaderboard(messaging, "brennon:baltop:$networkId")
+    private val floorKey = "brennon:baltop:$networkId:floor"
+
+    /**
+     * Seeds the sorted set if no other server has yet, and starts
+     * following balance changes.
+     */
+    fun initialize() {
+        eventBus.subscribe(BalanceChangeEvent::class.java) { event ->
+            try {
+                board.set(event.uuid, event.newBalance)
+            } catch (e: Exception) {
+                Log.warn("Failed to update balance leaderboard", e)
+            }
+        }
+
+        if (board.size() == 0L) {
+            rebuild().exceptionally { e ->
+                Log.warn("Failed to seed balance leaderboard", e)
+                null
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the set from the database. Only one server on the network
+     * does this per interval.
+     */
+    fun reconcile() {
+        val lockSeconds = (reconcileIntervalMinutes * 60 - 30).coerceAtLeast(30)
+        if (!messaging.tryLock("baltop:reconcile:$networkId", lockSeconds)) return
+        rebuild().join()
+    }
+
+    /**
+     * Reloads the sorted set and its floor from the database.
+     */
+    fun rebuild(): CompletableFuture<Void> {
+        // The staging key is shared, so only one server may build the set at a time
+        if (!messaging.tryLock("baltop:build:$networkId", BUILD_LOCK_SECONDS)) {
+            return CompletableFuture.completedFuture(null)
+        }
+        return database.economy.findTopBalances(0, seedSize).thenAccept { top ->
+            board.replaceAll(top)
+            val floor = if (top.size < seedSize) 0.0 else top.values.lastOrNull() ?: 0.0
+            messaging.getPool().resource.use { it.set(floorKey, floor.toString()) }
+            Log.info("Balance leaderboard seeded", "entries" to top.size)
+        }
+    }
+
+    /**
+     * Gets the highest balances, richest first.
+     */
+    fun getTop(limit: Int): CompletableFuture<Map<UUID, Double>> = getPage(1, limit)
+
+    /**
+     * Gets one page of the rankings (1-based), richest first.
+     */
+    fun getPage(page: Int, perPage: Int): CompletableFuture<Map<UUID, Double>> {
+        val offset = (page - 1).coerceAtLeast(0) * perPage
+        return CompletableFuture.supplyAsync {
+            val entries = board.range(offset.toLong(), perPage)
+            val floor = floor()
+            // A floor of zero means the whole table was seeded; an empty read may also mean the set is gone
+            val complete = if (entries.isEmpty()) {
+                floor <= 0.0 && board.exists()
+            } else {
+                floor <= 0.0 || (entries.size == perPage && entries.values.last() >= floor)
+            }
+            if (complete) entries else null
+        }.thenCompose { entries ->
+            entries?.let { CompletableFuture.completedFuture(it) }
+                ?: database.economy.findTopBalances(offset, perPage)
+        }
+    }
+
+    /**
+     * Gets a player's 1-based rank, or -1 if they have no balance record.
+     */
+    fun getRank(uuid: UUID): CompletableFuture<Long> {
+        return CompletableFuture.supplyAsync {
+            val score = board.score(uuid)
+            if (score != null && score >= floor()) board.rank(uuid) else null
+        }.thenCompose { rank ->
+            if (rank != null) return@thenCompose CompletableFuture.completedFuture(rank)
+            database.economy.getBalance(uuid).thenCompose { balance ->
+                if (balance == null) CompletableFuture.completedFuture(-1L)
+                else database.economy.countBalancesAbove(balance).thenApply { it + 1 }
+            }
+        }
+    }
+
+    private fun floor(): Double {
+        return messaging.getPool().resource.use { it.get(floorKey) }?.toDoubleOrNull() ?: 0.0
+    }
+
+    companion object {
+        private const val BUILD_LOCK_SECONDS = 120
+    }
+}
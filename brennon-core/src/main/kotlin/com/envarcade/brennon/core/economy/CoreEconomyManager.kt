@@ -1,79 +1,155 @@
 package com.envarcade.brennon.core.economy
 
 import com.envarcade.brennon.api.economy.EconomyManager
+import com.envarcade.brennon.api.stats.StatTypes
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.model.LedgerEntryData
 import com.envarcade.brennon.core.event.BalanceChangeEvent
 import com.envarcade.brennon.core.event.CoreEventBus
+import com.envarcade.brennon.core.event.PlayerNetworkJoinEvent
+import com.envarcade.brennon.core.event.PlayerNetworkQuitEvent
 import com.envarcade.brennon.core.event.TransferEvent
 import com.envarcade.brennon.core.player.CorePlayerManager
 import com.envarcade.brennon.database.DatabaseManager
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
+import com.google.gson.JsonParser
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
 
 /**
  * Core implementation of the EconomyManager.
  *
- * Handles cross-server economy with database persistence
- * and Redis-based balance sync notifications.
+ * Players online on this server get an in-memory account in
+ * [EconomyAccountStore]. Deposits to them are applied there lock-free and
+ * written back as batched deltas by [flushBalances]. Withdrawals and
+ * overwrites always go to the atomic [DatabaseManager.economy] repository
+ * (after flushing that account's deposits), since the proxy and the
+ * player's server each hold a copy and only the database can stop both from
+ * spending the same funds. Changes for anyone else go straight to the
+ * repository too. The cached
+ * [com.envarcade.brennon.common.model.PlayerData.balance] of online
+ * players is only a read view kept in step with both.
+ *
+ * Each change is also queued as a [LedgerEntryData] and written to the
+ * ledger in batches by [flushLedger].
  */
 class CoreEconomyManager(
     private val database: DatabaseManager,
     private val playerManager: CorePlayerManager,
     private val messaging: RedisMessagingService,
-    private val eventBus: CoreEventBus
+    private val eventBus: CoreEventBus,
+    private val serverName: String
 ) : EconomyManager {
 
     /** Optional stats tracking — set by Brennon bootstrap when stats module is enabled. */
     var statsTracker: ((UUID, String, Double) -> Unit)? = null
 
+    /** Balances of players online on this server */
+    private val accounts = EconomyAccountStore()
+
+    /** Deltas of players who left before their flush succeeded */
+    private val offlineDeltas = ConcurrentHashMap<UUID, Double>()
+
+    /** Ledger entries waiting for the next batch write */
+    private val pendingLedger = ConcurrentLinkedQueue<LedgerEntryData>()
+
+    /**
+     * Loads accounts as players join, writes them back as they leave, and
+     * subscribes to balance sync notifications so balances of online players
+     * follow changes made on other servers.
+     */
+    fun initialize() {
+        eventBus.subscribe(PlayerNetworkJoinEvent::class.java) { event ->
+            val cached = playerManager.getCachedPlayer(event.uuid) ?: return@subscribe
+            accounts.load(event.uuid, cached.getData().balance)
+        }
+
+        eventBus.subscribe(PlayerNetworkQuitEvent::class.java) { event ->
+            val delta = accounts.unload(event.uuid)
+            if (delta != 0.0) {
+                // The next server may already have loaded the balance without these deposits
+                writeDeltas(mapOf(event.uuid to delta)).thenRun { notifyFlushed(event.uuid) }
+            }
+        }
+
+        messaging.subscribe(Channels.ECONOMY_UPDATE) { _, message ->
+            try {
+                val json = JsonParser.parseString(message).asJsonObject
+                if (json.get("origin")?.asString == serverName) return@subscribe
+                if (json.get("type")?.asString == "balance_flushed") {
+                    reloadAccount(UUID.fromString(json.get("uuid").asString))
+                    return@subscribe
+                }
+                if (json.get("type")?.asString != "balance_change" || !json.has("balance")) return@subscribe
+                val uuid = UUID.fromString(json.get("uuid").asString)
+
+                if (accounts.isLoaded(uuid) && json.has("delta")) {
+                    // Keep our unflushed changes; only fold in the remote delta
+                    accounts.applyRemote(uuid, json.get("delta").asDouble)
+                    accounts.getBalance(uuid)?.let { syncCachedBalance(uuid, it) }
+                } else {
+                    syncCachedBalance(uuid, json.get("balance").asDouble)
+                }
+            } catch (e: Exception) {
+                Log.warn("Failed to handle economy update", e)
+            }
+        }
+    }
+
     override fun getBalance(uuid: UUID): CompletableFuture<Double> {
-        // Check online cache first
+        // Check local account, then online cache
+        accounts.getBalance(uuid)?.let { return CompletableFuture.completedFuture(it) }
         val cached = playerManager.getCachedPlayer(uuid)
         if (cached != null) {
             return CompletableFuture.completedFuture(cached.getData().balance)
         }
 
         // Load from database
-        return database.players.findByUuid(uuid).thenApply { data ->
-            data?.balance ?: 0.0
+        return database.economy.getBalance(uuid).thenApply { balance ->
+            balance ?: 0.0
         }
     }
 
     override fun setBalance(uuid: UUID, amount: Double): CompletableFuture<Void> {
         require(amount >= 0) { "Balance cannot be negative." }
 
-        return modifyBalance(uuid) { data ->
-            val old = data.balance
-            data.balance = amount
+        val previous = flushAccount(uuid).thenCompose { database.economy.setBalance(uuid, amount) }
+
+        return previous.thenAccept { old ->
+            accounts.reconcile(uuid, amount)
+            syncCachedBalance(uuid, amount)
             eventBus.publish(BalanceChangeEvent(uuid, old, amount, "set"))
+            record(uuid, amount - old, amount, "set")
+            notifyBalanceChange(uuid, amount, amount - old)
         }
     }
 
     override fun deposit(uuid: UUID, amount: Double): CompletableFuture<Double> {
         require(amount > 0) { "Deposit amount must be positive." }
 
-        return modifyBalanceWithResult(uuid) { data ->
-            val old = data.balance
-            data.balance += amount
-            eventBus.publish(BalanceChangeEvent(uuid, old, data.balance, "deposit"))
-            statsTracker?.invoke(uuid, com.envarcade.brennon.api.stats.StatTypes.MONEY_EARNED, amount)
-            data.balance
+        return applyDeposit(uuid, amount).thenApply { balance ->
+            syncCachedBalance(uuid, balance)
+            eventBus.publish(BalanceChangeEvent(uuid, balance - amount, balance, "deposit"))
+            statsTracker?.invoke(uuid, StatTypes.MONEY_EARNED, amount)
+            record(uuid, amount, balance, "deposit")
+            notifyBalanceChange(uuid, balance, amount)
+            balance
         }
     }
 
     override fun withdraw(uuid: UUID, amount: Double): CompletableFuture<Double> {
         require(amount > 0) { "Withdrawal amount must be positive." }
 
-        return modifyBalanceWithResult(uuid) { data ->
-            if (data.balance < amount) {
-                throw IllegalStateException("Insufficient funds. Balance: ${data.balance}, Requested: $amount")
-            }
-            val old = data.balance
-            data.balance -= amount
-            eventBus.publish(BalanceChangeEvent(uuid, old, data.balance, "withdraw"))
-            statsTracker?.invoke(uuid, com.envarcade.brennon.api.stats.StatTypes.MONEY_SPENT, amount)
-            data.balance
+        return applyWithdraw(uuid, amount).thenApply { balance ->
+            syncCachedBalance(uuid, balance)
+            eventBus.publish(BalanceChangeEvent(uuid, balance + amount, balance, "withdraw"))
+            statsTracker?.invoke(uuid, StatTypes.MONEY_SPENT, amount)
+            record(uuid, -amount, balance, "withdraw")
+            notifyBalanceChange(uuid, balance, -amount)
+            balance
         }
     }
 
@@ -81,14 +157,36 @@ class CoreEconomyManager(
         require(amount > 0) { "Transfer amount must be positive." }
         require(from != to) { "Cannot transfer to yourself." }
 
-        // Withdraw from sender, then deposit to receiver
-        return withdraw(from, amount).thenCompose {
-            deposit(to, amount)
-        }.thenRun {
+        val balances = if (!accounts.isLoaded(from) && !accounts.isLoaded(to)) {
+            // Both sides are applied in one database operation
+            database.economy.transfer(from, to, amount)
+        } else {
+            // At least one side is local: withdraw first, refund if the deposit fails
+            applyWithdraw(from, amount).thenCompose { fromBalance ->
+                applyDeposit(to, amount)
+                    .thenApply { toBalance -> Pair(fromBalance, toBalance) }
+                    .exceptionallyCompose { error -> refundTransfer(from, to, amount, fromBalance, error) }
+            }
+        }
+
+        return balances.thenAccept { (fromBalance, toBalance) ->
+            syncCachedBalance(from, fromBalance)
+            syncCachedBalance(to, toBalance)
+
+            eventBus.publish(BalanceChangeEvent(from, fromBalance + amount, fromBalance, "transfer"))
+            eventBus.publish(BalanceChangeEvent(to, toBalance - amount, toBalance, "transfer"))
+            statsTracker?.invoke(from, StatTypes.MONEY_SPENT, amount)
+            statsTracker?.invoke(to, StatTypes.MONEY_EARNED, amount)
+
+            record(from, -amount, fromBalance, "transfer", counterparty = to)
+            record(to, amount, toBalance, "transfer", counterparty = from)
+
             eventBus.publish(TransferEvent(from, to, amount))
             messaging.publish(Channels.ECONOMY_UPDATE, """
                 {"from":"$from","to":"$to","amount":$amount,"type":"transfer"}
             """.trimIndent())
+            notifyBalanceChange(from, fromBalance, -amount)
+            notifyBalanceChange(to, toBalance, amount)
         }
     }
 
@@ -96,72 +194,155 @@ class CoreEconomyManager(
         return getBalance(uuid).thenApply { balance -> balance >= amount }
     }
 
+    /**
+     * Gets the most recent ledger entries for a player, newest first.
+     */
+    fun getHistory(uuid: UUID, limit: Int): CompletableFuture<List<LedgerEntryData>> {
+        return database.economy.findLedger(uuid, limit)
+    }
+
+    /**
+     * Writes the unflushed balance deltas of all local accounts in one batch.
+     * Called periodically by the scheduler and on shutdown.
+     */
+    fun flushBalances(): CompletableFuture<Void> {
+        val deltas = HashMap(accounts.drainPending())
+        for (uuid in offlineDeltas.keys) {
+            val delta = offlineDeltas.remove(uuid) ?: continue
+            deltas.merge(uuid, delta, Double::plus)
+        }
+        if (deltas.isEmpty()) return CompletableFuture.completedFuture(null)
+        return writeDeltas(deltas)
+    }
+
+    /**
+     * Writes all queued ledger entries in a single batch.
+     * Called periodically by the scheduler and on shutdown.
+     */
+    fun flushLedger(): CompletableFuture<Void> {
+        val batch = mutableListOf<LedgerEntryData>()
+        while (true) {
+            batch.add(pendingLedger.poll() ?: break)
+        }
+        if (batch.isEmpty()) return CompletableFuture.completedFuture(null)
+
+        return database.economy.appendLedger(batch).whenComplete { _, error ->
+            if (error != null) {
+                // Keep the entries for the next flush rather than losing history
+                pendingLedger.addAll(batch)
+                Log.warn("Failed to write ledger entries", error, "entries" to batch.size)
+            }
+        }
+    }
+
     // ============================================================
     // Internal Helpers
     // ============================================================
 
+    private fun applyDeposit(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        accounts.deposit(uuid, amount)?.let { return CompletableFuture.completedFuture(it) }
+        return database.economy.deposit(uuid, amount)
+    }
+
+    private fun applyWithdraw(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        // Guarded by `balance >= ?` in the database, so no two servers can spend the same funds
+        return flushAccount(uuid)
+            .thenCompose { database.economy.withdraw(uuid, amount) }
+            .thenApply { balance -> accounts.reconcile(uuid, balance) ?: balance }
+    }
+
     /**
-     * Modifies a player's balance atomically (cached or database).
+     * Writes a loaded account's buffered deposits before a guarded database
+     * change, so the guard sees them.
      */
-    private fun modifyBalance(uuid: UUID, modifier: (com.envarcade.brennon.common.model.PlayerData) -> Unit): CompletableFuture<Void> {
-        // If online, modify cached data and save
-        val cached = playerManager.getCachedPlayer(uuid)
-        if (cached != null) {
-            cached.updateData(modifier)
-            return database.players.save(cached.getData()).thenRun {
-                notifyBalanceChange(uuid)
-            }
-        }
+    private fun flushAccount(uuid: UUID): CompletableFuture<Void> {
+        val delta = accounts.drainPending(uuid)
+        if (delta == 0.0) return CompletableFuture.completedFuture(null)
+        return writeDeltas(mapOf(uuid to delta))
+    }
 
-        // If offline, load -> modify -> save
-        return database.players.findByUuid(uuid).thenCompose { data ->
-            if (data == null) {
-                CompletableFuture.failedFuture(IllegalArgumentException("Player $uuid not found."))
+    /**
+     * Gives back a transfer's withdrawal after its deposit failed, recording
+     * both in the ledger, then fails with the deposit's error.
+     */
+    private fun refundTransfer(from: UUID, to: UUID, amount: Double, fromBalance: Double, error: Throwable): CompletableFuture<Pair<Double, Double>> {
+        record(from, -amount, fromBalance, "transfer", counterparty = to)
+        return applyDeposit(from, amount).handle { balance, refundError ->
+            if (refundError != null) {
+                Log.error("Failed to refund transfer", refundError, "player" to from, "amount" to amount)
             } else {
-                modifier(data)
-                database.players.save(data).thenRun {
-                    notifyBalanceChange(uuid)
-                }
+                syncCachedBalance(from, balance)
+                record(from, amount, balance, "transfer_refund", counterparty = to)
+                notifyBalanceChange(from, balance, 0.0)
             }
+            throw error
         }
     }
 
     /**
-     * Modifies a player's balance and returns the new balance.
+     * Re-reads a loaded account after another server flushed deposits to it.
      */
-    private fun modifyBalanceWithResult(uuid: UUID, modifier: (com.envarcade.brennon.common.model.PlayerData) -> Double): CompletableFuture<Double> {
-        val cached = playerManager.getCachedPlayer(uuid)
-        if (cached != null) {
-            val result = modifier(cached.getData())
-            return database.players.save(cached.getData()).thenApply {
-                notifyBalanceChange(uuid)
-                result
-            }
+    private fun reloadAccount(uuid: UUID) {
+        if (!accounts.isLoaded(uuid)) return
+        database.economy.getBalance(uuid).thenAccept { persisted ->
+            if (persisted == null) return@thenAccept
+            accounts.reconcile(uuid, persisted)?.let { syncCachedBalance(uuid, it) }
         }
+    }
 
-        return database.players.findByUuid(uuid).thenCompose { data ->
-            if (data == null) {
-                CompletableFuture.failedFuture(IllegalArgumentException("Player $uuid not found."))
-            } else {
-                val result = modifier(data)
-                database.players.save(data).thenApply {
-                    notifyBalanceChange(uuid)
-                    result
+    /**
+     * Persists balance deltas, handing them back to the accounts (or the
+     * offline queue) if the write fails.
+     */
+    private fun writeDeltas(deltas: Map<UUID, Double>): CompletableFuture<Void> {
+        return database.economy.applyDeltas(deltas).whenComplete { _, error ->
+            if (error != null) {
+                for ((uuid, delta) in deltas) {
+                    if (accounts.isLoaded(uuid)) {
+                        accounts.restorePending(uuid, delta)
+                    } else {
+                        offlineDeltas.merge(uuid, delta, Double::plus)
+                    }
                 }
+                Log.warn("Failed to write balance changes", error, "players" to deltas.size)
             }
         }
     }
 
+    private fun record(uuid: UUID, delta: Double, balanceAfter: Double, reason: String, counterparty: UUID? = null) {
+        pendingLedger.add(LedgerEntryData(uuid, delta, balanceAfter, reason, counterparty, serverName))
+    }
+
+    /**
+     * Refreshes the cached balance of an online player.
+     */
+    private fun syncCachedBalance(uuid: UUID, balance: Double) {
+        playerManager.getCachedPlayer(uuid)?.updateData { it.balance = balance }
+    }
+
+    /**
+     * Tells servers holding the account that deposits made here are now in the database.
+     */
+    private fun notifyFlushed(uuid: UUID) {
+        try {
+            messaging.publish(Channels.ECONOMY_UPDATE, """
+                {"uuid":"$uuid","type":"balance_flushed","origin":"$serverName"}
+            """.trimIndent())
+        } catch (e: Exception) {
+            Log.warn("Failed to publish economy update", e, "player" to uuid)
+        }
+    }
+
     /**
      * Notifies other servers of a balance change via Redis.
      */
-    private fun notifyBalanceChange(uuid: UUID) {
+    private fun notifyBalanceChange(uuid: UUID, balance: Double, delta: Double) {
         try {
             messaging.publish(Channels.ECONOMY_UPDATE, """
-                {"uuid":"$uuid","type":"balance_change"}
+                {"uuid":"$uuid","type":"balance_change","balance":$balance,"delta":$delta,"origin":"$serverName"}
             """.trimIndent())
         } catch (e: Exception) {
-            println("[Brennon] Failed to publish economy update for $uuid: ${e.message}")
+            Log.warn("Failed to publish economy update", e, "player" to uuid)
         }
     }
 }
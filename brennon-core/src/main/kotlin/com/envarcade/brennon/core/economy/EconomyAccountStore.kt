@@ -0,0 +1,132 @@
+package com.envarcade.brennon.core.economy
+
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * In-memory balances for players online on this server.
+ *
+ * Balances are fixed-point longs ([SCALE] units per coin) held in
+ * [AtomicLong]s. Each account is the last balance known to be persisted
+ * plus the deposits made here that are still waiting for the write-behind
+ * flush ([drainPending]). Only deposits are buffered: they commute, so
+ * several servers can hold the same account and flush in any order.
+ * Withdrawals and overwrites go to the database, whose `balance >= ?` guard
+ * decides, and the result is handed back with [reconcile].
+ */
+class EconomyAccountStore {
+
+    private class Account(units: Long) {
+        val persisted = AtomicLong(units)
+        val pending = AtomicLong(0)
+
+        fun balance(): Long = persisted.get() + pending.get()
+    }
+
+    private val accounts = ConcurrentHashMap<UUID, Account>()
+
+    /**
+     * Starts tracking a player's account with the balance loaded from the database.
+     */
+    fun load(uuid: UUID, balance: Double) {
+        accounts[uuid] = Account(toUnits(balance))
+    }
+
+    /**
+     * Stops tracking a player's account.
+     *
+     * @return The unflushed delta, to be written by the caller
+     */
+    fun unload(uuid: UUID): Double {
+        val account = accounts.remove(uuid) ?: return 0.0
+        return fromUnits(account.pending.getAndSet(0))
+    }
+
+    fun isLoaded(uuid: UUID): Boolean = accounts.containsKey(uuid)
+
+    fun getBalance(uuid: UUID): Double? = accounts[uuid]?.let { fromUnits(it.balance()) }
+
+    /**
+     * Adds to a loaded account.
+     *
+     * @return The new balance, or null if the account is not loaded
+     */
+    fun deposit(uuid: UUID, amount: Double): Double? {
+        val account = accounts[uuid] ?: return null
+        account.pending.addAndGet(toUnits(amount))
+        return fromUnits(account.balance())
+    }
+
+    /**
+     * Replaces the persisted part of a loaded account with a balance just
+     * read from or written to the database, keeping its unflushed deposits.
+     *
+     * @return The new balance, or null if the account is not loaded
+     */
+    fun reconcile(uuid: UUID, persisted: Double): Double? {
+        val account = accounts[uuid] ?: return null
+        account.persisted.set(toUnits(persisted))
+        return fromUnits(account.balance())
+    }
+
+    /**
+     * Applies a change that is already persisted elsewhere (another server,
+     * or a direct database write) without queuing it for flush.
+     */
+    fun applyRemote(uuid: UUID, delta: Double) {
+        accounts[uuid]?.persisted?.addAndGet(toUnits(delta))
+    }
+
+    /**
+     * Re-queues deltas whose flush failed.
+     */
+    fun restorePending(uuid: UUID, delta: Double) {
+        val account = accounts[uuid] ?: return
+        val units = toUnits(delta)
+        account.persisted.addAndGet(-units)
+        account.pending.addAndGet(units)
+    }
+
+    /**
+     * Takes one account's pending delta, resetting it to zero.
+     */
+    fun drainPending(uuid: UUID): Double {
+        val account = accounts[uuid] ?: return 0.0
+        return fromUnits(drain(account))
+    }
+
+    /**
+     * Takes every non-zero pending delta, resetting them to zero.
+     */
+    fun drainPending(): Map<UUID, Double> {
+        val drained = HashMap<UUID, Double>()
+        for ((uuid, account) in accounts) {
+            val units = drain(account)
+            if (units != 0L) drained[uuid] = fromUnits(units)
+        }
+        return drained
+    }
+
+    fun clear() {
+        accounts.clear()
+    }
+
+    /** Moves the pending delta into the persisted part, which is what the flush is about to make true */
+    private fun drain(account: Account): Long {
+        val units = account.pending.get()
+        if (units == 0L) return 0L
+        account.persisted.addAndGet(units)
+        account.pending.addAndGet(-units)
+        return units
+    }
+
+    companion object {
+        /** Fixed-point units per coin (two decimal places) */
+        const val SCALE = 100L
+
+        fun toUnits(amount: Double): Long = Math.round(amount * SCALE)
+
+        fun fromUnits(units: Long): Double = units.toDouble() / SCALE
+    }
+}
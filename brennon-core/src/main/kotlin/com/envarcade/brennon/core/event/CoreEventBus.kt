@@ -2,6 +2,9 @@ package com.envarcade.brennon.core.event
 
 import com.envarcade.brennon.api.event.BrennonEvent
 import com.envarcade.brennon.api.event.EventBus
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.Metrics
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.function.Consumer
@@ -10,11 +13,14 @@ import java.util.function.Consumer
  * Core implementation of the Brennon event bus.
  *
  * Provides a lightweight, thread-safe pub/sub system for
- * cross-module communication within a single JVM.
+ * cross-module communication within a single JVM. Dispatch time is
+ * recorded per event type, for events that have listeners.
  */
 class CoreEventBus : EventBus {
 
     private val listeners = ConcurrentHashMap<Class<*>, CopyOnWriteArrayList<Consumer<*>>>()
+    private val dispatchTimes = ConcurrentHashMap<Class<*>, Histogram>()
+    private val errors = Metrics.counter("brennon_event_errors_total", "Event listeners that threw")
 
     @Suppress("UNCHECKED_CAST")
     override fun <T : BrennonEvent> subscribe(eventClass: Class<T>, handler: Consumer<T>) {
@@ -25,16 +31,24 @@ class CoreEventBus : EventBus {
     @Suppress("UNCHECKED_CAST")
     override fun <T : BrennonEvent> publish(event: T): T {
         val eventListeners = listeners[event::class.java] ?: return event
+        val dispatchTime = dispatchTimes.computeIfAbsent(event::class.java) {
+            Metrics.histogram(
+                "brennon_event_dispatch_milliseconds", "Time to run every listener of one event",
+                Histogram.FAST_MILLIS, "event" to (it.simpleName ?: it.name)
+            )
+        }
 
-        for (listener in eventListeners) {
-            try {
-                (listener as Consumer<T>).accept(event)
-            } catch (e: Exception) {
-                println("[Brennon] Error dispatching event ${event::class.simpleName}: ${e.message}")
-                e.printStackTrace()
-            }
+        dispatchTime.time {
+            for (listener in eventListeners) {
+                try {
+                    (listener as Consumer<T>).accept(event)
+                } catch (e: Exception) {
+                    errors.inc()
+                    Log.error("Error dispatching event", e, "event" to event::class.simpleName)
+                }
 
-            if (event.isCancelled) break
+                if (event.isCancelled) break
+            }
         }
 
         return event
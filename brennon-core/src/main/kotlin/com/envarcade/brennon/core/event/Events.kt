@@ -166,6 +166,15 @@ class StatChangeEvent(
     val newValue: Double
 ) : BrennonEvent()
 
+/**
+ * Fired once for a bulk increment (e.g. the playtime tick) instead of
+ * one [StatChangeEvent] per player.
+ */
+class StatBulkChangeEvent(
+    val statId: String,
+    val amounts: Map<UUID, Double>
+) : BrennonEvent()
+
 // ============================================================
 // Server Registry Events
 // ============================================================
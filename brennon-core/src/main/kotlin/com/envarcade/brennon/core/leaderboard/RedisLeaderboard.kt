@@ -0,0 +1,167 @@
+package com.envarcade.brennon.core.leaderboard
+
+import com.envarcade.brennon.messaging.redis.RedisMessagingService
+import java.util.UUID
+
+/**
+ * A ranking of players kept in a Redis sorted set.
+ *
+ * Members are player UUIDs scored by their value, so top-N, pages and
+ * rank lookups are O(log N) Redis calls instead of ordered table scans.
+ * The set is shared by every server on the network; each server updates
+ * it as values change and [replaceAll] rebuilds it from the database.
+ *
+ * While a rebuild is staged, every update is applied to the staging set as
+ * well (in one script, so no update can slip between the two), so changes
+ * made during the database scan survive the swap.
+ */
+class RedisLeaderboard(
+    private val messaging: RedisMessagingService,
+    val key: String
+) {
+
+    private val stagingKey = "$key:rebuild"
+
+    private val keys = listOf(key, stagingKey)
+
+    fun set(member: UUID, score: Double) {
+        messaging.getPool().resource.use { jedis ->
+            jedis.eval(SET_SCRIPT, keys, listOf(score.toString(), member.toString()))
+        }
+    }
+
+    fun increment(member: UUID, delta: Double) {
+        messaging.getPool().resource.use { jedis ->
+            jedis.eval(INCREMENT_SCRIPT, keys, listOf(delta.toString(), member.toString()))
+        }
+    }
+
+    /**
+     * Applies many increments in one pipelined round trip.
+     */
+    fun incrementAll(deltas: Map<UUID, Double>) {
+        if (deltas.isEmpty()) return
+        messaging.getPool().resource.use { jedis ->
+            jedis.pipelined().use { pipeline ->
+                for ((member, delta) in deltas) {
+                    pipeline.eval(INCREMENT_SCRIPT, keys, listOf(delta.toString(), member.toString()))
+                }
+                pipeline.sync()
+            }
+        }
+    }
+
+    fun remove(member: UUID) {
+        messaging.getPool().resource.use { jedis ->
+            jedis.eval(REMOVE_SCRIPT, keys, listOf(member.toString()))
+        }
+    }
+
+    /**
+     * Gets [count] entries starting at [offset], highest score first.
+     */
+    fun range(offset: Long, count: Int): Map<UUID, Double> {
+        if (count <= 0) return emptyMap()
+        return messaging.getPool().resource.use { jedis ->
+            val result = linkedMapOf<UUID, Double>()
+            for (tuple in jedis.zrevrangeWithScores(key, offset, offset + count - 1)) {
+                result[UUID.fromString(tuple.element)] = tuple.score
+            }
+            result
+        }
+    }
+
+    /**
+     * Gets a member's 1-based rank, or -1 if it is not in the set.
+     */
+    fun rank(member: UUID): Long {
+        return messaging.getPool().resource.use { jedis ->
+            jedis.zrevrank(key, member.toString())?.plus(1) ?: -1L
+        }
+    }
+
+    fun score(member: UUID): Double? {
+        return messaging.getPool().resource.use { jedis ->
+            jedis.zscore(key, member.toString())
+        }
+    }
+
+    fun size(): Long {
+        return messaging.getPool().resource.use { jedis -> jedis.zcard(key) }
+    }
+
+    /**
+     * Replaces the whole set. The new contents are built under a temporary
+     * key and renamed over the live one, so readers never see a partial set.
+     */
+    fun replaceAll(entries: Map<UUID, Double>) {
+        clearStaged()
+        stage(entries)
+        commitStaged()
+    }
+
+    /**
+     * Drops any half-built rebuild left under the staging key.
+     */
+    fun clearStaged() {
+        messaging.getPool().resource.use { it.del(stagingKey) }
+    }
+
+    /**
+     * Adds entries to the staging set of a rebuild in progress.
+     */
+    fun stage(entries: Map<UUID, Double>) {
+        if (entries.isEmpty()) return
+        messaging.getPool().resource.use { jedis ->
+            for (chunk in entries.entries.chunked(CHUNK_SIZE)) {
+                jedis.zadd(stagingKey, chunk.associate { (uuid, score) -> uuid.toString() to score })
+            }
+            // A rebuild that dies midway must not leave updates mirrored into it forever
+            jedis.expire(stagingKey, STAGING_TTL_SECONDS)
+        }
+    }
+
+    /**
+     * Swaps the staging set in as the live set (an empty rebuild clears it).
+     * RENAME carries the staging key's expiry over, so the same script
+     * removes it; the live set never expires.
+     */
+    fun commitStaged() {
+        messaging.getPool().resource.use { jedis ->
+            jedis.eval(COMMIT_SCRIPT, keys, emptyList())
+        }
+    }
+
+    fun exists(): Boolean {
+        return messaging.getPool().resource.use { it.exists(key) }
+    }
+
+    companion object {
+        private const val CHUNK_SIZE = 1000
+        private const val STAGING_TTL_SECONDS = 600L
+
+        private const val SET_SCRIPT = """
+            redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])
+            if redis.call('EXISTS', KEYS[2]) == 1 then redis.call('ZADD', KEYS[2], ARGV[1], ARGV[2]) end
+        """
+
+        private const val INCREMENT_SCRIPT = """
+            redis.call('ZINCRBY', KEYS[1], ARGV[1], ARGV[2])
+            if redis.call('EXISTS', KEYS[2]) == 1 then redis.call('ZINCRBY', KEYS[2], ARGV[1], ARGV[2]) end
+        """
+
+        private const val COMMIT_SCRIPT = """
+            if redis.call('EXISTS', KEYS[2]) == 1 then
+                redis.call('RENAME', KEYS[2], KEYS[1])
+                redis.call('PERSIST', KEYS[1])
+            else
+                redis.call('DEL', KEYS[1])
+            end
+        """
+
+        private const val REMOVE_SCRIPT = """
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('ZREM', KEYS[2], ARGV[1])
+        """
+    }
+}
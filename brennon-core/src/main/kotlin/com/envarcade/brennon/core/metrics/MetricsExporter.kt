@@ -0,0 +1,51 @@
+package com.envarcade.brennon.core.metrics
+
+import com.envarcade.brennon.common.config.MetricsConfig
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.PrometheusFormat
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.util.concurrent.Executors
+
+/**
+ * A minimal Prometheus endpoint (`GET /metrics`) for servers that don't run
+ * the webserver, built on the JDK's HTTP server so backends need no extra
+ * dependency. Enabled with `metrics.exporter`. When `metrics.exporterToken`
+ * is set, scrapes must send it as a bearer token, as with the webserver.
+ */
+class MetricsExporter(private val config: MetricsConfig) {
+
+    private var server: HttpServer? = null
+
+    fun start() {
+        val http = HttpServer.create(InetSocketAddress(config.exporterHost, config.exporterPort), 0)
+        http.executor = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "Brennon-Metrics").apply { isDaemon = true }
+        }
+        http.createContext("/metrics") { exchange ->
+            exchange.use {
+                if (config.exporterToken.isNotBlank() &&
+                    it.requestHeaders.getFirst("Authorization") != "Bearer ${config.exporterToken}"
+                ) {
+                    it.sendResponseHeaders(401, -1)
+                    return@use
+                }
+                val body = PrometheusFormat.write().toByteArray(Charsets.UTF_8)
+                it.responseHeaders.set("Content-Type", PrometheusFormat.CONTENT_TYPE)
+                it.sendResponseHeaders(200, body.size.toLong())
+                it.responseBody.write(body)
+            }
+        }
+        http.start()
+        server = http
+        Log.info("Metrics exporter listening", "host" to config.exporterHost, "port" to config.exporterPort)
+        if (config.exporterToken.isBlank() && InetSocketAddress(config.exporterHost, 0).address?.isLoopbackAddress != true) {
+            Log.warn("Metrics exporter is reachable off this host without a token; set metrics.exporterToken")
+        }
+    }
+
+    fun stop() {
+        server?.stop(0)
+        server = null
+    }
+}
@@ -2,6 +2,7 @@ package com.envarcade.brennon.core.module
 
 import com.envarcade.brennon.api.module.Module
 import com.envarcade.brennon.api.module.ModuleManager
+import com.envarcade.brennon.common.logging.Log
 import java.util.Optional
 import java.util.concurrent.ConcurrentHashMap
 
@@ -17,7 +18,7 @@ class CoreModuleManager : ModuleManager {
 
     override fun registerModule(module: Module) {
         if (modules.containsKey(module.id)) {
-            println("[Brennon] Module '${module.id}' is already registered, skipping.")
+            Log.info("Module '${module.id}' is already registered, skipping.")
             return
         }
 
@@ -25,10 +26,9 @@ class CoreModuleManager : ModuleManager {
 
         try {
             module.onEnable()
-            println("[Brennon] Module '${module.name}' v${module.version} enabled.")
+            Log.info("Module '${module.name}' v${module.version} enabled.")
         } catch (e: Exception) {
-            println("[Brennon] Failed to enable module '${module.name}': ${e.message}")
-            e.printStackTrace()
+            Log.error("Failed to enable module", e, "module" to module.name)
         }
     }
 
@@ -43,16 +43,15 @@ class CoreModuleManager : ModuleManager {
             ?: throw IllegalArgumentException("Module '$id' is not registered.")
 
         if (module.isEnabled) {
-            println("[Brennon] Module '$id' is already enabled.")
+            Log.info("Module '$id' is already enabled.")
             return
         }
 
         try {
             module.onEnable()
-            println("[Brennon] Module '${module.name}' enabled.")
+            Log.info("Module '${module.name}' enabled.")
         } catch (e: Exception) {
-            println("[Brennon] Failed to enable module '${module.name}': ${e.message}")
-            e.printStackTrace()
+            Log.error("Failed to enable module", e, "module" to module.name)
         }
     }
 
@@ -61,16 +60,15 @@ class CoreModuleManager : ModuleManager {
             ?: throw IllegalArgumentException("Module '$id' is not registered.")
 
         if (!module.isEnabled) {
-            println("[Brennon] Module '$id' is already disabled.")
+            Log.info("Module '$id' is already disabled.")
             return
         }
 
         try {
             module.onDisable()
-            println("[Brennon] Module '${module.name}' disabled.")
+            Log.info("Module '${module.name}' disabled.")
         } catch (e: Exception) {
-            println("[Brennon] Failed to disable module '${module.name}': ${e.message}")
-            e.printStackTrace()
+            Log.error("Failed to disable module", e, "module" to module.name)
         }
     }
 
@@ -84,9 +82,9 @@ class CoreModuleManager : ModuleManager {
         modules.values.filter { it.isEnabled }.forEach { module ->
             try {
                 module.onDisable()
-                println("[Brennon] Module '${module.name}' disabled.")
+                Log.info("Module '${module.name}' disabled.")
             } catch (e: Exception) {
-                println("[Brennon] Error disabling module '${module.name}': ${e.message}")
+                Log.warn("Error disabling module", e, "module" to module.name)
             }
         }
         modules.clear()
@@ -0,0 +1,39 @@
+package com.envarcade.brennon.core.network
+
+import com.envarcade.brennon.api.ticket.TicketStatus
+import com.envarcade.brennon.core.event.CoreEventBus
+import com.envarcade.brennon.core.event.PunishmentIssuedEvent
+import com.envarcade.brennon.core.event.TicketCreateEvent
+import com.envarcade.brennon.core.event.TicketStatusChangeEvent
+import com.envarcade.brennon.database.cache.CountCache
+
+/**
+ * Keeps the materialized punishment and open ticket counts current as this
+ * server issues punishments and moves tickets between statuses. Changes
+ * made elsewhere are picked up by the scheduler's periodic reconcile.
+ */
+class CountTracker(
+    private val counts: CountCache,
+    private val eventBus: CoreEventBus
+) {
+
+    fun initialize() {
+        eventBus.subscribe(PunishmentIssuedEvent::class.java) { event ->
+            counts.adjust(CountCache.punishments(event.type), 1)
+        }
+        eventBus.subscribe(TicketCreateEvent::class.java) { _ ->
+            counts.adjust(CountCache.OPEN_TICKETS, 1)
+        }
+        eventBus.subscribe(TicketStatusChangeEvent::class.java) { event ->
+            val delta = openness(event.newStatus) - openness(event.oldStatus)
+            if (delta != 0L) counts.adjust(CountCache.OPEN_TICKETS, delta)
+        }
+    }
+
+    private fun openness(status: TicketStatus): Long =
+        if (status in OPEN_STATUSES) 1L else 0L
+
+    companion object {
+        private val OPEN_STATUSES = setOf(TicketStatus.OPEN, TicketStatus.IN_PROGRESS, TicketStatus.WAITING_RESPONSE)
+    }
+}
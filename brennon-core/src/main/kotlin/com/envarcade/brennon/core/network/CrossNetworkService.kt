@@ -29,7 +29,7 @@ class CrossNetworkService(
         }
 
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
+            driver.withReadConnection { conn ->
                 conn.prepareStatement(
                     "SELECT * FROM brennon_punishments WHERE target = ? ORDER BY issued_at DESC"
                 ).use { stmt ->
@@ -68,7 +68,7 @@ class CrossNetworkService(
         }
 
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
+            driver.withReadConnection { conn ->
                 conn.prepareStatement(
                     "SELECT * FROM brennon_tickets WHERE creator = ? ORDER BY created_at DESC"
                 ).use { stmt ->
@@ -88,7 +88,8 @@ class CrossNetworkService(
                             createdAt = Instant.ofEpochMilli(rs.getLong("created_at")),
                             updatedAt = Instant.ofEpochMilli(rs.getLong("updated_at")),
                             closedAt = rs.getLong("closed_at").let { if (rs.wasNull()) null else Instant.ofEpochMilli(it) },
-                            networkId = rs.getString("network_id")
+                            networkId = rs.getString("network_id"),
+                            messagesLoaded = false
                         ))
                     }
                     list
@@ -107,7 +108,7 @@ class CrossNetworkService(
         }
 
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
+            driver.withReadConnection { conn ->
                 conn.prepareStatement(
                     "SELECT stat_id, value FROM brennon_stats WHERE player_uuid = ? AND network_id = ?"
                 ).use { stmt ->
@@ -2,6 +2,9 @@ package com.envarcade.brennon.core.player
 
 import com.envarcade.brennon.api.player.NetworkPlayer
 import com.envarcade.brennon.api.player.PlayerManager
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.CacheMetrics
+import com.envarcade.brennon.common.metrics.Metrics
 import com.envarcade.brennon.common.model.PlayerData
 import com.envarcade.brennon.common.model.PlayerSession
 import com.envarcade.brennon.core.event.CoreEventBus
@@ -9,6 +12,7 @@ import com.envarcade.brennon.core.event.PlayerNetworkJoinEvent
 import com.envarcade.brennon.core.event.PlayerNetworkQuitEvent
 import com.envarcade.brennon.core.rank.CoreRankManager
 import com.envarcade.brennon.database.DatabaseManager
+import com.envarcade.brennon.database.cache.CountCache
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
 import net.kyori.adventure.text.Component
 import java.time.Instant
@@ -38,6 +42,13 @@ class CorePlayerManager(
     /** Cache of online players keyed by lowercase name (for fast lookup) */
     private val nameCache = ConcurrentHashMap<String, UUID>()
 
+    /** Lookups answered from the online cache versus loaded from the database */
+    private val cacheMetrics = CacheMetrics("player")
+
+    init {
+        Metrics.gauge("brennon_players_online", "Players online on this server") { onlinePlayers.size.toDouble() }
+    }
+
     /** Platform-specific message sender, set by the platform plugin */
     var messageSender: (UUID, Component) -> Unit = { _, _ -> }
 
@@ -49,10 +60,12 @@ class CorePlayerManager(
         // Check online cache first
         val online = onlinePlayers[uuid]
         if (online != null) {
+            cacheMetrics.hit()
             return CompletableFuture.completedFuture(Optional.of(online))
         }
 
         // Load from database
+        cacheMetrics.miss()
         return database.players.findByUuid(uuid).thenApply { data ->
             if (data != null) {
                 Optional.of(CoreNetworkPlayer(data, rankManager, messageSender) as NetworkPlayer)
@@ -68,11 +81,13 @@ class CorePlayerManager(
         if (uuid != null) {
             val online = onlinePlayers[uuid]
             if (online != null) {
+                cacheMetrics.hit()
                 return CompletableFuture.completedFuture(Optional.of(online))
             }
         }
 
         // Load from database
+        cacheMetrics.miss()
         return database.players.findByName(name).thenApply { data ->
             if (data != null) {
                 Optional.of(CoreNetworkPlayer(data, rankManager, messageSender) as NetworkPlayer)
@@ -123,6 +138,7 @@ class CorePlayerManager(
 
             // Save to database
             database.players.save(data)
+            if (existing == null) database.counts.adjust(CountCache.PLAYERS, 1)
 
             // Store session in Redis
             storeSession(uuid, name, server)
@@ -213,7 +229,7 @@ class CorePlayerManager(
                 jedis.expire(key, 300) // 5 min TTL, refreshed on activity
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to store session for $name: ${e.message}")
+            Log.warn("Failed to store session", e, "player" to name, "server" to server)
         }
     }
 
@@ -223,7 +239,7 @@ class CorePlayerManager(
                 jedis.del("brennon:session:$uuid")
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to remove session for $uuid: ${e.message}")
+            Log.warn("Failed to remove session", e, "player" to uuid)
         }
     }
 
@@ -244,7 +260,7 @@ class CorePlayerManager(
                 }
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to refresh sessions: ${e.message}")
+            Log.warn("Failed to refresh sessions", e)
         }
     }
 
@@ -266,7 +282,7 @@ class CorePlayerManager(
                 jedis.exists("brennon:session:$uuid")
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to check network session for $uuid: ${e.message}")
+            Log.warn("Failed to check network session", e, "player" to uuid)
             false
         }
     }
@@ -302,7 +318,7 @@ class CorePlayerManager(
                 keys.size
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to count network sessions: ${e.message}")
+            Log.warn("Failed to count network sessions", e)
             onlinePlayers.size // Fallback to local count
         }
     }
@@ -327,7 +343,7 @@ class CorePlayerManager(
                 sessions
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to fetch network sessions: ${e.message}")
+            Log.warn("Failed to fetch network sessions", e)
             // Fallback to local
             onlinePlayers.mapValues { it.value.getCurrentServer() ?: "" }
                 .filterValues { it.isNotEmpty() }
@@ -3,6 +3,7 @@ package com.envarcade.brennon.core.punishment
 import com.envarcade.brennon.api.punishment.Punishment
 import com.envarcade.brennon.api.punishment.PunishmentManager
 import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.model.PunishmentData
 import com.envarcade.brennon.common.util.UUIDUtil
 import com.envarcade.brennon.core.event.CoreEventBus
@@ -119,7 +120,7 @@ class CorePunishmentManager(
                 messaging.publish(Channels.PUNISHMENT_REVOKED, """
                     {"target":"$ip","type":"IP_BAN","revokedBy":"${issuer ?: "CONSOLE"}"}
                 """.trimIndent())
-                println("[Brennon] IP_BAN revoked for $ip")
+                Log.info("Punishment revoked", "type" to PunishmentType.IP_BAN.name, "ip" to ip)
             }
         }
     }
@@ -171,7 +172,7 @@ class CorePunishmentManager(
             )
             messaging.publish(Channels.PUNISHMENT_ISSUED, Packet.serialize(packet))
 
-            println("[Brennon] ${type.name} issued to $uuid: $reason (ID: $id)")
+            Log.info("Punishment issued", "type" to type.name, "player" to uuid, "reason" to reason, "id" to id)
 
             // Staff notification
             messaging.publish(Channels.STAFF_ALERT, """
@@ -215,7 +216,7 @@ class CorePunishmentManager(
                     {"type":"punishment","action":"revoked","punishmentType":"${type.name}","target":"$uuid","revokedBy":"${revokedBy ?: "CONSOLE"}"}
                 """.trimIndent())
 
-                println("[Brennon] ${type.name} revoked for $uuid")
+                Log.info("Punishment revoked", "type" to type.name, "player" to uuid)
             }
         }
     }
@@ -2,6 +2,7 @@ package com.envarcade.brennon.core.rank
 
 import com.envarcade.brennon.api.rank.Rank
 import com.envarcade.brennon.api.rank.RankManager
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.model.RankData
 import com.envarcade.brennon.core.event.CoreEventBus
 import com.envarcade.brennon.core.event.PlayerRankChangeEvent
@@ -71,13 +72,13 @@ class CoreRankManager(
                 ranks["default"] = rank
                 defaultRank = rank
                 database.ranks.save(fallback)
-                println("[Brennon] Created fallback 'default' rank.")
+                Log.info("Created fallback 'default' rank.")
             }
 
             // Resolve inheritance chains
             resolveInheritance()
 
-            println("[Brennon] Loaded ${ranks.size} ranks.")
+            Log.info("Loaded ${ranks.size} ranks.")
         }
     }
 
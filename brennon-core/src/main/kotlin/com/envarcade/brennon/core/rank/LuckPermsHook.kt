@@ -3,6 +3,7 @@ package com.envarcade.brennon.core.rank
 import com.envarcade.brennon.common.config.LuckPermsConfig
 import com.envarcade.brennon.common.config.LuckPermsAuthority
 import com.envarcade.brennon.common.config.LuckPermsSyncDirection
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.model.RankData
 import com.envarcade.brennon.core.event.CoreEventBus
 import com.envarcade.brennon.core.event.RankSyncEvent
@@ -74,11 +75,11 @@ class LuckPermsHook(
                 performFullSync()
             }
 
-            println("[Brennon] LuckPerms detected and hooked successfully. Sync: ${config.syncDirection}")
+            Log.info("LuckPerms detected and hooked successfully. Sync: ${config.syncDirection}")
             true
         } catch (e: IllegalStateException) {
             // LuckPerms not installed
-            println("[Brennon] LuckPerms not found — using built-in permission system.")
+            Log.info("LuckPerms not found — using built-in permission system.")
             false
         }
     }
@@ -345,7 +346,7 @@ class LuckPermsHook(
         when (config.initialAuthority) {
             LuckPermsAuthority.BRENNON -> {
                 // Push all Brennon ranks to LP
-                println("[Brennon] Full sync: Brennon -> LuckPerms (${rankManager.getRanks().size} ranks)")
+                Log.info("Full sync: Brennon -> LuckPerms (${rankManager.getRanks().size} ranks)")
                 for (rank in rankManager.getRanks()) {
                     val coreRank = rankManager.getCoreRank(rank.id) ?: continue
                     pushRankToLuckPerms(coreRank)
@@ -353,10 +354,10 @@ class LuckPermsHook(
             }
             LuckPermsAuthority.LUCKPERMS -> {
                 // Pull all LP groups into Brennon
-                println("[Brennon] Full sync: LuckPerms -> Brennon")
+                Log.info("Full sync: LuckPerms -> Brennon")
                 lp.groupManager.loadAllGroups().thenRunAsync {
                     val groups = lp.groupManager.loadedGroups
-                    println("[Brennon] Importing ${groups.size} LuckPerms groups")
+                    Log.info("Importing ${groups.size} LuckPerms groups")
 
                     rankManager.suppressLuckPermsSync = true
                     try {
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.core.rank
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.player.CorePlayerManager
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
@@ -26,10 +27,10 @@ class RankUpdateSubscriber(
             try {
                 handleRankUpdate(message)
             } catch (e: Exception) {
-                println("[Brennon] Error handling rank update: ${e.message}")
+                Log.warn("Error handling rank update", e)
             }
         }
-        println("[Brennon] Subscribed to rank update channel.")
+        Log.info("Subscribed to rank update channel.")
     }
 
     private fun handleRankUpdate(message: String) {
@@ -1,8 +1,14 @@
 package com.envarcade.brennon.core.scheduler
 
 import com.envarcade.brennon.api.stats.StatTypes
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.Metrics
+import com.envarcade.brennon.core.economy.BalanceLeaderboard
+import com.envarcade.brennon.core.economy.CoreEconomyManager
 import com.envarcade.brennon.core.player.CorePlayerManager
 import com.envarcade.brennon.core.stats.CoreStatsManager
+import com.envarcade.brennon.database.cache.CountCache
 import java.util.concurrent.Executors
 import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
@@ -11,12 +17,22 @@ import java.util.concurrent.TimeUnit
  * Handles periodic tasks for the Brennon core:
  * - Auto-saving player data
  * - Refreshing Redis session TTLs
- * - Flushing cached stats to DB
+ * - Flushing accumulated stat deltas to DB
  * - Tracking playtime for online players
+ * - Reconciling Redis stat leaderboards with the DB
+ * - Pruning expired daily/weekly/monthly stat buckets
+ * - Writing economy balance deltas and ledger entries
+ * - Recounting the materialized player, punishment and ticket counts
+ *
+ * Each task's run time and failures are recorded per task.
  */
 class BrennonScheduler(
     private val playerManager: CorePlayerManager,
-    private val statsManager: CoreStatsManager?
+    private val statsManager: CoreStatsManager?,
+    private val economyManager: CoreEconomyManager?,
+    private val balanceLeaderboard: BalanceLeaderboard?,
+    private val counts: CountCache,
+    private val countReconcileSeconds: Int
 ) {
 
     private val executor: ScheduledExecutorService = Executors.newScheduledThreadPool(2) { runnable ->
@@ -28,60 +44,106 @@ class BrennonScheduler(
      */
     fun start() {
         // Auto-save player data every 5 minutes
-        executor.scheduleAtFixedRate({
-            try {
-                val count = playerManager.getOnlinePlayers().size
-                if (count > 0) {
-                    playerManager.saveAll().whenComplete { _, error ->
-                        if (error != null) {
-                            println("[Brennon] Auto-save failed: ${error.message}")
-                        } else {
-                            println("[Brennon] Auto-saved $count player(s).")
-                        }
+        schedule("Auto-save", 5, 5, TimeUnit.MINUTES) {
+            val count = playerManager.getOnlinePlayers().size
+            if (count > 0) {
+                playerManager.saveAll().whenComplete { _, error ->
+                    if (error != null) {
+                        Log.warn("Auto-save failed", error)
+                    } else {
+                        Log.info("Auto-saved players", "count" to count)
                     }
                 }
-            } catch (e: Exception) {
-                println("[Brennon] Auto-save error: ${e.message}")
             }
-        }, 5, 5, TimeUnit.MINUTES)
+        }
 
         // Refresh Redis session TTLs every 2 minutes
-        executor.scheduleAtFixedRate({
-            try {
-                playerManager.refreshAllSessions()
-            } catch (e: Exception) {
-                println("[Brennon] Session refresh error: ${e.message}")
-            }
-        }, 2, 2, TimeUnit.MINUTES)
+        schedule("Session refresh", 2, 2, TimeUnit.MINUTES) {
+            playerManager.refreshAllSessions()
+        }
 
-        // Flush cached stats to DB every 5 minutes
+        // Flush accumulated stat deltas to DB every 30 seconds
         if (statsManager != null) {
-            executor.scheduleAtFixedRate({
-                try {
-                    statsManager.flushAll()
-                } catch (e: Exception) {
-                    println("[Brennon] Stats flush error: ${e.message}")
-                }
-            }, 5, 5, TimeUnit.MINUTES)
+            schedule("Stats flush", 30, 30, TimeUnit.SECONDS) {
+                statsManager.flushAll()
+            }
 
-            // Increment playtime for all online players every 1 minute
-            executor.scheduleAtFixedRate({
-                try {
-                    for (player in playerManager.getOnlinePlayers()) {
-                        statsManager.incrementStat(player.uniqueId, StatTypes.PLAYTIME, 60.0)
-                    }
-                } catch (e: Exception) {
-                    println("[Brennon] Playtime tracking error: ${e.message}")
+            // Increment playtime for all online players every 1 minute, as one batch
+            schedule("Playtime tracking", 1, 1, TimeUnit.MINUTES) {
+                val online = playerManager.getOnlinePlayers().associate { it.uniqueId to 60.0 }
+                statsManager.incrementMany(online, StatTypes.PLAYTIME).exceptionally { e ->
+                    Log.warn("Playtime tracking failed", e)
+                    null
                 }
-            }, 1, 1, TimeUnit.MINUTES)
+            }
+
+            // Rebuild Redis leaderboards from the DB to correct drift
+            val reconcileMinutes = statsManager.leaderboards.reconcileIntervalMinutes.toLong()
+            schedule("Leaderboard reconcile", reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES) {
+                statsManager.leaderboards.reconcile()
+            }
+
+            // Drop period stat buckets past their retention every hour
+            schedule("Stat period pruning", 1, CoreStatsManager.PRUNE_INTERVAL_MINUTES, TimeUnit.MINUTES) {
+                statsManager.prunePeriods()
+            }
         }
 
-        val tasks = mutableListOf("auto-save: 5min", "session refresh: 2min")
+        // Write economy balance deltas and ledger entries every 10 seconds
+        if (economyManager != null) {
+            schedule("Economy flush", 10, 10, TimeUnit.SECONDS) {
+                economyManager.flushBalances()
+                economyManager.flushLedger()
+            }
+        }
+
+        // Rebuild the baltop set from the DB to trim it and refresh its floor
+        if (balanceLeaderboard != null) {
+            val reconcileMinutes = balanceLeaderboard.reconcileIntervalMinutes.toLong()
+            schedule("Baltop reconcile", reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES) {
+                balanceLeaderboard.reconcile()
+            }
+        }
+
+        // Recount cached counts to pick up changes made by other servers
+        schedule("Count reconcile", countReconcileSeconds.toLong(), countReconcileSeconds.toLong(), TimeUnit.SECONDS) {
+            counts.reconcile()
+        }
+
+        val tasks = mutableListOf("auto-save: 5min", "session refresh: 2min", "count reconcile: ${countReconcileSeconds}s")
+        if (economyManager != null) {
+            tasks.add("economy flush: 10s")
+        }
+        if (balanceLeaderboard != null) {
+            tasks.add("baltop reconcile: ${balanceLeaderboard.reconcileIntervalMinutes}min")
+        }
         if (statsManager != null) {
-            tasks.add("stats flush: 5min")
+            tasks.add("stats flush: 30s")
             tasks.add("playtime: 1min")
+            tasks.add("leaderboard reconcile: ${statsManager.leaderboards.reconcileIntervalMinutes}min")
+            tasks.add("stat period pruning: 1h")
         }
-        println("[Brennon] Scheduler started (${tasks.joinToString(", ")})")
+        Log.info("Scheduler started", "tasks" to tasks.joinToString(", "))
+    }
+
+    /**
+     * Runs [task] at a fixed rate, recording its run time and failures under
+     * [name]. Failures are logged so they never cancel the task.
+     */
+    private fun schedule(name: String, initialDelay: Long, period: Long, unit: TimeUnit, task: () -> Unit) {
+        val label = "task" to name.lowercase().replace(' ', '_')
+        val runTime = Metrics.histogram(
+            "brennon_scheduler_task_milliseconds", "Run time of scheduled tasks", Histogram.LATENCY_MILLIS, label
+        )
+        val failures = Metrics.counter("brennon_scheduler_task_failures_total", "Scheduled task runs that threw", label)
+        executor.scheduleAtFixedRate({
+            try {
+                runTime.time(task)
+            } catch (e: Exception) {
+                failures.inc()
+                Log.warn("Scheduled task failed", e, "task" to name)
+            }
+        }, initialDelay, period, unit)
     }
 
     /**
@@ -3,6 +3,9 @@ package com.envarcade.brennon.core.server
 import com.envarcade.brennon.api.server.ServerGroupInfo
 import com.envarcade.brennon.api.server.ServerInfo
 import com.envarcade.brennon.api.server.ServerManager
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.Metrics
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
 import com.google.gson.Gson
@@ -34,6 +37,15 @@ class CoreServerManager(
     }
     private var heartbeatActive = false
 
+    /** Delay between a heartbeat being sent and received; includes clock skew between hosts */
+    private val heartbeatLag = Metrics.histogram(
+        "brennon_heartbeat_lag_milliseconds", "Delay between sending and receiving a server heartbeat", Histogram.LATENCY_MILLIS
+    )
+
+    init {
+        Metrics.gauge("brennon_servers_online", "Servers with a recent online heartbeat") { servers.values.count { it.isOnline }.toDouble() }
+    }
+
     /** Platform-specific player sender (set by Velocity/Bukkit) */
     var playerSender: (UUID, String) -> CompletableFuture<Void> = { _, _ ->
         CompletableFuture.failedFuture(UnsupportedOperationException("Player sending not available on this platform."))
@@ -69,6 +81,7 @@ class CoreServerManager(
                 val maxPlayers = json.get("maxPlayers")?.asInt ?: 100
                 val online = json.get("online")?.asBoolean ?: true
                 val motd = json.get("motd")?.asString ?: ""
+                json.get("sentAt")?.asLong?.let { heartbeatLag.record((System.currentTimeMillis() - it).coerceAtLeast(0).toDouble()) }
 
                 val server = servers.computeIfAbsent(name) {
                     CoreServerInfo(name, group, players, maxPlayers, online, motd)
@@ -82,7 +95,7 @@ class CoreServerManager(
                     autoRegistrationCallback?.invoke(name, group, host, port)
                 }
             } catch (e: Exception) {
-                println("[Brennon] Failed to parse server status: ${e.message}")
+                Log.warn("Failed to parse server status", e)
             }
         }
 
@@ -95,7 +108,7 @@ class CoreServerManager(
         }
 
         val mode = if (sendHeartbeats) "" else " (read-only, no heartbeat)"
-        println("[Brennon] Server manager initialized$mode. Current server: $currentServerName ($currentServerGroup)")
+        Log.info("Server manager initialized$mode. Current server: $currentServerName ($currentServerGroup)")
     }
 
     /**
@@ -174,7 +187,8 @@ class CoreServerManager(
                 "maxPlayers" to 100,
                 "online" to true,
                 "motd" to "",
-                "networkId" to networkId
+                "networkId" to networkId,
+                "sentAt" to System.currentTimeMillis()
             )
 
             val host = localHostProvider?.invoke()
@@ -184,7 +198,7 @@ class CoreServerManager(
 
             messaging.publish(Channels.SERVER_STATUS, gson.toJson(heartbeat))
         } catch (e: Exception) {
-            println("[Brennon] Failed to send heartbeat: ${e.message}")
+            Log.warn("Failed to send heartbeat", e, "server" to currentServerName)
         }
     }
 
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.core.server
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.model.ServerDefinition
 import com.envarcade.brennon.common.model.ServerGroupDefinition
 import com.envarcade.brennon.core.event.CoreEventBus
@@ -40,7 +41,7 @@ class ServerRegistryService(
     fun initialize() {
         loadAllFromRedis()
         subscribeToChanges()
-        println("[Brennon] Server registry initialized: ${serverCache.size} servers, ${groupCache.size} groups.")
+        Log.info("Server registry initialized: ${serverCache.size} servers, ${groupCache.size} groups.")
     }
 
     fun shutdown() {
@@ -62,7 +63,7 @@ class ServerRegistryService(
             "serverName" to def.name
         )))
         eventBus.publish(ServerRegisteredEvent(def.name, def.group, def.host, def.port, def.autoRegistered))
-        println("[Brennon] Server registered: ${def.name} (${def.address}) in group '${def.group}'")
+        Log.info("Server registered", "server" to def.name, "address" to def.address, "group" to def.group)
         return true
     }
 
@@ -74,7 +75,7 @@ class ServerRegistryService(
             "serverName" to name
         )))
         eventBus.publish(ServerUnregisteredEvent(name, def.group))
-        println("[Brennon] Server unregistered: $name")
+        Log.info("Server unregistered", "server" to name)
         return true
     }
 
@@ -98,7 +99,7 @@ class ServerRegistryService(
                 jedis.sadd(groupServersKey(newGroup), name)
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to update server group: ${e.message}")
+            Log.warn("Failed to update server group", e)
         }
 
         publishChange(Channels.SERVER_REGISTRY_UPDATE, gson.toJson(mapOf(
@@ -122,7 +123,7 @@ class ServerRegistryService(
             "groupId" to group.id
         )))
         eventBus.publish(ServerGroupCreatedEvent(group.id, group.displayName))
-        println("[Brennon] Server group created: ${group.id} (${group.displayName})")
+        Log.info("Server group created: ${group.id} (${group.displayName})")
         return true
     }
 
@@ -137,7 +138,7 @@ class ServerRegistryService(
             "groupId" to groupId
         )))
         eventBus.publish(ServerGroupDeletedEvent(groupId))
-        println("[Brennon] Server group deleted: $groupId")
+        Log.info("Server group deleted: $groupId")
         return true
     }
 
@@ -183,7 +184,7 @@ class ServerRegistryService(
                 }
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to load server registry from Redis: ${e.message}")
+            Log.warn("Failed to load server registry from Redis", e)
         }
     }
 
@@ -206,7 +207,7 @@ class ServerRegistryService(
                 jedis.sadd(groupServersKey(def.group), def.name)
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to save server to Redis: ${e.message}")
+            Log.warn("Failed to save server to Redis", e)
         }
     }
 
@@ -218,7 +219,7 @@ class ServerRegistryService(
                 jedis.srem(groupServersKey(group), name)
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to remove server from Redis: ${e.message}")
+            Log.warn("Failed to remove server from Redis", e)
         }
     }
 
@@ -237,7 +238,7 @@ class ServerRegistryService(
                 jedis.sadd(GROUP_SET_KEY, group.id)
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to save group to Redis: ${e.message}")
+            Log.warn("Failed to save group to Redis", e)
         }
     }
 
@@ -249,7 +250,7 @@ class ServerRegistryService(
                 jedis.del(groupServersKey(groupId))
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to remove group from Redis: ${e.message}")
+            Log.warn("Failed to remove group from Redis", e)
         }
     }
 
@@ -257,7 +258,7 @@ class ServerRegistryService(
         try {
             messaging.publish(channel, message)
         } catch (e: Exception) {
-            println("[Brennon] Failed to publish registry change: ${e.message}")
+            Log.warn("Failed to publish registry change", e)
         }
     }
 
@@ -291,7 +292,7 @@ class ServerRegistryService(
                     }
                 }
             } catch (e: Exception) {
-                println("[Brennon] Error processing server registry update: ${e.message}")
+                Log.warn("Error processing server registry update", e)
             }
         }
 
@@ -323,7 +324,7 @@ class ServerRegistryService(
                     }
                 }
             } catch (e: Exception) {
-                println("[Brennon] Error processing server group update: ${e.message}")
+                Log.warn("Error processing server group update", e)
             }
         }
     }
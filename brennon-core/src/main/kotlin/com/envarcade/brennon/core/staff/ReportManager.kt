@@ -1,5 +1,6 @@
 package com.envarcade.brennon.core.staff
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.util.UUIDUtil
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
@@ -76,7 +77,7 @@ class ReportManager(
                 jedis.expire("${reportKeyPrefix}${report.id}", 86400)
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to store report: ${e.message}")
+            Log.warn("Failed to store report", e)
         }
 
         // Track stats
@@ -116,7 +117,7 @@ class ReportManager(
                 }.sortedByDescending { it.timestamp }
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to fetch reports: ${e.message}")
+            Log.warn("Failed to fetch reports", e)
             emptyList()
         }
     }
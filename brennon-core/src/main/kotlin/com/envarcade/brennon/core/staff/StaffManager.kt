@@ -1,5 +1,6 @@
 package com.envarcade.brennon.core.staff
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
 import java.util.UUID
@@ -62,7 +63,7 @@ class StaffManager(
                     ))
                 }
             } catch (e: Exception) {
-                println("[Brennon] Failed to sync staff mode for $name: ${e.message}")
+                Log.warn("Failed to sync staff mode", e, "player" to name)
             }
 
             messaging.publish(Channels.STAFF_ALERT, """
@@ -147,7 +148,7 @@ class StaffManager(
                     result
                 }
             } catch (e: Exception) {
-                println("[Brennon] Failed to fetch network staff: ${e.message}")
+                Log.warn("Failed to fetch network staff", e)
                 emptyMap()
             }
         }
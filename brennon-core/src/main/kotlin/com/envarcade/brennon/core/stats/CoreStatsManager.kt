@@ -1,25 +1,53 @@
 package com.envarcade.brennon.core.stats
 
+import com.envarcade.brennon.api.stats.StatPeriod
 import com.envarcade.brennon.api.stats.StatsManager
+import com.envarcade.brennon.common.config.LeaderboardConfig
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.util.StatPeriods
 import com.envarcade.brennon.core.event.CoreEventBus
+import com.envarcade.brennon.core.event.StatBulkChangeEvent
 import com.envarcade.brennon.core.event.StatChangeEvent
 import com.envarcade.brennon.database.DatabaseManager
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.packet.Packet
 import com.envarcade.brennon.messaging.packet.StatUpdatePacket
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
+import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.ConcurrentHashMap
 
+/**
+ * Core implementation of the StatsManager.
+ *
+ * Increments are accumulated as per-(player, stat) deltas in [pendingDeltas]
+ * and written by [flushAll] as one batch of relative increment upserts, so
+ * servers never overwrite each other's values. [statCache] holds the stats of
+ * online players as a read view only; it is never written back.
+ *
+ * Increments of the stats in [LeaderboardConfig.periodStats] are also added
+ * to the daily, weekly and monthly buckets of the UTC day they were made
+ * on, which each pending delta carries, so a flush just after midnight
+ * doesn't move them into the next period. Explicit sets and resets only
+ * affect lifetime totals.
+ */
 class CoreStatsManager(
     private val database: DatabaseManager,
     private val messaging: RedisMessagingService,
-    private val eventBus: CoreEventBus
+    private val eventBus: CoreEventBus,
+    val leaderboards: StatLeaderboardCache,
+    private val leaderboardConfig: LeaderboardConfig
 ) : StatsManager {
 
+    /** [day] is the UTC epoch day of the increment; every period boundary is also a day boundary */
+    private data class StatKey(val player: UUID, val statId: String, val day: Long)
+
     private val statCache = ConcurrentHashMap<UUID, ConcurrentHashMap<String, Double>>()
 
+    /** Unflushed increments. Updated with merge and drained with remove, so no delta is lost. */
+    private val pendingDeltas = ConcurrentHashMap<StatKey, Double>()
+
     override fun getStat(player: UUID, statId: String): CompletableFuture<Double> {
         val cached = statCache[player]?.get(statId)
         if (cached != null) return CompletableFuture.completedFuture(cached)
@@ -35,45 +63,89 @@ class CoreStatsManager(
     }
 
     override fun incrementStat(player: UUID, statId: String, amount: Double): CompletableFuture<Void> {
-        val playerCache = statCache.computeIfAbsent(player) { ConcurrentHashMap() }
-        val oldValue = playerCache.getOrDefault(statId, 0.0)
-        val newValue = oldValue + amount
-        playerCache[statId] = newValue
+        pendingDeltas.merge(StatKey(player, statId, currentDay()), amount, Double::plus)
+
+        val playerCache = statCache[player]
+        val newValue = playerCache?.merge(statId, amount, Double::plus) ?: amount
+        eventBus.publish(StatChangeEvent(player, statId, newValue - amount, newValue))
+
+        val packet = StatUpdatePacket(player.toString(), statId, newValue)
+        messaging.publish(Channels.STAT_UPDATE, Packet.serialize(packet))
+        return CompletableFuture.completedFuture(null)
+    }
 
-        eventBus.publish(StatChangeEvent(player, statId, oldValue, newValue))
+    /**
+     * Writes straight through as one batched increment rather than going via
+     * [pendingDeltas], and fires a single [StatBulkChangeEvent]. No per-player
+     * Redis updates are published.
+     */
+    override fun incrementMany(amounts: Map<UUID, Double>, statId: String): CompletableFuture<Void> {
+        if (amounts.isEmpty()) return CompletableFuture.completedFuture(null)
+        val at = Instant.now()
 
-        return database.stats.incrementStat(player, statId, amount).thenRun {
-            val packet = StatUpdatePacket(player.toString(), statId, newValue)
-            messaging.publish(Channels.STAT_UPDATE, Packet.serialize(packet))
+        for ((player, amount) in amounts) {
+            statCache[player]?.merge(statId, amount, Double::plus)
+        }
+        eventBus.publish(StatBulkChangeEvent(statId, amounts))
+
+        val deltas = amounts.mapValues { (_, amount) -> mapOf(statId to amount) }
+        return database.stats.incrementMany(amounts, statId).thenRun {
+            leaderboards.incrementAll(deltas)
+            recordPeriods(deltas, at)
         }
     }
 
     override fun setStat(player: UUID, statId: String, value: Double): CompletableFuture<Void> {
-        val playerCache = statCache.computeIfAbsent(player) { ConcurrentHashMap() }
-        val oldValue = playerCache.getOrDefault(statId, 0.0)
-        playerCache[statId] = value
+        // An explicit set supersedes any increments not yet written
+        pendingDeltas.keys.removeIf { it.player == player && it.statId == statId }
 
+        val oldValue = statCache[player]?.put(statId, value) ?: 0.0
         eventBus.publish(StatChangeEvent(player, statId, oldValue, value))
 
-        return database.stats.setStat(player, statId, value)
+        return database.stats.setStat(player, statId, value).thenRun {
+            leaderboards.set(player, statId, value)
+        }
     }
 
     override fun getLeaderboard(statId: String, limit: Int): CompletableFuture<Map<UUID, Double>> {
-        return database.stats.getLeaderboard(statId, limit)
+        if (!leaderboards.isTracked(statId)) return database.stats.getLeaderboard(statId, limit)
+        return CompletableFuture.supplyAsync { leaderboards.getTop(statId, limit) }
+            .thenCompose { cached ->
+                cached?.let { CompletableFuture.completedFuture(it) }
+                    ?: database.stats.getLeaderboard(statId, limit)
+            }
+    }
+
+    override fun getLeaderboard(statId: String, period: StatPeriod, limit: Int): CompletableFuture<Map<UUID, Double>> {
+        if (period == StatPeriod.ALL_TIME) return getLeaderboard(statId, limit)
+        return database.stats.getPeriodLeaderboard(statId, period, limit, Instant.now())
     }
 
     override fun getLeaderboardPosition(player: UUID, statId: String): CompletableFuture<Int> {
-        return database.stats.getLeaderboardPosition(player, statId).thenApply { it as Int }
+        if (!leaderboards.isTracked(statId)) {
+            return database.stats.getLeaderboardPosition(player, statId).thenApply { it as Int }
+        }
+        return CompletableFuture.supplyAsync { leaderboards.getPosition(player, statId) }
+            .thenCompose { cached ->
+                cached?.let { CompletableFuture.completedFuture(it) }
+                    ?: database.stats.getLeaderboardPosition(player, statId)
+            }
     }
 
     override fun resetStat(player: UUID, statId: String): CompletableFuture<Void> {
+        pendingDeltas.keys.removeIf { it.player == player && it.statId == statId }
         statCache[player]?.remove(statId)
-        return database.stats.resetStat(player, statId)
+        return database.stats.resetStat(player, statId).thenRun {
+            leaderboards.remove(player, statId)
+        }
     }
 
     override fun resetAllStats(player: UUID): CompletableFuture<Void> {
-        statCache.remove(player)
-        return database.stats.resetAllStats(player)
+        pendingDeltas.keys.removeIf { it.player == player }
+        statCache[player]?.clear()
+        return database.stats.resetAllStats(player).thenRun {
+            leaderboards.removeAll(player)
+        }
     }
 
     /**
@@ -83,28 +155,103 @@ class CoreStatsManager(
         database.stats.getAllStats(uuid).thenAccept { stats ->
             val cache = ConcurrentHashMap<String, Double>()
             cache.putAll(stats)
+            // Include increments made here that are not written yet
+            for ((key, delta) in pendingDeltas) {
+                if (key.player == uuid) cache.merge(key.statId, delta, Double::plus)
+            }
             statCache[uuid] = cache
         }
     }
 
     /**
-     * Flushes a player's cached stats to DB when they quit.
+     * Drops a player's read view when they quit. Their pending deltas are
+     * written by the next [flushAll].
      */
     fun handlePlayerQuit(uuid: UUID) {
-        val cached = statCache.remove(uuid) ?: return
-        for ((statId, value) in cached) {
-            database.stats.setStat(uuid, statId, value)
-        }
+        statCache.remove(uuid)
     }
 
     /**
-     * Flushes all cached stats to DB. Called by the scheduler.
+     * Writes all pending deltas as one batch of increments.
+     * Called by the scheduler and on shutdown.
      */
-    fun flushAll() {
-        for ((uuid, stats) in statCache) {
-            for ((statId, value) in stats) {
-                database.stats.setStat(uuid, statId, value)
+    fun flushAll(): CompletableFuture<Void> {
+        val drained = HashMap<StatKey, Double>()
+        for (key in pendingDeltas.keys) {
+            val delta = pendingDeltas.remove(key) ?: continue
+            if (delta != 0.0) drained[key] = delta
+        }
+        if (drained.isEmpty()) return CompletableFuture.completedFuture(null)
+
+        // Lifetime totals don't care about the day; period buckets do
+        val batch = HashMap<UUID, HashMap<String, Double>>()
+        val byDay = HashMap<Long, HashMap<UUID, HashMap<String, Double>>>()
+        for ((key, delta) in drained) {
+            batch.getOrPut(key.player) { HashMap() }.merge(key.statId, delta, Double::plus)
+            byDay.getOrPut(key.day) { HashMap() }.getOrPut(key.player) { HashMap() }[key.statId] = delta
+        }
+
+        return database.stats.applyDeltas(batch).whenComplete { _, error ->
+            if (error != null) {
+                // Put the deltas back so the next flush retries them
+                for ((key, delta) in drained) {
+                    pendingDeltas.merge(key, delta, Double::plus)
+                }
+                Log.warn("Failed to flush stats", error, "players" to batch.size)
+            } else {
+                leaderboards.incrementAll(batch)
+                for ((day, deltas) in byDay) {
+                    recordPeriods(deltas, Instant.ofEpochMilli(day * DAY_MILLIS))
+                }
             }
         }
     }
+
+    /**
+     * Deletes period buckets older than the configured retention. Only one
+     * server runs this per [PRUNE_INTERVAL_MINUTES]. Called by the scheduler.
+     */
+    fun prunePeriods() {
+        if (!messaging.tryLock("stats:periods:prune", PRUNE_LOCK_SECONDS)) return
+        val retention = mapOf(
+            StatPeriod.DAILY to leaderboardConfig.dailyRetention,
+            StatPeriod.WEEKLY to leaderboardConfig.weeklyRetention,
+            StatPeriod.MONTHLY to leaderboardConfig.monthlyRetention
+        )
+        for ((period, count) in retention) {
+            val cutoff = StatPeriods.retentionCutoff(period, count)
+            database.stats.prunePeriods(period, cutoff).thenAccept { removed ->
+                if (removed > 0) Log.info("Pruned expired stat buckets", "period" to period.name.lowercase(), "removed" to removed)
+            }.join()
+        }
+    }
+
+    /**
+     * Adds written deltas of period-tracked stats to the buckets containing
+     * [at], when they were made. A failure here is logged only: lifetime
+     * totals are already written, and retrying would risk counting them twice.
+     */
+    private fun recordPeriods(deltas: Map<UUID, Map<String, Double>>, at: Instant) {
+        val tracked = leaderboardConfig.periodStats
+        val filtered = deltas.mapValues { (_, stats) -> stats.filterKeys { it in tracked } }
+            .filterValues { it.isNotEmpty() }
+        if (filtered.isEmpty()) return
+
+        database.stats.incrementPeriods(filtered, at).exceptionally { e ->
+            Log.warn("Failed to update period stats", e)
+            null
+        }
+    }
+
+    private fun currentDay(): Long = Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS)
+
+    companion object {
+        private const val DAY_MILLIS = 86_400_000L
+
+        /** How often the scheduler runs [prunePeriods] */
+        const val PRUNE_INTERVAL_MINUTES = 60L
+
+        /** The prune lock is held for the whole interval, so one server prunes per interval */
+        private const val PRUNE_LOCK_SECONDS = (PRUNE_INTERVAL_MINUTES * 60).toInt()
+    }
 }
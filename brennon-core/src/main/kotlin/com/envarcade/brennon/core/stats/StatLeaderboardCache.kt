@@ -0,0 +1,186 @@
+package com.envarcade.brennon.core.stats
+
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.CacheMetrics
+import com.envarcade.brennon.core.leaderboard.RedisLeaderboard
+import com.envarcade.brennon.database.DatabaseManager
+import com.envarcade.brennon.messaging.redis.RedisMessagingService
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Mirrors the allowlisted leaderboard stats into Redis sorted sets, one per
+ * stat and network id (`brennon:leaderboard:{networkId}:{statId}`).
+ *
+ * Top-N and positions are answered with ZREVRANGE / ZREVRANK once a stat's
+ * set has been built; until then, and for stats outside the allowlist,
+ * callers fall back to the database, as they do when Redis fails. Sets
+ * follow flushed increments and sets, and [reconcile] periodically rebuilds
+ * them from the database to correct any drift (for example changes made
+ * while Redis was down).
+ */
+class StatLeaderboardCache(
+    private val database: DatabaseManager,
+    private val messaging: RedisMessagingService,
+    private val networkId: String,
+    trackedStats: List<String>,
+    val reconcileIntervalMinutes: Int
+) {
+
+    private val boards: Map<String, RedisLeaderboard> = trackedStats.associateWith { statId ->
+        RedisLeaderboard(messaging, "brennon:leaderboard:$networkId:$statId")
+    }
+
+    /** Stats whose sorted set is known to be built */
+    private val ready = ConcurrentHashMap.newKeySet<String>()
+
+    /** Top-N reads of tracked stats served from Redis versus sent to the database */
+    private val cacheMetrics = CacheMetrics("stat_leaderboard")
+
+    fun isTracked(statId: String): Boolean = boards.containsKey(statId)
+
+    /**
+     * Marks sets that already exist as ready, and builds the missing ones.
+     */
+    fun initialize() {
+        for ((statId, board) in boards) {
+            try {
+                if (board.exists()) ready.add(statId) else rebuild(statId)
+            } catch (e: Exception) {
+                Log.warn("Failed to check leaderboard", e, "stat" to statId)
+            }
+        }
+    }
+
+    /**
+     * Applies a flushed batch of per-player, per-stat deltas.
+     */
+    fun incrementAll(deltas: Map<UUID, Map<String, Double>>) {
+        for ((statId, board) in boards) {
+            val byPlayer = HashMap<UUID, Double>()
+            for ((uuid, stats) in deltas) {
+                stats[statId]?.let { byPlayer[uuid] = it }
+            }
+            try {
+                board.incrementAll(byPlayer)
+            } catch (e: Exception) {
+                Log.warn("Failed to update leaderboard", e, "stat" to statId)
+            }
+        }
+    }
+
+    fun set(uuid: UUID, statId: String, value: Double) {
+        val board = boards[statId] ?: return
+        try {
+            board.set(uuid, value)
+        } catch (e: Exception) {
+            Log.warn("Failed to update leaderboard", e, "stat" to statId)
+        }
+    }
+
+    fun remove(uuid: UUID, statId: String) {
+        val board = boards[statId] ?: return
+        try {
+            board.remove(uuid)
+        } catch (e: Exception) {
+            Log.warn("Failed to update leaderboard", e, "stat" to statId)
+        }
+    }
+
+    fun removeAll(uuid: UUID) {
+        for (statId in boards.keys) remove(uuid, statId)
+    }
+
+    /**
+     * Gets the top entries from Redis, or null if the stat is not cached.
+     */
+    fun getTop(statId: String, limit: Int): Map<UUID, Double>? {
+        val board = boards[statId] ?: return null
+        return try {
+            if (!isReady(statId, board)) {
+                cacheMetrics.miss()
+                return null
+            }
+            val top = board.range(0, limit)
+            if (top.isEmpty() && !stillExists(statId, board)) {
+                cacheMetrics.miss()
+                return null
+            }
+            top.also { cacheMetrics.hit() }
+        } catch (e: Exception) {
+            cacheMetrics.miss()
+            Log.warn("Failed to read leaderboard, using the database", e, "stat" to statId)
+            null
+        }
+    }
+
+    /**
+     * Gets a 1-based position from Redis (-1 if absent), or null if the stat is not cached.
+     */
+    fun getPosition(uuid: UUID, statId: String): Int? {
+        val board = boards[statId] ?: return null
+        return try {
+            if (!isReady(statId, board)) return null
+            val rank = board.rank(uuid).toInt()
+            if (rank < 0 && !stillExists(statId, board)) null else rank
+        } catch (e: Exception) {
+            Log.warn("Failed to read leaderboard, using the database", e, "stat" to statId)
+            null
+        }
+    }
+
+    private fun isReady(statId: String, board: RedisLeaderboard): Boolean {
+        if (statId in ready) return true
+        // Another server may have finished building it since we started
+        if (!board.exists()) return false
+        ready.add(statId)
+        return true
+    }
+
+    /**
+     * Checks a set marked ready after a read came back empty, and unmarks it
+     * if it is gone (evicted, flushed or deleted), so reads go to the
+     * database until the next rebuild.
+     */
+    private fun stillExists(statId: String, board: RedisLeaderboard): Boolean {
+        if (board.exists()) return true
+        ready.remove(statId)
+        return false
+    }
+
+    /**
+     * Rebuilds every tracked set from the database. Only one server on the
+     * network does this per interval.
+     */
+    fun reconcile() {
+        val lockSeconds = (reconcileIntervalMinutes * 60 - 30).coerceAtLeast(30)
+        if (!messaging.tryLock("leaderboard:reconcile:$networkId", lockSeconds)) return
+        for (statId in boards.keys) {
+            rebuild(statId).join()
+        }
+    }
+
+    private fun rebuild(statId: String): CompletableFuture<Void> {
+        // The staging key is shared, so only one server may build a set at a time
+        if (!messaging.tryLock("leaderboard:build:$networkId:$statId", BUILD_LOCK_SECONDS)) {
+            return CompletableFuture.completedFuture(null)
+        }
+        val board = boards.getValue(statId)
+        board.clearStaged()
+        return database.stats.scanStat(statId, SCAN_BATCH) { batch -> board.stage(batch) }
+            .thenRun {
+                board.commitStaged()
+                ready.add(statId)
+            }
+            .exceptionally { e ->
+                Log.warn("Failed to rebuild leaderboard", e, "stat" to statId)
+                null
+            }
+    }
+
+    companion object {
+        private const val SCAN_BATCH = 1000
+        private const val BUILD_LOCK_SECONDS = 300
+    }
+}
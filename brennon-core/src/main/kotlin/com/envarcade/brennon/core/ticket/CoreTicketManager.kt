@@ -1,6 +1,8 @@
 package com.envarcade.brennon.core.ticket
 
 import com.envarcade.brennon.api.ticket.*
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.TicketData
 import com.envarcade.brennon.common.model.TicketMessageData
 import com.envarcade.brennon.core.event.*
@@ -76,6 +78,16 @@ class CoreTicketManager(
         }
     }
 
+    /**
+     * Gets one page of open ticket headers, newest first. Pass the previous
+     * page's [Page.nextCursor] to continue.
+     */
+    fun getOpenTicketPage(limit: Int, after: PageCursor?): CompletableFuture<Page<Ticket>> {
+        return database.tickets.findOpenPage(limit, after).thenApply { page ->
+            page.map { CoreTicket(it) }
+        }
+    }
+
     override fun getPlayerTickets(player: UUID): CompletableFuture<List<Ticket>> {
         return database.tickets.findByCreator(player).thenApply { list ->
             list.map { CoreTicket(it) }
@@ -3,29 +3,49 @@ package com.envarcade.brennon.database
 import com.envarcade.brennon.common.config.DatabaseConfig
 import com.envarcade.brennon.common.config.DatabaseDriver
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.database.cache.CountCache
+import com.envarcade.brennon.database.cache.CountingPlayerRepository
+import com.envarcade.brennon.database.cache.CountingPunishmentRepository
+import com.envarcade.brennon.database.cache.CountingTicketRepository
 import com.envarcade.brennon.database.driver.BrennonDatabaseDriver
 import com.envarcade.brennon.database.driver.MongoDatabaseDriver
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
+import com.envarcade.brennon.database.metrics.DatabaseMetrics
+import com.envarcade.brennon.database.repository.EconomyRepository
 import com.envarcade.brennon.database.repository.PlayerRepository
 import com.envarcade.brennon.database.repository.PunishmentRepository
 import com.envarcade.brennon.database.repository.RankRepository
 import com.envarcade.brennon.database.repository.StatsRepository
 import com.envarcade.brennon.database.repository.TicketRepository
 
+/**
+ * @param rankedStats Stats whose database leaderboards must be indexed (`leaderboards.stats`)
+ */
 class DatabaseManager(
     private val config: DatabaseConfig,
-    private val networkContext: NetworkContext
+    private val networkContext: NetworkContext,
+    private val rankedStats: Set<String> = emptySet()
 ) {
 
     lateinit var driver: BrennonDatabaseDriver
         private set
 
+    /** Materialized counts behind the repositories' count queries */
+    val counts = CountCache()
+
+    /** Pool, statement and per-repository-method timings */
+    val metrics = DatabaseMetrics(config.metrics)
+
     lateinit var players: PlayerRepository
         private set
 
     lateinit var ranks: RankRepository
         private set
 
+    lateinit var economy: EconomyRepository
+        private set
+
     lateinit var punishments: PunishmentRepository
         private set
 
@@ -36,28 +56,33 @@ class DatabaseManager(
         private set
 
     fun initialize() {
-        println("[Brennon] Initializing database driver: ${config.driver}")
+        Log.info("Initializing database driver: ${config.driver}")
 
         driver = when (config.driver) {
             DatabaseDriver.MONGODB -> MongoDatabaseDriver(config)
             DatabaseDriver.MYSQL,
             DatabaseDriver.MARIADB,
-            DatabaseDriver.POSTGRESQL -> SQLDatabaseDriver(config, networkContext)
+            DatabaseDriver.POSTGRESQL,
+            DatabaseDriver.H2 -> SQLDatabaseDriver(config, networkContext, metrics)
         }
 
         driver.connect()
 
-        players = driver.createPlayerRepository()
-        ranks = driver.createRankRepository()
-        punishments = driver.createPunishmentRepository(networkContext)
-        tickets = driver.createTicketRepository(networkContext)
-        stats = driver.createStatsRepository(networkContext)
+        // Instrumented below the count cache, so only calls that reach the database are timed
+        players = CountingPlayerRepository(metrics.instrument(PlayerRepository::class.java, driver.createPlayerRepository()), counts)
+        ranks = metrics.instrument(RankRepository::class.java, driver.createRankRepository())
+        economy = metrics.instrument(EconomyRepository::class.java, driver.createEconomyRepository())
+        punishments = CountingPunishmentRepository(
+            metrics.instrument(PunishmentRepository::class.java, driver.createPunishmentRepository(networkContext)), counts
+        )
+        tickets = CountingTicketRepository(metrics.instrument(TicketRepository::class.java, driver.createTicketRepository(networkContext)), counts)
+        stats = metrics.instrument(StatsRepository::class.java, driver.createStatsRepository(networkContext, rankedStats))
 
-        println("[Brennon] Database initialized successfully. Network: ${networkContext.networkId}")
+        Log.info("Database initialized successfully. Network: ${networkContext.networkId}")
     }
 
     fun shutdown() {
-        println("[Brennon] Shutting down database...")
+        Log.info("Shutting down database...")
         driver.disconnect()
     }
 
@@ -0,0 +1,66 @@
+package com.envarcade.brennon.database.cache
+
+import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.CacheMetrics
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Materialized row counts, kept in memory.
+ *
+ * Each count is computed with its exact loader the first time it is read,
+ * then kept current with [adjust] as this server adds or removes rows, and
+ * recounted by [reconcile] to pick up changes made by other servers. Reads
+ * after the first never touch the database.
+ */
+class CountCache {
+
+    private val loaders = ConcurrentHashMap<String, () -> CompletableFuture<Long>>()
+    private val values = ConcurrentHashMap<String, AtomicLong>()
+    private val cacheMetrics = CacheMetrics("count")
+
+    fun register(key: String, loader: () -> CompletableFuture<Long>) {
+        loaders[key] = loader
+    }
+
+    fun get(key: String): CompletableFuture<Long> {
+        values[key]?.let {
+            cacheMetrics.hit()
+            return CompletableFuture.completedFuture(it.get())
+        }
+        cacheMetrics.miss()
+        val loader = loaders[key] ?: return CompletableFuture.failedFuture(IllegalArgumentException("Unknown count: $key"))
+        return loader().thenApply { count -> values.computeIfAbsent(key) { AtomicLong(count) }.get() }
+    }
+
+    /**
+     * Applies a known change. Ignored until the count has been loaded,
+     * since the first load already includes it.
+     */
+    fun adjust(key: String, delta: Long) {
+        values[key]?.addAndGet(delta)
+    }
+
+    /**
+     * Recounts every count that has been read so far.
+     */
+    fun reconcile() {
+        for (key in values.keys) {
+            val loader = loaders[key] ?: continue
+            try {
+                values[key]?.set(loader().join())
+            } catch (e: Exception) {
+                Log.warn("Failed to reconcile count", e, "count" to key)
+            }
+        }
+    }
+
+    companion object {
+        const val PLAYERS = "players"
+        const val OPEN_TICKETS = "tickets:open"
+
+        fun punishments(type: PunishmentType): String = "punishments:${type.name}"
+    }
+}
@@ -0,0 +1,51 @@
+package com.envarcade.brennon.database.cache
+
+import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.database.repository.PlayerRepository
+import com.envarcade.brennon.database.repository.PunishmentRepository
+import com.envarcade.brennon.database.repository.TicketRepository
+import java.util.concurrent.CompletableFuture
+
+/*
+ * Repository wrappers that answer count queries from a [CountCache].
+ * Everything else goes straight to the driver's repository.
+ */
+
+class CountingPlayerRepository(
+    private val delegate: PlayerRepository,
+    private val counts: CountCache
+) : PlayerRepository by delegate {
+
+    init {
+        counts.register(CountCache.PLAYERS) { delegate.countAll() }
+    }
+
+    override fun countAll(): CompletableFuture<Long> = counts.get(CountCache.PLAYERS)
+}
+
+class CountingPunishmentRepository(
+    private val delegate: PunishmentRepository,
+    private val counts: CountCache
+) : PunishmentRepository by delegate {
+
+    init {
+        for (type in PunishmentType.values()) {
+            counts.register(CountCache.punishments(type)) { delegate.countByType(type).thenApply { it.toLong() } }
+        }
+    }
+
+    override fun countByType(type: PunishmentType): CompletableFuture<Int> =
+        counts.get(CountCache.punishments(type)).thenApply { it.toInt() }
+}
+
+class CountingTicketRepository(
+    private val delegate: TicketRepository,
+    private val counts: CountCache
+) : TicketRepository by delegate {
+
+    init {
+        counts.register(CountCache.OPEN_TICKETS) { delegate.countOpen() }
+    }
+
+    override fun countOpen(): CompletableFuture<Long> = counts.get(CountCache.OPEN_TICKETS)
+}
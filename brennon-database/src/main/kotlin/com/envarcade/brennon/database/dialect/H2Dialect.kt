@@ -0,0 +1,45 @@
+package com.envarcade.brennon.database.dialect
+
+import java.sql.Connection
+import java.sql.SQLException
+
+/**
+ * Embedded H2 in MySQL compatibility mode. Upserts use the MySQL syntax;
+ * DDL uses H2's own `IF NOT EXISTS` forms, and counters read the new value
+ * back from the merged row since H2 has no `LAST_INSERT_ID(expr)`.
+ */
+class H2Dialect : MySqlDialect() {
+
+    override val dataSourceProperties = emptyMap<String, String>()
+
+    override fun createIndex(name: String, table: String, columns: String) =
+        "CREATE INDEX IF NOT EXISTS $name ON $table ($columns)"
+
+    /** `IF NOT EXISTS` never raises it, so unlike MySQL nothing is ignored */
+    override fun isDuplicateIndex(e: SQLException): Boolean = false
+
+    override fun addColumn(table: String, column: String, definition: String) =
+        "ALTER TABLE $table ADD COLUMN IF NOT EXISTS $column $definition"
+
+    override fun replacePrimaryKey(table: String, columns: List<String>) = listOf(
+        "ALTER TABLE $table DROP PRIMARY KEY",
+        "ALTER TABLE $table ADD PRIMARY KEY (${columns.joinToString(", ")})"
+    )
+
+    override fun nextCounterValue(conn: Connection, name: String): Long {
+        conn.prepareStatement(
+            """
+            SELECT value FROM FINAL TABLE (
+                MERGE INTO brennon_counters c USING (SELECT CAST(? AS VARCHAR(64)) AS name) s ON c.name = s.name
+                WHEN MATCHED THEN UPDATE SET value = c.value + 1
+                WHEN NOT MATCHED THEN INSERT (name, value) VALUES (s.name, 1)
+            )
+            """.trimIndent()
+        ).use { stmt ->
+            stmt.setString(1, name)
+            val rs = stmt.executeQuery()
+            rs.next()
+            return rs.getLong(1)
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.envarcade.brennon.database.dialect
+
+import java.sql.Connection
+import java.sql.SQLException
+
+/**
+ * MySQL and MariaDB. MySQL has no `IF NOT EXISTS` for indexes or columns, so
+ * those statements fail when the object exists and callers run each one on
+ * its own, ignoring only that failure ([isDuplicateIndex]).
+ */
+open class MySqlDialect : SqlDialect() {
+
+    override val doubleType = "DOUBLE"
+    override val binaryType = "BLOB"
+
+    override fun autoIncrement(big: Boolean) = if (big) "BIGINT AUTO_INCREMENT" else "INT AUTO_INCREMENT"
+
+    override val dataSourceProperties = mapOf(
+        "cachePrepStmts" to "true",
+        "prepStmtCacheSize" to "250",
+        "prepStmtCacheSqlLimit" to "2048",
+        "useServerPrepStmts" to "true",
+        "rewriteBatchedStatements" to "true"
+    )
+
+    override fun upsert(table: String, columns: List<String>, key: List<String>, update: List<String>, increment: List<String>): String {
+        val assignments = update.map { "$it = VALUES($it)" } + increment.map { "$it = $it + VALUES($it)" }
+        if (assignments.isEmpty()) return insertIgnore(table, columns, key)
+        return "${insertInto(table, columns)} ON DUPLICATE KEY UPDATE ${assignments.joinToString(", ")}"
+    }
+
+    override fun insertIgnore(table: String, columns: List<String>, key: List<String>): String =
+        insertInto(table, columns).replaceFirst("INSERT INTO", "INSERT IGNORE INTO")
+
+    override fun createIndex(name: String, table: String, columns: String) =
+        "CREATE INDEX $name ON $table ($columns)"
+
+    /** ER_DUP_KEYNAME */
+    override fun isDuplicateIndex(e: SQLException): Boolean = e.errorCode == 1061
+
+    override fun addColumn(table: String, column: String, definition: String) =
+        "ALTER TABLE $table ADD COLUMN $column $definition"
+
+    override fun replacePrimaryKey(table: String, columns: List<String>) =
+        listOf("ALTER TABLE $table DROP PRIMARY KEY, ADD PRIMARY KEY (${columns.joinToString(", ")})")
+
+    /** The new value comes back through LAST_INSERT_ID(), which is per-connection. */
+    override fun nextCounterValue(conn: Connection, name: String): Long {
+        conn.prepareStatement(
+            "INSERT INTO brennon_counters (name, value) VALUES (?, LAST_INSERT_ID(1)) ON DUPLICATE KEY UPDATE value = LAST_INSERT_ID(value + 1)"
+        ).use { stmt ->
+            stmt.setString(1, name)
+            stmt.executeUpdate()
+        }
+        conn.prepareStatement("SELECT LAST_INSERT_ID()").use { stmt ->
+            val rs = stmt.executeQuery()
+            rs.next()
+            return rs.getLong(1)
+        }
+    }
+}
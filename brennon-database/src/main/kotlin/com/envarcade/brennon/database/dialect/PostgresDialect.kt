@@ -0,0 +1,48 @@
+package com.envarcade.brennon.database.dialect
+
+import java.sql.Connection
+
+/**
+ * PostgreSQL. Conflicts are resolved with `ON CONFLICT`, and the driver
+ * rewrites batched inserts into multi-row `VALUES` lists.
+ */
+class PostgresDialect : SqlDialect() {
+
+    override val doubleType = "DOUBLE PRECISION"
+    override val binaryType = "BYTEA"
+
+    override fun autoIncrement(big: Boolean) = if (big) "BIGSERIAL" else "SERIAL"
+
+    override val dataSourceProperties = mapOf("reWriteBatchedInserts" to "true")
+
+    override fun upsert(table: String, columns: List<String>, key: List<String>, update: List<String>, increment: List<String>): String {
+        val assignments = update.map { "$it = EXCLUDED.$it" } + increment.map { "$it = $table.$it + EXCLUDED.$it" }
+        if (assignments.isEmpty()) return insertIgnore(table, columns, key)
+        return "${insertInto(table, columns)} ON CONFLICT (${key.joinToString(", ")}) DO UPDATE SET ${assignments.joinToString(", ")}"
+    }
+
+    override fun insertIgnore(table: String, columns: List<String>, key: List<String>): String =
+        "${insertInto(table, columns)} ON CONFLICT (${key.joinToString(", ")}) DO NOTHING"
+
+    override fun createIndex(name: String, table: String, columns: String) =
+        "CREATE INDEX IF NOT EXISTS $name ON $table ($columns)"
+
+    override fun addColumn(table: String, column: String, definition: String) =
+        "ALTER TABLE $table ADD COLUMN IF NOT EXISTS $column $definition"
+
+    override fun replacePrimaryKey(table: String, columns: List<String>) = listOf(
+        "ALTER TABLE $table DROP CONSTRAINT ${table}_pkey",
+        "ALTER TABLE $table ADD PRIMARY KEY (${columns.joinToString(", ")})"
+    )
+
+    override fun nextCounterValue(conn: Connection, name: String): Long {
+        conn.prepareStatement(
+            "INSERT INTO brennon_counters (name, value) VALUES (?, 1) ON CONFLICT (name) DO UPDATE SET value = brennon_counters.value + 1 RETURNING value"
+        ).use { stmt ->
+            stmt.setString(1, name)
+            val rs = stmt.executeQuery()
+            rs.next()
+            return rs.getLong(1)
+        }
+    }
+}
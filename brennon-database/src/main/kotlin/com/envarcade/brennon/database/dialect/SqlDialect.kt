@@ -0,0 +1,82 @@
+package com.envarcade.brennon.database.dialect
+
+import com.envarcade.brennon.common.config.DatabaseDriver
+import java.sql.Connection
+import java.sql.SQLException
+
+/**
+ * Engine-specific SQL for the SQL driver and repositories.
+ *
+ * Repositories describe what they want (columns, conflict key, which columns
+ * to overwrite or add to) and build the statement text once at construction,
+ * so engine differences and batching tweaks live here instead of in every
+ * repository. Plain selects and `LIMIT ? OFFSET ?` paging are the same on
+ * every supported engine and stay in the repositories.
+ */
+abstract class SqlDialect {
+
+    /** Column type for doubles */
+    abstract val doubleType: String
+
+    /** Column type for binary data */
+    abstract val binaryType: String
+
+    /** Column definition of an auto-incrementing integer key */
+    abstract fun autoIncrement(big: Boolean = false): String
+
+    /**
+     * JDBC data source properties for the pool. Each engine's driver is told
+     * to rewrite batched inserts into multi-row statements.
+     */
+    abstract val dataSourceProperties: Map<String, String>
+
+    /**
+     * An insert of one row that resolves a conflict on [key] by overwriting
+     * the [update] columns and adding the inserted value to the [increment]
+     * columns. Parameters are the [columns] in order.
+     */
+    abstract fun upsert(
+        table: String,
+        columns: List<String>,
+        key: List<String>,
+        update: List<String> = emptyList(),
+        increment: List<String> = emptyList()
+    ): String
+
+    /** An insert of one row that does nothing if a row with the same [key] exists. */
+    abstract fun insertIgnore(table: String, columns: List<String>, key: List<String>): String
+
+    /** Creates an index, skipping it if it exists where the engine can tell. */
+    abstract fun createIndex(name: String, table: String, columns: String): String
+
+    /**
+     * Whether [e], thrown by a [createIndex] statement, only means the index
+     * exists. Engines whose statement already skips existing indexes never
+     * raise it, so by default nothing is ignored.
+     */
+    open fun isDuplicateIndex(e: SQLException): Boolean = false
+
+    /** Adds a column, skipping it if it exists where the engine can tell. */
+    abstract fun addColumn(table: String, column: String, definition: String): String
+
+    /** Statements that replace the primary key of [table] with [columns]. */
+    abstract fun replacePrimaryKey(table: String, columns: List<String>): List<String>
+
+    /**
+     * Atomically increments the named row of `brennon_counters` on [conn],
+     * creating it at 1, and returns the new value.
+     */
+    abstract fun nextCounterValue(conn: Connection, name: String): Long
+
+    protected fun insertInto(table: String, columns: List<String>): String =
+        "INSERT INTO $table (${columns.joinToString(", ")}) VALUES (${columns.joinToString(", ") { "?" }})"
+
+    companion object {
+        fun of(driver: DatabaseDriver): SqlDialect = when (driver) {
+            DatabaseDriver.MYSQL, DatabaseDriver.MARIADB -> MySqlDialect()
+            DatabaseDriver.POSTGRESQL -> PostgresDialect()
+            DatabaseDriver.H2 -> H2Dialect()
+            DatabaseDriver.MONGODB -> throw IllegalArgumentException("MongoDB has no SQL dialect")
+        }
+    }
+}
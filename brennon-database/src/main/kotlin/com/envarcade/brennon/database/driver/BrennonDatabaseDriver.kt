@@ -1,6 +1,7 @@
 package com.envarcade.brennon.database.driver
 
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.database.repository.EconomyRepository
 import com.envarcade.brennon.database.repository.PlayerRepository
 import com.envarcade.brennon.database.repository.PunishmentRepository
 import com.envarcade.brennon.database.repository.RankRepository
@@ -19,9 +20,15 @@ interface BrennonDatabaseDriver {
 
     fun createRankRepository(): RankRepository
 
+    fun createEconomyRepository(): EconomyRepository
+
     fun createPunishmentRepository(networkContext: NetworkContext): PunishmentRepository
 
     fun createTicketRepository(networkContext: NetworkContext): TicketRepository
 
-    fun createStatsRepository(networkContext: NetworkContext): StatsRepository
+    /**
+     * @param rankedStats Stats that must support database leaderboards; drivers
+     * that index every stat may ignore it
+     */
+    fun createStatsRepository(networkContext: NetworkContext, rankedStats: Set<String>): StatsRepository
 }
@@ -2,26 +2,49 @@ package com.envarcade.brennon.database.driver
 
 import com.envarcade.brennon.common.config.DatabaseConfig
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.database.repository.EconomyRepository
 import com.envarcade.brennon.database.repository.PlayerRepository
 import com.envarcade.brennon.database.repository.PunishmentRepository
 import com.envarcade.brennon.database.repository.RankRepository
 import com.envarcade.brennon.database.repository.StatsRepository
 import com.envarcade.brennon.database.repository.TicketRepository
+import com.envarcade.brennon.database.repository.mongo.MongoEconomyRepository
 import com.envarcade.brennon.database.repository.mongo.MongoPlayerRepository
 import com.envarcade.brennon.database.repository.mongo.MongoPunishmentRepository
 import com.envarcade.brennon.database.repository.mongo.MongoRankRepository
 import com.envarcade.brennon.database.repository.mongo.MongoStatsRepository
 import com.envarcade.brennon.database.repository.mongo.MongoTicketRepository
+import com.envarcade.brennon.database.repository.mongo.ReactiveMongoPlayerRepository
+import com.envarcade.brennon.database.repository.mongo.ReactiveMongoPunishmentRepository
+import com.envarcade.brennon.database.repository.mongo.ReactiveMongoRankRepository
 import com.mongodb.ConnectionString
 import com.mongodb.MongoClientSettings
 import com.mongodb.client.MongoClient
 import com.mongodb.client.MongoClients
 import com.mongodb.client.MongoDatabase
+import com.mongodb.client.model.Filters
+import com.mongodb.reactivestreams.client.MongoClient as ReactiveMongoClient
+import com.mongodb.reactivestreams.client.MongoClients as ReactiveMongoClients
+import com.mongodb.reactivestreams.client.MongoDatabase as ReactiveMongoDatabase
+import org.bson.Document
 
+/**
+ * MongoDB driver on the synchronous client.
+ *
+ * With `database.mongoAsync`, a second client on the reactive-streams driver
+ * serves the player, rank and punishment repositories, whose futures are
+ * completed from driver callbacks instead of blocking a pool thread for each
+ * round trip. The synchronous client stays open for the remaining
+ * repositories, index management and [getDatabase] callers.
+ */
 class MongoDatabaseDriver(private val config: DatabaseConfig) : BrennonDatabaseDriver {
 
     private var client: MongoClient? = null
     private var database: MongoDatabase? = null
+    private var reactiveClient: ReactiveMongoClient? = null
+    private var reactiveDatabase: ReactiveMongoDatabase? = null
+    private var diagnostics: MongoQueryDiagnostics? = null
 
     override fun connect() {
         val connectionString = if (config.uri.isNotBlank()) {
@@ -38,16 +61,59 @@ class MongoDatabaseDriver(private val config: DatabaseConfig) : BrennonDatabaseD
 
         val settings = MongoClientSettings.builder()
             .applyConnectionString(ConnectionString(connectionString))
-            .build()
+        if (config.queryDiagnostics) {
+            diagnostics = MongoQueryDiagnostics(config.slowQueryMillis).also { settings.addCommandListener(it) }
+        }
 
-        client = MongoClients.create(settings)
+        val clientSettings = settings.build()
+        client = MongoClients.create(clientSettings)
         database = client!!.getDatabase(config.database)
+        if (config.mongoAsync) {
+            reactiveClient = ReactiveMongoClients.create(clientSettings)
+            reactiveDatabase = reactiveClient!!.getDatabase(config.database)
+        }
+        diagnostics?.database = database
 
         database!!.listCollectionNames().first()
-        println("[Brennon] Connected to MongoDB: ${config.database}")
+        Log.info("Connected to MongoDB: ${config.database}")
+
+        backfillPlayerNames()
+        MongoIndexes.ensureCoreIndexes(database!!)
+        if (reactiveClient != null) {
+            Log.info("MongoDB async driver enabled for player, rank and punishment lookups")
+        }
+        if (diagnostics != null) {
+            Log.info("MongoDB query diagnostics enabled", "slowQueryMillis" to config.slowQueryMillis)
+        }
+    }
+
+    /**
+     * Creates leaderboard indexes for the given stats, which are stored as
+     * their own fields and so cannot be indexed up front.
+     */
+    fun ensureStatIndexes(statIds: Collection<String>) {
+        MongoIndexes.ensureStatIndexes(getDatabase(), statIds)
+    }
+
+    /**
+     * Fills `nameLower` for players saved before the field existed.
+     */
+    private fun backfillPlayerNames() {
+        val result = getDatabase().getCollection("players").updateMany(
+            Filters.exists("nameLower", false),
+            listOf(Document("\$set", Document("nameLower", Document("\$toLower", "\$name"))))
+        )
+        if (result.modifiedCount > 0) {
+            Log.info("Backfilled nameLower for ${result.modifiedCount} players")
+        }
     }
 
     override fun disconnect() {
+        diagnostics?.shutdown()
+        diagnostics = null
+        reactiveClient?.close()
+        reactiveClient = null
+        reactiveDatabase = null
         client?.close()
         client = null
         database = null
@@ -58,9 +124,13 @@ class MongoDatabaseDriver(private val config: DatabaseConfig) : BrennonDatabaseD
     fun getDatabase(): MongoDatabase =
         database ?: throw IllegalStateException("MongoDB is not connected!")
 
-    override fun createPlayerRepository(): PlayerRepository = MongoPlayerRepository(getDatabase())
-    override fun createRankRepository(): RankRepository = MongoRankRepository(getDatabase())
-    override fun createPunishmentRepository(networkContext: NetworkContext): PunishmentRepository = MongoPunishmentRepository(getDatabase(), networkContext)
+    override fun createPlayerRepository(): PlayerRepository =
+        reactiveDatabase?.let { ReactiveMongoPlayerRepository(it) } ?: MongoPlayerRepository(getDatabase())
+    override fun createRankRepository(): RankRepository =
+        reactiveDatabase?.let { ReactiveMongoRankRepository(it) } ?: MongoRankRepository(getDatabase())
+    override fun createEconomyRepository(): EconomyRepository = MongoEconomyRepository(getDatabase())
+    override fun createPunishmentRepository(networkContext: NetworkContext): PunishmentRepository =
+        reactiveDatabase?.let { ReactiveMongoPunishmentRepository(it, networkContext) } ?: MongoPunishmentRepository(getDatabase(), networkContext)
     override fun createTicketRepository(networkContext: NetworkContext): TicketRepository = MongoTicketRepository(getDatabase(), networkContext)
-    override fun createStatsRepository(networkContext: NetworkContext): StatsRepository = MongoStatsRepository(getDatabase(), networkContext)
+    override fun createStatsRepository(networkContext: NetworkContext, rankedStats: Set<String>): StatsRepository = MongoStatsRepository(getDatabase(), networkContext)
 }
@@ -0,0 +1,83 @@
+package com.envarcade.brennon.database.driver
+
+import com.envarcade.brennon.common.logging.Log
+import com.mongodb.client.MongoCollection
+import com.mongodb.client.MongoDatabase
+import com.mongodb.client.model.Filters
+import com.mongodb.client.model.IndexOptions
+import org.bson.Document
+import org.bson.conversions.Bson
+
+/**
+ * Index provisioning for the MongoDB driver, the counterpart of the indexes
+ * SQL schema migrations create (`SchemaMigrations`). Every index has a fixed name,
+ * so running this on each startup is a no-op once they exist.
+ */
+object MongoIndexes {
+
+    /**
+     * Creates the indexes behind the repositories' fixed query shapes.
+     */
+    fun ensureCoreIndexes(database: MongoDatabase) {
+        val players = database.getCollection("players")
+        ensure(players, "idx_players_name_lower", Document("nameLower", 1))
+        ensure(players, "idx_players_ip", Document("ipAddress", 1))
+        ensure(players, "idx_players_last_seen", Document("lastSeen", -1).append("_id", -1))
+        ensure(players, "idx_players_balance", Document("balance", -1))
+
+        val punishments = database.getCollection("punishments")
+        ensure(punishments, "idx_punishments_target", Document("target", 1).append("issuedAt", -1))
+        // Ban and mute checks only ever look for active punishments
+        ensure(
+            punishments, "idx_punishments_target_active",
+            Document("target", 1).append("type", 1),
+            Filters.eq("active", true)
+        )
+        ensure(
+            punishments, "idx_punishments_ip_active",
+            Document("targetIp", 1).append("type", 1),
+            Filters.eq("active", true)
+        )
+        ensure(punishments, "idx_punishments_type_issued", Document("type", 1).append("issuedAt", -1).append("_id", -1))
+
+        val tickets = database.getCollection("tickets")
+        ensure(tickets, "idx_tickets_status_created", Document("status", 1).append("createdAt", -1).append("_id", -1))
+        ensure(tickets, "idx_tickets_creator", Document("creator", 1).append("createdAt", -1))
+        ensure(tickets, "idx_tickets_assignee", Document("assignee", 1).append("createdAt", -1))
+
+        ensure(database.getCollection("economy_ledger"), "idx_ledger_uuid_time", Document("uuid", 1).append("timestamp", -1))
+        ensure(database.getCollection("stats_periodic"), "idx_stats_periodic_prune", Document("period", 1).append("bucketStart", 1))
+    }
+
+    /**
+     * Creates leaderboard indexes for stats stored as their own document
+     * fields. Only documents holding the stat are indexed.
+     */
+    fun ensureStatIndexes(database: MongoDatabase, statIds: Collection<String>) {
+        val stats = database.getCollection("stats")
+        val periodic = database.getCollection("stats_periodic")
+        for (statId in statIds.toSet()) {
+            val present = Filters.exists(statId)
+            ensure(stats, "idx_stats_$statId", Document("networkId", 1).append(statId, -1), present)
+            ensure(
+                periodic, "idx_stats_periodic_$statId",
+                Document("networkId", 1).append("bucket", 1).append(statId, -1),
+                present
+            )
+        }
+    }
+
+    /**
+     * Creates one index, logging instead of failing if an index with the
+     * same name but a different definition is already there.
+     */
+    fun ensure(collection: MongoCollection<Document>, name: String, keys: Bson, partialFilter: Bson? = null) {
+        val options = IndexOptions().name(name)
+        if (partialFilter != null) options.partialFilterExpression(partialFilter)
+        try {
+            collection.createIndex(keys, options)
+        } catch (e: Exception) {
+            Log.warn("Failed to create MongoDB index", e, "index" to name, "collection" to collection.namespace.collectionName)
+        }
+    }
+}
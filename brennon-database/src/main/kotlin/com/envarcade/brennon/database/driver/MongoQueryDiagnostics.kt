@@ -0,0 +1,129 @@
+package com.envarcade.brennon.database.driver
+
+import com.envarcade.brennon.common.logging.Log
+import com.mongodb.client.MongoDatabase
+import com.mongodb.event.CommandFailedEvent
+import com.mongodb.event.CommandListener
+import com.mongodb.event.CommandStartedEvent
+import com.mongodb.event.CommandSucceededEvent
+import org.bson.BsonArray
+import org.bson.BsonDocument
+import org.bson.BsonString
+import org.bson.BsonValue
+import org.bson.Document
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Diagnostic mode for the MongoDB driver (`database.queryDiagnostics`).
+ *
+ * Watches every read command and warns about the ones slower than
+ * [slowQueryMillis], then re-runs each slow query shape through `explain`
+ * and logs the winning plan's stages, warning about collection scans. Explains
+ * run on their own thread and each query shape is only explained once.
+ */
+class MongoQueryDiagnostics(private val slowQueryMillis: Long) : CommandListener {
+
+    @Volatile
+    var database: MongoDatabase? = null
+
+    private val pending = ConcurrentHashMap<Int, BsonDocument>()
+    private val explained = ConcurrentHashMap.newKeySet<String>()
+    private val executor: ExecutorService = Executors.newSingleThreadExecutor { runnable ->
+        Thread(runnable, "Brennon-MongoDiagnostics").apply { isDaemon = true }
+    }
+
+    override fun commandStarted(event: CommandStartedEvent) {
+        if (event.commandName in EXPLAINABLE) {
+            pending[event.requestId] = event.command.clone()
+        }
+    }
+
+    override fun commandSucceeded(event: CommandSucceededEvent) {
+        val command = pending.remove(event.requestId) ?: return
+        val elapsed = event.getElapsedTime(TimeUnit.MILLISECONDS)
+        if (elapsed < slowQueryMillis) return
+
+        val collection = (command[event.commandName] as? BsonString)?.value ?: "?"
+        val shape = queryShape(command)
+        Log.warn(
+            "Slow MongoDB command",
+            "command" to event.commandName, "collection" to collection, "millis" to elapsed, "shape" to shape
+        )
+        if (explained.add("${event.commandName}:$collection:$shape")) {
+            executor.execute { explain(command, event.commandName, collection) }
+        }
+    }
+
+    override fun commandFailed(event: CommandFailedEvent) {
+        pending.remove(event.requestId)
+    }
+
+    fun shutdown() {
+        executor.shutdownNow()
+    }
+
+    private fun explain(command: BsonDocument, commandName: String, collection: String) {
+        val db = database ?: return
+        try {
+            // Session and cluster fields belong to the original request, not the explain
+            val inner = BsonDocument()
+            for ((key, value) in command) {
+                if (!key.startsWith("$") && key != "lsid" && key != "txnNumber") inner[key] = value
+            }
+            val result = db.runCommand(Document("explain", inner).append("verbosity", "queryPlanner"))
+            val planner = result.get("queryPlanner", Document::class.java) ?: return
+            val stages = mutableListOf<String>()
+            collectStages(planner.get("winningPlan", Document::class.java), stages)
+            val plan = stages.joinToString(" <- ")
+            if ("COLLSCAN" in stages) {
+                Log.warn(
+                    "Slow MongoDB command scans the collection, consider an index",
+                    "command" to commandName, "collection" to collection, "plan" to plan
+                )
+            } else {
+                Log.info("Slow MongoDB command plan", "command" to commandName, "collection" to collection, "plan" to plan)
+            }
+        } catch (e: Exception) {
+            Log.warn("Failed to explain slow MongoDB command", e, "command" to commandName, "collection" to collection)
+        }
+    }
+
+    private fun collectStages(plan: Document?, stages: MutableList<String>) {
+        if (plan == null) return
+        plan.getString("stage")?.let { stage ->
+            val index = plan.getString("indexName")
+            stages.add(if (index != null) "$stage($index)" else stage)
+        }
+        (plan["queryPlan"] as? Document)?.let { collectStages(it, stages) }
+        (plan["inputStage"] as? Document)?.let { collectStages(it, stages) }
+        (plan["inputStages"] as? List<*>)?.forEach { collectStages(it as? Document, stages) }
+    }
+
+    /**
+     * The filter and sort with values blanked out, so the same query with
+     * different arguments is logged and explained as one shape.
+     */
+    private fun queryShape(command: BsonDocument): String {
+        val parts = mutableListOf<String>()
+        for (key in listOf("filter", "query", "pipeline", "sort")) {
+            val value = command[key] ?: continue
+            parts.add("$key=${shapeOf(value)}")
+        }
+        return parts.joinToString(" ")
+    }
+
+    private fun shapeOf(value: BsonValue): String = when (value) {
+        is BsonDocument -> value.entries.joinToString(",", "{", "}") { (key, inner) ->
+            if (inner is BsonDocument || inner is BsonArray) "$key:${shapeOf(inner)}" else key
+        }
+        is BsonArray -> value.filter { it is BsonDocument || it is BsonArray }.joinToString(",", "[", "]") { shapeOf(it) }
+        else -> "?"
+    }
+
+    companion object {
+        private val EXPLAINABLE = setOf("find", "count", "aggregate", "distinct")
+    }
+}
@@ -3,12 +3,19 @@ package com.envarcade.brennon.database.driver
 import com.envarcade.brennon.common.config.DatabaseConfig
 import com.envarcade.brennon.common.config.DatabaseDriver
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.config.StatsStorageLayout
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.database.dialect.SqlDialect
+import com.envarcade.brennon.database.metrics.DatabaseMetrics
 import com.envarcade.brennon.database.migration.SchemaMigrator
+import com.envarcade.brennon.database.repository.EconomyRepository
 import com.envarcade.brennon.database.repository.PlayerRepository
 import com.envarcade.brennon.database.repository.PunishmentRepository
 import com.envarcade.brennon.database.repository.RankRepository
 import com.envarcade.brennon.database.repository.StatsRepository
 import com.envarcade.brennon.database.repository.TicketRepository
+import com.envarcade.brennon.database.repository.sql.SQLEconomyRepository
+import com.envarcade.brennon.database.repository.sql.SQLPackedStatsRepository
 import com.envarcade.brennon.database.repository.sql.SQLPlayerRepository
 import com.envarcade.brennon.database.repository.sql.SQLPunishmentRepository
 import com.envarcade.brennon.database.repository.sql.SQLRankRepository
@@ -17,60 +24,103 @@ import com.envarcade.brennon.database.repository.sql.SQLTicketRepository
 import com.zaxxer.hikari.HikariConfig
 import com.zaxxer.hikari.HikariDataSource
 import java.sql.Connection
+import java.sql.SQLException
 
 /**
- * SQL database driver implementation supporting MySQL, MariaDB, and PostgreSQL.
- * Uses HikariCP for connection pooling.
+ * SQL database driver implementation supporting MySQL, MariaDB, PostgreSQL
+ * and embedded H2. Uses HikariCP for connection pooling.
+ *
+ * Engine-specific SQL comes from [dialect]. H2 runs in-process in MySQL
+ * compatibility mode. `database.uri` selects the
+ * H2 location (`mem:<name>` for a throwaway in-memory database); by default
+ * it is the file `./data/<database>`.
+ *
+ * With `database.replica` enabled a second, read-only pool points at a
+ * replica. Reads that tolerate replication lag go through [withReadConnection];
+ * everything else, including the login path, stays on the primary.
+ *
+ * Both pools report to [metrics], and connections handed out by
+ * [getConnection] and [withReadConnection] time their statements.
  */
 class SQLDatabaseDriver(
     private val config: DatabaseConfig,
-    private val networkContext: NetworkContext
+    private val networkContext: NetworkContext,
+    private val metrics: DatabaseMetrics
 ) : BrennonDatabaseDriver {
 
     private var dataSource: HikariDataSource? = null
+    private var replicaSource: HikariDataSource? = null
+
+    /** Until when the replica is skipped after a failure (epoch millis) */
+    @Volatile
+    private var replicaRetryAt = 0L
 
     /** Exposed so repositories can generate driver-appropriate SQL */
     val driverType: DatabaseDriver get() = config.driver
 
-    /** Whether this driver is PostgreSQL (changes upsert syntax) */
-    val isPostgres: Boolean get() = config.driver == DatabaseDriver.POSTGRESQL
+    /** Generates the engine-specific SQL used by the driver and repositories */
+    val dialect: SqlDialect = SqlDialect.of(config.driver)
+
+    /** Whether this driver is the embedded H2 database */
+    private val isEmbedded: Boolean get() = config.driver == DatabaseDriver.H2
+
+    /** Storage layout used for lifetime stats */
+    val statsLayout: StatsStorageLayout get() = config.statsLayout
 
     override fun connect() {
-        val hikariConfig = HikariConfig().apply {
-            jdbcUrl = buildJdbcUrl()
-            username = config.username
-            password = config.password
+        val hikariConfig = poolConfig(buildJdbcUrl(config.host, config.port), config.username, config.password).apply {
             maximumPoolSize = config.poolSize
             minimumIdle = 2
-            connectionTimeout = 10000
-            idleTimeout = 300000
-            maxLifetime = 600000
             poolName = "Brennon-SQL-Pool"
-
-            when (config.driver) {
-                DatabaseDriver.MYSQL, DatabaseDriver.MARIADB -> {
-                    addDataSourceProperty("cachePrepStmts", "true")
-                    addDataSourceProperty("prepStmtCacheSize", "250")
-                    addDataSourceProperty("prepStmtCacheSqlLimit", "2048")
-                    addDataSourceProperty("useServerPrepStmts", "true")
-                }
-                DatabaseDriver.POSTGRESQL -> {
-                    addDataSourceProperty("reWriteBatchedInserts", "true")
-                }
-                else -> {}
-            }
         }
 
         dataSource = HikariDataSource(hikariConfig)
-        createTables()
-
-        // Run schema migrations for network support
         SchemaMigrator(this, networkContext).migrate()
 
-        println("[Brennon] Connected to ${config.driver}: ${config.database}")
+        Log.info("Connected to ${config.driver}: ${config.database}")
+
+        if (config.replica.enabled) {
+            if (isEmbedded) Log.warn("Read replica ignored for the embedded H2 database")
+            else connectReplica()
+        }
+    }
+
+    private fun connectReplica() {
+        val replica = config.replica
+        val host = replica.host.ifBlank { config.host }
+        val port = if (replica.port > 0) replica.port else config.port
+        val replicaConfig = poolConfig(
+            buildJdbcUrl(host, port),
+            replica.username.ifBlank { config.username },
+            if (replica.username.isBlank()) config.password else replica.password
+        ).apply {
+            maximumPoolSize = replica.poolSize
+            minimumIdle = 1
+            isReadOnly = true
+            // Don't block startup on the replica; reads fall back to the primary
+            initializationFailTimeout = -1
+            poolName = "Brennon-SQL-Replica-Pool"
+        }
+        replicaSource = HikariDataSource(replicaConfig)
+        Log.info("Read replica pool configured: $host:$port")
+    }
+
+    private fun poolConfig(jdbcUrl: String, username: String, password: String): HikariConfig {
+        return HikariConfig().apply {
+            this.jdbcUrl = jdbcUrl
+            this.username = username
+            this.password = password
+            connectionTimeout = 10000
+            idleTimeout = 300000
+            maxLifetime = 600000
+            if (metrics.enabled) metricsTrackerFactory = metrics.trackerFactory
+            for ((key, value) in dialect.dataSourceProperties) addDataSourceProperty(key, value)
+        }
     }
 
     override fun disconnect() {
+        replicaSource?.close()
+        replicaSource = null
         dataSource?.close()
         dataSource = null
     }
@@ -78,136 +128,52 @@ class SQLDatabaseDriver(
     override fun isConnected(): Boolean = dataSource?.isClosed == false
 
     fun getConnection(): Connection =
-        dataSource?.connection ?: throw IllegalStateException("SQL database is not connected!")
+        metrics.trace(dataSource?.connection ?: throw IllegalStateException("SQL database is not connected!"))
+
+    /**
+     * Runs a read-only [block] on a replica connection, for queries that can
+     * tolerate replication lag (leaderboards, history, counts, audit). Falls
+     * back to the primary when no replica is configured or the replica fails;
+     * after a failure the replica is skipped for [REPLICA_RETRY_MILLIS]. The
+     * block may run twice, so it must not have side effects.
+     */
+    fun <T> withReadConnection(block: (Connection) -> T): T {
+        val replica = replicaSource
+        if (replica != null && System.currentTimeMillis() >= replicaRetryAt) {
+            try {
+                return metrics.trace(replica.connection).use(block)
+            } catch (e: SQLException) {
+                replicaRetryAt = System.currentTimeMillis() + REPLICA_RETRY_MILLIS
+                Log.warn("Read replica query failed, using the primary", e, "retrySeconds" to REPLICA_RETRY_MILLIS / 1000)
+            }
+        }
+        return getConnection().use(block)
+    }
 
-    private fun buildJdbcUrl(): String = when (config.driver) {
+    private fun buildJdbcUrl(host: String, port: Int): String = when (config.driver) {
         DatabaseDriver.MYSQL, DatabaseDriver.MARIADB ->
-            "jdbc:mysql://${config.host}:${config.port}/${config.database}?useSSL=false&allowPublicKeyRetrieval=true"
+            "jdbc:mysql://$host:$port/${config.database}?useSSL=false&allowPublicKeyRetrieval=true"
         DatabaseDriver.POSTGRESQL ->
-            "jdbc:postgresql://${config.host}:${config.port}/${config.database}"
-        else -> throw IllegalArgumentException("Unsupported SQL driver: ${config.driver}")
-    }
-
-    private fun createTables() {
-        getConnection().use { conn ->
-            conn.createStatement().use { stmt ->
-                val doubleType = if (isPostgres) "DOUBLE PRECISION" else "DOUBLE"
-
-                stmt.execute("""
-                    CREATE TABLE IF NOT EXISTS brennon_players (
-                        uuid VARCHAR(36) PRIMARY KEY,
-                        name VARCHAR(16) NOT NULL,
-                        primary_rank VARCHAR(64) DEFAULT 'default',
-                        ranks TEXT,
-                        permissions TEXT,
-                        balance $doubleType DEFAULT 0.0,
-                        first_join BIGINT NOT NULL,
-                        last_seen BIGINT NOT NULL,
-                        last_server VARCHAR(64),
-                        ip_address VARCHAR(45),
-                        playtime BIGINT DEFAULT 0,
-                        metadata TEXT
-                    )
-                """.trimIndent())
-
-                stmt.execute("""
-                    CREATE TABLE IF NOT EXISTS brennon_ranks (
-                        id VARCHAR(64) PRIMARY KEY,
-                        display_name VARCHAR(128),
-                        prefix TEXT,
-                        suffix TEXT,
-                        weight INT DEFAULT 0,
-                        permissions TEXT,
-                        inheritance TEXT,
-                        is_default BOOLEAN DEFAULT FALSE,
-                        is_staff BOOLEAN DEFAULT FALSE,
-                        metadata TEXT
-                    )
-                """.trimIndent())
-
-                stmt.execute("""
-                    CREATE TABLE IF NOT EXISTS brennon_punishments (
-                        id VARCHAR(36) PRIMARY KEY,
-                        target VARCHAR(36) NOT NULL,
-                        issuer VARCHAR(36),
-                        type VARCHAR(16) NOT NULL,
-                        reason TEXT NOT NULL,
-                        issued_at BIGINT NOT NULL,
-                        expires_at BIGINT,
-                        active BOOLEAN DEFAULT TRUE,
-                        revoked_by VARCHAR(36),
-                        revoked_at BIGINT,
-                        revoke_reason TEXT,
-                        network_id VARCHAR(32)
-                    )
-                """.trimIndent())
-
-                stmt.execute("""
-                    CREATE TABLE IF NOT EXISTS brennon_tickets (
-                        id VARCHAR(16) PRIMARY KEY,
-                        creator VARCHAR(36) NOT NULL,
-                        creator_name VARCHAR(16) NOT NULL,
-                        assignee VARCHAR(36),
-                        subject TEXT NOT NULL,
-                        status VARCHAR(32) NOT NULL DEFAULT 'OPEN',
-                        priority VARCHAR(16) NOT NULL DEFAULT 'NORMAL',
-                        server VARCHAR(64),
-                        created_at BIGINT NOT NULL,
-                        updated_at BIGINT NOT NULL,
-                        closed_at BIGINT,
-                        network_id VARCHAR(32)
-                    )
-                """.trimIndent())
-
-                stmt.execute("""
-                    CREATE TABLE IF NOT EXISTS brennon_ticket_messages (
-                        id ${if (isPostgres) "SERIAL" else "INT AUTO_INCREMENT"} PRIMARY KEY,
-                        ticket_id VARCHAR(16) NOT NULL,
-                        author VARCHAR(36) NOT NULL,
-                        author_name VARCHAR(16) NOT NULL,
-                        content TEXT NOT NULL,
-                        timestamp BIGINT NOT NULL,
-                        is_staff BOOLEAN DEFAULT FALSE
-                    )
-                """.trimIndent())
-
-                stmt.execute("""
-                    CREATE TABLE IF NOT EXISTS brennon_stats (
-                        player_uuid VARCHAR(36) NOT NULL,
-                        stat_id VARCHAR(64) NOT NULL,
-                        network_id VARCHAR(32) NOT NULL DEFAULT '__global__',
-                        value $doubleType DEFAULT 0.0,
-                        PRIMARY KEY (player_uuid, stat_id, network_id)
-                    )
-                """.trimIndent())
-
-                // Migrations
-                try {
-                    stmt.execute("ALTER TABLE brennon_punishments ADD COLUMN target_ip VARCHAR(45)")
-                } catch (_: Exception) { /* column already exists */ }
-
-                // Create indexes
-                try {
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_name ON brennon_players(name)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_punishments_target ON brennon_punishments(target)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_punishments_active ON brennon_punishments(target, type, active)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_punishments_network ON brennon_punishments(network_id)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_punishments_ip ON brennon_punishments(target_ip, type, active)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_tickets_creator ON brennon_tickets(creator)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_tickets_assignee ON brennon_tickets(assignee)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_tickets_status ON brennon_tickets(status)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_tickets_network ON brennon_tickets(network_id)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_ticket_messages_ticket ON brennon_ticket_messages(ticket_id)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_stats_leaderboard ON brennon_stats(stat_id, value)")
-                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_stats_network ON brennon_stats(network_id)")
-                } catch (_: Exception) { }
-            }
+            "jdbc:postgresql://$host:$port/${config.database}"
+        DatabaseDriver.H2 -> {
+            val location = config.uri.removePrefix("jdbc:h2:").ifBlank { "file:./data/${config.database}" }
+            // VALUE is reserved in H2 but used as a column name; keep in-memory databases alive between pool connections
+            "jdbc:h2:$location;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1"
         }
+        else -> throw IllegalArgumentException("Unsupported SQL driver: ${config.driver}")
     }
 
     override fun createPlayerRepository(): PlayerRepository = SQLPlayerRepository(this)
     override fun createRankRepository(): RankRepository = SQLRankRepository(this)
+    override fun createEconomyRepository(): EconomyRepository = SQLEconomyRepository(this)
     override fun createPunishmentRepository(networkContext: NetworkContext): PunishmentRepository = SQLPunishmentRepository(this, networkContext)
     override fun createTicketRepository(networkContext: NetworkContext): TicketRepository = SQLTicketRepository(this, networkContext)
-    override fun createStatsRepository(networkContext: NetworkContext): StatsRepository = SQLStatsRepository(this, networkContext)
+    override fun createStatsRepository(networkContext: NetworkContext, rankedStats: Set<String>): StatsRepository = when (config.statsLayout) {
+        StatsStorageLayout.ROWS -> SQLStatsRepository(this, networkContext)
+        StatsStorageLayout.PACKED -> SQLPackedStatsRepository(this, networkContext, rankedStats).also { it.backfillRanked() }
+    }
+
+    companion object {
+        private const val REPLICA_RETRY_MILLIS = 30_000L
+    }
 }
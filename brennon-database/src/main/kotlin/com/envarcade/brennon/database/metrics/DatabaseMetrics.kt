@@ -0,0 +1,128 @@
+package com.envarcade.brennon.database.metrics
+
+import com.envarcade.brennon.common.config.DatabaseMetricsConfig
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.Counter
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.Metrics
+import com.envarcade.brennon.common.metrics.MetricsRegistry
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory
+import java.sql.Connection
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Query instrumentation for the database layer (`database.metrics`).
+ *
+ * Collects, in memory:
+ * - per connection pool: wait for a connection, time it is held, timeouts
+ *   and live connection counts (through Hikari's [trackerFactory])
+ * - per SQL statement: execution time, with statements slower than
+ *   `slowQueryMillis` logged and kept in [recentSlowQueries]
+ * - per repository method: latency, rows returned and failures
+ *
+ * Logged SQL has its string literals blanked and bound parameters are never
+ * read, so player names, IPs and reasons don't end up in the console.
+ * With metrics disabled [trace] and [instrument] return their argument.
+ *
+ * Every histogram and counter is also registered in [registry] under a
+ * `brennon_db_` name, so it is exported with the other metrics.
+ */
+class DatabaseMetrics(
+    private val config: DatabaseMetricsConfig,
+    private val registry: MetricsRegistry = Metrics
+) {
+
+    private val pools = ConcurrentHashMap<String, PoolMetrics>()
+    private val methods = ConcurrentHashMap<String, MethodMetrics>()
+    private val slowQueries = ArrayDeque<SlowQuery>()
+
+    val enabled: Boolean get() = config.enabled
+
+    val statements = registry.histogram("brennon_db_statement_milliseconds", "SQL statement execution time", Histogram.LATENCY_MILLIS)
+    val statementErrors = registry.counter("brennon_db_statement_errors_total", "SQL statements that threw")
+    private val slowStatements = registry.counter("brennon_db_slow_queries_total", "SQL statements over the slow-query threshold")
+
+    /** Registers each Hikari pool it is set on under the pool's name */
+    val trackerFactory = MetricsTrackerFactory { poolName, poolStats ->
+        PoolMetrics(poolName, poolStats, registry).also { pools[poolName] = it }
+    }
+
+    /** Times the statements created by [conn] */
+    fun trace(conn: Connection): Connection =
+        if (config.enabled) JdbcTracing.connection(conn, this) else conn
+
+    /** Records latency and rows for every call on [repository] */
+    fun <T : Any> instrument(type: Class<T>, repository: T): T =
+        if (config.enabled) RepositoryTracing.wrap(type, repository, this) else repository
+
+    fun recordStatement(sql: String, batchSize: Int, nanos: Long, failed: Boolean) {
+        val millis = nanos / 1_000_000.0
+        statements.record(millis)
+        if (failed) statementErrors.inc()
+        if (millis >= config.slowQueryMillis) {
+            slowStatements.inc()
+            if (config.slowQueryLog) slowQuery(SlowQuery(System.currentTimeMillis(), millis.toLong(), redact(sql), batchSize))
+        }
+    }
+
+    fun recordCall(method: String, nanos: Long, rows: Int?, failed: Boolean) {
+        val metrics = methods.computeIfAbsent(method) { MethodMetrics(it, registry) }
+        metrics.latency.record(nanos / 1_000_000.0)
+        if (rows != null) metrics.rows.record(rows.toDouble())
+        if (failed) metrics.errors.inc()
+    }
+
+    fun poolMetrics(): Map<String, PoolMetrics> = pools.toSortedMap()
+
+    fun methodMetrics(): Map<String, MethodMetrics> = methods.toSortedMap()
+
+    fun recentSlowQueries(): List<SlowQuery> = synchronized(slowQueries) { slowQueries.toList() }
+
+    /** Everything above as plain maps and lists, for JSON */
+    fun snapshot(): Map<String, Any> = mapOf(
+        "enabled" to config.enabled,
+        "pools" to poolMetrics().mapValues { it.value.toMap() },
+        "statements" to statements.snapshot().toMap() + ("errors" to statementErrors.value),
+        "repositories" to methodMetrics().mapValues { it.value.toMap() },
+        "slowQueries" to recentSlowQueries()
+    )
+
+    private fun slowQuery(query: SlowQuery) {
+        Log.warn("Slow SQL query", "millis" to query.millis, "batch" to query.batchSize, "sql" to query.sql)
+        synchronized(slowQueries) {
+            slowQueries.addLast(query)
+            while (slowQueries.size > config.recentSlowQueries) slowQueries.removeFirst()
+        }
+    }
+
+    class MethodMetrics(method: String, registry: MetricsRegistry) {
+        val latency = registry.histogram(
+            "brennon_db_call_milliseconds", "Repository call latency, including pool wait", Histogram.LATENCY_MILLIS, "method" to method
+        )
+        val rows = registry.histogram("brennon_db_call_rows", "Rows returned per repository call", Histogram.ROWS, "method" to method)
+        val errors: Counter = registry.counter("brennon_db_call_errors_total", "Repository calls that failed", "method" to method)
+
+        fun toMap(): Map<String, Any> = mapOf(
+            "latencyMillis" to latency.snapshot().toMap(),
+            "rows" to rows.snapshot().toMap(),
+            "errors" to errors.value
+        )
+    }
+
+    /** A statement over the slow-query threshold, with its SQL redacted */
+    data class SlowQuery(
+        val timestamp: Long,
+        val millis: Long,
+        val sql: String,
+        val batchSize: Int
+    )
+
+    companion object {
+        private val STRING_LITERAL = Regex("'(?:[^']|'')*'")
+        private val WHITESPACE = Regex("\\s+")
+
+        /** Blanks string literals and collapses whitespace; `?` placeholders are kept as-is */
+        fun redact(sql: String): String =
+            sql.replace(STRING_LITERAL, "'?'").replace(WHITESPACE, " ").trim()
+    }
+}
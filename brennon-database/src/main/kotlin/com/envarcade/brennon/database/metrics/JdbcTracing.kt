@@ -0,0 +1,60 @@
+package com.envarcade.brennon.database.metrics
+
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+import java.lang.reflect.Proxy
+import java.sql.Connection
+import java.sql.Statement
+
+/**
+ * Wraps JDBC connections so every statement they create reports its
+ * execution time to [DatabaseMetrics]. Only `execute*` calls are timed;
+ * everything else passes straight through to the driver's objects.
+ */
+internal object JdbcTracing {
+
+    private val loader = JdbcTracing::class.java.classLoader
+
+    fun connection(conn: Connection, metrics: DatabaseMetrics): Connection {
+        val handler = InvocationHandler { _, method, args ->
+            val result = invoke(conn, method, args)
+            // createStatement(), prepareStatement(sql, ...) and prepareCall(sql, ...)
+            if (result is Statement) statement(method.returnType, result, args?.firstOrNull() as? String, metrics)
+            else result
+        }
+        return Proxy.newProxyInstance(loader, arrayOf(Connection::class.java), handler) as Connection
+    }
+
+    private fun statement(type: Class<*>, stmt: Statement, preparedSql: String?, metrics: DatabaseMetrics): Any {
+        var batchSize = 0
+        var lastBatchSql: String? = null
+        val handler = InvocationHandler { _, method, args ->
+            val name = method.name
+            if (name == "addBatch") {
+                batchSize++
+                (args?.firstOrNull() as? String)?.let { lastBatchSql = it }
+            }
+            if (!name.startsWith("execute")) return@InvocationHandler invoke(stmt, method, args)
+
+            val sql = preparedSql ?: args?.firstOrNull() as? String ?: lastBatchSql ?: "<batch>"
+            val start = System.nanoTime()
+            var failed = true
+            try {
+                invoke(stmt, method, args).also { failed = false }
+            } finally {
+                metrics.recordStatement(sql, if (name == "executeBatch") batchSize else 0, System.nanoTime() - start, failed)
+                if (name == "executeBatch") batchSize = 0
+            }
+        }
+        return Proxy.newProxyInstance(loader, arrayOf(type), handler)
+    }
+
+    private fun invoke(target: Any, method: Method, args: Array<out Any?>?): Any? {
+        try {
+            return method.invoke(target, *(args ?: emptyArray()))
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    }
+}
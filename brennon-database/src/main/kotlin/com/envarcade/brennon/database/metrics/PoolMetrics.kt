@@ -0,0 +1,62 @@
+package com.envarcade.brennon.database.metrics
+
+import com.envarcade.brennon.common.metrics.Counter
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.MetricsRegistry
+import com.zaxxer.hikari.metrics.IMetricsTracker
+import com.zaxxer.hikari.metrics.PoolStats
+
+/**
+ * Hikari metrics for one connection pool: how long callers wait for a
+ * connection, how long they hold it, and how often the wait times out,
+ * next to the pool's live connection counts.
+ */
+class PoolMetrics(poolName: String, private val stats: PoolStats, registry: MetricsRegistry) : IMetricsTracker {
+
+    private val pool = "pool" to poolName
+
+    val acquire = registry.histogram(
+        "brennon_db_pool_acquire_milliseconds", "Time spent waiting for a pooled connection", Histogram.LATENCY_MILLIS, pool
+    )
+    val usage = registry.histogram(
+        "brennon_db_pool_usage_milliseconds", "Time a pooled connection is held", Histogram.LATENCY_MILLIS, pool
+    )
+    val timeouts: Counter = registry.counter("brennon_db_pool_timeouts_total", "Connection requests that timed out", pool)
+
+    val active: Int get() = stats.activeConnections
+    val idle: Int get() = stats.idleConnections
+    val total: Int get() = stats.totalConnections
+    val pending: Int get() = stats.pendingThreads
+    val max: Int get() = stats.maxConnections
+
+    init {
+        registry.gauge("brennon_db_pool_active_connections", "Connections in use", pool) { active.toDouble() }
+        registry.gauge("brennon_db_pool_idle_connections", "Idle connections", pool) { idle.toDouble() }
+        registry.gauge("brennon_db_pool_total_connections", "Open connections", pool) { total.toDouble() }
+        registry.gauge("brennon_db_pool_pending_threads", "Threads waiting for a connection", pool) { pending.toDouble() }
+        registry.gauge("brennon_db_pool_max_connections", "Maximum pool size", pool) { max.toDouble() }
+    }
+
+    override fun recordConnectionAcquiredNanos(elapsedAcquiredNanos: Long) {
+        acquire.record(elapsedAcquiredNanos / 1_000_000.0)
+    }
+
+    override fun recordConnectionUsageMillis(elapsedBorrowedMillis: Long) {
+        usage.record(elapsedBorrowedMillis.toDouble())
+    }
+
+    override fun recordConnectionTimeout() {
+        timeouts.inc()
+    }
+
+    fun toMap(): Map<String, Any> = mapOf(
+        "active" to active,
+        "idle" to idle,
+        "total" to total,
+        "pending" to pending,
+        "max" to max,
+        "timeouts" to timeouts.value,
+        "acquireMillis" to acquire.snapshot().toMap(),
+        "usageMillis" to usage.snapshot().toMap()
+    )
+}
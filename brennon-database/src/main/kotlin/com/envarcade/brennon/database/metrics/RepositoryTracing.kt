@@ -0,0 +1,70 @@
+package com.envarcade.brennon.database.metrics
+
+import com.envarcade.brennon.common.model.Page
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+import java.lang.reflect.ParameterizedType
+import java.lang.reflect.Proxy
+import java.util.concurrent.CompletableFuture
+
+/**
+ * Wraps a repository so each call records its latency, from the call to
+ * the completion of the returned future, and the number of rows it
+ * returned, under `<Repository>.<method>`. The latency therefore includes
+ * executor queueing and pool wait, as callers experience it.
+ */
+internal object RepositoryTracing {
+
+    fun <T : Any> wrap(type: Class<T>, repository: T, metrics: DatabaseMetrics): T {
+        val rowCounters = type.methods.associateWith { rowCounter(it) }
+        val handler = InvocationHandler { _, method, args ->
+            if (method.declaringClass == Any::class.java) return@InvocationHandler invoke(repository, method, args)
+
+            val name = "${type.simpleName}.${method.name}"
+            val rows = rowCounters[method]
+            val start = System.nanoTime()
+            val result = try {
+                invoke(repository, method, args)
+            } catch (e: Throwable) {
+                metrics.recordCall(name, System.nanoTime() - start, null, true)
+                throw e
+            }
+            if (result is CompletableFuture<*>) {
+                result.whenComplete { value, error ->
+                    metrics.recordCall(name, System.nanoTime() - start, if (error == null) rows?.invoke(value) else null, error != null)
+                }
+            } else {
+                metrics.recordCall(name, System.nanoTime() - start, rows?.invoke(result), false)
+            }
+            result
+        }
+        return type.cast(Proxy.newProxyInstance(type.classLoader, arrayOf(type), handler))
+    }
+
+    /**
+     * How to count the rows in a method's result: the size of a list, map or
+     * page, 0 or 1 for a single nullable record, or null for results that
+     * are not rows (counts, balances, `Void`).
+     */
+    private fun rowCounter(method: Method): ((Any?) -> Int)? {
+        val returnType = method.genericReturnType as? ParameterizedType ?: return null
+        val result = returnType.actualTypeArguments.firstOrNull() ?: return null
+        val raw = ((result as? ParameterizedType)?.rawType ?: result) as? Class<*> ?: return null
+        return when {
+            Collection::class.java.isAssignableFrom(raw) -> { value -> (value as? Collection<*>)?.size ?: 0 }
+            Map::class.java.isAssignableFrom(raw) -> { value -> (value as? Map<*, *>)?.size ?: 0 }
+            raw == Page::class.java -> { value -> (value as? Page<*>)?.items?.size ?: 0 }
+            raw.name.startsWith("com.envarcade.brennon.") -> { value -> if (value == null) 0 else 1 }
+            else -> null
+        }
+    }
+
+    private fun invoke(target: Any, method: Method, args: Array<out Any?>?): Any? {
+        try {
+            return method.invoke(target, *(args ?: emptyArray()))
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.envarcade.brennon.database.migration
+
+import com.envarcade.brennon.common.logging.Log
+import java.sql.Connection
+
+/**
+ * Chunked `UPDATE`s for backfills on large tables.
+ *
+ * Rows matching the condition are updated in ranges of the (string) key
+ * column of at most [BATCH_SIZE] matching rows, each committed on its own,
+ * so no statement holds locks on more than one batch. An interrupted
+ * backfill resumes where it stopped, as updated rows no longer match.
+ */
+internal object Backfill {
+
+    const val BATCH_SIZE = 1000
+
+    /** Progress is logged at INFO once per this many chunks, and at DEBUG otherwise */
+    private const val PROGRESS_CHUNKS = 100
+
+    /**
+     * Runs `UPDATE [table] SET [set] WHERE [condition]` in key ranges.
+     * [setParams] bind the placeholders in [set].
+     *
+     * @return the number of rows updated
+     */
+    fun run(
+        conn: Connection,
+        table: String,
+        key: String,
+        set: String,
+        condition: String,
+        setParams: List<Any> = emptyList()
+    ): Int {
+        val selectSQL = "SELECT $key FROM $table WHERE $key > ? AND ($condition) ORDER BY $key LIMIT ?"
+        val updateSQL = "UPDATE $table SET $set WHERE $key > ? AND $key <= ? AND ($condition)"
+        var last = ""
+        var total = 0
+        var chunks = 0
+        while (true) {
+            val upTo = conn.prepareStatement(selectSQL).use { stmt ->
+                stmt.setString(1, last)
+                stmt.setInt(2, BATCH_SIZE)
+                stmt.executeQuery().use { rs ->
+                    var lastKey: String? = null
+                    while (rs.next()) lastKey = rs.getString(1)
+                    lastKey
+                }
+            } ?: break
+
+            total += conn.prepareStatement(updateSQL).use { stmt ->
+                var index = 1
+                for (param in setParams) stmt.setObject(index++, param)
+                stmt.setString(index++, last)
+                stmt.setString(index, upTo)
+                stmt.executeUpdate()
+            }
+            last = upTo
+            chunks++
+            if (chunks % PROGRESS_CHUNKS == 0) {
+                Log.info("Backfilling", "table" to table, "rows" to total)
+            } else {
+                Log.debug("Backfilling", "table" to table, "rows" to total)
+            }
+        }
+        if (total > 0) Log.info("Backfill complete", "table" to table, "rows" to total)
+        return total
+    }
+}
@@ -0,0 +1,20 @@
+package com.envarcade.brennon.database.migration
+
+import java.sql.Connection
+
+/**
+ * One versioned schema change, applied once and recorded in
+ * `brennon_schema_version`.
+ *
+ * A transactional migration runs in one transaction together with its
+ * version row. Others commit as they go (chunked backfills, DDL that MySQL
+ * cannot roll back anyway) and must be safe to run again if interrupted.
+ * Every migration must also tolerate a schema that already has its change,
+ * since databases from before versioning start at version 0.
+ */
+class Migration(
+    val version: Int,
+    val description: String,
+    val transactional: Boolean = true,
+    val apply: (Connection) -> Unit
+)
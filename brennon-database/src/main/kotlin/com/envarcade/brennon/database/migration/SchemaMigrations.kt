@@ -0,0 +1,312 @@
+package com.envarcade.brennon.database.migration
+
+import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.database.driver.SQLDatabaseDriver
+import com.envarcade.brennon.database.repository.sql.SQLTicketRepository
+import java.sql.Connection
+import java.sql.SQLException
+import java.sql.Statement
+
+/**
+ * The versioned SQL schema, in order. New schema changes are appended with
+ * the next version number; applied migrations are never edited.
+ */
+class SchemaMigrations(
+    driver: SQLDatabaseDriver,
+    private val networkContext: NetworkContext
+) {
+
+    private val dialect = driver.dialect
+    private val doubleType = dialect.doubleType
+
+    val all: List<Migration> = listOf(
+        Migration(1, "Create core tables") { conn ->
+            conn.createStatement().use { createCoreTables(it) }
+        },
+        Migration(2, "Add brennon_punishments.target_ip", transactional = false) { conn ->
+            addColumnIfMissing(conn, "brennon_punishments", "target_ip", "VARCHAR(45)")
+        },
+        Migration(3, "Add brennon_players.name_lower", transactional = false) { conn ->
+            addColumnIfMissing(conn, "brennon_players", "name_lower", "VARCHAR(16)")
+        },
+        Migration(4, "Add network_id to the brennon_stats primary key", transactional = false) { conn ->
+            addStatsNetworkColumn(conn)
+        },
+        Migration(5, "Create indexes", transactional = false) { conn ->
+            createIndexes(conn)
+        },
+        Migration(6, "Backfill network_id on punishments and tickets", transactional = false) { conn ->
+            for (table in listOf("brennon_punishments", "brennon_tickets")) {
+                Backfill.run(conn, table, "id", "network_id = ?", "network_id IS NULL", listOf(networkContext.networkId))
+            }
+        },
+        Migration(7, "Backfill brennon_players.name_lower", transactional = false) { conn ->
+            Backfill.run(conn, "brennon_players", "uuid", "name_lower = LOWER(name)", "name_lower IS NULL")
+        },
+        Migration(8, "Seed the ticket counter") { conn ->
+            seedTicketCounter(conn)
+        },
+        Migration(9, "Create the packed layout's ranked stats table", transactional = false) { conn ->
+            createRankedStatsTable(conn)
+        }
+    )
+
+    private fun createCoreTables(stmt: Statement) {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_players (
+                uuid VARCHAR(36) PRIMARY KEY,
+                name VARCHAR(16) NOT NULL,
+                name_lower VARCHAR(16),
+                primary_rank VARCHAR(64) DEFAULT 'default',
+                ranks TEXT,
+                permissions TEXT,
+                balance $doubleType DEFAULT 0.0,
+                first_join BIGINT NOT NULL,
+                last_seen BIGINT NOT NULL,
+                last_server VARCHAR(64),
+                ip_address VARCHAR(45),
+                playtime BIGINT DEFAULT 0,
+                metadata TEXT
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_ranks (
+                id VARCHAR(64) PRIMARY KEY,
+                display_name VARCHAR(128),
+                prefix TEXT,
+                suffix TEXT,
+                weight INT DEFAULT 0,
+                permissions TEXT,
+                inheritance TEXT,
+                is_default BOOLEAN DEFAULT FALSE,
+                is_staff BOOLEAN DEFAULT FALSE,
+                metadata TEXT
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_punishments (
+                id VARCHAR(36) PRIMARY KEY,
+                target VARCHAR(36) NOT NULL,
+                issuer VARCHAR(36),
+                type VARCHAR(16) NOT NULL,
+                reason TEXT NOT NULL,
+                issued_at BIGINT NOT NULL,
+                expires_at BIGINT,
+                active BOOLEAN DEFAULT TRUE,
+                revoked_by VARCHAR(36),
+                revoked_at BIGINT,
+                revoke_reason TEXT,
+                network_id VARCHAR(32)
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_tickets (
+                id VARCHAR(16) PRIMARY KEY,
+                creator VARCHAR(36) NOT NULL,
+                creator_name VARCHAR(16) NOT NULL,
+                assignee VARCHAR(36),
+                subject TEXT NOT NULL,
+                status VARCHAR(32) NOT NULL DEFAULT 'OPEN',
+                priority VARCHAR(16) NOT NULL DEFAULT 'NORMAL',
+                server VARCHAR(64),
+                created_at BIGINT NOT NULL,
+                updated_at BIGINT NOT NULL,
+                closed_at BIGINT,
+                network_id VARCHAR(32)
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_ticket_messages (
+                id ${dialect.autoIncrement()} PRIMARY KEY,
+                ticket_id VARCHAR(16) NOT NULL,
+                author VARCHAR(36) NOT NULL,
+                author_name VARCHAR(16) NOT NULL,
+                content TEXT NOT NULL,
+                timestamp BIGINT NOT NULL,
+                is_staff BOOLEAN DEFAULT FALSE
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_counters (
+                name VARCHAR(64) PRIMARY KEY,
+                value BIGINT NOT NULL
+            )
+        """.trimIndent())
+
+        createRowStatsTable(stmt)
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_stat_ids (
+                id ${dialect.autoIncrement()} PRIMARY KEY,
+                stat_id VARCHAR(64) NOT NULL UNIQUE
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_stats_packed (
+                player_uuid VARCHAR(36) NOT NULL,
+                network_id VARCHAR(32) NOT NULL DEFAULT '__global__',
+                data ${dialect.binaryType} NOT NULL,
+                PRIMARY KEY (player_uuid, network_id)
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_stats_periodic (
+                player_uuid VARCHAR(36) NOT NULL,
+                stat_id VARCHAR(64) NOT NULL,
+                network_id VARCHAR(32) NOT NULL DEFAULT '__global__',
+                period VARCHAR(16) NOT NULL,
+                bucket VARCHAR(16) NOT NULL,
+                bucket_start BIGINT NOT NULL,
+                value $doubleType DEFAULT 0.0,
+                PRIMARY KEY (player_uuid, stat_id, network_id, bucket)
+            )
+        """.trimIndent())
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_economy_ledger (
+                id ${dialect.autoIncrement(big = true)} PRIMARY KEY,
+                player_uuid VARCHAR(36) NOT NULL,
+                delta $doubleType NOT NULL,
+                balance_after $doubleType NOT NULL,
+                reason VARCHAR(32) NOT NULL,
+                counterparty VARCHAR(36),
+                server VARCHAR(64),
+                timestamp BIGINT NOT NULL
+            )
+        """.trimIndent())
+    }
+
+    private fun createRowStatsTable(stmt: Statement) {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS brennon_stats (
+                player_uuid VARCHAR(36) NOT NULL,
+                stat_id VARCHAR(64) NOT NULL,
+                network_id VARCHAR(32) NOT NULL DEFAULT '__global__',
+                value $doubleType DEFAULT 0.0,
+                PRIMARY KEY (player_uuid, stat_id, network_id)
+            )
+        """.trimIndent())
+    }
+
+    private fun addColumnIfMissing(conn: Connection, table: String, column: String, definition: String) {
+        if (hasColumn(conn, table, column)) return
+        conn.createStatement().use { it.execute(dialect.addColumn(table, column, definition)) }
+    }
+
+    /**
+     * Tables created before network support keyed stats on (player, stat)
+     * only. Adds the column, backfills it for the current sharing mode in
+     * chunks and rebuilds the primary key. The migration is not one
+     * transaction, so it is done when the key includes the column, and an
+     * interrupted run resumes where it stopped.
+     */
+    private fun addStatsNetworkColumn(conn: Connection) {
+        val primaryKey = conn.metaData.getPrimaryKeys(null, null, "brennon_stats").use { rs ->
+            buildList { while (rs.next()) add(rs.getString("COLUMN_NAME").lowercase()) }
+        }
+        if ("network_id" in primaryKey) return
+
+        addColumnIfMissing(conn, "brennon_stats", "network_id", "VARCHAR(32) NOT NULL DEFAULT '__global__'")
+        val backfillValue = networkContext.effectiveNetworkId(networkContext.sharing.stats) ?: "__global__"
+        if (backfillValue != "__global__") {
+            Backfill.run(conn, "brennon_stats", "player_uuid", "network_id = ?", "network_id = '__global__'", listOf(backfillValue))
+        }
+        conn.createStatement().use { stmt ->
+            for (sql in dialect.replacePrimaryKey("brennon_stats", listOf("player_uuid", "stat_id", "network_id"))) {
+                stmt.execute(sql)
+            }
+        }
+        Log.info("Migrated brennon_stats table to include network_id column")
+    }
+
+    /**
+     * MySQL rejects existing indexes, so each one runs on its own and only
+     * that error is ignored; any other failure fails the migration.
+     */
+    private fun createIndexes(conn: Connection) {
+        val indexes = listOf(
+            dialect.createIndex("idx_players_name", "brennon_players", "name"),
+            dialect.createIndex("idx_players_name_lower", "brennon_players", "name_lower"),
+            dialect.createIndex("idx_players_balance", "brennon_players", "balance"),
+            dialect.createIndex("idx_players_last_seen", "brennon_players", "last_seen, uuid"),
+            dialect.createIndex("idx_punishments_target", "brennon_punishments", "target"),
+            dialect.createIndex("idx_punishments_active", "brennon_punishments", "target, type, active"),
+            dialect.createIndex("idx_punishments_network", "brennon_punishments", "network_id"),
+            dialect.createIndex("idx_punishments_ip", "brennon_punishments", "target_ip, type, active"),
+            dialect.createIndex("idx_punishments_type_issued", "brennon_punishments", "type, issued_at, id"),
+            dialect.createIndex("idx_tickets_creator", "brennon_tickets", "creator"),
+            dialect.createIndex("idx_tickets_assignee", "brennon_tickets", "assignee"),
+            dialect.createIndex("idx_tickets_status", "brennon_tickets", "status"),
+            dialect.createIndex("idx_tickets_network", "brennon_tickets", "network_id"),
+            dialect.createIndex("idx_tickets_status_created", "brennon_tickets", "status, created_at"),
+            dialect.createIndex("idx_ticket_messages_ticket", "brennon_ticket_messages", "ticket_id"),
+            dialect.createIndex("idx_stats_leaderboard", "brennon_stats", "stat_id, value"),
+            dialect.createIndex("idx_stats_network", "brennon_stats", "network_id"),
+            dialect.createIndex("idx_stats_periodic_board", "brennon_stats_periodic", "stat_id, network_id, bucket, value"),
+            dialect.createIndex("idx_stats_periodic_start", "brennon_stats_periodic", "period, bucket_start"),
+            dialect.createIndex("idx_ledger_player", "brennon_economy_ledger", "player_uuid, timestamp")
+        )
+        conn.createStatement().use { stmt ->
+            for (sql in indexes) createIndex(stmt, sql)
+        }
+    }
+
+    /**
+     * Values of the ranked stats under the packed layout, kept beside the
+     * blobs so leaderboards and positions are index range reads.
+     */
+    private fun createRankedStatsTable(conn: Connection) {
+        conn.createStatement().use { stmt ->
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS brennon_stats_ranked (
+                    player_uuid VARCHAR(36) NOT NULL,
+                    stat_id VARCHAR(64) NOT NULL,
+                    network_id VARCHAR(32) NOT NULL DEFAULT '__global__',
+                    value $doubleType DEFAULT 0.0,
+                    PRIMARY KEY (player_uuid, stat_id, network_id)
+                )
+            """.trimIndent())
+            createIndex(stmt, dialect.createIndex("idx_stats_ranked_board", "brennon_stats_ranked", "stat_id, network_id, value"))
+        }
+    }
+
+    /**
+     * Creates the ticket id counter from the highest existing ticket number.
+     * Insert-if-absent keeps a server that is already allocating ids from
+     * being reset.
+     */
+    private fun seedTicketCounter(conn: Connection) {
+        var highest = 0L
+        conn.prepareStatement("SELECT id FROM brennon_tickets").use { stmt ->
+            val rs = stmt.executeQuery()
+            while (rs.next()) {
+                val number = rs.getString("id").substringAfter("T-").toLongOrNull() ?: continue
+                if (number > highest) highest = number
+            }
+        }
+        conn.prepareStatement(dialect.insertIgnore("brennon_counters", listOf("name", "value"), key = listOf("name"))).use { stmt ->
+            stmt.setString(1, SQLTicketRepository.TICKET_COUNTER)
+            stmt.setLong(2, highest)
+            stmt.executeUpdate()
+        }
+    }
+
+    private fun createIndex(stmt: Statement, sql: String) {
+        try {
+            stmt.execute(sql)
+        } catch (e: SQLException) {
+            if (!dialect.isDuplicateIndex(e)) throw e
+        }
+    }
+
+    private fun hasColumn(conn: Connection, table: String, column: String): Boolean =
+        conn.metaData.getColumns(null, null, table, column).use { it.next() }
+}
@@ -2,109 +2,196 @@ package com.envarcade.brennon.database.migration
 
 import com.envarcade.brennon.common.config.DataSharingMode
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.config.StatsStorageLayout
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
+import com.envarcade.brennon.database.repository.sql.PackedStats
+import com.envarcade.brennon.database.repository.sql.SQLStatIdDictionary
+import java.sql.Connection
+import java.sql.SQLException
 
 /**
- * Handles schema migrations for multi-network support.
+ * Brings the SQL schema up to date on connect.
  *
- * Adds `network_id` columns to existing tables and backfills
- * existing rows with the current network's ID. Idempotent — safe
- * to run on every startup.
+ * Applies the [SchemaMigrations] newer than the version recorded in
+ * `brennon_schema_version`, each exactly once. When the schema is current,
+ * startup costs a single version query and runs no DDL. Two servers starting
+ * together may both apply a pending migration; migrations are idempotent and
+ * the version row is inserted if absent, so the second run is harmless.
  */
 class SchemaMigrator(
     private val driver: SQLDatabaseDriver,
     private val networkContext: NetworkContext
 ) {
 
+    private val migrations = SchemaMigrations(driver, networkContext)
+
+    private val recordSQL = driver.dialect.insertIgnore(
+        "brennon_schema_version",
+        listOf("version", "description", "applied_at"),
+        key = listOf("version")
+    )
+
     fun migrate() {
-        migrateTable("brennon_punishments", networkContext.networkId)
-        migrateTable("brennon_tickets", networkContext.networkId)
-        migrateStatsTable()
+        val current = currentVersion()
+        val pending = migrations.all.filter { it.version > current }
+        if (pending.isNotEmpty()) {
+            Log.info("Migrating SQL schema", "from" to current, "to" to pending.last().version)
+            for (migration in pending) apply(migration)
+        }
+        reassignGlobalStats()
+        if (driver.statsLayout == StatsStorageLayout.PACKED) migrateStatsToPacked()
     }
 
-    private fun migrateTable(table: String, backfillValue: String) {
+    /**
+     * The applied schema version, creating the version table (at 0) on
+     * databases that predate it.
+     */
+    private fun currentVersion(): Int {
         driver.getConnection().use { conn ->
-            val hasColumn = conn.metaData.getColumns(null, null, table, "network_id").use { it.next() }
-            if (hasColumn) {
-                // Column exists — backfill any NULL rows from before migration
-                conn.prepareStatement("UPDATE $table SET network_id = ? WHERE network_id IS NULL").use { stmt ->
-                    stmt.setString(1, backfillValue)
-                    val updated = stmt.executeUpdate()
-                    if (updated > 0) {
-                        println("[Brennon] Migrated $updated rows in $table with network_id=$backfillValue")
-                    }
+            try {
+                conn.prepareStatement("SELECT MAX(version) FROM brennon_schema_version").use { stmt ->
+                    val rs = stmt.executeQuery()
+                    return if (rs.next()) rs.getInt(1) else 0
                 }
+            } catch (_: SQLException) {
+                conn.createStatement().use { stmt ->
+                    stmt.execute("""
+                        CREATE TABLE IF NOT EXISTS brennon_schema_version (
+                            version INT PRIMARY KEY,
+                            description VARCHAR(255) NOT NULL,
+                            applied_at BIGINT NOT NULL
+                        )
+                    """.trimIndent())
+                }
+                return 0
             }
-            // If column doesn't exist, createTables() already created it with the new schema.
-            // This handles the case where the table was created by an older version without network_id.
         }
     }
 
-    private fun migrateStatsTable() {
+    private fun apply(migration: Migration) {
         driver.getConnection().use { conn ->
-            val hasColumn = conn.metaData.getColumns(null, null, "brennon_stats", "network_id").use { it.next() }
-            if (!hasColumn) {
-                // Old schema without network_id — this means createTables() didn't create it fresh
-                // (table already existed from a prior version). We need to add the column and rebuild PK.
-                try {
-                    conn.autoCommit = false
-
-                    // Add column
-                    conn.createStatement().use { stmt ->
-                        stmt.execute("ALTER TABLE brennon_stats ADD COLUMN network_id VARCHAR(32) NOT NULL DEFAULT '__global__'")
-                    }
+            try {
+                conn.autoCommit = !migration.transactional
+                migration.apply(conn)
+                conn.prepareStatement(recordSQL).use { stmt ->
+                    stmt.setInt(1, migration.version)
+                    stmt.setString(2, migration.description)
+                    stmt.setLong(3, System.currentTimeMillis())
+                    stmt.executeUpdate()
+                }
+                if (migration.transactional) conn.commit()
+                Log.info("Applied schema migration", "version" to migration.version, "description" to migration.description)
+            } catch (e: Exception) {
+                if (migration.transactional) conn.rollback()
+                throw IllegalStateException("Schema migration ${migration.version} (${migration.description}) failed", e)
+            } finally {
+                conn.autoCommit = true
+            }
+        }
+    }
 
-                    // Backfill with appropriate value
-                    val backfillValue = if (networkContext.sharing.stats == DataSharingMode.GLOBAL) {
-                        "__global__"
-                    } else {
-                        networkContext.networkId
-                    }
-                    conn.prepareStatement("UPDATE brennon_stats SET network_id = ? WHERE network_id = '__global__'").use { stmt ->
-                        stmt.setString(1, backfillValue)
-                        stmt.executeUpdate()
-                    }
+    /**
+     * With per-network stats, claims rows still on the `__global__` default
+     * for this network, in chunks. Depends on the sharing mode, so it runs on
+     * every start rather than as a versioned migration; the `network_id`
+     * index makes it a single lookup when there is nothing to move. Skipped
+     * once the packed layout has renamed the row table away.
+     */
+    private fun reassignGlobalStats() {
+        if (networkContext.sharing.stats != DataSharingMode.NETWORK) return
+        driver.getConnection().use { conn ->
+            if (!hasTable(conn, "brennon_stats")) return
+            val updated = Backfill.run(
+                conn, "brennon_stats", "player_uuid", "network_id = ?", "network_id = '__global__'",
+                listOf(networkContext.networkId)
+            )
+            if (updated > 0) {
+                Log.info("Migrated stats rows from __global__", "rows" to updated, "network" to networkContext.networkId)
+            }
+        }
+    }
 
-                    // Rebuild PK to include network_id
-                    if (driver.isPostgres) {
-                        conn.createStatement().use { stmt ->
-                            stmt.execute("ALTER TABLE brennon_stats DROP CONSTRAINT brennon_stats_pkey")
-                            stmt.execute("ALTER TABLE brennon_stats ADD PRIMARY KEY (player_uuid, stat_id, network_id)")
-                        }
-                    } else {
-                        conn.createStatement().use { stmt ->
-                            stmt.execute("ALTER TABLE brennon_stats DROP PRIMARY KEY, ADD PRIMARY KEY (player_uuid, stat_id, network_id)")
+    /**
+     * Copies `brennon_stats` rows into `brennon_stats_packed` the first time the
+     * packed layout is enabled, then renames the row table to
+     * `brennon_stats_rows_backup` so the copy never runs again. Players are
+     * converted in batches with insert-if-absent, so a migration interrupted
+     * part way starts over on the next startup. A failure aborts the connect.
+     */
+    private fun migrateStatsToPacked() {
+        driver.getConnection().use { conn ->
+            // Schema creation no longer runs on every start, so the renamed table stays gone
+            if (!hasTable(conn, "brennon_stats")) return
+            val hasRows = conn.prepareStatement("SELECT 1 FROM brennon_stats LIMIT 1").use { it.executeQuery().next() }
+            if (!hasRows) return
+
+            Log.info("Converting brennon_stats to the packed stats layout...")
+            val dictionary = SQLStatIdDictionary(driver)
+            val insertSQL = driver.dialect.insertIgnore(
+                "brennon_stats_packed",
+                listOf("player_uuid", "network_id", "data"),
+                key = listOf("player_uuid", "network_id")
+            )
+
+            var converted = 0
+            try {
+                conn.prepareStatement(
+                    "SELECT DISTINCT player_uuid FROM brennon_stats WHERE player_uuid > ? ORDER BY player_uuid LIMIT ?"
+                ).use { playersStmt ->
+                    var lastUuid = ""
+                    while (true) {
+                        playersStmt.setString(1, lastUuid)
+                        playersStmt.setInt(2, MIGRATION_BATCH)
+                        val players = mutableListOf<String>()
+                        playersStmt.executeQuery().use { rs -> while (rs.next()) players.add(rs.getString("player_uuid")) }
+                        if (players.isEmpty()) break
+
+                        // (player, network) -> packed stats for every row in this player range
+                        val rows = LinkedHashMap<Pair<String, String>, MutableMap<Int, Double>>()
+                        conn.prepareStatement(
+                            "SELECT player_uuid, network_id, stat_id, value FROM brennon_stats WHERE player_uuid > ? AND player_uuid <= ?"
+                        ).use { stmt ->
+                            stmt.setString(1, lastUuid)
+                            stmt.setString(2, players.last())
+                            stmt.executeQuery().use { rs ->
+                                while (rs.next()) {
+                                    val key = rs.getString("player_uuid") to rs.getString("network_id")
+                                    val statKey = dictionary.intern(conn, rs.getString("stat_id"))
+                                    rows.getOrPut(key) { HashMap() }[statKey] = rs.getDouble("value")
+                                }
+                            }
                         }
-                    }
 
-                    conn.commit()
-                    println("[Brennon] Migrated brennon_stats table to include network_id column")
-                } catch (e: Exception) {
-                    conn.rollback()
-                    println("[Brennon] Stats migration failed (may already be migrated): ${e.message}")
-                } finally {
-                    conn.autoCommit = true
-                }
-            } else {
-                // Column exists — backfill any default values if sharing mode changed
-                val backfillValue = if (networkContext.sharing.stats == DataSharingMode.GLOBAL) {
-                    "__global__"
-                } else {
-                    networkContext.networkId
-                }
-                // Only backfill rows that still have the default __global__ value when mode is NETWORK
-                if (networkContext.sharing.stats == DataSharingMode.NETWORK) {
-                    conn.prepareStatement(
-                        "UPDATE brennon_stats SET network_id = ? WHERE network_id = '__global__'"
-                    ).use { stmt ->
-                        stmt.setString(1, backfillValue)
-                        val updated = stmt.executeUpdate()
-                        if (updated > 0) {
-                            println("[Brennon] Migrated $updated stats rows from __global__ to $backfillValue")
+                        conn.prepareStatement(insertSQL).use { stmt ->
+                            for ((key, stats) in rows) {
+                                stmt.setString(1, key.first)
+                                stmt.setString(2, key.second)
+                                stmt.setBytes(3, PackedStats.encode(stats))
+                                stmt.addBatch()
+                            }
+                            stmt.executeBatch()
                         }
+
+                        converted += players.size
+                        lastUuid = players.last()
+                        if (players.size < MIGRATION_BATCH) break
                     }
                 }
+
+                conn.createStatement().use { it.execute("ALTER TABLE brennon_stats RENAME TO brennon_stats_rows_backup") }
+                Log.info("Converted stats to the packed layout; the old rows are kept in brennon_stats_rows_backup", "players" to converted)
+            } catch (e: Exception) {
+                // Writing packed rows before the copy finishes would hide the unconverted history
+                throw IllegalStateException("Packed stats migration failed, it will resume on next startup", e)
             }
         }
     }
+
+    private fun hasTable(conn: Connection, table: String): Boolean =
+        conn.metaData.getTables(null, null, table, null).use { it.next() }
+
+    companion object {
+        private const val MIGRATION_BATCH = 500
+    }
 }
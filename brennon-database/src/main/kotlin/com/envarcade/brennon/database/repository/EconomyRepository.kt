@@ -0,0 +1,41 @@
+package com.envarcade.brennon.database.repository
+
+import com.envarcade.brennon.common.model.LedgerEntryData
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * Atomic balance operations.
+ *
+ * Every write is applied in the database itself (never read-modify-write
+ * in memory), so concurrent servers cannot lose each other's updates.
+ * Balance-changing methods fail with [IllegalArgumentException] when the
+ * player does not exist and [IllegalStateException] on insufficient funds.
+ */
+interface EconomyRepository {
+    fun getBalance(uuid: UUID): CompletableFuture<Double?>
+
+    /** Adds [amount] and returns the new balance. */
+    fun deposit(uuid: UUID, amount: Double): CompletableFuture<Double>
+
+    /** Subtracts [amount] only if the balance covers it, returns the new balance. */
+    fun withdraw(uuid: UUID, amount: Double): CompletableFuture<Double>
+
+    /** Overwrites the balance and returns the previous one. */
+    fun setBalance(uuid: UUID, amount: Double): CompletableFuture<Double>
+
+    /** Moves [amount] between two players as one unit, returns (fromBalance, toBalance). */
+    fun transfer(from: UUID, to: UUID, amount: Double): CompletableFuture<Pair<Double, Double>>
+
+    /** Adds each signed delta to the matching balance in one batch (write-behind flush). */
+    fun applyDeltas(deltas: Map<UUID, Double>): CompletableFuture<Void>
+
+    /** Highest balances in descending order, skipping the first [offset]. */
+    fun findTopBalances(offset: Int, limit: Int): CompletableFuture<Map<UUID, Double>>
+
+    /** Number of players with a balance strictly greater than [balance]. */
+    fun countBalancesAbove(balance: Double): CompletableFuture<Long>
+
+    fun appendLedger(entries: List<LedgerEntryData>): CompletableFuture<Void>
+    fun findLedger(uuid: UUID, limit: Int): CompletableFuture<List<LedgerEntryData>>
+}
@@ -1,5 +1,7 @@
 package com.envarcade.brennon.database.repository
 
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.PlayerData
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
@@ -13,4 +15,7 @@ interface PlayerRepository {
     fun findByIp(ip: String): CompletableFuture<List<PlayerData>>
     fun countAll(): CompletableFuture<Long>
     fun findRecent(limit: Int, offset: Int): CompletableFuture<List<PlayerData>>
+
+    /** Players by most recently seen, keyset-paged on (last seen, uuid). */
+    fun findRecentPage(limit: Int, after: PageCursor?): CompletableFuture<Page<PlayerData>>
 }
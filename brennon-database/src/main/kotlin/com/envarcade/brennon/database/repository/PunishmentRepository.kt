@@ -1,6 +1,8 @@
 package com.envarcade.brennon.database.repository
 
 import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.PunishmentData
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
@@ -12,6 +14,9 @@ interface PunishmentRepository {
     fun findActiveByTargetAndType(uuid: UUID, type: PunishmentType): CompletableFuture<List<PunishmentData>>
     fun findActiveByIp(ip: String): CompletableFuture<List<PunishmentData>>
     fun findAllByType(type: PunishmentType, limit: Int, offset: Int): CompletableFuture<List<PunishmentData>>
+
+    /** Punishments of a type, newest first, keyset-paged on (issued at, id). */
+    fun findAllByTypePage(type: PunishmentType, limit: Int, after: PageCursor?): CompletableFuture<Page<PunishmentData>>
     fun countByType(type: PunishmentType): CompletableFuture<Int>
     fun save(punishment: PunishmentData): CompletableFuture<Void>
     fun delete(id: String): CompletableFuture<Void>
@@ -1,5 +1,7 @@
 package com.envarcade.brennon.database.repository
 
+import com.envarcade.brennon.api.stats.StatPeriod
+import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
 
@@ -8,8 +10,29 @@ interface StatsRepository {
     fun getAllStats(uuid: UUID): CompletableFuture<Map<String, Double>>
     fun setStat(uuid: UUID, statId: String, value: Double): CompletableFuture<Void>
     fun incrementStat(uuid: UUID, statId: String, amount: Double): CompletableFuture<Void>
+
+    /** Adds [amounts] to one stat for many players in a single batch, creating missing rows. */
+    fun incrementMany(amounts: Map<UUID, Double>, statId: String): CompletableFuture<Void>
+
+    /** Adds accumulated per-player, per-stat deltas in one batch, creating missing rows. */
+    fun applyDeltas(deltas: Map<UUID, Map<String, Double>>): CompletableFuture<Void>
     fun getLeaderboard(statId: String, limit: Int): CompletableFuture<Map<UUID, Double>>
+
+    /** Adds deltas to the bucket containing [at] of every timed [StatPeriod]. */
+    fun incrementPeriods(deltas: Map<UUID, Map<String, Double>>, at: Instant): CompletableFuture<Void>
+
+    /** Top N for the [period] bucket containing [at]. */
+    fun getPeriodLeaderboard(statId: String, period: StatPeriod, limit: Int, at: Instant): CompletableFuture<Map<UUID, Double>>
+
+    /** Deletes [period] buckets that started before [before], returns the number removed. */
+    fun prunePeriods(period: StatPeriod, before: Instant): CompletableFuture<Long>
     fun getLeaderboardPosition(uuid: UUID, statId: String): CompletableFuture<Int>
+
+    /**
+     * Streams every value of a stat in batches of up to [batchSize],
+     * for rebuilding leaderboard caches without loading the partition at once.
+     */
+    fun scanStat(statId: String, batchSize: Int, consumer: (Map<UUID, Double>) -> Unit): CompletableFuture<Void>
     fun resetStat(uuid: UUID, statId: String): CompletableFuture<Void>
     fun resetAllStats(uuid: UUID): CompletableFuture<Void>
 }
@@ -1,16 +1,26 @@
 package com.envarcade.brennon.database.repository
 
 import com.envarcade.brennon.api.ticket.TicketStatus
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.TicketData
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
 
+/**
+ * List queries return ticket headers only unless [withMessages] is set,
+ * in which case all messages are fetched in one batch.
+ */
 interface TicketRepository {
     fun findById(id: String): CompletableFuture<TicketData?>
-    fun findByStatus(status: TicketStatus): CompletableFuture<List<TicketData>>
-    fun findByCreator(uuid: UUID): CompletableFuture<List<TicketData>>
-    fun findByAssignee(uuid: UUID): CompletableFuture<List<TicketData>>
-    fun findOpen(): CompletableFuture<List<TicketData>>
+    fun findByStatus(status: TicketStatus, withMessages: Boolean = false): CompletableFuture<List<TicketData>>
+    fun findByCreator(uuid: UUID, withMessages: Boolean = false): CompletableFuture<List<TicketData>>
+    fun findByAssignee(uuid: UUID, withMessages: Boolean = false): CompletableFuture<List<TicketData>>
+    fun findOpen(withMessages: Boolean = false): CompletableFuture<List<TicketData>>
+
+    /** Open ticket headers, newest first, [limit] per page, continuing after [after]. */
+    fun findOpenPage(limit: Int, after: PageCursor?): CompletableFuture<Page<TicketData>>
+    fun countOpen(): CompletableFuture<Long>
     fun save(ticket: TicketData): CompletableFuture<Void>
     fun delete(id: String): CompletableFuture<Void>
     fun getNextId(): CompletableFuture<Int>
@@ -0,0 +1,137 @@
+package com.envarcade.brennon.database.repository.mongo
+
+import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.common.model.PlayerData
+import com.envarcade.brennon.common.model.PunishmentData
+import com.envarcade.brennon.common.model.RankData
+import org.bson.Document
+import java.time.Instant
+import java.util.UUID
+
+/**
+ * Document mapping shared by the synchronous and reactive Mongo repositories.
+ */
+internal object MongoDocuments {
+
+    // ============================================================
+    // Players
+    // ============================================================
+
+    @Suppress("UNCHECKED_CAST")
+    fun fromPlayer(player: PlayerData): Document {
+        return Document().apply {
+            put("_id", player.uuid.toString())
+            put("name", player.name)
+            put("nameLower", player.name.lowercase())
+            put("primaryRank", player.primaryRank)
+            put("ranks", player.ranks.toList())
+            put("permissions", player.permissions.toList())
+            put("balance", player.balance)
+            put("firstJoin", player.firstJoin.toEpochMilli())
+            put("lastSeen", player.lastSeen.toEpochMilli())
+            put("lastServer", player.lastServer)
+            put("ipAddress", player.ipAddress)
+            put("playtime", player.playtime)
+            put("metadata", Document(player.metadata as Map<String, Any>))
+        }
+    }
+
+    fun toPlayer(doc: Document): PlayerData {
+        return PlayerData(
+            uuid = UUID.fromString(doc.getString("_id")),
+            name = doc.getString("name"),
+            primaryRank = doc.getString("primaryRank") ?: "default",
+            ranks = (doc.getList("ranks", String::class.java) ?: listOf("default")).toMutableSet(),
+            permissions = (doc.getList("permissions", String::class.java) ?: emptyList()).toMutableSet(),
+            balance = doc.getDouble("balance") ?: 0.0,
+            firstJoin = Instant.ofEpochMilli(doc.getLong("firstJoin") ?: System.currentTimeMillis()),
+            lastSeen = Instant.ofEpochMilli(doc.getLong("lastSeen") ?: System.currentTimeMillis()),
+            lastServer = doc.getString("lastServer") ?: "",
+            ipAddress = doc.getString("ipAddress") ?: "",
+            playtime = doc.getLong("playtime") ?: 0L,
+            metadata = (doc.get("metadata", Document::class.java)
+                ?.mapValues { it.value.toString() }
+                ?.toMutableMap()) ?: mutableMapOf()
+        )
+    }
+
+    // ============================================================
+    // Punishments
+    // ============================================================
+
+    /**
+     * @param networkId stored when the punishment carries no network of its own
+     */
+    fun fromPunishment(punishment: PunishmentData, networkId: String?): Document {
+        return Document().apply {
+            put("_id", punishment.id)
+            put("target", punishment.target.toString())
+            put("issuer", punishment.issuer?.toString())
+            put("type", punishment.type.name)
+            put("reason", punishment.reason)
+            put("issuedAt", punishment.issuedAt.toEpochMilli())
+            put("expiresAt", punishment.expiresAt?.toEpochMilli())
+            put("active", punishment.active)
+            put("revokedBy", punishment.revokedBy?.toString())
+            put("revokedAt", punishment.revokedAt?.toEpochMilli())
+            put("revokeReason", punishment.revokeReason)
+            put("networkId", punishment.networkId ?: networkId)
+            put("targetIp", punishment.targetIp)
+        }
+    }
+
+    fun toPunishment(doc: Document): PunishmentData {
+        return PunishmentData(
+            id = doc.getString("_id"),
+            target = UUID.fromString(doc.getString("target")),
+            issuer = doc.getString("issuer")?.let { UUID.fromString(it) },
+            type = PunishmentType.valueOf(doc.getString("type")),
+            reason = doc.getString("reason"),
+            issuedAt = Instant.ofEpochMilli(doc.getLong("issuedAt") ?: System.currentTimeMillis()),
+            expiresAt = doc.getLong("expiresAt")?.let { Instant.ofEpochMilli(it) },
+            active = doc.getBoolean("active") ?: true,
+            revokedBy = doc.getString("revokedBy")?.let { UUID.fromString(it) },
+            revokedAt = doc.getLong("revokedAt")?.let { Instant.ofEpochMilli(it) },
+            revokeReason = doc.getString("revokeReason"),
+            networkId = doc.getString("networkId"),
+            targetIp = doc.getString("targetIp")
+        )
+    }
+
+    // ============================================================
+    // Ranks
+    // ============================================================
+
+    @Suppress("UNCHECKED_CAST")
+    fun fromRank(rank: RankData): Document {
+        return Document().apply {
+            put("_id", rank.id)
+            put("displayName", rank.displayName)
+            put("prefix", rank.prefix)
+            put("suffix", rank.suffix)
+            put("weight", rank.weight)
+            put("permissions", rank.permissions.toList())
+            put("inheritance", rank.inheritance.toList())
+            put("isDefault", rank.isDefault)
+            put("isStaff", rank.isStaff)
+            put("metadata", Document(rank.metadata as Map<String, Any>))
+        }
+    }
+
+    fun toRank(doc: Document): RankData {
+        return RankData(
+            id = doc.getString("_id"),
+            displayName = doc.getString("displayName") ?: doc.getString("_id"),
+            prefix = doc.getString("prefix") ?: "",
+            suffix = doc.getString("suffix") ?: "",
+            weight = doc.getInteger("weight") ?: 0,
+            permissions = (doc.getList("permissions", String::class.java) ?: emptyList()).toMutableSet(),
+            inheritance = (doc.getList("inheritance", String::class.java) ?: emptyList()).toMutableSet(),
+            isDefault = doc.getBoolean("isDefault") ?: false,
+            isStaff = doc.getBoolean("isStaff") ?: false,
+            metadata = (doc.get("metadata", Document::class.java)
+                ?.mapValues { it.value.toString() }
+                ?.toMutableMap()) ?: mutableMapOf()
+        )
+    }
+}
@@ -0,0 +1,185 @@
+package com.envarcade.brennon.database.repository.mongo
+
+import com.envarcade.brennon.common.model.LedgerEntryData
+import com.envarcade.brennon.database.repository.EconomyRepository
+import com.mongodb.client.MongoDatabase
+import com.mongodb.client.model.BulkWriteOptions
+import com.mongodb.client.model.Filters
+import com.mongodb.client.model.FindOneAndUpdateOptions
+import com.mongodb.client.model.Projections
+import com.mongodb.client.model.ReturnDocument
+import com.mongodb.client.model.UpdateOneModel
+import com.mongodb.client.model.Updates
+import org.bson.Document
+import java.time.Instant
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * MongoDB implementation of the EconomyRepository.
+ *
+ * Uses `$inc` through `findOneAndUpdate` so each change is a single atomic
+ * document update. Withdrawals carry a `balance >= amount` filter. Transfers
+ * withdraw first and refund on a failed deposit, since multi-document
+ * transactions are not available on standalone Mongo deployments.
+ */
+class MongoEconomyRepository(database: MongoDatabase) : EconomyRepository {
+
+    private val players = database.getCollection("players")
+    private val ledger = database.getCollection("economy_ledger")
+
+    private val returnAfter = FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER)
+    private val returnBefore = FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE)
+
+    override fun getBalance(uuid: UUID): CompletableFuture<Double?> {
+        return CompletableFuture.supplyAsync {
+            findBalance(uuid)
+        }
+    }
+
+    override fun deposit(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        return CompletableFuture.supplyAsync {
+            applyDeposit(uuid, amount)
+        }
+    }
+
+    override fun withdraw(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        return CompletableFuture.supplyAsync {
+            applyWithdraw(uuid, amount)
+        }
+    }
+
+    override fun setBalance(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        return CompletableFuture.supplyAsync {
+            val before = players.findOneAndUpdate(
+                Filters.eq("_id", uuid.toString()),
+                Updates.set("balance", amount),
+                returnBefore
+            ) ?: throw IllegalArgumentException("Player $uuid not found.")
+            balanceOf(before)
+        }
+    }
+
+    override fun transfer(from: UUID, to: UUID, amount: Double): CompletableFuture<Pair<Double, Double>> {
+        return CompletableFuture.supplyAsync {
+            if (findBalance(to) == null) throw IllegalArgumentException("Player $to not found.")
+
+            val fromBalance = applyWithdraw(from, amount)
+            val toBalance = try {
+                applyDeposit(to, amount)
+            } catch (e: Exception) {
+                applyDeposit(from, amount)
+                throw e
+            }
+            Pair(fromBalance, toBalance)
+        }
+    }
+
+    override fun applyDeltas(deltas: Map<UUID, Double>): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (deltas.isEmpty()) return@runAsync
+            val writes = deltas.map { (uuid, delta) ->
+                UpdateOneModel<Document>(Filters.eq("_id", uuid.toString()), Updates.inc("balance", delta))
+            }
+            players.bulkWrite(writes, BulkWriteOptions().ordered(false))
+        }
+    }
+
+    override fun findTopBalances(offset: Int, limit: Int): CompletableFuture<Map<UUID, Double>> {
+        return CompletableFuture.supplyAsync {
+            val result = linkedMapOf<UUID, Double>()
+            players.find()
+                .projection(Projections.include("balance"))
+                .sort(Document("balance", -1))
+                .skip(offset)
+                .limit(limit)
+                .forEach { doc -> result[UUID.fromString(doc.getString("_id"))] = balanceOf(doc) }
+            result
+        }
+    }
+
+    override fun countBalancesAbove(balance: Double): CompletableFuture<Long> {
+        return CompletableFuture.supplyAsync {
+            players.countDocuments(Filters.gt("balance", balance))
+        }
+    }
+
+    override fun appendLedger(entries: List<LedgerEntryData>): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (entries.isEmpty()) return@runAsync
+            ledger.insertMany(entries.map { toDocument(it) })
+        }
+    }
+
+    override fun findLedger(uuid: UUID, limit: Int): CompletableFuture<List<LedgerEntryData>> {
+        return CompletableFuture.supplyAsync {
+            ledger.find(Filters.eq("uuid", uuid.toString()))
+                .sort(Document("timestamp", -1))
+                .limit(limit)
+                .map { fromDocument(it) }
+                .toList()
+        }
+    }
+
+    // ============================================================
+    // Internal Helpers
+    // ============================================================
+
+    private fun applyDeposit(uuid: UUID, amount: Double): Double {
+        val after = players.findOneAndUpdate(
+            Filters.eq("_id", uuid.toString()),
+            Updates.inc("balance", amount),
+            returnAfter
+        ) ?: throw IllegalArgumentException("Player $uuid not found.")
+        return balanceOf(after)
+    }
+
+    private fun applyWithdraw(uuid: UUID, amount: Double): Double {
+        val after = players.findOneAndUpdate(
+            Filters.and(
+                Filters.eq("_id", uuid.toString()),
+                Filters.gte("balance", amount)
+            ),
+            Updates.inc("balance", -amount),
+            returnAfter
+        )
+        if (after == null) {
+            val current = findBalance(uuid) ?: throw IllegalArgumentException("Player $uuid not found.")
+            throw IllegalStateException("Insufficient funds. Balance: $current, Requested: $amount")
+        }
+        return balanceOf(after)
+    }
+
+    private fun findBalance(uuid: UUID): Double? {
+        val doc = players.find(Filters.eq("_id", uuid.toString()))
+            .projection(Projections.include("balance"))
+            .first()
+        return doc?.let { balanceOf(it) }
+    }
+
+    private fun balanceOf(doc: Document): Double = (doc.get("balance") as? Number)?.toDouble() ?: 0.0
+
+    private fun toDocument(entry: LedgerEntryData): Document {
+        return Document().apply {
+            put("uuid", entry.uuid.toString())
+            put("delta", entry.delta)
+            put("balanceAfter", entry.balanceAfter)
+            put("reason", entry.reason)
+            put("counterparty", entry.counterparty?.toString())
+            put("server", entry.server)
+            put("timestamp", entry.timestamp.toEpochMilli())
+        }
+    }
+
+    private fun fromDocument(doc: Document): LedgerEntryData {
+        return LedgerEntryData(
+            uuid = UUID.fromString(doc.getString("uuid")),
+            delta = (doc.get("delta") as? Number)?.toDouble() ?: 0.0,
+            balanceAfter = (doc.get("balanceAfter") as? Number)?.toDouble() ?: 0.0,
+            reason = doc.getString("reason") ?: "",
+            counterparty = doc.getString("counterparty")?.let { UUID.fromString(it) },
+            server = doc.getString("server") ?: "",
+            timestamp = Instant.ofEpochMilli(doc.getLong("timestamp") ?: System.currentTimeMillis())
+        )
+    }
+}
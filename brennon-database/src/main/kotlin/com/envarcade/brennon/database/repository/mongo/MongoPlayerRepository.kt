@@ -1,12 +1,14 @@
 package com.envarcade.brennon.database.repository.mongo
 
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.PlayerData
 import com.envarcade.brennon.database.repository.PlayerRepository
 import com.mongodb.client.MongoDatabase
 import com.mongodb.client.model.Filters
-import com.mongodb.client.model.ReplaceOptions
+import com.mongodb.client.model.UpdateOptions
+import com.mongodb.client.model.Updates
 import org.bson.Document
-import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
 
@@ -20,24 +22,29 @@ class MongoPlayerRepository(database: MongoDatabase) : PlayerRepository {
     override fun findByUuid(uuid: UUID): CompletableFuture<PlayerData?> {
         return CompletableFuture.supplyAsync {
             val doc = collection.find(Filters.eq("_id", uuid.toString())).first()
-            doc?.let { fromDocument(it) }
+            doc?.let { MongoDocuments.toPlayer(it) }
         }
     }
 
     override fun findByName(name: String): CompletableFuture<PlayerData?> {
         return CompletableFuture.supplyAsync {
-            val doc = collection.find(Filters.regex("name", "^${Regex.escape(name)}$", "i")).first()
-            doc?.let { fromDocument(it) }
+            val doc = collection.find(Filters.eq("nameLower", name.lowercase())).first()
+            doc?.let { MongoDocuments.toPlayer(it) }
         }
     }
 
     override fun save(player: PlayerData): CompletableFuture<Void> {
         return CompletableFuture.runAsync {
-            val doc = toDocument(player)
-            collection.replaceOne(
+            // Balance is owned by MongoEconomyRepository — only seed it on insert
+            val doc = MongoDocuments.fromPlayer(player)
+            val balance = doc.remove("balance")
+            doc.remove("_id")
+            val updates = doc.map { (key, value) -> Updates.set(key, value) } +
+                Updates.setOnInsert("balance", balance)
+            collection.updateOne(
                 Filters.eq("_id", player.uuid.toString()),
-                doc,
-                ReplaceOptions().upsert(true)
+                Updates.combine(updates),
+                UpdateOptions().upsert(true)
             )
         }
     }
@@ -57,7 +64,7 @@ class MongoPlayerRepository(database: MongoDatabase) : PlayerRepository {
     override fun findByIp(ip: String): CompletableFuture<List<PlayerData>> {
         return CompletableFuture.supplyAsync {
             collection.find(Filters.eq("ipAddress", ip))
-                .map { fromDocument(it) }
+                .map { MongoDocuments.toPlayer(it) }
                 .toList()
         }
     }
@@ -74,49 +81,29 @@ class MongoPlayerRepository(database: MongoDatabase) : PlayerRepository {
                 .sort(Document("lastSeen", -1))
                 .skip(offset)
                 .limit(limit)
-                .map { fromDocument(it) }
+                .map { MongoDocuments.toPlayer(it) }
                 .toList()
         }
     }
 
-    // ============================================================
-    // Document Mapping
-    // ============================================================
+    override fun findRecentPage(limit: Int, after: PageCursor?): CompletableFuture<Page<PlayerData>> {
+        return CompletableFuture.supplyAsync {
+            val filter = if (after != null) {
+                Filters.or(
+                    Filters.lt("lastSeen", after.sortKey),
+                    Filters.and(Filters.eq("lastSeen", after.sortKey), Filters.lt("_id", after.id))
+                )
+            } else Document()
+            // One extra document tells whether another page follows
+            val list = collection.find(filter)
+                .sort(Document("lastSeen", -1).append("_id", -1))
+                .limit(limit + 1)
+                .map { MongoDocuments.toPlayer(it) }
+                .toList()
 
-    private fun toDocument(player: PlayerData): Document {
-        return Document().apply {
-            put("_id", player.uuid.toString())
-            put("name", player.name)
-            put("primaryRank", player.primaryRank)
-            put("ranks", player.ranks.toList())
-            put("permissions", player.permissions.toList())
-            put("balance", player.balance)
-            put("firstJoin", player.firstJoin.toEpochMilli())
-            put("lastSeen", player.lastSeen.toEpochMilli())
-            put("lastServer", player.lastServer)
-            put("ipAddress", player.ipAddress)
-            put("playtime", player.playtime)
-            put("metadata", Document(player.metadata as Map<String, Any>))
+            val items = list.take(limit)
+            val next = if (list.size > limit) items.last().let { PageCursor(it.lastSeen.toEpochMilli(), it.uuid.toString()) } else null
+            Page(items, next)
         }
     }
-
-    @Suppress("UNCHECKED_CAST")
-    private fun fromDocument(doc: Document): PlayerData {
-        return PlayerData(
-            uuid = UUID.fromString(doc.getString("_id")),
-            name = doc.getString("name"),
-            primaryRank = doc.getString("primaryRank") ?: "default",
-            ranks = (doc.getList("ranks", String::class.java) ?: listOf("default")).toMutableSet(),
-            permissions = (doc.getList("permissions", String::class.java) ?: emptyList()).toMutableSet(),
-            balance = doc.getDouble("balance") ?: 0.0,
-            firstJoin = Instant.ofEpochMilli(doc.getLong("firstJoin") ?: System.currentTimeMillis()),
-            lastSeen = Instant.ofEpochMilli(doc.getLong("lastSeen") ?: System.currentTimeMillis()),
-            lastServer = doc.getString("lastServer") ?: "",
-            ipAddress = doc.getString("ipAddress") ?: "",
-            playtime = doc.getLong("playtime") ?: 0L,
-            metadata = (doc.get("metadata", Document::class.java)
-                ?.mapValues { it.value.toString() }
-                ?.toMutableMap()) ?: mutableMapOf()
-        )
-    }
 }
@@ -0,0 +1,64 @@
+package com.envarcade.brennon.database.repository.mongo
+
+import org.reactivestreams.Publisher
+import org.reactivestreams.Subscriber
+import org.reactivestreams.Subscription
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Bridges reactive-streams driver publishers to CompletableFutures.
+ *
+ * No thread waits on the round trip: the driver signals completion from its
+ * I/O threads, and the future is completed from there by handing it to the
+ * common pool. The hand-off keeps dependent stages, some of which join other
+ * futures, off the driver's threads.
+ */
+internal object MongoPublishers {
+
+    private val completions: Executor = ForkJoinPool.commonPool()
+
+    /** All items the publisher emits. */
+    fun <T> list(publisher: Publisher<T>): CompletableFuture<List<T>> {
+        val future = CompletableFuture<List<T>>()
+        publisher.subscribe(Collector(future))
+        return future
+    }
+
+    /** The first item, or null if the publisher completes empty. */
+    fun <T> first(publisher: Publisher<T>): CompletableFuture<T?> =
+        list(publisher).thenApply { it.firstOrNull() }
+
+    /** The single result of a write or count. */
+    fun <T> single(publisher: Publisher<T>): CompletableFuture<T> =
+        list(publisher).thenApply { it.firstOrNull() ?: throw IllegalStateException("MongoDB publisher completed without a result") }
+
+    /** Completes when the operation has been acknowledged. */
+    fun done(publisher: Publisher<*>): CompletableFuture<Void> =
+        list(publisher).thenAccept { }
+
+    /**
+     * Requests everything up front. Signals are serialized by the publisher,
+     * so the buffer needs no locking.
+     */
+    private class Collector<T>(private val future: CompletableFuture<List<T>>) : Subscriber<T> {
+        private val items = ArrayList<T>()
+
+        override fun onSubscribe(subscription: Subscription) {
+            subscription.request(Long.MAX_VALUE)
+        }
+
+        override fun onNext(item: T) {
+            items.add(item)
+        }
+
+        override fun onError(error: Throwable) {
+            completions.execute { future.completeExceptionally(error) }
+        }
+
+        override fun onComplete() {
+            completions.execute { future.complete(items) }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.envarcade.brennon.database.repository.mongo
 
 import com.envarcade.brennon.api.punishment.PunishmentType
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.PunishmentData
 import com.envarcade.brennon.database.repository.PunishmentRepository
 import com.mongodb.client.MongoDatabase
@@ -9,7 +11,6 @@ import com.mongodb.client.model.Filters
 import com.mongodb.client.model.ReplaceOptions
 import org.bson.Document
 import org.bson.conversions.Bson
-import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
 
@@ -37,7 +38,7 @@ class MongoPunishmentRepository(
     override fun findById(id: String): CompletableFuture<PunishmentData?> {
         return CompletableFuture.supplyAsync {
             val doc = collection.find(Filters.eq("_id", id)).first()
-            doc?.let { fromDocument(it) }
+            doc?.let { MongoDocuments.toPunishment(it) }
         }
     }
 
@@ -45,7 +46,7 @@ class MongoPunishmentRepository(
         return CompletableFuture.supplyAsync {
             collection.find(withNetworkFilter(Filters.eq("target", uuid.toString())))
                 .sort(Document("issuedAt", -1))
-                .map { fromDocument(it) }
+                .map { MongoDocuments.toPunishment(it) }
                 .toList()
         }
     }
@@ -57,7 +58,7 @@ class MongoPunishmentRepository(
                     Filters.eq("target", uuid.toString()),
                     Filters.eq("active", true)
                 )
-            ).map { fromDocument(it) }.toList()
+            ).map { MongoDocuments.toPunishment(it) }.toList()
         }
     }
 
@@ -69,7 +70,7 @@ class MongoPunishmentRepository(
                     Filters.eq("type", type.name),
                     Filters.eq("active", true)
                 )
-            ).map { fromDocument(it) }.toList()
+            ).map { MongoDocuments.toPunishment(it) }.toList()
         }
     }
 
@@ -81,7 +82,7 @@ class MongoPunishmentRepository(
                     Filters.eq("type", "IP_BAN"),
                     Filters.eq("active", true)
                 )
-            ).map { fromDocument(it) }.toList()
+            ).map { MongoDocuments.toPunishment(it) }.toList()
         }
     }
 
@@ -93,11 +94,35 @@ class MongoPunishmentRepository(
                 .sort(Document("issuedAt", -1))
                 .skip(offset)
                 .limit(limit)
-                .map { fromDocument(it) }
+                .map { MongoDocuments.toPunishment(it) }
                 .toList()
         }
     }
 
+    override fun findAllByTypePage(type: PunishmentType, limit: Int, after: PageCursor?): CompletableFuture<Page<PunishmentData>> {
+        return CompletableFuture.supplyAsync {
+            val filters = mutableListOf(Filters.eq("type", type.name))
+            if (after != null) {
+                filters.add(
+                    Filters.or(
+                        Filters.lt("issuedAt", after.sortKey),
+                        Filters.and(Filters.eq("issuedAt", after.sortKey), Filters.lt("_id", after.id))
+                    )
+                )
+            }
+            // One extra document tells whether another page follows
+            val list = collection.find(withNetworkFilter(*filters.toTypedArray()))
+                .sort(Document("issuedAt", -1).append("_id", -1))
+                .limit(limit + 1)
+                .map { MongoDocuments.toPunishment(it) }
+                .toList()
+
+            val items = list.take(limit)
+            val next = if (list.size > limit) items.last().let { PageCursor(it.issuedAt.toEpochMilli(), it.id) } else null
+            Page(items, next)
+        }
+    }
+
     override fun countByType(type: PunishmentType): CompletableFuture<Int> {
         return CompletableFuture.supplyAsync {
             collection.countDocuments(
@@ -108,7 +133,7 @@ class MongoPunishmentRepository(
 
     override fun save(punishment: PunishmentData): CompletableFuture<Void> {
         return CompletableFuture.runAsync {
-            val doc = toDocument(punishment)
+            val doc = MongoDocuments.fromPunishment(punishment, networkId)
             collection.replaceOne(
                 Filters.eq("_id", punishment.id),
                 doc,
@@ -122,40 +147,4 @@ class MongoPunishmentRepository(
             collection.deleteOne(Filters.eq("_id", id))
         }
     }
-
-    private fun toDocument(punishment: PunishmentData): Document {
-        return Document().apply {
-            put("_id", punishment.id)
-            put("target", punishment.target.toString())
-            put("issuer", punishment.issuer?.toString())
-            put("type", punishment.type.name)
-            put("reason", punishment.reason)
-            put("issuedAt", punishment.issuedAt.toEpochMilli())
-            put("expiresAt", punishment.expiresAt?.toEpochMilli())
-            put("active", punishment.active)
-            put("revokedBy", punishment.revokedBy?.toString())
-            put("revokedAt", punishment.revokedAt?.toEpochMilli())
-            put("revokeReason", punishment.revokeReason)
-            put("networkId", punishment.networkId ?: networkId)
-            put("targetIp", punishment.targetIp)
-        }
-    }
-
-    private fun fromDocument(doc: Document): PunishmentData {
-        return PunishmentData(
-            id = doc.getString("_id"),
-            target = UUID.fromString(doc.getString("target")),
-            issuer = doc.getString("issuer")?.let { UUID.fromString(it) },
-            type = PunishmentType.valueOf(doc.getString("type")),
-            reason = doc.getString("reason"),
-            issuedAt = Instant.ofEpochMilli(doc.getLong("issuedAt") ?: System.currentTimeMillis()),
-            expiresAt = doc.getLong("expiresAt")?.let { Instant.ofEpochMilli(it) },
-            active = doc.getBoolean("active") ?: true,
-            revokedBy = doc.getString("revokedBy")?.let { UUID.fromString(it) },
-            revokedAt = doc.getLong("revokedAt")?.let { Instant.ofEpochMilli(it) },
-            revokeReason = doc.getString("revokeReason"),
-            networkId = doc.getString("networkId"),
-            targetIp = doc.getString("targetIp")
-        )
-    }
 }
@@ -1,13 +1,19 @@
 package com.envarcade.brennon.database.repository.mongo
 
+import com.envarcade.brennon.api.stats.StatPeriod
 import com.envarcade.brennon.common.config.DataSharingMode
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.util.StatPeriods
 import com.envarcade.brennon.database.repository.StatsRepository
 import com.mongodb.client.MongoDatabase
+import com.mongodb.client.model.BulkWriteOptions
 import com.mongodb.client.model.Filters
+import com.mongodb.client.model.Projections
 import com.mongodb.client.model.Sorts
+import com.mongodb.client.model.UpdateOneModel
 import com.mongodb.client.model.Updates
 import org.bson.Document
+import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
 
@@ -22,6 +28,7 @@ class MongoStatsRepository(
 ) : StatsRepository {
 
     private val collection = database.getCollection("stats")
+    private val periodic = database.getCollection("stats_periodic")
 
     private val effectiveNetworkId: String =
         if (networkContext.sharing.stats == DataSharingMode.GLOBAL) "__global__"
@@ -78,6 +85,84 @@ class MongoStatsRepository(
         }
     }
 
+    override fun incrementMany(amounts: Map<UUID, Double>, statId: String): CompletableFuture<Void> {
+        return applyDeltas(amounts.mapValues { (_, amount) -> mapOf(statId to amount) })
+    }
+
+    override fun applyDeltas(deltas: Map<UUID, Map<String, Double>>): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (deltas.isEmpty()) return@runAsync
+            val writes = deltas.map { (uuid, stats) ->
+                UpdateOneModel<Document>(
+                    Filters.eq("_id", docId(uuid)),
+                    Updates.combine(
+                        stats.map { (statId, amount) -> Updates.inc(statId, amount) } +
+                            Updates.set("networkId", effectiveNetworkId)
+                    ),
+                    com.mongodb.client.model.UpdateOptions().upsert(true)
+                )
+            }
+            collection.bulkWrite(writes, BulkWriteOptions().ordered(false))
+        }
+    }
+
+    override fun incrementPeriods(deltas: Map<UUID, Map<String, Double>>, at: Instant): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (deltas.isEmpty()) return@runAsync
+            val writes = StatPeriods.TIMED.flatMap { period ->
+                val bucket = StatPeriods.bucketKey(period, at)
+                val bucketStart = StatPeriods.bucketStart(period, at).toEpochMilli()
+                deltas.map { (uuid, stats) ->
+                    UpdateOneModel<Document>(
+                        Filters.eq("_id", "${docId(uuid)}:$bucket"),
+                        Updates.combine(
+                            stats.map { (statId, amount) -> Updates.inc(statId, amount) } +
+                                listOf(
+                                    Updates.set("networkId", effectiveNetworkId),
+                                    Updates.set("period", period.name),
+                                    Updates.set("bucket", bucket),
+                                    Updates.set("bucketStart", bucketStart)
+                                )
+                        ),
+                        com.mongodb.client.model.UpdateOptions().upsert(true)
+                    )
+                }
+            }
+            periodic.bulkWrite(writes, BulkWriteOptions().ordered(false))
+        }
+    }
+
+    override fun getPeriodLeaderboard(statId: String, period: StatPeriod, limit: Int, at: Instant): CompletableFuture<Map<UUID, Double>> {
+        return CompletableFuture.supplyAsync {
+            val results = linkedMapOf<UUID, Double>()
+            periodic.find(
+                Filters.and(
+                    Filters.eq("networkId", effectiveNetworkId),
+                    Filters.eq("bucket", StatPeriods.bucketKey(period, at)),
+                    Filters.exists(statId)
+                )
+            )
+                .sort(Sorts.descending(statId))
+                .limit(limit)
+                .forEach { doc ->
+                    val value = doc.get(statId) as? Number ?: return@forEach
+                    results[UUID.fromString(doc.getString("_id").substringBefore(":"))] = value.toDouble()
+                }
+            results
+        }
+    }
+
+    override fun prunePeriods(period: StatPeriod, before: Instant): CompletableFuture<Long> {
+        return CompletableFuture.supplyAsync {
+            periodic.deleteMany(
+                Filters.and(
+                    Filters.eq("period", period.name),
+                    Filters.lt("bucketStart", before.toEpochMilli())
+                )
+            ).deletedCount
+        }
+    }
+
     override fun getLeaderboard(statId: String, limit: Int): CompletableFuture<Map<UUID, Double>> {
         return CompletableFuture.supplyAsync {
             val results = linkedMapOf<UUID, Double>()
@@ -116,6 +201,29 @@ class MongoStatsRepository(
         }
     }
 
+    override fun scanStat(statId: String, batchSize: Int, consumer: (Map<UUID, Double>) -> Unit): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            var batch = linkedMapOf<UUID, Double>()
+            collection.find(
+                Filters.and(
+                    Filters.exists(statId),
+                    Filters.eq("networkId", effectiveNetworkId)
+                )
+            )
+                .projection(Projections.include(statId))
+                .batchSize(batchSize)
+                .forEach { doc ->
+                    val value = doc.get(statId) as? Number ?: return@forEach
+                    batch[UUID.fromString(doc.getString("_id").substringBefore(":"))] = value.toDouble()
+                    if (batch.size >= batchSize) {
+                        consumer(batch)
+                        batch = linkedMapOf()
+                    }
+                }
+            if (batch.isNotEmpty()) consumer(batch)
+        }
+    }
+
     override fun resetStat(uuid: UUID, statId: String): CompletableFuture<Void> {
         return CompletableFuture.runAsync {
             collection.updateOne(
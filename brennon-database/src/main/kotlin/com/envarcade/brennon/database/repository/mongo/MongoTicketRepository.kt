@@ -3,14 +3,18 @@ package com.envarcade.brennon.database.repository.mongo
 import com.envarcade.brennon.api.ticket.TicketPriority
 import com.envarcade.brennon.api.ticket.TicketStatus
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.TicketData
 import com.envarcade.brennon.common.model.TicketMessageData
 import com.envarcade.brennon.database.repository.TicketRepository
 import com.mongodb.client.MongoDatabase
 import com.mongodb.client.model.Filters
 import com.mongodb.client.model.FindOneAndUpdateOptions
+import com.mongodb.client.model.Projections
 import com.mongodb.client.model.ReplaceOptions
 import com.mongodb.client.model.ReturnDocument
+import com.mongodb.client.model.UpdateOptions
 import com.mongodb.client.model.Updates
 import org.bson.Document
 import org.bson.conversions.Bson
@@ -43,56 +47,92 @@ class MongoTicketRepository(
     override fun findById(id: String): CompletableFuture<TicketData?> {
         return CompletableFuture.supplyAsync {
             val doc = collection.find(Filters.eq("_id", id)).first()
-            doc?.let { fromDocument(it) }
+            doc?.let { fromDocument(it, messagesLoaded = true) }
         }
     }
 
-    override fun findByStatus(status: TicketStatus): CompletableFuture<List<TicketData>> {
-        return CompletableFuture.supplyAsync {
-            collection.find(withNetworkFilter(Filters.eq("status", status.name)))
-                .sort(Document("createdAt", -1))
-                .map { fromDocument(it) }
-                .toList()
-        }
+    override fun findByStatus(status: TicketStatus, withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(Filters.eq("status", status.name), withMessages)
+    }
+
+    override fun findByCreator(uuid: UUID, withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(Filters.eq("creator", uuid.toString()), withMessages)
+    }
+
+    override fun findByAssignee(uuid: UUID, withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(Filters.eq("assignee", uuid.toString()), withMessages)
+    }
+
+    override fun findOpen(withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(openFilter(), withMessages)
     }
 
-    override fun findByCreator(uuid: UUID): CompletableFuture<List<TicketData>> {
+    override fun countOpen(): CompletableFuture<Long> {
         return CompletableFuture.supplyAsync {
-            collection.find(withNetworkFilter(Filters.eq("creator", uuid.toString())))
-                .sort(Document("createdAt", -1))
-                .map { fromDocument(it) }
-                .toList()
+            collection.countDocuments(withNetworkFilter(openFilter()))
         }
     }
 
-    override fun findByAssignee(uuid: UUID): CompletableFuture<List<TicketData>> {
+    override fun findOpenPage(limit: Int, after: PageCursor?): CompletableFuture<Page<TicketData>> {
         return CompletableFuture.supplyAsync {
-            collection.find(withNetworkFilter(Filters.eq("assignee", uuid.toString())))
-                .sort(Document("createdAt", -1))
-                .map { fromDocument(it) }
+            val filters = mutableListOf(openFilter())
+            if (after != null) {
+                filters.add(
+                    Filters.or(
+                        Filters.lt("createdAt", after.sortKey),
+                        Filters.and(Filters.eq("createdAt", after.sortKey), Filters.lt("_id", after.id))
+                    )
+                )
+            }
+            // One extra document tells whether another page follows
+            val list = collection.find(withNetworkFilter(*filters.toTypedArray()))
+                .projection(Projections.exclude("messages"))
+                .sort(Document("createdAt", -1).append("_id", -1))
+                .limit(limit + 1)
+                .map { fromDocument(it, messagesLoaded = false) }
                 .toList()
+
+            val items = list.take(limit)
+            val next = if (list.size > limit) items.last().let { PageCursor(it.createdAt.toEpochMilli(), it.id) } else null
+            Page(items, next)
         }
     }
 
-    override fun findOpen(): CompletableFuture<List<TicketData>> {
+    private fun openFilter(): Bson =
+        Filters.`in`("status", TicketStatus.OPEN.name, TicketStatus.IN_PROGRESS.name, TicketStatus.WAITING_RESPONSE.name)
+
+    /**
+     * Runs a ticket list query, newest first. The embedded messages are
+     * left out of the returned documents unless [withMessages] is set.
+     */
+    private fun findWhere(filter: Bson, withMessages: Boolean): CompletableFuture<List<TicketData>> {
         return CompletableFuture.supplyAsync {
-            collection.find(
-                withNetworkFilter(
-                    Filters.`in`("status", TicketStatus.OPEN.name, TicketStatus.IN_PROGRESS.name, TicketStatus.WAITING_RESPONSE.name)
-                )
-            ).sort(Document("createdAt", -1))
-                .map { fromDocument(it) }
-                .toList()
+            val find = collection.find(withNetworkFilter(filter)).sort(Document("createdAt", -1))
+            if (!withMessages) find.projection(Projections.exclude("messages"))
+            find.map { fromDocument(it, messagesLoaded = withMessages) }.toList()
         }
     }
 
     override fun save(ticket: TicketData): CompletableFuture<Void> {
         return CompletableFuture.runAsync {
-            collection.replaceOne(
-                Filters.eq("_id", ticket.id),
-                toDocument(ticket),
-                ReplaceOptions().upsert(true)
-            )
+            if (ticket.messagesLoaded) {
+                collection.replaceOne(
+                    Filters.eq("_id", ticket.id),
+                    toDocument(ticket),
+                    ReplaceOptions().upsert(true)
+                )
+            } else {
+                // Header-only tickets leave the stored messages as they are
+                val fields = toDocument(ticket).apply {
+                    remove("_id")
+                    remove("messages")
+                }
+                collection.updateOne(
+                    Filters.eq("_id", ticket.id),
+                    Document("\$set", fields),
+                    UpdateOptions().upsert(true)
+                )
+            }
         }
     }
 
@@ -143,7 +183,7 @@ class MongoTicketRepository(
         }
     }
 
-    private fun fromDocument(doc: Document): TicketData {
+    private fun fromDocument(doc: Document, messagesLoaded: Boolean): TicketData {
         val messages = (doc.getList("messages", Document::class.java) ?: emptyList())
             .map { messageFromDocument(it) }
             .toMutableList()
@@ -161,7 +201,8 @@ class MongoTicketRepository(
             updatedAt = Instant.ofEpochMilli(doc.getLong("updatedAt") ?: System.currentTimeMillis()),
             closedAt = doc.getLong("closedAt")?.let { Instant.ofEpochMilli(it) },
             messages = messages,
-            networkId = doc.getString("networkId")
+            networkId = doc.getString("networkId"),
+            messagesLoaded = messagesLoaded
         )
     }
 
@@ -0,0 +1,94 @@
+package com.envarcade.brennon.database.repository.mongo
+
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
+import com.envarcade.brennon.common.model.PlayerData
+import com.envarcade.brennon.database.repository.PlayerRepository
+import com.mongodb.client.model.Filters
+import com.mongodb.client.model.UpdateOptions
+import com.mongodb.client.model.Updates
+import com.mongodb.reactivestreams.client.MongoDatabase
+import org.bson.Document
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * PlayerRepository on the reactive-streams driver (`database.mongoAsync`).
+ * Same queries as [MongoPlayerRepository], completed from driver callbacks.
+ */
+class ReactiveMongoPlayerRepository(database: MongoDatabase) : PlayerRepository {
+
+    private val collection = database.getCollection("players")
+
+    override fun findByUuid(uuid: UUID): CompletableFuture<PlayerData?> {
+        return MongoPublishers.first(collection.find(Filters.eq("_id", uuid.toString())).first())
+            .thenApply { doc -> doc?.let { MongoDocuments.toPlayer(it) } }
+    }
+
+    override fun findByName(name: String): CompletableFuture<PlayerData?> {
+        return MongoPublishers.first(collection.find(Filters.eq("nameLower", name.lowercase())).first())
+            .thenApply { doc -> doc?.let { MongoDocuments.toPlayer(it) } }
+    }
+
+    override fun save(player: PlayerData): CompletableFuture<Void> {
+        // Balance is owned by the economy repository — only seed it on insert
+        val doc = MongoDocuments.fromPlayer(player)
+        val balance = doc.remove("balance")
+        doc.remove("_id")
+        val updates = doc.map { (key, value) -> Updates.set(key, value) } +
+            Updates.setOnInsert("balance", balance)
+        return MongoPublishers.done(
+            collection.updateOne(
+                Filters.eq("_id", player.uuid.toString()),
+                Updates.combine(updates),
+                UpdateOptions().upsert(true)
+            )
+        )
+    }
+
+    override fun delete(uuid: UUID): CompletableFuture<Void> {
+        return MongoPublishers.done(collection.deleteOne(Filters.eq("_id", uuid.toString())))
+    }
+
+    override fun exists(uuid: UUID): CompletableFuture<Boolean> {
+        return MongoPublishers.single(collection.countDocuments(Filters.eq("_id", uuid.toString())))
+            .thenApply { it > 0 }
+    }
+
+    override fun findByIp(ip: String): CompletableFuture<List<PlayerData>> {
+        return MongoPublishers.list(collection.find(Filters.eq("ipAddress", ip)))
+            .thenApply { docs -> docs.map { MongoDocuments.toPlayer(it) } }
+    }
+
+    override fun countAll(): CompletableFuture<Long> {
+        return MongoPublishers.single(collection.countDocuments())
+    }
+
+    override fun findRecent(limit: Int, offset: Int): CompletableFuture<List<PlayerData>> {
+        return MongoPublishers.list(
+            collection.find()
+                .sort(Document("lastSeen", -1))
+                .skip(offset)
+                .limit(limit)
+        ).thenApply { docs -> docs.map { MongoDocuments.toPlayer(it) } }
+    }
+
+    override fun findRecentPage(limit: Int, after: PageCursor?): CompletableFuture<Page<PlayerData>> {
+        val filter = if (after != null) {
+            Filters.or(
+                Filters.lt("lastSeen", after.sortKey),
+                Filters.and(Filters.eq("lastSeen", after.sortKey), Filters.lt("_id", after.id))
+            )
+        } else Document()
+        // One extra document tells whether another page follows
+        return MongoPublishers.list(
+            collection.find(filter)
+                .sort(Document("lastSeen", -1).append("_id", -1))
+                .limit(limit + 1)
+        ).thenApply { docs ->
+            val items = docs.take(limit).map { MongoDocuments.toPlayer(it) }
+            val next = if (docs.size > limit) items.last().let { PageCursor(it.lastSeen.toEpochMilli(), it.uuid.toString()) } else null
+            Page(items, next)
+        }
+    }
+}
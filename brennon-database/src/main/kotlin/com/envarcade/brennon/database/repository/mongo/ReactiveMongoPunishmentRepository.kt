@@ -0,0 +1,135 @@
+package com.envarcade.brennon.database.repository.mongo
+
+import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
+import com.envarcade.brennon.common.model.PunishmentData
+import com.envarcade.brennon.database.repository.PunishmentRepository
+import com.mongodb.client.model.Filters
+import com.mongodb.client.model.ReplaceOptions
+import com.mongodb.reactivestreams.client.MongoDatabase
+import org.bson.Document
+import org.bson.conversions.Bson
+import org.reactivestreams.Publisher
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * PunishmentRepository on the reactive-streams driver (`database.mongoAsync`).
+ * Same queries as [MongoPunishmentRepository], completed from driver callbacks.
+ */
+class ReactiveMongoPunishmentRepository(
+    database: MongoDatabase,
+    networkContext: NetworkContext
+) : PunishmentRepository {
+
+    private val collection = database.getCollection("punishments")
+    private val networkId: String? = networkContext.effectiveNetworkId(networkContext.sharing.punishments)
+
+    private fun withNetworkFilter(vararg filters: Bson): Bson {
+        val all = filters.toMutableList()
+        if (networkId != null) all.add(Filters.eq("networkId", networkId))
+        return Filters.and(all)
+    }
+
+    private fun mapAll(publisher: Publisher<Document>): CompletableFuture<List<PunishmentData>> =
+        MongoPublishers.list(publisher).thenApply { docs -> docs.map { MongoDocuments.toPunishment(it) } }
+
+    override fun findById(id: String): CompletableFuture<PunishmentData?> {
+        return MongoPublishers.first(collection.find(Filters.eq("_id", id)).first())
+            .thenApply { doc -> doc?.let { MongoDocuments.toPunishment(it) } }
+    }
+
+    override fun findByTarget(uuid: UUID): CompletableFuture<List<PunishmentData>> {
+        return mapAll(
+            collection.find(withNetworkFilter(Filters.eq("target", uuid.toString())))
+                .sort(Document("issuedAt", -1))
+        )
+    }
+
+    override fun findActiveByTarget(uuid: UUID): CompletableFuture<List<PunishmentData>> {
+        return mapAll(
+            collection.find(
+                withNetworkFilter(
+                    Filters.eq("target", uuid.toString()),
+                    Filters.eq("active", true)
+                )
+            )
+        )
+    }
+
+    override fun findActiveByTargetAndType(uuid: UUID, type: PunishmentType): CompletableFuture<List<PunishmentData>> {
+        return mapAll(
+            collection.find(
+                withNetworkFilter(
+                    Filters.eq("target", uuid.toString()),
+                    Filters.eq("type", type.name),
+                    Filters.eq("active", true)
+                )
+            )
+        )
+    }
+
+    override fun findActiveByIp(ip: String): CompletableFuture<List<PunishmentData>> {
+        return mapAll(
+            collection.find(
+                withNetworkFilter(
+                    Filters.eq("targetIp", ip),
+                    Filters.eq("type", "IP_BAN"),
+                    Filters.eq("active", true)
+                )
+            )
+        )
+    }
+
+    override fun findAllByType(type: PunishmentType, limit: Int, offset: Int): CompletableFuture<List<PunishmentData>> {
+        return mapAll(
+            collection.find(withNetworkFilter(Filters.eq("type", type.name)))
+                .sort(Document("issuedAt", -1))
+                .skip(offset)
+                .limit(limit)
+        )
+    }
+
+    override fun findAllByTypePage(type: PunishmentType, limit: Int, after: PageCursor?): CompletableFuture<Page<PunishmentData>> {
+        val filters = mutableListOf(Filters.eq("type", type.name))
+        if (after != null) {
+            filters.add(
+                Filters.or(
+                    Filters.lt("issuedAt", after.sortKey),
+                    Filters.and(Filters.eq("issuedAt", after.sortKey), Filters.lt("_id", after.id))
+                )
+            )
+        }
+        // One extra document tells whether another page follows
+        return mapAll(
+            collection.find(withNetworkFilter(*filters.toTypedArray()))
+                .sort(Document("issuedAt", -1).append("_id", -1))
+                .limit(limit + 1)
+        ).thenApply { list ->
+            val items = list.take(limit)
+            val next = if (list.size > limit) items.last().let { PageCursor(it.issuedAt.toEpochMilli(), it.id) } else null
+            Page(items, next)
+        }
+    }
+
+    override fun countByType(type: PunishmentType): CompletableFuture<Int> {
+        return MongoPublishers.single(collection.countDocuments(withNetworkFilter(Filters.eq("type", type.name))))
+            .thenApply { it.toInt() }
+    }
+
+    override fun save(punishment: PunishmentData): CompletableFuture<Void> {
+        return MongoPublishers.done(
+            collection.replaceOne(
+                Filters.eq("_id", punishment.id),
+                MongoDocuments.fromPunishment(punishment, networkId),
+                ReplaceOptions().upsert(true)
+            )
+        )
+    }
+
+    override fun delete(id: String): CompletableFuture<Void> {
+        return MongoPublishers.done(collection.deleteOne(Filters.eq("_id", id)))
+    }
+}
@@ -0,0 +1,51 @@
+package com.envarcade.brennon.database.repository.mongo
+
+import com.envarcade.brennon.common.model.RankData
+import com.envarcade.brennon.database.repository.RankRepository
+import com.mongodb.client.model.Filters
+import com.mongodb.client.model.ReplaceOptions
+import com.mongodb.reactivestreams.client.MongoDatabase
+import java.util.concurrent.CompletableFuture
+
+/**
+ * RankRepository on the reactive-streams driver (`database.mongoAsync`).
+ * Same queries as [MongoRankRepository], completed from driver callbacks.
+ */
+class ReactiveMongoRankRepository(database: MongoDatabase) : RankRepository {
+
+    private val collection = database.getCollection("ranks")
+
+    override fun findById(id: String): CompletableFuture<RankData?> {
+        return MongoPublishers.first(collection.find(Filters.eq("_id", id)).first())
+            .thenApply { doc -> doc?.let { MongoDocuments.toRank(it) } }
+    }
+
+    override fun findAll(): CompletableFuture<List<RankData>> {
+        return MongoPublishers.list(collection.find())
+            .thenApply { docs -> docs.map { MongoDocuments.toRank(it) } }
+    }
+
+    override fun findDefault(): CompletableFuture<RankData?> {
+        return MongoPublishers.first(collection.find(Filters.eq("isDefault", true)).first())
+            .thenApply { doc -> doc?.let { MongoDocuments.toRank(it) } }
+    }
+
+    override fun save(rank: RankData): CompletableFuture<Void> {
+        return MongoPublishers.done(
+            collection.replaceOne(
+                Filters.eq("_id", rank.id),
+                MongoDocuments.fromRank(rank),
+                ReplaceOptions().upsert(true)
+            )
+        )
+    }
+
+    override fun delete(id: String): CompletableFuture<Void> {
+        return MongoPublishers.done(collection.deleteOne(Filters.eq("_id", id)))
+    }
+
+    override fun exists(id: String): CompletableFuture<Boolean> {
+        return MongoPublishers.single(collection.countDocuments(Filters.eq("_id", id)))
+            .thenApply { it > 0 }
+    }
+}
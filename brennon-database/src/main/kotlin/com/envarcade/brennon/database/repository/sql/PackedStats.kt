@@ -0,0 +1,46 @@
+package com.envarcade.brennon.database.repository.sql
+
+import java.nio.ByteBuffer
+
+/**
+ * Binary form of a player's stats in the packed layout: consecutive
+ * (int stat key, double value) pairs, 12 bytes per stat, sorted by key.
+ */
+object PackedStats {
+
+    private const val ENTRY_SIZE = 12
+
+    fun encode(stats: Map<Int, Double>): ByteArray {
+        val buffer = ByteBuffer.allocate(stats.size * ENTRY_SIZE)
+        for (key in stats.keys.sorted()) {
+            buffer.putInt(key)
+            buffer.putDouble(stats.getValue(key))
+        }
+        return buffer.array()
+    }
+
+    fun decode(data: ByteArray?): MutableMap<Int, Double> {
+        val stats = HashMap<Int, Double>()
+        if (data == null) return stats
+        val buffer = ByteBuffer.wrap(data)
+        while (buffer.remaining() >= ENTRY_SIZE) {
+            stats[buffer.getInt()] = buffer.getDouble()
+        }
+        return stats
+    }
+
+    /**
+     * Reads a single value without decoding the whole row.
+     */
+    fun valueOf(data: ByteArray?, key: Int): Double? {
+        if (data == null) return null
+        val buffer = ByteBuffer.wrap(data)
+        while (buffer.remaining() >= ENTRY_SIZE) {
+            val entryKey = buffer.getInt()
+            if (entryKey == key) return buffer.getDouble()
+            if (entryKey > key) return null
+            buffer.position(buffer.position() + 8)
+        }
+        return null
+    }
+}
@@ -0,0 +1,236 @@
+package com.envarcade.brennon.database.repository.sql
+
+import com.envarcade.brennon.common.model.LedgerEntryData
+import com.envarcade.brennon.database.driver.SQLDatabaseDriver
+import com.envarcade.brennon.database.repository.EconomyRepository
+import java.sql.Connection
+import java.time.Instant
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * SQL implementation of the EconomyRepository.
+ *
+ * Balances live on `brennon_players.balance` and are only ever changed with
+ * relative `UPDATE ... SET balance = balance + ?` statements, guarded by
+ * `balance >= ?` for withdrawals. The new balance is read back inside the
+ * same transaction, while the row lock is still held.
+ */
+class SQLEconomyRepository(private val driver: SQLDatabaseDriver) : EconomyRepository {
+
+    override fun getBalance(uuid: UUID): CompletableFuture<Double?> {
+        return CompletableFuture.supplyAsync {
+            driver.getConnection().use { conn -> readBalance(conn, uuid, forUpdate = false) }
+        }
+    }
+
+    override fun deposit(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        return CompletableFuture.supplyAsync {
+            driver.getConnection().use { conn ->
+                transaction(conn) { applyDeposit(conn, uuid, amount) }
+            }
+        }
+    }
+
+    override fun withdraw(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        return CompletableFuture.supplyAsync {
+            driver.getConnection().use { conn ->
+                transaction(conn) { applyWithdraw(conn, uuid, amount) }
+            }
+        }
+    }
+
+    override fun setBalance(uuid: UUID, amount: Double): CompletableFuture<Double> {
+        return CompletableFuture.supplyAsync {
+            driver.getConnection().use { conn ->
+                transaction(conn) {
+                    val previous = readBalance(conn, uuid, forUpdate = true)
+                        ?: throw IllegalArgumentException("Player $uuid not found.")
+                    conn.prepareStatement("UPDATE brennon_players SET balance = ? WHERE uuid = ?").use { stmt ->
+                        stmt.setDouble(1, amount)
+                        stmt.setString(2, uuid.toString())
+                        stmt.executeUpdate()
+                    }
+                    previous
+                }
+            }
+        }
+    }
+
+    override fun transfer(from: UUID, to: UUID, amount: Double): CompletableFuture<Pair<Double, Double>> {
+        return CompletableFuture.supplyAsync {
+            driver.getConnection().use { conn ->
+                transaction(conn) {
+                    // Touch rows in a fixed order so opposite transfers cannot deadlock
+                    if (from.toString() < to.toString()) {
+                        val fromBalance = applyWithdraw(conn, from, amount)
+                        Pair(fromBalance, applyDeposit(conn, to, amount))
+                    } else {
+                        val toBalance = applyDeposit(conn, to, amount)
+                        Pair(applyWithdraw(conn, from, amount), toBalance)
+                    }
+                }
+            }
+        }
+    }
+
+    override fun applyDeltas(deltas: Map<UUID, Double>): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (deltas.isEmpty()) return@runAsync
+            driver.getConnection().use { conn ->
+                transaction(conn) {
+                    conn.prepareStatement("UPDATE brennon_players SET balance = balance + ? WHERE uuid = ?").use { stmt ->
+                        // Sorted so concurrent flushes lock rows in the same order
+                        for ((uuid, delta) in deltas.entries.sortedBy { it.key.toString() }) {
+                            stmt.setDouble(1, delta)
+                            stmt.setString(2, uuid.toString())
+                            stmt.addBatch()
+                        }
+                        stmt.executeBatch()
+                    }
+                }
+            }
+        }
+    }
+
+    override fun findTopBalances(offset: Int, limit: Int): CompletableFuture<Map<UUID, Double>> {
+        return CompletableFuture.supplyAsync {
+            driver.withReadConnection { conn ->
+                conn.prepareStatement(
+                    "SELECT uuid, balance FROM brennon_players ORDER BY balance DESC LIMIT ? OFFSET ?"
+                ).use { stmt ->
+                    stmt.setInt(1, limit)
+                    stmt.setInt(2, offset)
+                    val rs = stmt.executeQuery()
+                    val result = linkedMapOf<UUID, Double>()
+                    while (rs.next()) {
+                        result[UUID.fromString(rs.getString("uuid"))] = rs.getDouble("balance")
+                    }
+                    result
+                }
+            }
+        }
+    }
+
+    override fun countBalancesAbove(balance: Double): CompletableFuture<Long> {
+        return CompletableFuture.supplyAsync {
+            driver.withReadConnection { conn ->
+                conn.prepareStatement("SELECT COUNT(*) FROM brennon_players WHERE balance > ?").use { stmt ->
+                    stmt.setDouble(1, balance)
+                    val rs = stmt.executeQuery()
+                    if (rs.next()) rs.getLong(1) else 0L
+                }
+            }
+        }
+    }
+
+    override fun appendLedger(entries: List<LedgerEntryData>): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (entries.isEmpty()) return@runAsync
+            driver.getConnection().use { conn ->
+                transaction(conn) {
+                    conn.prepareStatement(
+                        "INSERT INTO brennon_economy_ledger (player_uuid, delta, balance_after, reason, counterparty, server, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)"
+                    ).use { stmt ->
+                        for (entry in entries) {
+                            stmt.setString(1, entry.uuid.toString())
+                            stmt.setDouble(2, entry.delta)
+                            stmt.setDouble(3, entry.balanceAfter)
+                            stmt.setString(4, entry.reason)
+                            stmt.setString(5, entry.counterparty?.toString())
+                            stmt.setString(6, entry.server)
+                            stmt.setLong(7, entry.timestamp.toEpochMilli())
+                            stmt.addBatch()
+                        }
+                        stmt.executeBatch()
+                    }
+                }
+            }
+        }
+    }
+
+    override fun findLedger(uuid: UUID, limit: Int): CompletableFuture<List<LedgerEntryData>> {
+        return CompletableFuture.supplyAsync {
+            driver.withReadConnection { conn ->
+                conn.prepareStatement(
+                    "SELECT * FROM brennon_economy_ledger WHERE player_uuid = ? ORDER BY timestamp DESC LIMIT ?"
+                ).use { stmt ->
+                    stmt.setString(1, uuid.toString())
+                    stmt.setInt(2, limit)
+                    val rs = stmt.executeQuery()
+                    val list = mutableListOf<LedgerEntryData>()
+                    while (rs.next()) {
+                        list.add(
+                            LedgerEntryData(
+                                uuid = UUID.fromString(rs.getString("player_uuid")),
+                                delta = rs.getDouble("delta"),
+                                balanceAfter = rs.getDouble("balance_after"),
+                                reason = rs.getString("reason"),
+                                counterparty = rs.getString("counterparty")?.let { UUID.fromString(it) },
+                                server = rs.getString("server") ?: "",
+                                timestamp = Instant.ofEpochMilli(rs.getLong("timestamp"))
+                            )
+                        )
+                    }
+                    list
+                }
+            }
+        }
+    }
+
+    // ============================================================
+    // Internal Helpers
+    // ============================================================
+
+    private fun applyDeposit(conn: Connection, uuid: UUID, amount: Double): Double {
+        val updated = conn.prepareStatement("UPDATE brennon_players SET balance = balance + ? WHERE uuid = ?").use { stmt ->
+            stmt.setDouble(1, amount)
+            stmt.setString(2, uuid.toString())
+            stmt.executeUpdate()
+        }
+        if (updated == 0) throw IllegalArgumentException("Player $uuid not found.")
+        return readBalance(conn, uuid, forUpdate = false)!!
+    }
+
+    private fun applyWithdraw(conn: Connection, uuid: UUID, amount: Double): Double {
+        val updated = conn.prepareStatement("UPDATE brennon_players SET balance = balance - ? WHERE uuid = ? AND balance >= ?").use { stmt ->
+            stmt.setDouble(1, amount)
+            stmt.setString(2, uuid.toString())
+            stmt.setDouble(3, amount)
+            stmt.executeUpdate()
+        }
+        if (updated == 0) {
+            val current = readBalance(conn, uuid, forUpdate = false)
+                ?: throw IllegalArgumentException("Player $uuid not found.")
+            throw IllegalStateException("Insufficient funds. Balance: $current, Requested: $amount")
+        }
+        return readBalance(conn, uuid, forUpdate = false)!!
+    }
+
+    private fun readBalance(conn: Connection, uuid: UUID, forUpdate: Boolean): Double? {
+        val sql = if (forUpdate) {
+            "SELECT balance FROM brennon_players WHERE uuid = ? FOR UPDATE"
+        } else {
+            "SELECT balance FROM brennon_players WHERE uuid = ?"
+        }
+        return conn.prepareStatement(sql).use { stmt ->
+            stmt.setString(1, uuid.toString())
+            val rs = stmt.executeQuery()
+            if (rs.next()) rs.getDouble("balance") else null
+        }
+    }
+
+    private inline fun <T> transaction(conn: Connection, block: () -> T): T {
+        conn.autoCommit = false
+        try {
+            val result = block()
+            conn.commit()
+            return result
+        } catch (e: Exception) {
+            conn.rollback()
+            throw e
+        } finally {
+            conn.autoCommit = true
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.envarcade.brennon.database.repository.sql
+
+import com.envarcade.brennon.api.stats.StatPeriod
+import com.envarcade.brennon.common.config.DataSharingMode
+import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.database.driver.SQLDatabaseDriver
+import com.envarcade.brennon.database.repository.StatsRepository
+import java.sql.Connection
+import java.time.Instant
+import java.util.PriorityQueue
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * SQL StatsRepository for the packed layout (`database.statsLayout = PACKED`).
+ *
+ * Each player has one `brennon_stats_packed` row per network holding all of
+ * their lifetime stats as [PackedStats], keyed by ids interned in
+ * `brennon_stat_ids`. Profile reads are a single primary key lookup, and
+ * writes lock the affected rows and rewrite them in one transaction.
+ *
+ * Blob values are not indexed, so the [rankedStats] are also written to
+ * `brennon_stats_ranked` in the same transaction, and leaderboards and
+ * positions read that table's index. Any other stat is still answered, by
+ * scanning and decoding the network's blobs, with a warning so the stat can
+ * be added to `leaderboards.stats`. Period buckets keep the row layout of
+ * [SQLStatsRepository].
+ */
+class SQLPackedStatsRepository(
+    private val driver: SQLDatabaseDriver,
+    networkContext: NetworkContext,
+    private val rankedStats: Set<String>
+) : StatsRepository {
+
+    /** The effective network_id value used in all queries */
+    private val effectiveNetworkId: String =
+        if (networkContext.sharing.stats == DataSharingMode.GLOBAL) "__global__"
+        else networkContext.networkId
+
+    private val dictionary = SQLStatIdDictionary(driver)
+
+    /** Period buckets are stored the same way in both layouts */
+    private val periods = SQLStatsRepository(driver, networkContext)
+
+    private val insertEmptySQL: String = driver.dialect.insertIgnore(
+        "brennon_stats_packed",
+        listOf("player_uuid", "network_id", "data"),
+        key = listOf("player_uuid", "network_id")
+    )
+
+    private val upsertRankedSQL: String = driver.dialect.upsert(
+        "brennon_stats_ranked",
+        listOf("player_uuid", "stat_id", "network_id", "value"),
+        key = listOf("player_uuid", "stat_id", "network_id"),
+        update = listOf("value")
+    )
+
+    private val insertRankedSQL: String = driver.dialect.insertIgnore(
+        "brennon_stats_ranked",
+        listOf("player_uuid", "stat_id", "network_id", "value"),
+        key = listOf("player_uuid", "stat_id", "network_id")
+    )
+
+    override fun getStat(uuid: UUID, statId: String): CompletableFuture<Double> {
+        return CompletableFuture.supplyAsync {
+            driver.getConnection().use { conn ->
+                val key = dictionary.idOf(conn, statId) ?: return@supplyAsync 0.0
+                PackedStats.valueOf(readRow(conn, uuid), key) ?: 0.0
+            }
+        }
+    }
+
+    override fun getAllStats(uuid: UUID): CompletableFuture<Map<String, Double>> {
+        return CompletableFuture.supplyAsync {
+            driver.getConnection().use { conn ->
+                val stats = mutableMapOf<String, Double>()
+                for ((key, value) in PackedStats.decode(readRow(conn, uuid))) {
+                    dictionary.nameOf(conn, key)?.let { stats[it] = value }
+                }
+                stats
+            }
+        }
+    }
+
+    override fun setStat(uuid: UUID, statId: String, value: Double): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            modify(listOf(uuid), setOf(statId)) { _, stats, keys -> stats[keys.getValue(statId)] = value }
+        }
+    }
+
+    override fun incrementStat(uuid: UUID, statId: String, amount: Double): CompletableFuture<Void> {
+        return applyDeltas(mapOf(uuid to mapOf(statId to amount)))
+    }
+
+    override fun incrementMany(amounts: Map<UUID, Double>, statId: String): CompletableFuture<Void> {
+        return applyDeltas(amounts.mapValues { (_, amount) -> mapOf(statId to amount) })
+    }
+
+    override fun applyDeltas(deltas: Map<UUID, Map<String, Double>>): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (deltas.isEmpty()) return@runAsync
+            val statIds = deltas.values.flatMapTo(HashSet()) { it.keys }
+            modify(deltas.keys, statIds) { uuid, stats, keys ->
+                for ((statId, amount) in deltas.getValue(uuid)) {
+                    stats.merge(keys.getValue(statId), amount, Double::plus)
+                }
+            }
+        }
+    }
+
+    override fun incrementPeriods(deltas: Map<UUID, Map<String, Double>>, at: Instant): CompletableFuture<Void> =
+        periods.incrementPeriods(deltas, at)
+
+    override fun getPeriodLeaderboard(statId: String, period: StatPeriod, limit: Int, at: Instant): CompletableFuture<Map<UUID, Double>> =
+        periods.getPeriodLeaderboard(statId, period, limit, at)
+
+    override fun prunePeriods(period: StatPeriod, before: Instant): CompletableFuture<Long> =
+        periods.prunePeriods(period, before)
+
+    override fun getLeaderboard(statId: String, limit: Int): CompletableFuture<Map<UUID, Double>> {
+        if (statId !in rankedStats) return scanLeaderboard(statId, limit)
+        return CompletableFuture.supplyAsync {
+            driver.withReadConnection { conn ->
+                conn.prepareStatement("SELECT player_uuid, value FROM brennon_stats_ranked WHERE stat_id = ? AND network_id = ? ORDER BY value DESC LIMIT ?").use { stmt ->
+                    stmt.setString(1, statId)
+                    stmt.setString(2, effectiveNetworkId)
+                    stmt.setInt(3, limit)
+                    val rs = stmt.executeQuery()
+                    val results = linkedMapOf<UUID, Double>()
+                    while (rs.next()) {
+                        results[UUID.fromString(rs.getString("player_uuid"))] = rs.getDouble("value")
+                    }
+                    results
+                }
+            }
+        }
+    }
+
+    override fun getLeaderboardPosition(uuid: UUID, statId: String): CompletableFuture<Int> {
+        if (statId !in rankedStats) return scanPosition(uuid, statId)
+        return CompletableFuture.supplyAsync {
+            driver.withReadConnection { conn ->
+                val playerValue = conn.prepareStatement("SELECT value FROM brennon_stats_ranked WHERE player_uuid = ? AND stat_id = ? AND network_id = ?").use { stmt ->
+                    stmt.setString(1, uuid.toString())
+                    stmt.setString(2, statId)
+                    stmt.setString(3, effectiveNetworkId)
+                    val rs = stmt.executeQuery()
+                    if (rs.next()) rs.getDouble("value") else return@withReadConnection -1
+                }
+                conn.prepareStatement("SELECT COUNT(*) AS pos FROM brennon_stats_ranked WHERE stat_id = ? AND network_id = ? AND value > ?").use { stmt ->
+                    stmt.setString(1, statId)
+                    stmt.setString(2, effectiveNetworkId)
+                    stmt.setDouble(3, playerValue)
+                    val rs = stmt.executeQuery()
+                    if (rs.next()) rs.getInt("pos") + 1 else -1
+                }
+            }
+        }
+    }
+
+    override fun scanStat(statId: String, batchSize: Int, consumer: (Map<UUID, Double>) -> Unit): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            driver.getConnection().use { conn ->
+                if (statId in rankedStats) {
+                    scanRanked(conn, statId, batchSize, consumer)
+                } else {
+                    val key = dictionary.idOf(conn, statId) ?: return@runAsync
+                    scan(conn, key, batchSize, consumer)
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills `brennon_stats_ranked` from the blobs for ranked stats that have
+     * no rows on this network yet: the first start after the table was added,
+     * after converting from the row layout, or after a stat was added to
+     * `leaderboards.stats`. Existing rows are kept, so concurrent writers and
+     * other servers running the same backfill are never overwritten.
+     */
+    fun backfillRanked() {
+        driver.getConnection().use { conn ->
+            for (statId in rankedStats.sorted()) {
+                if (hasRankedRows(conn, statId)) continue
+                val key = dictionary.idOf(conn, statId) ?: continue
+                var copied = 0
+                conn.prepareStatement(insertRankedSQL).use { stmt ->
+                    scan(conn, key, SCAN_BATCH) { batch ->
+                        for ((uuid, value) in batch) {
+                            stmt.setString(1, uuid.toString())
+                            stmt.setString(2, statId)
+                            stmt.setString(3, effectiveNetworkId)
+                            stmt.setDouble(4, value)
+                            stmt.addBatch()
+                        }
+                        stmt.executeBatch()
+                        copied += batch.size
+                    }
+                }
+                Log.info("Backfilled ranked stat values", "stat" to statId, "entries" to copied)
+            }
+        }
+    }
+
+    override fun resetStat(uuid: UUID, statId: String): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            modify(listOf(uuid), setOf(statId)) { _, stats, keys -> stats.remove(keys.getValue(statId)) }
+        }
+    }
+
+    override fun resetAllStats(uuid: UUID): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            driver.getConnection().use { conn ->
+                conn.autoCommit = false
+                try {
+                    for (table in listOf("brennon_stats_packed", "brennon_stats_ranked")) {
+                        conn.prepareStatement("DELETE FROM $table WHERE player_uuid = ? AND network_id = ?").use { stmt ->
+                            stmt.setString(1, uuid.toString())
+                            stmt.setString(2, effectiveNetworkId)
+                            stmt.executeUpdate()
+                        }
+                    }
+                    conn.commit()
+                } catch (e: Exception) {
+                    conn.rollback()
+                    throw e
+                } finally {
+                    conn.autoCommit = true
+                }
+            }
+        }
+    }
+
+    private fun readRow(conn: Connection, uuid: UUID): ByteArray? {
+        conn.prepareStatement("SELECT data FROM brennon_stats_packed WHERE player_uuid = ? AND network_id = ?").use { stmt ->
+            stmt.setString(1, uuid.toString())
+            stmt.setString(2, effectiveNetworkId)
+            val rs = stmt.executeQuery()
+            return if (rs.next()) rs.getBytes("data") else null
+        }
+    }
+
+    /**
+     * Read-modify-writes the rows of [players] in one transaction. Rows are
+     * created if missing and locked in player order, so concurrent writers
+     * on other servers queue up instead of overwriting each other. The new
+     * values of any ranked stats among [statIds] are mirrored into
+     * `brennon_stats_ranked` before the commit.
+     */
+    private fun modify(
+        players: Collection<UUID>,
+        statIds: Set<String>,
+        change: (UUID, MutableMap<Int, Double>, Map<String, Int>) -> Unit
+    ) {
+        driver.getConnection().use { conn ->
+            val keys = statIds.associateWith { dictionary.intern(conn, it) }
+            val sorted = players.sortedBy { it.toString() }
+            val ranked = statIds.filter { it in rankedStats }.sorted()
+
+            conn.autoCommit = false
+            try {
+                conn.prepareStatement(insertEmptySQL).use { stmt ->
+                    for (uuid in sorted) {
+                        stmt.setString(1, uuid.toString())
+                        stmt.setString(2, effectiveNetworkId)
+                        stmt.setBytes(3, ByteArray(0))
+                        stmt.addBatch()
+                    }
+                    stmt.executeBatch()
+                }
+
+                val current = HashMap<String, ByteArray>()
+                for (chunk in sorted.chunked(LOCK_CHUNK)) {
+                    val placeholders = chunk.joinToString(",") { "?" }
+                    conn.prepareStatement(
+                        "SELECT player_uuid, data FROM brennon_stats_packed WHERE network_id = ? AND player_uuid IN ($placeholders) ORDER BY player_uuid FOR UPDATE"
+                    ).use { stmt ->
+                        stmt.setString(1, effectiveNetworkId)
+                        chunk.forEachIndexed { i, uuid -> stmt.setString(i + 2, uuid.toString()) }
+                        val rs = stmt.executeQuery()
+                        while (rs.next()) current[rs.getString("player_uuid")] = rs.getBytes("data")
+                    }
+                }
+
+                val rankedValues = ArrayList<Triple<UUID, String, Double?>>()
+                conn.prepareStatement("UPDATE brennon_stats_packed SET data = ? WHERE player_uuid = ? AND network_id = ?").use { stmt ->
+                    for (uuid in sorted) {
+                        val stats = PackedStats.decode(current[uuid.toString()])
+                        change(uuid, stats, keys)
+                        stmt.setBytes(1, PackedStats.encode(stats))
+                        stmt.setString(2, uuid.toString())
+                        stmt.setString(3, effectiveNetworkId)
+                        stmt.addBatch()
+                        for (statId in ranked) rankedValues.add(Triple(uuid, statId, stats[keys.getValue(statId)]))
+                    }
+                    stmt.executeBatch()
+                }
+                if (rankedValues.isNotEmpty()) writeRanked(conn, rankedValues)
+                conn.commit()
+            } catch (e: Exception) {
+                conn.rollback()
+                throw e
+            } finally {
+                conn.autoCommit = true
+            }
+        }
+    }
+
+    /** Upserts ranked values, deleting the rows of stats that were reset */
+    private fun writeRanked(conn: Connection, values: List<Triple<UUID, String, Double?>>) {
+        conn.prepareStatement(upsertRankedSQL).use { upsert ->
+            conn.prepareStatement("DELETE FROM brennon_stats_ranked WHERE player_uuid = ? AND stat_id = ? AND network_id = ?").use { delete ->
+                for ((uuid, statId, value) in values) {
+                    val stmt = if (value != null) upsert else delete
+                    stmt.setString(1, uuid.toString())
+                    stmt.setString(2, statId)
+                    stmt.setString(3, effectiveNetworkId)
+                    if (value != null) stmt.setDouble(4, value)
+                    stmt.addBatch()
+                }
+                upsert.executeBatch()
+                delete.executeBatch()
+            }
+        }
+    }
+
+    private fun hasRankedRows(conn: Connection, statId: String): Boolean {
+        conn.prepareStatement("SELECT 1 FROM brennon_stats_ranked WHERE stat_id = ? AND network_id = ? LIMIT 1").use { stmt ->
+            stmt.setString(1, statId)
+            stmt.setString(2, effectiveNetworkId)
+            return stmt.executeQuery().next()
+        }
+    }
+
+    /** Top-N of an unranked stat, keeping the best [limit] blob values in a min-heap */
+    private fun scanLeaderboard(statId: String, limit: Int): CompletableFuture<Map<UUID, Double>> {
+        return CompletableFuture.supplyAsync {
+            warnUnranked(statId)
+            driver.withReadConnection { conn ->
+                val key = dictionary.idOf(conn, statId) ?: return@withReadConnection emptyMap<UUID, Double>()
+                val top = PriorityQueue<Pair<UUID, Double>>(compareBy { it.second })
+                scan(conn, key, SCAN_BATCH) { batch ->
+                    for ((uuid, value) in batch) {
+                        if (top.size < limit) {
+                            top.add(uuid to value)
+                        } else if (limit > 0 && value > top.peek().second) {
+                            top.poll()
+                            top.add(uuid to value)
+                        }
+                    }
+                }
+                val results = linkedMapOf<UUID, Double>()
+                for ((uuid, value) in top.sortedByDescending { it.second }) results[uuid] = value
+                results
+            }
+        }
+    }
+
+    private fun scanPosition(uuid: UUID, statId: String): CompletableFuture<Int> {
+        return CompletableFuture.supplyAsync {
+            warnUnranked(statId)
+            driver.withReadConnection { conn ->
+                val key = dictionary.idOf(conn, statId) ?: return@withReadConnection -1
+                val playerValue = PackedStats.valueOf(readRow(conn, uuid), key) ?: return@withReadConnection -1
+                var higher = 0
+                scan(conn, key, SCAN_BATCH) { batch -> higher += batch.values.count { it > playerValue } }
+                higher + 1
+            }
+        }
+    }
+
+    private fun warnUnranked(statId: String) {
+        Log.warn("Scanning every packed stats row for an unranked stat; add it to leaderboards.stats", "stat" to statId)
+    }
+
+    /**
+     * Streams one ranked stat from its index table, with keyset paging on player_uuid.
+     */
+    private fun scanRanked(conn: Connection, statId: String, batchSize: Int, consumer: (Map<UUID, Double>) -> Unit) {
+        conn.prepareStatement(
+            "SELECT player_uuid, value FROM brennon_stats_ranked WHERE stat_id = ? AND network_id = ? AND player_uuid > ? ORDER BY player_uuid LIMIT ?"
+        ).use { stmt ->
+            var lastUuid = ""
+            while (true) {
+                stmt.setString(1, statId)
+                stmt.setString(2, effectiveNetworkId)
+                stmt.setString(3, lastUuid)
+                stmt.setInt(4, batchSize)
+                val rs = stmt.executeQuery()
+                val batch = linkedMapOf<UUID, Double>()
+                while (rs.next()) {
+                    lastUuid = rs.getString("player_uuid")
+                    batch[UUID.fromString(lastUuid)] = rs.getDouble("value")
+                }
+                if (batch.isNotEmpty()) consumer(batch)
+                if (batch.size < batchSize) break
+            }
+        }
+    }
+
+    /**
+     * Streams the values of one stat key from the blobs in batches, with
+     * keyset paging on player_uuid. Used for backfills, and for leaderboards,
+     * positions and rebuilds of unranked stats.
+     */
+    private fun scan(conn: Connection, key: Int, batchSize: Int, consumer: (Map<UUID, Double>) -> Unit) {
+        conn.prepareStatement(
+            "SELECT player_uuid, data FROM brennon_stats_packed WHERE network_id = ? AND player_uuid > ? ORDER BY player_uuid LIMIT ?"
+        ).use { stmt ->
+            var lastUuid = ""
+            while (true) {
+                stmt.setString(1, effectiveNetworkId)
+                stmt.setString(2, lastUuid)
+                stmt.setInt(3, batchSize)
+                val rs = stmt.executeQuery()
+                val batch = linkedMapOf<UUID, Double>()
+                var rows = 0
+                while (rs.next()) {
+                    rows++
+                    lastUuid = rs.getString("player_uuid")
+                    PackedStats.valueOf(rs.getBytes("data"), key)?.let { batch[UUID.fromString(lastUuid)] = it }
+                }
+                if (batch.isNotEmpty()) consumer(batch)
+                if (rows < batchSize) break
+            }
+        }
+    }
+
+    companion object {
+        private const val SCAN_BATCH = 1000
+        private const val LOCK_CHUNK = 500
+    }
+}
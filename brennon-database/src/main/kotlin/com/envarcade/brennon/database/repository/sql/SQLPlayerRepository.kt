@@ -1,10 +1,11 @@
 package com.envarcade.brennon.database.repository.sql
 
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.PlayerData
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
 import com.envarcade.brennon.database.repository.PlayerRepository
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
+import java.sql.ResultSet
 import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
@@ -12,66 +13,31 @@ import java.util.concurrent.CompletableFuture
 /**
  * SQL implementation of the PlayerRepository.
  * Supports MySQL, MariaDB, and PostgreSQL with appropriate upsert syntax.
+ *
+ * The balance column is only written on first insert — afterwards it is
+ * owned by [SQLEconomyRepository] so a stale cached save can't undo it.
+ *
+ * `name_lower` is written on every save so name lookups are an indexed
+ * equality match instead of a `LOWER(name)` scan.
  */
 class SQLPlayerRepository(private val driver: SQLDatabaseDriver) : PlayerRepository {
 
-    private val gson = Gson()
-
-    private val upsertSQL: String = if (driver.isPostgres) {
-        """
-        INSERT INTO brennon_players (uuid, name, primary_rank, ranks, permissions, balance, first_join, last_seen, last_server, ip_address, playtime, metadata)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON CONFLICT (uuid) DO UPDATE SET
-            name = EXCLUDED.name,
-            primary_rank = EXCLUDED.primary_rank,
-            ranks = EXCLUDED.ranks,
-            permissions = EXCLUDED.permissions,
-            balance = EXCLUDED.balance,
-            last_seen = EXCLUDED.last_seen,
-            last_server = EXCLUDED.last_server,
-            ip_address = EXCLUDED.ip_address,
-            playtime = EXCLUDED.playtime,
-            metadata = EXCLUDED.metadata
-        """.trimIndent()
-    } else {
-        """
-        INSERT INTO brennon_players (uuid, name, primary_rank, ranks, permissions, balance, first_join, last_seen, last_server, ip_address, playtime, metadata)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON DUPLICATE KEY UPDATE
-            name = VALUES(name),
-            primary_rank = VALUES(primary_rank),
-            ranks = VALUES(ranks),
-            permissions = VALUES(permissions),
-            balance = VALUES(balance),
-            last_seen = VALUES(last_seen),
-            last_server = VALUES(last_server),
-            ip_address = VALUES(ip_address),
-            playtime = VALUES(playtime),
-            metadata = VALUES(metadata)
-        """.trimIndent()
-    }
+    private val upsertSQL: String = driver.dialect.upsert(
+        "brennon_players",
+        listOf("uuid", "name", "name_lower", "primary_rank", "ranks", "permissions", "balance", "first_join", "last_seen", "last_server", "ip_address", "playtime", "metadata"),
+        key = listOf("uuid"),
+        update = listOf("name", "name_lower", "primary_rank", "ranks", "permissions", "last_seen", "last_server", "ip_address", "playtime", "metadata")
+    )
 
     override fun findByUuid(uuid: UUID): CompletableFuture<PlayerData?> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_players WHERE uuid = ?").use { stmt ->
-                    stmt.setString(1, uuid.toString())
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) fromResultSet(rs) else null
-                }
-            }
+            driver.queryFirst(FIND_BY_UUID_SQL, PlayerRowMapper) { it.setString(1, uuid.toString()) }
         }
     }
 
     override fun findByName(name: String): CompletableFuture<PlayerData?> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_players WHERE LOWER(name) = LOWER(?)").use { stmt ->
-                    stmt.setString(1, name)
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) fromResultSet(rs) else null
-                }
-            }
+            driver.queryFirst(FIND_BY_NAME_SQL, PlayerRowMapper) { it.setString(1, name.lowercase()) }
         }
     }
 
@@ -81,16 +47,17 @@ class SQLPlayerRepository(private val driver: SQLDatabaseDriver) : PlayerReposit
                 conn.prepareStatement(upsertSQL).use { stmt ->
                     stmt.setString(1, player.uuid.toString())
                     stmt.setString(2, player.name)
-                    stmt.setString(3, player.primaryRank)
-                    stmt.setString(4, gson.toJson(player.ranks))
-                    stmt.setString(5, gson.toJson(player.permissions))
-                    stmt.setDouble(6, player.balance)
-                    stmt.setLong(7, player.firstJoin.toEpochMilli())
-                    stmt.setLong(8, player.lastSeen.toEpochMilli())
-                    stmt.setString(9, player.lastServer)
-                    stmt.setString(10, player.ipAddress)
-                    stmt.setLong(11, player.playtime)
-                    stmt.setString(12, gson.toJson(player.metadata))
+                    stmt.setString(3, player.name.lowercase())
+                    stmt.setString(4, player.primaryRank)
+                    stmt.setString(5, SQLJson.gson.toJson(player.ranks))
+                    stmt.setString(6, SQLJson.gson.toJson(player.permissions))
+                    stmt.setDouble(7, player.balance)
+                    stmt.setLong(8, player.firstJoin.toEpochMilli())
+                    stmt.setLong(9, player.lastSeen.toEpochMilli())
+                    stmt.setString(10, player.lastServer)
+                    stmt.setString(11, player.ipAddress)
+                    stmt.setLong(12, player.playtime)
+                    stmt.setString(13, SQLJson.gson.toJson(player.metadata))
                     stmt.executeUpdate()
                 }
             }
@@ -121,61 +88,82 @@ class SQLPlayerRepository(private val driver: SQLDatabaseDriver) : PlayerReposit
 
     override fun findByIp(ip: String): CompletableFuture<List<PlayerData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_players WHERE ip_address = ?").use { stmt ->
-                    stmt.setString(1, ip)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<PlayerData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
-                }
-            }
+            driver.queryAll(FIND_BY_IP_SQL, PlayerRowMapper) { it.setString(1, ip) }
         }
     }
 
     override fun countAll(): CompletableFuture<Long> {
+        return CompletableFuture.supplyAsync { driver.queryLong("SELECT COUNT(*) FROM brennon_players", replica = true) }
+    }
+
+    override fun findRecent(limit: Int, offset: Int): CompletableFuture<List<PlayerData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT COUNT(*) FROM brennon_players").use { stmt ->
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) rs.getLong(1) else 0L
-                }
+            driver.queryAll(FIND_RECENT_SQL, PlayerRowMapper, replica = true) { stmt ->
+                stmt.setInt(1, limit)
+                stmt.setInt(2, offset)
             }
         }
     }
 
-    override fun findRecent(limit: Int, offset: Int): CompletableFuture<List<PlayerData>> {
+    override fun findRecentPage(limit: Int, after: PageCursor?): CompletableFuture<Page<PlayerData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_players ORDER BY last_seen DESC LIMIT ? OFFSET ?").use { stmt ->
-                    stmt.setInt(1, limit)
-                    stmt.setInt(2, offset)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<PlayerData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
+            val sql = if (after == null) FIRST_PAGE_SQL else NEXT_PAGE_SQL
+            val list = driver.queryAll(sql, PlayerRowMapper, replica = true) { stmt ->
+                var index = 1
+                if (after != null) {
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setString(index++, after.id)
                 }
+                // One extra row tells whether another page follows
+                stmt.setInt(index, limit + 1)
             }
+
+            val items = list.take(limit)
+            val next = if (list.size > limit) items.last().let { PageCursor(it.lastSeen.toEpochMilli(), it.uuid.toString()) } else null
+            Page(items, next)
         }
     }
 
-    private fun fromResultSet(rs: java.sql.ResultSet): PlayerData {
-        val setType = object : TypeToken<MutableSet<String>>() {}.type
-        val mapType = object : TypeToken<MutableMap<String, String>>() {}.type
+    companion object {
+        private const val FIND_BY_UUID_SQL = "SELECT * FROM brennon_players WHERE uuid = ?"
+        private const val FIND_BY_NAME_SQL = "SELECT * FROM brennon_players WHERE name_lower = ?"
+        private const val FIND_BY_IP_SQL = "SELECT * FROM brennon_players WHERE ip_address = ?"
+        private const val FIND_RECENT_SQL = "SELECT * FROM brennon_players ORDER BY last_seen DESC LIMIT ? OFFSET ?"
+        private const val FIRST_PAGE_SQL = "SELECT * FROM brennon_players ORDER BY last_seen DESC, uuid DESC LIMIT ?"
+        private const val NEXT_PAGE_SQL =
+            "SELECT * FROM brennon_players WHERE last_seen < ? OR (last_seen = ? AND uuid < ?) ORDER BY last_seen DESC, uuid DESC LIMIT ?"
+    }
+}
+
+private object PlayerRowMapper : SQLRowMapper<PlayerData>() {
+    private val uuid = column("uuid")
+    private val name = column("name")
+    private val primaryRank = column("primary_rank")
+    private val ranks = column("ranks")
+    private val permissions = column("permissions")
+    private val balance = column("balance")
+    private val firstJoin = column("first_join")
+    private val lastSeen = column("last_seen")
+    private val lastServer = column("last_server")
+    private val ipAddress = column("ip_address")
+    private val playtime = column("playtime")
+    private val metadata = column("metadata")
 
+    override fun map(rs: ResultSet, at: IntArray): PlayerData {
         return PlayerData(
-            uuid = UUID.fromString(rs.getString("uuid")),
-            name = rs.getString("name"),
-            primaryRank = rs.getString("primary_rank") ?: "default",
-            ranks = gson.fromJson(rs.getString("ranks") ?: "[\"default\"]", setType),
-            permissions = gson.fromJson(rs.getString("permissions") ?: "[]", setType),
-            balance = rs.getDouble("balance"),
-            firstJoin = Instant.ofEpochMilli(rs.getLong("first_join")),
-            lastSeen = Instant.ofEpochMilli(rs.getLong("last_seen")),
-            lastServer = rs.getString("last_server") ?: "",
-            ipAddress = rs.getString("ip_address") ?: "",
-            playtime = rs.getLong("playtime"),
-            metadata = gson.fromJson(rs.getString("metadata") ?: "{}", mapType)
+            uuid = UUID.fromString(rs.getString(at[uuid])),
+            name = rs.getString(at[name]),
+            primaryRank = rs.getString(at[primaryRank]) ?: "default",
+            ranks = SQLJson.gson.fromJson(rs.getString(at[ranks]) ?: "[\"default\"]", SQLJson.STRING_SET),
+            permissions = SQLJson.gson.fromJson(rs.getString(at[permissions]) ?: "[]", SQLJson.STRING_SET),
+            balance = rs.getDouble(at[balance]),
+            firstJoin = Instant.ofEpochMilli(rs.getLong(at[firstJoin])),
+            lastSeen = Instant.ofEpochMilli(rs.getLong(at[lastSeen])),
+            lastServer = rs.getString(at[lastServer]) ?: "",
+            ipAddress = rs.getString(at[ipAddress]) ?: "",
+            playtime = rs.getLong(at[playtime]),
+            metadata = SQLJson.gson.fromJson(rs.getString(at[metadata]) ?: "{}", SQLJson.STRING_MAP)
         )
     }
 }
@@ -3,9 +3,12 @@ package com.envarcade.brennon.database.repository.sql
 import com.envarcade.brennon.api.punishment.PunishmentType
 import com.envarcade.brennon.common.config.DataSharingMode
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.PunishmentData
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
 import com.envarcade.brennon.database.repository.PunishmentRepository
+import java.sql.ResultSet
 import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
@@ -21,161 +24,108 @@ class SQLPunishmentRepository(
 ) : PunishmentRepository {
 
     private val networkId: String? = networkContext.effectiveNetworkId(networkContext.sharing.punishments)
-    private val isNetworkScoped: Boolean = networkId != null
-
-    private val upsertSQL: String = if (driver.isPostgres) {
-        """
-        INSERT INTO brennon_punishments (id, target, issuer, type, reason, issued_at, expires_at, active, revoked_by, revoked_at, revoke_reason, network_id, target_ip)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON CONFLICT (id) DO UPDATE SET
-            active = EXCLUDED.active,
-            revoked_by = EXCLUDED.revoked_by,
-            revoked_at = EXCLUDED.revoked_at,
-            revoke_reason = EXCLUDED.revoke_reason
-        """.trimIndent()
-    } else {
-        """
-        INSERT INTO brennon_punishments (id, target, issuer, type, reason, issued_at, expires_at, active, revoked_by, revoked_at, revoke_reason, network_id, target_ip)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON DUPLICATE KEY UPDATE
-            active = VALUES(active),
-            revoked_by = VALUES(revoked_by),
-            revoked_at = VALUES(revoked_at),
-            revoke_reason = VALUES(revoke_reason)
-        """.trimIndent()
-    }
+    private val scope = NetworkScope(networkId)
+
+    private val upsertSQL: String = driver.dialect.upsert(
+        "brennon_punishments",
+        listOf("id", "target", "issuer", "type", "reason", "issued_at", "expires_at", "active", "revoked_by", "revoked_at", "revoke_reason", "network_id", "target_ip"),
+        key = listOf("id"),
+        update = listOf("active", "revoked_by", "revoked_at", "revoke_reason")
+    )
+
+    private val findByTargetSQL = scope.sql("SELECT * FROM brennon_punishments WHERE target = ?", "ORDER BY issued_at DESC")
+    private val findActiveSQL = scope.sql("SELECT * FROM brennon_punishments WHERE target = ? AND active = TRUE")
+    private val findActiveByTypeSQL = scope.sql("SELECT * FROM brennon_punishments WHERE target = ? AND type = ? AND active = TRUE")
+    private val findActiveByIpSQL = scope.sql("SELECT * FROM brennon_punishments WHERE target_ip = ? AND type = 'IP_BAN' AND active = TRUE")
+    private val findByTypeSQL = scope.sql("SELECT * FROM brennon_punishments WHERE type = ?", "ORDER BY issued_at DESC LIMIT ? OFFSET ?")
+    private val firstPageSQL = scope.sql("SELECT * FROM brennon_punishments WHERE type = ?", "ORDER BY issued_at DESC, id DESC LIMIT ?")
+    private val nextPageSQL = scope.sql(
+        "SELECT * FROM brennon_punishments WHERE type = ?",
+        "AND (issued_at < ? OR (issued_at = ? AND id < ?)) ORDER BY issued_at DESC, id DESC LIMIT ?"
+    )
+    private val countByTypeSQL = scope.sql("SELECT COUNT(*) FROM brennon_punishments WHERE type = ?")
 
     override fun findById(id: String): CompletableFuture<PunishmentData?> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_punishments WHERE id = ?").use { stmt ->
-                    stmt.setString(1, id)
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) fromResultSet(rs) else null
-                }
-            }
+            driver.queryFirst(FIND_BY_ID_SQL, PunishmentRowMapper) { it.setString(1, id) }
         }
     }
 
     override fun findByTarget(uuid: UUID): CompletableFuture<List<PunishmentData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_punishments WHERE target = ?")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                    append(" ORDER BY issued_at DESC")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, uuid.toString())
-                    if (isNetworkScoped) stmt.setString(2, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<PunishmentData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
-                }
+            driver.queryAll(findByTargetSQL, PunishmentRowMapper, replica = true) { stmt ->
+                stmt.setString(1, uuid.toString())
+                scope.bind(stmt, 2)
             }
         }
     }
 
     override fun findActiveByTarget(uuid: UUID): CompletableFuture<List<PunishmentData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_punishments WHERE target = ? AND active = TRUE")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, uuid.toString())
-                    if (isNetworkScoped) stmt.setString(2, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<PunishmentData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
-                }
+            driver.queryAll(findActiveSQL, PunishmentRowMapper) { stmt ->
+                stmt.setString(1, uuid.toString())
+                scope.bind(stmt, 2)
             }
         }
     }
 
     override fun findActiveByTargetAndType(uuid: UUID, type: PunishmentType): CompletableFuture<List<PunishmentData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_punishments WHERE target = ? AND type = ? AND active = TRUE")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, uuid.toString())
-                    stmt.setString(2, type.name)
-                    if (isNetworkScoped) stmt.setString(3, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<PunishmentData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
-                }
+            driver.queryAll(findActiveByTypeSQL, PunishmentRowMapper) { stmt ->
+                stmt.setString(1, uuid.toString())
+                stmt.setString(2, type.name)
+                scope.bind(stmt, 3)
             }
         }
     }
 
     override fun findActiveByIp(ip: String): CompletableFuture<List<PunishmentData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_punishments WHERE target_ip = ? AND type = 'IP_BAN' AND active = TRUE")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, ip)
-                    if (isNetworkScoped) stmt.setString(2, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<PunishmentData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
-                }
+            driver.queryAll(findActiveByIpSQL, PunishmentRowMapper) { stmt ->
+                stmt.setString(1, ip)
+                scope.bind(stmt, 2)
             }
         }
     }
 
     override fun findAllByType(type: PunishmentType, limit: Int, offset: Int): CompletableFuture<List<PunishmentData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_punishments WHERE type = ?")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                    append(" ORDER BY issued_at DESC LIMIT ? OFFSET ?")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, type.name)
-                    if (isNetworkScoped) {
-                        stmt.setString(2, networkId!!)
-                        stmt.setInt(3, limit)
-                        stmt.setInt(4, offset)
-                    } else {
-                        stmt.setInt(2, limit)
-                        stmt.setInt(3, offset)
-                    }
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<PunishmentData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
-                }
+            driver.queryAll(findByTypeSQL, PunishmentRowMapper, replica = true) { stmt ->
+                stmt.setString(1, type.name)
+                val index = scope.bind(stmt, 2)
+                stmt.setInt(index, limit)
+                stmt.setInt(index + 1, offset)
             }
         }
     }
 
-    override fun countByType(type: PunishmentType): CompletableFuture<Int> {
+    override fun findAllByTypePage(type: PunishmentType, limit: Int, after: PageCursor?): CompletableFuture<Page<PunishmentData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT COUNT(*) FROM brennon_punishments WHERE type = ?")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, type.name)
-                    if (isNetworkScoped) stmt.setString(2, networkId!!)
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) rs.getInt(1) else 0
+            val sql = if (after == null) firstPageSQL else nextPageSQL
+            val list = driver.queryAll(sql, PunishmentRowMapper, replica = true) { stmt ->
+                stmt.setString(1, type.name)
+                var index = scope.bind(stmt, 2)
+                if (after != null) {
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setString(index++, after.id)
                 }
+                // One extra row tells whether another page follows
+                stmt.setInt(index, limit + 1)
             }
+
+            val items = list.take(limit)
+            val next = if (list.size > limit) items.last().let { PageCursor(it.issuedAt.toEpochMilli(), it.id) } else null
+            Page(items, next)
+        }
+    }
+
+    override fun countByType(type: PunishmentType): CompletableFuture<Int> {
+        return CompletableFuture.supplyAsync {
+            driver.queryLong(countByTypeSQL, replica = true) { stmt ->
+                stmt.setString(1, type.name)
+                scope.bind(stmt, 2)
+            }.toInt()
         }
     }
 
@@ -221,21 +171,41 @@ class SQLPunishmentRepository(
         }
     }
 
-    private fun fromResultSet(rs: java.sql.ResultSet): PunishmentData {
+    companion object {
+        private const val FIND_BY_ID_SQL = "SELECT * FROM brennon_punishments WHERE id = ?"
+    }
+}
+
+private object PunishmentRowMapper : SQLRowMapper<PunishmentData>() {
+    private val id = column("id")
+    private val target = column("target")
+    private val issuer = column("issuer")
+    private val type = column("type")
+    private val reason = column("reason")
+    private val issuedAt = column("issued_at")
+    private val expiresAt = column("expires_at")
+    private val active = column("active")
+    private val revokedBy = column("revoked_by")
+    private val revokedAt = column("revoked_at")
+    private val revokeReason = column("revoke_reason")
+    private val networkId = column("network_id")
+    private val targetIp = column("target_ip")
+
+    override fun map(rs: ResultSet, at: IntArray): PunishmentData {
         return PunishmentData(
-            id = rs.getString("id"),
-            target = UUID.fromString(rs.getString("target")),
-            issuer = rs.getString("issuer")?.let { UUID.fromString(it) },
-            type = PunishmentType.valueOf(rs.getString("type")),
-            reason = rs.getString("reason"),
-            issuedAt = Instant.ofEpochMilli(rs.getLong("issued_at")),
-            expiresAt = rs.getLong("expires_at").let { if (rs.wasNull()) null else Instant.ofEpochMilli(it) },
-            active = rs.getBoolean("active"),
-            revokedBy = rs.getString("revoked_by")?.let { UUID.fromString(it) },
-            revokedAt = rs.getLong("revoked_at").let { if (rs.wasNull()) null else Instant.ofEpochMilli(it) },
-            revokeReason = rs.getString("revoke_reason"),
-            networkId = rs.getString("network_id"),
-            targetIp = rs.getString("target_ip")
+            id = rs.getString(at[id]),
+            target = UUID.fromString(rs.getString(at[target])),
+            issuer = uuidOrNull(rs, at[issuer]),
+            type = PunishmentType.valueOf(rs.getString(at[type])),
+            reason = rs.getString(at[reason]),
+            issuedAt = Instant.ofEpochMilli(rs.getLong(at[issuedAt])),
+            expiresAt = instantOrNull(rs, at[expiresAt]),
+            active = rs.getBoolean(at[active]),
+            revokedBy = uuidOrNull(rs, at[revokedBy]),
+            revokedAt = instantOrNull(rs, at[revokedAt]),
+            revokeReason = rs.getString(at[revokeReason]),
+            networkId = rs.getString(at[networkId]),
+            targetIp = rs.getString(at[targetIp])
         )
     }
 }
@@ -0,0 +1,87 @@
+package com.envarcade.brennon.database.repository.sql
+
+import com.envarcade.brennon.database.driver.SQLDatabaseDriver
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import java.lang.reflect.Type
+import java.sql.Connection
+import java.sql.PreparedStatement
+
+/**
+ * Statement text for queries that take an optional `network_id` filter.
+ * Repositories build each variant once at construction, so the same text
+ * reaches the driver's statement cache on every call.
+ */
+class NetworkScope(val networkId: String?) {
+
+    val isScoped: Boolean = networkId != null
+
+    /**
+     * Appends the network filter to [select], which must end in a WHERE
+     * condition, followed by [tail] (ORDER BY, LIMIT, ...).
+     */
+    fun sql(select: String, tail: String = ""): String = buildString {
+        append(select)
+        if (isScoped) append(" AND network_id = ?")
+        if (tail.isNotEmpty()) append(' ').append(tail)
+    }
+
+    /**
+     * Binds the network id at [index] if scoped, returning the next free index.
+     */
+    fun bind(stmt: PreparedStatement, index: Int): Int {
+        if (!isScoped) return index
+        stmt.setString(index, networkId!!)
+        return index + 1
+    }
+}
+
+/**
+ * Gson instance and JSON column types shared by the SQL repositories.
+ */
+object SQLJson {
+    val gson = Gson()
+    val STRING_SET: Type = object : TypeToken<MutableSet<String>>() {}.type
+    val STRING_MAP: Type = object : TypeToken<MutableMap<String, String>>() {}.type
+}
+
+/*
+ * Query helpers. With [replica] set the query runs through
+ * [SQLDatabaseDriver.withReadConnection] and may be answered by a read replica.
+ */
+
+fun <T> SQLDatabaseDriver.queryFirst(
+    sql: String,
+    mapper: SQLRowMapper<T>,
+    replica: Boolean = false,
+    bind: (PreparedStatement) -> Unit = {}
+): T? = withConnection(replica) { conn ->
+    conn.prepareStatement(sql).use { stmt ->
+        bind(stmt)
+        mapper.first(sql, stmt.executeQuery())
+    }
+}
+
+fun <T> SQLDatabaseDriver.queryAll(
+    sql: String,
+    mapper: SQLRowMapper<T>,
+    replica: Boolean = false,
+    bind: (PreparedStatement) -> Unit = {}
+): MutableList<T> = withConnection(replica) { conn ->
+    conn.prepareStatement(sql).use { stmt ->
+        bind(stmt)
+        mapper.all(sql, stmt.executeQuery())
+    }
+}
+
+fun SQLDatabaseDriver.queryLong(sql: String, replica: Boolean = false, bind: (PreparedStatement) -> Unit = {}): Long =
+    withConnection(replica) { conn ->
+        conn.prepareStatement(sql).use { stmt ->
+            bind(stmt)
+            val rs = stmt.executeQuery()
+            if (rs.next()) rs.getLong(1) else 0L
+        }
+    }
+
+private fun <T> SQLDatabaseDriver.withConnection(replica: Boolean, block: (Connection) -> T): T =
+    if (replica) withReadConnection(block) else getConnection().use(block)
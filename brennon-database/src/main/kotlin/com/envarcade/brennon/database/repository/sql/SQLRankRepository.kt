@@ -3,8 +3,7 @@ package com.envarcade.brennon.database.repository.sql
 import com.envarcade.brennon.common.model.RankData
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
 import com.envarcade.brennon.database.repository.RankRepository
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
+import java.sql.ResultSet
 import java.util.concurrent.CompletableFuture
 
 /**
@@ -13,73 +12,28 @@ import java.util.concurrent.CompletableFuture
  */
 class SQLRankRepository(private val driver: SQLDatabaseDriver) : RankRepository {
 
-    private val gson = Gson()
-
-    private val upsertSQL: String = if (driver.isPostgres) {
-        """
-        INSERT INTO brennon_ranks (id, display_name, prefix, suffix, weight, permissions, inheritance, is_default, is_staff, metadata)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON CONFLICT (id) DO UPDATE SET
-            display_name = EXCLUDED.display_name,
-            prefix = EXCLUDED.prefix,
-            suffix = EXCLUDED.suffix,
-            weight = EXCLUDED.weight,
-            permissions = EXCLUDED.permissions,
-            inheritance = EXCLUDED.inheritance,
-            is_default = EXCLUDED.is_default,
-            is_staff = EXCLUDED.is_staff,
-            metadata = EXCLUDED.metadata
-        """.trimIndent()
-    } else {
-        """
-        INSERT INTO brennon_ranks (id, display_name, prefix, suffix, weight, permissions, inheritance, is_default, is_staff, metadata)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON DUPLICATE KEY UPDATE
-            display_name = VALUES(display_name),
-            prefix = VALUES(prefix),
-            suffix = VALUES(suffix),
-            weight = VALUES(weight),
-            permissions = VALUES(permissions),
-            inheritance = VALUES(inheritance),
-            is_default = VALUES(is_default),
-            is_staff = VALUES(is_staff),
-            metadata = VALUES(metadata)
-        """.trimIndent()
-    }
+    private val upsertSQL: String = driver.dialect.upsert(
+        "brennon_ranks",
+        listOf("id", "display_name", "prefix", "suffix", "weight", "permissions", "inheritance", "is_default", "is_staff", "metadata"),
+        key = listOf("id"),
+        update = listOf("display_name", "prefix", "suffix", "weight", "permissions", "inheritance", "is_default", "is_staff", "metadata")
+    )
 
     override fun findById(id: String): CompletableFuture<RankData?> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_ranks WHERE id = ?").use { stmt ->
-                    stmt.setString(1, id)
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) fromResultSet(rs) else null
-                }
-            }
+            driver.queryFirst("SELECT * FROM brennon_ranks WHERE id = ?", RankRowMapper) { it.setString(1, id) }
         }
     }
 
     override fun findAll(): CompletableFuture<List<RankData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_ranks ORDER BY weight DESC").use { stmt ->
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<RankData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list
-                }
-            }
+            driver.queryAll("SELECT * FROM brennon_ranks ORDER BY weight DESC", RankRowMapper)
         }
     }
 
     override fun findDefault(): CompletableFuture<RankData?> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_ranks WHERE is_default = TRUE LIMIT 1").use { stmt ->
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) fromResultSet(rs) else null
-                }
-            }
+            driver.queryFirst("SELECT * FROM brennon_ranks WHERE is_default = TRUE LIMIT 1", RankRowMapper)
         }
     }
 
@@ -92,11 +46,11 @@ class SQLRankRepository(private val driver: SQLDatabaseDriver) : RankRepository
                     stmt.setString(3, rank.prefix)
                     stmt.setString(4, rank.suffix)
                     stmt.setInt(5, rank.weight)
-                    stmt.setString(6, gson.toJson(rank.permissions))
-                    stmt.setString(7, gson.toJson(rank.inheritance))
+                    stmt.setString(6, SQLJson.gson.toJson(rank.permissions))
+                    stmt.setString(7, SQLJson.gson.toJson(rank.inheritance))
                     stmt.setBoolean(8, rank.isDefault)
                     stmt.setBoolean(9, rank.isStaff)
-                    stmt.setString(10, gson.toJson(rank.metadata))
+                    stmt.setString(10, SQLJson.gson.toJson(rank.metadata))
                     stmt.executeUpdate()
                 }
             }
@@ -124,22 +78,33 @@ class SQLRankRepository(private val driver: SQLDatabaseDriver) : RankRepository
             }
         }
     }
+}
 
-    private fun fromResultSet(rs: java.sql.ResultSet): RankData {
-        val setType = object : TypeToken<MutableSet<String>>() {}.type
-        val mapType = object : TypeToken<MutableMap<String, String>>() {}.type
+private object RankRowMapper : SQLRowMapper<RankData>() {
+    private val id = column("id")
+    private val displayName = column("display_name")
+    private val prefix = column("prefix")
+    private val suffix = column("suffix")
+    private val weight = column("weight")
+    private val permissions = column("permissions")
+    private val inheritance = column("inheritance")
+    private val isDefault = column("is_default")
+    private val isStaff = column("is_staff")
+    private val metadata = column("metadata")
 
+    override fun map(rs: ResultSet, at: IntArray): RankData {
+        val rankId = rs.getString(at[id])
         return RankData(
-            id = rs.getString("id"),
-            displayName = rs.getString("display_name") ?: rs.getString("id"),
-            prefix = rs.getString("prefix") ?: "",
-            suffix = rs.getString("suffix") ?: "",
-            weight = rs.getInt("weight"),
-            permissions = gson.fromJson(rs.getString("permissions") ?: "[]", setType),
-            inheritance = gson.fromJson(rs.getString("inheritance") ?: "[]", setType),
-            isDefault = rs.getBoolean("is_default"),
-            isStaff = rs.getBoolean("is_staff"),
-            metadata = gson.fromJson(rs.getString("metadata") ?: "{}", mapType)
+            id = rankId,
+            displayName = rs.getString(at[displayName]) ?: rankId,
+            prefix = rs.getString(at[prefix]) ?: "",
+            suffix = rs.getString(at[suffix]) ?: "",
+            weight = rs.getInt(at[weight]),
+            permissions = SQLJson.gson.fromJson(rs.getString(at[permissions]) ?: "[]", SQLJson.STRING_SET),
+            inheritance = SQLJson.gson.fromJson(rs.getString(at[inheritance]) ?: "[]", SQLJson.STRING_SET),
+            isDefault = rs.getBoolean(at[isDefault]),
+            isStaff = rs.getBoolean(at[isStaff]),
+            metadata = SQLJson.gson.fromJson(rs.getString(at[metadata]) ?: "{}", SQLJson.STRING_MAP)
         )
     }
 }
@@ -0,0 +1,65 @@
+package com.envarcade.brennon.database.repository.sql
+
+import java.sql.ResultSet
+import java.sql.ResultSetMetaData
+import java.time.Instant
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Maps result rows to a model, reading columns by position.
+ *
+ * A mapper declares its columns once with [column]. The first time it reads
+ * a statement, the column labels are looked up in the result metadata and
+ * the positions are kept per statement text, so every later row and call
+ * skips the by-name lookup. Mappers hold no other state and are shared.
+ */
+abstract class SQLRowMapper<T> {
+
+    private val names = mutableListOf<String>()
+    private val shapes = ConcurrentHashMap<String, IntArray>()
+
+    /**
+     * Registers a column and returns its slot in the positions array passed to [map].
+     */
+    protected fun column(name: String): Int {
+        names.add(name)
+        return names.size - 1
+    }
+
+    protected abstract fun map(rs: ResultSet, at: IntArray): T
+
+    fun first(sql: String, rs: ResultSet): T? =
+        if (rs.next()) map(rs, positions(sql, rs)) else null
+
+    fun all(sql: String, rs: ResultSet): MutableList<T> {
+        val list = mutableListOf<T>()
+        if (!rs.next()) return list
+        val at = positions(sql, rs)
+        do {
+            list.add(map(rs, at))
+        } while (rs.next())
+        return list
+    }
+
+    protected fun uuidOrNull(rs: ResultSet, index: Int): UUID? =
+        rs.getString(index)?.let { UUID.fromString(it) }
+
+    protected fun instantOrNull(rs: ResultSet, index: Int): Instant? {
+        val millis = rs.getLong(index)
+        return if (rs.wasNull()) null else Instant.ofEpochMilli(millis)
+    }
+
+    private fun positions(sql: String, rs: ResultSet): IntArray =
+        shapes.computeIfAbsent(sql) { resolve(it, rs.metaData) }
+
+    private fun resolve(sql: String, meta: ResultSetMetaData): IntArray {
+        val byLabel = HashMap<String, Int>()
+        for (i in 1..meta.columnCount) {
+            byLabel.putIfAbsent(meta.getColumnLabel(i).lowercase(), i)
+        }
+        return IntArray(names.size) { slot ->
+            byLabel[names[slot]] ?: throw IllegalStateException("Column ${names[slot]} is missing from: $sql")
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.envarcade.brennon.database.repository.sql
+
+import com.envarcade.brennon.database.driver.SQLDatabaseDriver
+import java.sql.Connection
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Interns stat ids into small integer keys (`brennon_stat_ids`) for the packed
+ * stats layout. Keys are assigned once and never change, so every server can
+ * cache them for its whole lifetime.
+ */
+class SQLStatIdDictionary(private val driver: SQLDatabaseDriver) {
+
+    private val ids = ConcurrentHashMap<String, Int>()
+    private val names = ConcurrentHashMap<Int, String>()
+
+    private val insertSQL: String =
+        driver.dialect.insertIgnore("brennon_stat_ids", listOf("stat_id"), key = listOf("stat_id"))
+
+    /**
+     * Gets the key of a stat id, or null if no value has ever been stored for it.
+     */
+    fun idOf(conn: Connection, statId: String): Int? {
+        ids[statId]?.let { return it }
+        return lookupId(conn, statId)
+    }
+
+    /**
+     * Gets the key of a stat id, assigning one if it is new.
+     */
+    fun intern(conn: Connection, statId: String): Int {
+        ids[statId]?.let { return it }
+        conn.prepareStatement(insertSQL).use { stmt ->
+            stmt.setString(1, statId)
+            stmt.executeUpdate()
+        }
+        // Another server may have won the insert, so always read the stored key back
+        return lookupId(conn, statId) ?: throw IllegalStateException("Failed to intern stat id $statId")
+    }
+
+    fun nameOf(conn: Connection, id: Int): String? {
+        names[id]?.let { return it }
+        conn.prepareStatement("SELECT stat_id FROM brennon_stat_ids WHERE id = ?").use { stmt ->
+            stmt.setInt(1, id)
+            val rs = stmt.executeQuery()
+            if (!rs.next()) return null
+            val statId = rs.getString("stat_id")
+            cache(statId, id)
+            return statId
+        }
+    }
+
+    /** Reads one stat id's key; misses are not cached, since another server may assign it later */
+    private fun lookupId(conn: Connection, statId: String): Int? {
+        conn.prepareStatement("SELECT id FROM brennon_stat_ids WHERE stat_id = ?").use { stmt ->
+            stmt.setString(1, statId)
+            val rs = stmt.executeQuery()
+            if (!rs.next()) return null
+            val id = rs.getInt("id")
+            cache(statId, id)
+            return id
+        }
+    }
+
+    private fun cache(statId: String, id: Int) {
+        ids[statId] = id
+        names[id] = statId
+    }
+}
@@ -1,9 +1,12 @@
 package com.envarcade.brennon.database.repository.sql
 
+import com.envarcade.brennon.api.stats.StatPeriod
 import com.envarcade.brennon.common.config.DataSharingMode
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.util.StatPeriods
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
 import com.envarcade.brennon.database.repository.StatsRepository
+import java.time.Instant
 import java.util.UUID
 import java.util.concurrent.CompletableFuture
 
@@ -22,33 +25,19 @@ class SQLStatsRepository(
         if (networkContext.sharing.stats == DataSharingMode.GLOBAL) "__global__"
         else networkContext.networkId
 
-    private val upsertSQL: String = if (driver.isPostgres) {
-        """
-        INSERT INTO brennon_stats (player_uuid, stat_id, network_id, value)
-        VALUES (?, ?, ?, ?)
-        ON CONFLICT (player_uuid, stat_id, network_id) DO UPDATE SET value = EXCLUDED.value
-        """.trimIndent()
-    } else {
-        """
-        INSERT INTO brennon_stats (player_uuid, stat_id, network_id, value)
-        VALUES (?, ?, ?, ?)
-        ON DUPLICATE KEY UPDATE value = VALUES(value)
-        """.trimIndent()
-    }
+    private val upsertSQL: String = driver.dialect.upsert(
+        "brennon_stats",
+        listOf("player_uuid", "stat_id", "network_id", "value"),
+        key = listOf("player_uuid", "stat_id", "network_id"),
+        update = listOf("value")
+    )
 
-    private val incrementSQL: String = if (driver.isPostgres) {
-        """
-        INSERT INTO brennon_stats (player_uuid, stat_id, network_id, value)
-        VALUES (?, ?, ?, ?)
-        ON CONFLICT (player_uuid, stat_id, network_id) DO UPDATE SET value = brennon_stats.value + EXCLUDED.value
-        """.trimIndent()
-    } else {
-        """
-        INSERT INTO brennon_stats (player_uuid, stat_id, network_id, value)
-        VALUES (?, ?, ?, ?)
-        ON DUPLICATE KEY UPDATE value = value + VALUES(value)
-        """.trimIndent()
-    }
+    private val incrementSQL: String = driver.dialect.upsert(
+        "brennon_stats",
+        listOf("player_uuid", "stat_id", "network_id", "value"),
+        key = listOf("player_uuid", "stat_id", "network_id"),
+        increment = listOf("value")
+    )
 
     override fun getStat(uuid: UUID, statId: String): CompletableFuture<Double> {
         return CompletableFuture.supplyAsync {
@@ -109,9 +98,127 @@ class SQLStatsRepository(
         }
     }
 
-    override fun getLeaderboard(statId: String, limit: Int): CompletableFuture<Map<UUID, Double>> {
+    override fun incrementMany(amounts: Map<UUID, Double>, statId: String): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (amounts.isEmpty()) return@runAsync
+            driver.getConnection().use { conn ->
+                conn.prepareStatement(incrementSQL).use { stmt ->
+                    // Same row order as applyDeltas, which may run at the same time
+                    for ((uuid, amount) in amounts.entries.sortedBy { it.key.toString() }) {
+                        stmt.setString(1, uuid.toString())
+                        stmt.setString(2, statId)
+                        stmt.setString(3, effectiveNetworkId)
+                        stmt.setDouble(4, amount)
+                        stmt.addBatch()
+                    }
+                    stmt.executeBatch()
+                }
+            }
+        }
+    }
+
+    override fun applyDeltas(deltas: Map<UUID, Map<String, Double>>): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (deltas.isEmpty()) return@runAsync
+            driver.getConnection().use { conn ->
+                conn.autoCommit = false
+                try {
+                    conn.prepareStatement(incrementSQL).use { stmt ->
+                        // Sorted so concurrent flushes lock rows in the same order
+                        for ((uuid, stats) in deltas.entries.sortedBy { it.key.toString() }) {
+                            for ((statId, amount) in stats.toSortedMap()) {
+                                stmt.setString(1, uuid.toString())
+                                stmt.setString(2, statId)
+                                stmt.setString(3, effectiveNetworkId)
+                                stmt.setDouble(4, amount)
+                                stmt.addBatch()
+                            }
+                        }
+                        stmt.executeBatch()
+                    }
+                    conn.commit()
+                } catch (e: Exception) {
+                    conn.rollback()
+                    throw e
+                } finally {
+                    conn.autoCommit = true
+                }
+            }
+        }
+    }
+
+    private val periodIncrementSQL: String = driver.dialect.upsert(
+        "brennon_stats_periodic",
+        listOf("player_uuid", "stat_id", "network_id", "period", "bucket", "bucket_start", "value"),
+        key = listOf("player_uuid", "stat_id", "network_id", "bucket"),
+        increment = listOf("value")
+    )
+
+    override fun incrementPeriods(deltas: Map<UUID, Map<String, Double>>, at: Instant): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            if (deltas.isEmpty()) return@runAsync
+            driver.getConnection().use { conn ->
+                val buckets = StatPeriods.TIMED.map { period ->
+                    Triple(period, StatPeriods.bucketKey(period, at), StatPeriods.bucketStart(period, at).toEpochMilli())
+                }
+                conn.prepareStatement(periodIncrementSQL).use { stmt ->
+                    // Sorted by (player, stat) like applyDeltas, so concurrent batches lock rows in the same order
+                    for ((uuid, stats) in deltas.entries.sortedBy { it.key.toString() }) {
+                        for ((statId, amount) in stats.toSortedMap()) {
+                            for ((period, bucket, bucketStart) in buckets) {
+                                stmt.setString(1, uuid.toString())
+                                stmt.setString(2, statId)
+                                stmt.setString(3, effectiveNetworkId)
+                                stmt.setString(4, period.name)
+                                stmt.setString(5, bucket)
+                                stmt.setLong(6, bucketStart)
+                                stmt.setDouble(7, amount)
+                                stmt.addBatch()
+                            }
+                        }
+                    }
+                    stmt.executeBatch()
+                }
+            }
+        }
+    }
+
+    override fun getPeriodLeaderboard(statId: String, period: StatPeriod, limit: Int, at: Instant): CompletableFuture<Map<UUID, Double>> {
+        return CompletableFuture.supplyAsync {
+            driver.withReadConnection { conn ->
+                conn.prepareStatement(
+                    "SELECT player_uuid, value FROM brennon_stats_periodic WHERE stat_id = ? AND network_id = ? AND bucket = ? ORDER BY value DESC LIMIT ?"
+                ).use { stmt ->
+                    stmt.setString(1, statId)
+                    stmt.setString(2, effectiveNetworkId)
+                    stmt.setString(3, StatPeriods.bucketKey(period, at))
+                    stmt.setInt(4, limit)
+                    val rs = stmt.executeQuery()
+                    val results = linkedMapOf<UUID, Double>()
+                    while (rs.next()) {
+                        results[UUID.fromString(rs.getString("player_uuid"))] = rs.getDouble("value")
+                    }
+                    results
+                }
+            }
+        }
+    }
+
+    override fun prunePeriods(period: StatPeriod, before: Instant): CompletableFuture<Long> {
         return CompletableFuture.supplyAsync {
             driver.getConnection().use { conn ->
+                conn.prepareStatement("DELETE FROM brennon_stats_periodic WHERE period = ? AND bucket_start < ?").use { stmt ->
+                    stmt.setString(1, period.name)
+                    stmt.setLong(2, before.toEpochMilli())
+                    stmt.executeUpdate().toLong()
+                }
+            }
+        }
+    }
+
+    override fun getLeaderboard(statId: String, limit: Int): CompletableFuture<Map<UUID, Double>> {
+        return CompletableFuture.supplyAsync {
+            driver.withReadConnection { conn ->
                 conn.prepareStatement("SELECT player_uuid, value FROM brennon_stats WHERE stat_id = ? AND network_id = ? ORDER BY value DESC LIMIT ?").use { stmt ->
                     stmt.setString(1, statId)
                     stmt.setString(2, effectiveNetworkId)
@@ -129,14 +236,14 @@ class SQLStatsRepository(
 
     override fun getLeaderboardPosition(uuid: UUID, statId: String): CompletableFuture<Int> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
+            driver.withReadConnection { conn ->
                 // Get player value first
                 val playerValue = conn.prepareStatement("SELECT value FROM brennon_stats WHERE player_uuid = ? AND stat_id = ? AND network_id = ?").use { stmt ->
                     stmt.setString(1, uuid.toString())
                     stmt.setString(2, statId)
                     stmt.setString(3, effectiveNetworkId)
                     val rs = stmt.executeQuery()
-                    if (rs.next()) rs.getDouble("value") else return@supplyAsync -1
+                    if (rs.next()) rs.getDouble("value") else return@withReadConnection -1
                 }
                 // Count players with higher value
                 conn.prepareStatement("SELECT COUNT(*) AS pos FROM brennon_stats WHERE stat_id = ? AND network_id = ? AND value > ?").use { stmt ->
@@ -150,6 +257,33 @@ class SQLStatsRepository(
         }
     }
 
+    override fun scanStat(statId: String, batchSize: Int, consumer: (Map<UUID, Double>) -> Unit): CompletableFuture<Void> {
+        return CompletableFuture.runAsync {
+            driver.getConnection().use { conn ->
+                conn.prepareStatement(
+                    "SELECT player_uuid, value FROM brennon_stats WHERE stat_id = ? AND network_id = ? AND player_uuid > ? ORDER BY player_uuid LIMIT ?"
+                ).use { stmt ->
+                    // Keyset over the primary key, so each batch resumes where the last ended
+                    var lastUuid = ""
+                    while (true) {
+                        stmt.setString(1, statId)
+                        stmt.setString(2, effectiveNetworkId)
+                        stmt.setString(3, lastUuid)
+                        stmt.setInt(4, batchSize)
+                        val rs = stmt.executeQuery()
+                        val batch = linkedMapOf<UUID, Double>()
+                        while (rs.next()) {
+                            lastUuid = rs.getString("player_uuid")
+                            batch[UUID.fromString(lastUuid)] = rs.getDouble("value")
+                        }
+                        if (batch.isNotEmpty()) consumer(batch)
+                        if (batch.size < batchSize) break
+                    }
+                }
+            }
+        }
+    }
+
     override fun resetStat(uuid: UUID, statId: String): CompletableFuture<Void> {
         return CompletableFuture.runAsync {
             driver.getConnection().use { conn ->
@@ -3,10 +3,13 @@ package com.envarcade.brennon.database.repository.sql
 import com.envarcade.brennon.api.ticket.TicketPriority
 import com.envarcade.brennon.api.ticket.TicketStatus
 import com.envarcade.brennon.common.config.NetworkContext
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.common.model.TicketData
 import com.envarcade.brennon.common.model.TicketMessageData
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
 import com.envarcade.brennon.database.repository.TicketRepository
+import java.sql.Connection
 import java.sql.ResultSet
 import java.time.Instant
 import java.util.UUID
@@ -22,126 +25,99 @@ class SQLTicketRepository(
 ) : TicketRepository {
 
     private val networkId: String? = networkContext.effectiveNetworkId(networkContext.sharing.tickets)
-    private val isNetworkScoped: Boolean = networkId != null
+    private val scope = NetworkScope(networkId)
 
-    private val upsertSQL: String = if (driver.isPostgres) {
-        """
-        INSERT INTO brennon_tickets (id, creator, creator_name, assignee, subject, status, priority, server, created_at, updated_at, closed_at, network_id)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON CONFLICT (id) DO UPDATE SET
-            assignee = EXCLUDED.assignee,
-            status = EXCLUDED.status,
-            priority = EXCLUDED.priority,
-            updated_at = EXCLUDED.updated_at,
-            closed_at = EXCLUDED.closed_at
-        """.trimIndent()
-    } else {
-        """
-        INSERT INTO brennon_tickets (id, creator, creator_name, assignee, subject, status, priority, server, created_at, updated_at, closed_at, network_id)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON DUPLICATE KEY UPDATE
-            assignee = VALUES(assignee),
-            status = VALUES(status),
-            priority = VALUES(priority),
-            updated_at = VALUES(updated_at),
-            closed_at = VALUES(closed_at)
-        """.trimIndent()
-    }
+    private val byStatusSQL = scope.sql("SELECT * FROM brennon_tickets WHERE status = ?", "ORDER BY created_at DESC")
+    private val byCreatorSQL = scope.sql("SELECT * FROM brennon_tickets WHERE creator = ?", "ORDER BY created_at DESC")
+    private val byAssigneeSQL = scope.sql("SELECT * FROM brennon_tickets WHERE assignee = ?", "ORDER BY created_at DESC")
+    private val openSQL = scope.sql("SELECT * FROM brennon_tickets WHERE $OPEN_CONDITION", "ORDER BY created_at DESC")
+    private val countOpenSQL = scope.sql("SELECT COUNT(*) FROM brennon_tickets WHERE $OPEN_CONDITION")
+    private val firstOpenPageSQL = scope.sql(
+        "SELECT * FROM brennon_tickets WHERE $OPEN_CONDITION",
+        "ORDER BY created_at DESC, id DESC LIMIT ?"
+    )
+    private val nextOpenPageSQL = scope.sql(
+        "SELECT * FROM brennon_tickets WHERE $OPEN_CONDITION",
+        "AND (created_at < ? OR (created_at = ? AND id < ?)) ORDER BY created_at DESC, id DESC LIMIT ?"
+    )
+
+    private val upsertSQL: String = driver.dialect.upsert(
+        "brennon_tickets",
+        listOf("id", "creator", "creator_name", "assignee", "subject", "status", "priority", "server", "created_at", "updated_at", "closed_at", "network_id"),
+        key = listOf("id"),
+        update = listOf("assignee", "status", "priority", "updated_at", "closed_at")
+    )
 
     override fun findById(id: String): CompletableFuture<TicketData?> {
         return CompletableFuture.supplyAsync {
             driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT * FROM brennon_tickets WHERE id = ?").use { stmt ->
+                val ticket = conn.prepareStatement(FIND_BY_ID_SQL).use { stmt ->
                     stmt.setString(1, id)
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) {
-                        val ticket = fromResultSet(rs)
-                        loadMessages(ticket)
-                    } else null
+                    TicketRowMapper.FULL.first(FIND_BY_ID_SQL, stmt.executeQuery())
                 }
+                ticket?.also { loadMessages(conn, listOf(it)) }
             }
         }
     }
 
-    override fun findByStatus(status: TicketStatus): CompletableFuture<List<TicketData>> {
-        return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_tickets WHERE status = ?")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                    append(" ORDER BY created_at DESC")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, status.name)
-                    if (isNetworkScoped) stmt.setString(2, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<TicketData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list.forEach { loadMessages(it) }
-                    list
-                }
-            }
-        }
+    override fun findByStatus(status: TicketStatus, withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(byStatusSQL, status.name, withMessages)
+    }
+
+    override fun findByCreator(uuid: UUID, withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(byCreatorSQL, uuid.toString(), withMessages)
     }
 
-    override fun findByCreator(uuid: UUID): CompletableFuture<List<TicketData>> {
+    override fun findByAssignee(uuid: UUID, withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(byAssigneeSQL, uuid.toString(), withMessages)
+    }
+
+    override fun findOpen(withMessages: Boolean): CompletableFuture<List<TicketData>> {
+        return findWhere(openSQL, null, withMessages)
+    }
+
+    override fun countOpen(): CompletableFuture<Long> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_tickets WHERE creator = ?")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                    append(" ORDER BY created_at DESC")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, uuid.toString())
-                    if (isNetworkScoped) stmt.setString(2, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<TicketData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list.forEach { loadMessages(it) }
-                    list
-                }
-            }
+            driver.queryLong(countOpenSQL, replica = true) { scope.bind(it, 1) }
         }
     }
 
-    override fun findByAssignee(uuid: UUID): CompletableFuture<List<TicketData>> {
+    override fun findOpenPage(limit: Int, after: PageCursor?): CompletableFuture<Page<TicketData>> {
         return CompletableFuture.supplyAsync {
-            driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_tickets WHERE assignee = ?")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                    append(" ORDER BY created_at DESC")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    stmt.setString(1, uuid.toString())
-                    if (isNetworkScoped) stmt.setString(2, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<TicketData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list.forEach { loadMessages(it) }
-                    list
+            val sql = if (after == null) firstOpenPageSQL else nextOpenPageSQL
+            val list = driver.queryAll(sql, TicketRowMapper.HEADERS) { stmt ->
+                var index = scope.bind(stmt, 1)
+                if (after != null) {
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setString(index++, after.id)
                 }
+                // One extra row tells whether another page follows
+                stmt.setInt(index, limit + 1)
             }
+
+            val items = list.take(limit)
+            val next = if (list.size > limit) items.last().let { PageCursor(it.createdAt.toEpochMilli(), it.id) } else null
+            Page(items, next)
         }
     }
 
-    override fun findOpen(): CompletableFuture<List<TicketData>> {
+    /**
+     * Runs a ticket list query, newest first, on one connection. Messages,
+     * when wanted, are fetched for the whole list in a single batch.
+     */
+    private fun findWhere(sql: String, param: String?, withMessages: Boolean): CompletableFuture<List<TicketData>> {
         return CompletableFuture.supplyAsync {
             driver.getConnection().use { conn ->
-                val sql = buildString {
-                    append("SELECT * FROM brennon_tickets WHERE status IN ('OPEN', 'IN_PROGRESS', 'WAITING_RESPONSE')")
-                    if (isNetworkScoped) append(" AND network_id = ?")
-                    append(" ORDER BY created_at DESC")
-                }
-                conn.prepareStatement(sql).use { stmt ->
-                    if (isNetworkScoped) stmt.setString(1, networkId!!)
-                    val rs = stmt.executeQuery()
-                    val list = mutableListOf<TicketData>()
-                    while (rs.next()) list.add(fromResultSet(rs))
-                    list.forEach { loadMessages(it) }
-                    list
+                val list = conn.prepareStatement(sql).use { stmt ->
+                    var index = 1
+                    if (param != null) stmt.setString(index++, param)
+                    scope.bind(stmt, index)
+                    val mapper = if (withMessages) TicketRowMapper.FULL else TicketRowMapper.HEADERS
+                    mapper.all(sql, stmt.executeQuery())
                 }
+                if (withMessages) loadMessages(conn, list)
+                list
             }
         }
     }
@@ -170,6 +146,9 @@ class SQLTicketRepository(
                     stmt.executeUpdate()
                 }
 
+                // Header-only tickets leave the stored messages as they are
+                if (!ticket.messagesLoaded) return@runAsync
+
                 // Replace messages (delete + reinsert)
                 conn.prepareStatement("DELETE FROM brennon_ticket_messages WHERE ticket_id = ?").use { stmt ->
                     stmt.setString(1, ticket.id)
@@ -211,52 +190,110 @@ class SQLTicketRepository(
         }
     }
 
+    /**
+     * Allocates the next value of the `ticket_counter` row in one atomic
+     * statement, like the Mongo `counters` collection.
+     */
     override fun getNextId(): CompletableFuture<Int> {
         return CompletableFuture.supplyAsync {
             driver.getConnection().use { conn ->
-                conn.prepareStatement("SELECT COALESCE(MAX(CAST(SUBSTRING(id, 3) AS UNSIGNED)), 0) + 1 AS next_id FROM brennon_tickets").use { stmt ->
-                    val rs = stmt.executeQuery()
-                    if (rs.next()) rs.getInt("next_id") else 1
-                }
+                driver.dialect.nextCounterValue(conn, TICKET_COUNTER).toInt()
             }
         }
     }
 
-    private fun loadMessages(ticket: TicketData): TicketData {
-        driver.getConnection().use { conn ->
-            conn.prepareStatement("SELECT * FROM brennon_ticket_messages WHERE ticket_id = ? ORDER BY timestamp ASC").use { stmt ->
-                stmt.setString(1, ticket.id)
-                val rs = stmt.executeQuery()
-                while (rs.next()) {
-                    ticket.messages.add(
-                        TicketMessageData(
-                            author = UUID.fromString(rs.getString("author")),
-                            authorName = rs.getString("author_name"),
-                            content = rs.getString("content"),
-                            timestamp = Instant.ofEpochMilli(rs.getLong("timestamp")),
-                            isStaffMessage = rs.getBoolean("is_staff")
-                        )
-                    )
+    /**
+     * Loads the messages of [tickets] with one `IN` query per chunk, on the caller's connection.
+     * Each chunk is padded up to one of a few fixed list sizes by repeating its last id, so
+     * only those few statement texts are ever prepared.
+     */
+    private fun loadMessages(conn: Connection, tickets: List<TicketData>) {
+        if (tickets.isEmpty()) return
+        val byId = tickets.associateBy { it.id }
+        for (chunk in tickets.chunked(MESSAGE_BATCH)) {
+            val size = IN_SIZES.first { it >= chunk.size }
+            val sql = MESSAGES_SQL.getValue(size)
+            conn.prepareStatement(sql).use { stmt ->
+                for (i in 0 until size) stmt.setString(i + 1, chunk[minOf(i, chunk.size - 1)].id)
+                for ((ticketId, message) in TicketMessageRowMapper.all(sql, stmt.executeQuery())) {
+                    byId[ticketId]?.messages?.add(message)
                 }
             }
         }
-        return ticket
     }
 
-    private fun fromResultSet(rs: ResultSet): TicketData {
+    companion object {
+        /** Counter row name, shared with the Mongo `counters` document id */
+        const val TICKET_COUNTER = "ticket_counter"
+
+        private const val FIND_BY_ID_SQL = "SELECT * FROM brennon_tickets WHERE id = ?"
+        private const val OPEN_CONDITION = "status IN ('OPEN', 'IN_PROGRESS', 'WAITING_RESPONSE')"
+        private const val MESSAGE_BATCH = 500
+
+        private val IN_SIZES = listOf(1, 10, 50, 100, MESSAGE_BATCH)
+        private val MESSAGES_SQL = IN_SIZES.associateWith { size ->
+            val placeholders = List(size) { "?" }.joinToString(",")
+            "SELECT * FROM brennon_ticket_messages WHERE ticket_id IN ($placeholders) ORDER BY ticket_id, timestamp ASC, id ASC"
+        }
+    }
+}
+
+private class TicketRowMapper(private val messagesLoaded: Boolean) : SQLRowMapper<TicketData>() {
+    private val id = column("id")
+    private val creator = column("creator")
+    private val creatorName = column("creator_name")
+    private val assignee = column("assignee")
+    private val subject = column("subject")
+    private val status = column("status")
+    private val priority = column("priority")
+    private val server = column("server")
+    private val createdAt = column("created_at")
+    private val updatedAt = column("updated_at")
+    private val closedAt = column("closed_at")
+    private val networkId = column("network_id")
+
+    override fun map(rs: ResultSet, at: IntArray): TicketData {
         return TicketData(
-            id = rs.getString("id"),
-            creator = UUID.fromString(rs.getString("creator")),
-            creatorName = rs.getString("creator_name"),
-            assignee = rs.getString("assignee")?.let { UUID.fromString(it) },
-            subject = rs.getString("subject"),
-            status = TicketStatus.valueOf(rs.getString("status")),
-            priority = TicketPriority.valueOf(rs.getString("priority")),
-            server = rs.getString("server"),
-            createdAt = Instant.ofEpochMilli(rs.getLong("created_at")),
-            updatedAt = Instant.ofEpochMilli(rs.getLong("updated_at")),
-            closedAt = rs.getLong("closed_at").let { if (rs.wasNull()) null else Instant.ofEpochMilli(it) },
-            networkId = rs.getString("network_id")
+            id = rs.getString(at[id]),
+            creator = UUID.fromString(rs.getString(at[creator])),
+            creatorName = rs.getString(at[creatorName]),
+            assignee = uuidOrNull(rs, at[assignee]),
+            subject = rs.getString(at[subject]),
+            status = TicketStatus.valueOf(rs.getString(at[status])),
+            priority = TicketPriority.valueOf(rs.getString(at[priority])),
+            server = rs.getString(at[server]),
+            createdAt = Instant.ofEpochMilli(rs.getLong(at[createdAt])),
+            updatedAt = Instant.ofEpochMilli(rs.getLong(at[updatedAt])),
+            closedAt = instantOrNull(rs, at[closedAt]),
+            networkId = rs.getString(at[networkId]),
+            messagesLoaded = messagesLoaded
+        )
+    }
+
+    companion object {
+        /** Tickets whose messages are loaded afterwards */
+        val FULL = TicketRowMapper(messagesLoaded = true)
+        /** Header-only tickets */
+        val HEADERS = TicketRowMapper(messagesLoaded = false)
+    }
+}
+
+/** Maps message rows to (ticket id, message) pairs */
+private object TicketMessageRowMapper : SQLRowMapper<Pair<String, TicketMessageData>>() {
+    private val ticketId = column("ticket_id")
+    private val author = column("author")
+    private val authorName = column("author_name")
+    private val content = column("content")
+    private val timestamp = column("timestamp")
+    private val isStaff = column("is_staff")
+
+    override fun map(rs: ResultSet, at: IntArray): Pair<String, TicketMessageData> {
+        return rs.getString(at[ticketId]) to TicketMessageData(
+            author = UUID.fromString(rs.getString(at[author])),
+            authorName = rs.getString(at[authorName]),
+            content = rs.getString(at[content]),
+            timestamp = Instant.ofEpochMilli(rs.getLong(at[timestamp])),
+            isStaffMessage = rs.getBoolean(at[isStaff])
         )
     }
 }
@@ -1,6 +1,7 @@
 package com.envarcade.brennon.discord
 
 import com.envarcade.brennon.common.config.DiscordConfig
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import net.dv8tion.jda.api.JDA
 import net.dv8tion.jda.api.JDABuilder
@@ -27,11 +28,11 @@ class BrennonDiscord(
 
     fun initialize() {
         if (!config.enabled || config.token.isEmpty()) {
-            println("[Brennon] Discord integration is disabled or token not set.")
+            Log.info("Discord integration is disabled or token not set.")
             return
         }
 
-        println("[Brennon] Starting Discord bot...")
+        Log.info("Starting Discord bot...")
 
         jda = JDABuilder.createDefault(config.token)
             .enableIntents(GatewayIntent.GUILD_MESSAGES, GatewayIntent.MESSAGE_CONTENT)
@@ -39,7 +40,7 @@ class BrennonDiscord(
             .build()
 
         jda.awaitReady()
-        println("[Brennon] Discord bot connected as ${jda.selfUser.name}.")
+        Log.info("Discord bot connected as ${jda.selfUser.name}.")
 
         // Start Minecraft -> Discord chat relay
         chatRelay = MinecraftChatRelay(brennon, jda, config)
@@ -49,7 +50,7 @@ class BrennonDiscord(
         playerCountUpdater = PlayerCountUpdater(brennon, jda)
         playerCountUpdater.start()
 
-        println("[Brennon] Discord integration fully initialized.")
+        Log.info("Discord integration fully initialized.")
     }
 
     fun shutdown() {
@@ -61,7 +62,7 @@ class BrennonDiscord(
         }
         if (::jda.isInitialized) {
             jda.shutdown()
-            println("[Brennon] Discord bot disconnected.")
+            Log.info("Discord bot disconnected.")
         }
     }
 }
@@ -1,6 +1,7 @@
 package com.envarcade.brennon.discord
 
 import com.envarcade.brennon.common.config.DiscordConfig
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.packet.ChatMessagePacket
@@ -33,7 +34,7 @@ class MinecraftChatRelay(
                     val channel = getChatChannel() ?: return@subscribe
                     channel.sendMessage("**${packet.senderName}** [${packet.server}]: ${packet.message}").queue()
                 } catch (e: Exception) {
-                    println("[Brennon] Error relaying chat to Discord: ${e.message}")
+                    Log.warn("Error relaying chat to Discord", e)
                 }
             }
         }
@@ -45,7 +46,7 @@ class MinecraftChatRelay(
                     val staffChannel = getStaffChannel() ?: return@subscribe
                     staffChannel.sendMessage("\uD83D\uDD28 $message").queue()
                 } catch (e: Exception) {
-                    println("[Brennon] Error relaying punishment to Discord: ${e.message}")
+                    Log.warn("Error relaying punishment to Discord", e)
                 }
             }
         }
@@ -57,7 +58,7 @@ class MinecraftChatRelay(
                     val alertChannel = getAlertChannel() ?: return@subscribe
                     alertChannel.sendMessage("\u26A0\uFE0F $message").queue()
                 } catch (e: Exception) {
-                    println("[Brennon] Error relaying alert to Discord: ${e.message}")
+                    Log.warn("Error relaying alert to Discord", e)
                 }
             }
         }
@@ -78,7 +79,7 @@ class MinecraftChatRelay(
             }
         }
 
-        println("[Brennon] Minecraft -> Discord relay initialized.")
+        Log.info("Minecraft -> Discord relay initialized.")
     }
 
     fun shutdown() {
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.discord
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import net.dv8tion.jda.api.JDA
 import net.dv8tion.jda.api.entities.Activity
@@ -27,7 +28,7 @@ class PlayerCountUpdater(
                 val label = if (count == 1) "player" else "players"
                 jda.presence.activity = Activity.watching("$count $label online")
             } catch (e: Exception) {
-                println("[Brennon] Error updating Discord activity: ${e.message}")
+                Log.warn("Error updating Discord activity", e)
             }
         }, 0, 30, TimeUnit.SECONDS)
     }
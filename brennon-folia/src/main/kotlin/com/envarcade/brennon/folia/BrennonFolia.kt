@@ -1,6 +1,8 @@
 package com.envarcade.brennon.folia
 
 import com.envarcade.brennon.api.Platform
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.logging.Slf4jLogSink
 import com.envarcade.brennon.folia.command.FoliaCommandBridge
 import com.envarcade.brennon.folia.listener.FoliaChatListener
 import com.envarcade.brennon.folia.listener.FoliaGuiListener
@@ -43,6 +45,7 @@ class BrennonFolia : JavaPlugin() {
             return
         }
 
+        Log.install(Slf4jLogSink(slF4JLogger))
         brennon = Brennon(Platform.FOLIA, dataFolder)
         brennon.enable()
 
@@ -146,7 +149,7 @@ class BrennonFolia : JavaPlugin() {
                     }, null)
                 }
             } catch (e: Exception) {
-                logger.warning("[Brennon] Failed to process kick request: ${e.message}")
+                Log.warn("Failed to process kick request", e)
             }
         }
 
@@ -188,12 +191,13 @@ class BrennonFolia : JavaPlugin() {
         // Register commands
         FoliaCommandBridge(brennon, this).registerAll()
 
-        logger.info("[Brennon] Folia plugin loaded. Region-aware scheduling active.")
+        Log.info("Folia plugin loaded. Region-aware scheduling active.")
     }
 
     override fun onDisable() {
         brennon.disable()
-        logger.info("[Brennon] Folia plugin unloaded.")
+        Log.info("Folia plugin unloaded.")
+        Log.shutdown()
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.folia.command
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.core.command.BrennonCommand
 import com.envarcade.brennon.core.command.BrennonCommandSender
@@ -33,8 +34,8 @@ class FoliaCommandBridge(private val brennon: Brennon, private val plugin: JavaP
                 commandMap.register("brennon", bukkitCmd)
             }
         } catch (e: Exception) {
-            println("[Brennon] Failed to register commands dynamically: ${e.message}")
-            println("[Brennon] Falling back to plugin.yml registration.")
+            Log.warn("Failed to register commands dynamically", e)
+            Log.info("Falling back to plugin.yml registration.")
             // Fallback: try plugin.yml registered commands
             for (command in brennon.commandRegistry.getCommands()) {
                 val executor = BukkitCommandExecutor(command)
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.folia.listener
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import org.bukkit.event.EventHandler
 import org.bukkit.event.EventPriority
@@ -29,7 +30,7 @@ class FoliaPlayerListener(private val brennon: Brennon) : Listener {
                 brennon.corePunishmentManager.isIpBanned(ip)
                     .get(5, java.util.concurrent.TimeUnit.SECONDS)
             } catch (e: Throwable) {
-                println("[Brennon] IP ban check failed for ${event.name}: ${e.message}")
+                Log.warn("IP ban check failed", e, "player" to event.name)
                 false
             }
             if (isIpBanned) {
@@ -65,8 +66,7 @@ class FoliaPlayerListener(private val brennon: Brennon) : Listener {
                 }
             }
         } catch (e: Throwable) {
-            println("[Brennon] Error during pre-login check for ${event.name}: ${e.javaClass.simpleName}: ${e.message}")
-            e.printStackTrace()
+            Log.error("Error during pre-login check", e, "player" to event.name)
             // Allow login on error — don't block players due to DB issues
         }
     }
@@ -86,7 +86,7 @@ class FoliaPlayerListener(private val brennon: Brennon) : Listener {
             ip = ip
         ).whenComplete { networkPlayer, error ->
             if (error != null) {
-                println("[Brennon] Failed to handle join for ${player.name}: ${error.message}")
+                Log.warn("Failed to handle join", error, "player" to player.name)
                 return@whenComplete
             }
 
@@ -138,7 +138,7 @@ class FoliaPlayerListener(private val brennon: Brennon) : Listener {
 
         brennon.corePlayerManager.handleQuit(uuid).whenComplete { _, error ->
             if (error != null) {
-                println("[Brennon] Failed to handle quit for ${event.player.name}: ${error.message}")
+                Log.warn("Failed to handle quit", error, "player" to event.player.name)
             }
         }
 
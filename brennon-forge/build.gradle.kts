@@ -69,6 +69,8 @@ tasks.named<ShadowJar>("shadowJar") {
     relocate("org.mongodb", "com.envarcade.brennon.libs.mongodb")
     relocate("org.apache.commons.pool2", "com.envarcade.brennon.libs.pool2")
     relocate("org.bson", "com.envarcade.brennon.libs.bson")
+    relocate("org.reactivestreams", "com.envarcade.brennon.libs.reactivestreams")
+    relocate("reactor", "com.envarcade.brennon.libs.reactor")
 
     // Exclude libraries already provided by Forge
     exclude("org/slf4j/**")
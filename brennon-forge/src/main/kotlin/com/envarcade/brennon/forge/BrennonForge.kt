@@ -1,11 +1,14 @@
 package com.envarcade.brennon.forge
 
 import com.envarcade.brennon.api.Platform
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.logging.Slf4jLogSink
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.core.command.BrennonCommandSender
 import com.mojang.brigadier.arguments.StringArgumentType
 import com.mojang.brigadier.builder.LiteralArgumentBuilder
 import com.mojang.brigadier.builder.RequiredArgumentBuilder
+import com.mojang.logging.LogUtils
 import net.kyori.adventure.text.Component
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer
@@ -49,6 +52,7 @@ class BrennonForge {
         val dataFolder = FMLPaths.CONFIGDIR.get().resolve("brennon").toFile()
         dataFolder.mkdirs()
 
+        Log.install(Slf4jLogSink(LogUtils.getLogger()))
         brennon = Brennon(Platform.FORGE, dataFolder)
         brennon.enable()
 
@@ -72,14 +76,15 @@ class BrennonForge {
             }
         }
 
-        println("[Brennon] Forge mod loaded successfully.")
+        Log.info("Forge mod loaded successfully.")
     }
 
     @SubscribeEvent
     fun onServerStopping(event: ServerStoppingEvent) {
         brennon.disable()
         server = null
-        println("[Brennon] Forge mod unloaded.")
+        Log.info("Forge mod unloaded.")
+        Log.shutdown()
     }
 
     @SubscribeEvent
@@ -143,7 +148,7 @@ class BrennonForge {
                 sendAdventureMessage(player, com.envarcade.brennon.common.util.TextUtil.error("You are muted and cannot chat."))
             }
         } catch (e: Exception) {
-            println("[Brennon] Error checking mute for ${player.gameProfile.name}: ${e.message}")
+            Log.warn("Error checking mute", e, "player" to player.gameProfile.name)
         }
     }
 
@@ -193,7 +198,7 @@ class BrennonForge {
             }
         }
 
-        println("[Brennon] Registered ${brennon.commandRegistry.getCommands().size} Brigadier commands.")
+        Log.info("Registered Brigadier commands.", "commands" to brennon.commandRegistry.getCommands().size)
     }
 
     /**
@@ -208,8 +213,8 @@ class BrennonForge {
                 if (player !== null) {
                     sendAdventureMessage(player, component)
                 } else {
-                    val plain = PlainTextComponentSerializer.plainText().serialize(component)
-                    println("[Brennon] $plain")
+                    // Console, RCON or command block: reply to the source instead of the log
+                    source.sendSystemMessage(MCComponent.literal(PlainTextComponentSerializer.plainText().serialize(component)))
                 }
             }
             override fun hasPermission(permission: String): Boolean {
@@ -3,6 +3,10 @@ package com.envarcade.brennon.messaging.redis
 import com.envarcade.brennon.api.messaging.MessageHandler
 import com.envarcade.brennon.api.messaging.MessagingService
 import com.envarcade.brennon.common.config.RedisConfig
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.Counter
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.Metrics
 import redis.clients.jedis.Jedis
 import redis.clients.jedis.JedisPool
 import redis.clients.jedis.JedisPoolConfig
@@ -22,6 +26,16 @@ class RedisMessagingService(private val config: RedisConfig) : MessagingService
         Thread(runnable, "Brennon-Redis-Sub").apply { isDaemon = true }
     }
 
+    private val published = ConcurrentHashMap<String, Counter>()
+    private val received = ConcurrentHashMap<String, Counter>()
+    private val publishTime = Metrics.histogram(
+        "brennon_redis_publish_milliseconds", "Time to publish one Redis message", Histogram.LATENCY_MILLIS
+    )
+    private val handlerTime = Metrics.histogram(
+        "brennon_redis_handler_milliseconds", "Time spent handling one received Redis message", Histogram.FAST_MILLIS
+    )
+    private val errors = Metrics.counter("brennon_redis_errors_total", "Failed publishes, handlers and subscriptions")
+
     fun initialize() {
         val poolConfig = JedisPoolConfig().apply {
             maxTotal = config.poolSize
@@ -40,11 +54,11 @@ class RedisMessagingService(private val config: RedisConfig) : MessagingService
         }
 
         jedisPool.resource.use { it.ping() }
-        println("[Brennon] Connected to Redis: ${config.host}:${config.port}")
+        Log.info("Connected to Redis", "host" to config.host, "port" to config.port)
     }
 
     fun shutdown() {
-        println("[Brennon] Shutting down Redis messaging...")
+        Log.info("Shutting down Redis messaging...")
         subscribers.values.forEach { it.unsubscribe() }
         subscribers.clear()
         handlers.clear()
@@ -54,9 +68,19 @@ class RedisMessagingService(private val config: RedisConfig) : MessagingService
 
     override fun publish(channel: String, message: String) {
         val prefixedChannel = config.channelPrefix + channel
-        jedisPool.resource.use { jedis ->
-            jedis.publish(prefixedChannel, message)
+        try {
+            publishTime.time {
+                jedisPool.resource.use { jedis ->
+                    jedis.publish(prefixedChannel, message)
+                }
+            }
+        } catch (e: Exception) {
+            errors.inc()
+            throw e
         }
+        published.computeIfAbsent(channel) {
+            Metrics.counter("brennon_redis_published_total", "Redis messages published", "channel" to it)
+        }.inc()
     }
 
     override fun subscribe(channel: String, handler: MessageHandler) {
@@ -65,7 +89,17 @@ class RedisMessagingService(private val config: RedisConfig) : MessagingService
 
         val pubSub = object : JedisPubSub() {
             override fun onMessage(ch: String, message: String) {
-                handlers[ch]?.onMessage(channel, message)
+                val handler = handlers[ch] ?: return
+                received.computeIfAbsent(channel) {
+                    Metrics.counter("brennon_redis_received_total", "Redis messages received", "channel" to it)
+                }.inc()
+                // Throwing here would end the subscription, so a bad message is logged and skipped
+                try {
+                    handlerTime.time { handler.onMessage(channel, message) }
+                } catch (e: Exception) {
+                    errors.inc()
+                    Log.error("Redis message handler failed", e, "channel" to channel, "length" to message.length)
+                }
             }
         }
 
@@ -78,7 +112,8 @@ class RedisMessagingService(private val config: RedisConfig) : MessagingService
                 }
             } catch (e: Exception) {
                 if (!executor.isShutdown) {
-                    println("[Brennon] Redis subscription error on $channel: ${e.message}")
+                    errors.inc()
+                    Log.warn("Redis subscription error", e, "channel" to channel)
                 }
             }
         }
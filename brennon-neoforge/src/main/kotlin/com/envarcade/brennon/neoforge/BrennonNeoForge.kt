@@ -1,11 +1,14 @@
 package com.envarcade.brennon.neoforge
 
 import com.envarcade.brennon.api.Platform
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.logging.Slf4jLogSink
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.core.command.BrennonCommandSender
 import com.mojang.brigadier.arguments.StringArgumentType
 import com.mojang.brigadier.builder.LiteralArgumentBuilder
 import com.mojang.brigadier.builder.RequiredArgumentBuilder
+import com.mojang.logging.LogUtils
 import net.kyori.adventure.text.Component
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer
@@ -48,6 +51,7 @@ class BrennonNeoForge {
         val dataFolder = FMLPaths.CONFIGDIR.get().resolve("brennon").toFile()
         dataFolder.mkdirs()
 
+        Log.install(Slf4jLogSink(LogUtils.getLogger()))
         brennon = Brennon(Platform.NEOFORGE, dataFolder)
         brennon.enable()
 
@@ -71,14 +75,15 @@ class BrennonNeoForge {
             }
         }
 
-        println("[Brennon] NeoForge mod loaded successfully.")
+        Log.info("NeoForge mod loaded successfully.")
     }
 
     @SubscribeEvent
     fun onServerStopping(event: ServerStoppingEvent) {
         brennon.disable()
         server = null
-        println("[Brennon] NeoForge mod unloaded.")
+        Log.info("NeoForge mod unloaded.")
+        Log.shutdown()
     }
 
     @SubscribeEvent
@@ -137,7 +142,7 @@ class BrennonNeoForge {
                 sendAdventureMessage(player, com.envarcade.brennon.common.util.TextUtil.error("You are muted and cannot chat."))
             }
         } catch (e: Exception) {
-            println("[Brennon] Error checking mute for ${player.gameProfile.name}: ${e.message}")
+            Log.warn("Error checking mute", e, "player" to player.gameProfile.name)
         }
     }
 
@@ -183,7 +188,7 @@ class BrennonNeoForge {
             }
         }
 
-        println("[Brennon] Registered ${brennon.commandRegistry.getCommands().size} NeoForge Brigadier commands.")
+        Log.info("Registered NeoForge Brigadier commands.", "commands" to brennon.commandRegistry.getCommands().size)
     }
 
     private fun wrapCommandSource(source: CommandSourceStack): BrennonCommandSender {
@@ -195,8 +200,8 @@ class BrennonNeoForge {
                 if (player !== null) {
                     sendAdventureMessage(player, component)
                 } else {
-                    val plain = PlainTextComponentSerializer.plainText().serialize(component)
-                    println("[Brennon] $plain")
+                    // Console, RCON or command block: reply to the source instead of the log
+                    source.sendSystemMessage(MCComponent.literal(PlainTextComponentSerializer.plainText().serialize(component)))
                 }
             }
             override fun hasPermission(permission: String): Boolean {
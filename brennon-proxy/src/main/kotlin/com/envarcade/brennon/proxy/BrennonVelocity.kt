@@ -1,6 +1,8 @@
 package com.envarcade.brennon.proxy
 
 import com.envarcade.brennon.api.Platform
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.logging.Slf4jLogSink
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.proxy.command.VelocityCommandBridge
 import com.envarcade.brennon.proxy.listener.ProxyChatListener
@@ -36,6 +38,7 @@ class BrennonVelocity @Inject constructor(
 
     @Subscribe
     fun onProxyInit(event: ProxyInitializeEvent) {
+        Log.install(Slf4jLogSink(logger))
         brennon = Brennon(Platform.VELOCITY, dataDirectory.toFile())
         brennon.enable()
 
@@ -143,13 +146,14 @@ class BrennonVelocity @Inject constructor(
         // Register commands
         VelocityCommandBridge(brennon, server, this).registerAll()
 
-        logger.info("[Brennon] Velocity plugin loaded. ${brennon.commandRegistry.getCommands().size} commands registered.")
+        Log.info("Velocity plugin loaded.", "commands" to brennon.commandRegistry.getCommands().size)
     }
 
     @Subscribe
     fun onProxyShutdown(event: ProxyShutdownEvent) {
         serverSync.shutdown()
         brennon.disable()
-        logger.info("[Brennon] Velocity plugin unloaded.")
+        Log.info("Velocity plugin unloaded.")
+        Log.shutdown()
     }
 }
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.proxy.listener
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.util.TextUtil
 import com.envarcade.brennon.core.Brennon
 import com.velocitypowered.api.event.PostOrder
@@ -38,7 +39,7 @@ class ProxyChatListener(
                 return
             }
         } catch (e: Exception) {
-            println("[Brennon] Error checking mute for ${player.username}: ${e.message}")
+            Log.warn("Error checking mute", e, "player" to player.username)
         }
 
         // Chat routing is handled by the backend server's chat listener
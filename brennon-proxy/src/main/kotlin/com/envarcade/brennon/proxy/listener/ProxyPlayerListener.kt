@@ -1,5 +1,6 @@
 package com.envarcade.brennon.proxy.listener
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.util.TextUtil
 import com.envarcade.brennon.core.Brennon
 import com.velocitypowered.api.event.PostOrder
@@ -38,7 +39,7 @@ class ProxyPlayerListener(
                 brennon.corePunishmentManager.isIpBanned(ip)
                     .get(5, java.util.concurrent.TimeUnit.SECONDS)
             } catch (e: Throwable) {
-                println("[Brennon] IP ban check failed for ${player.username}: ${e.message}")
+                Log.warn("IP ban check failed", e, "player" to player.username)
                 false
             }
             if (isIpBanned) {
@@ -88,8 +89,7 @@ class ProxyPlayerListener(
                 .get(5, java.util.concurrent.TimeUnit.SECONDS)
 
         } catch (e: Throwable) {
-            println("[Brennon] Error during proxy login for ${player.username}: ${e.javaClass.simpleName}: ${e.message}")
-            e.printStackTrace()
+            Log.error("Error during proxy login", e, "player" to player.username)
             // Allow login on error
         }
     }
@@ -106,7 +106,7 @@ class ProxyPlayerListener(
         brennon.corePlayerManager.handleServerSwitch(player.uniqueId, newServer)
 
         if (previousServer != null) {
-            println("[Brennon] ${player.username} switched: $previousServer -> $newServer")
+            Log.debug("Player switched servers", "player" to player.username, "from" to previousServer, "server" to newServer)
         }
     }
 
@@ -119,7 +119,7 @@ class ProxyPlayerListener(
 
         brennon.corePlayerManager.handleQuit(uuid).whenComplete { _, error ->
             if (error != null) {
-                println("[Brennon] Error during disconnect for ${event.player.username}: ${error.message}")
+                Log.warn("Error during disconnect", error, "player" to event.player.username)
             }
         }
 
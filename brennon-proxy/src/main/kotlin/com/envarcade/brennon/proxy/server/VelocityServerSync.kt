@@ -1,6 +1,7 @@
 package com.envarcade.brennon.proxy.server
 
 import com.envarcade.brennon.common.config.BrennonConfig
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.model.ServerDefinition
 import com.envarcade.brennon.core.event.CoreEventBus
 import com.envarcade.brennon.core.event.ServerRegisteredEvent
@@ -62,7 +63,7 @@ class VelocityServerSync(
             }, 30, 15, TimeUnit.SECONDS)
         }
 
-        println("[Brennon] Velocity server sync initialized.")
+        Log.info("Velocity server sync initialized.")
     }
 
     fun shutdown() {
@@ -92,7 +93,7 @@ class VelocityServerSync(
 
         if (registryService.registerServer(def)) {
             lastOnlineTimestamps[name] = System.currentTimeMillis()
-            println("[Brennon] Auto-registered server: $name ($host:$port) in group '$group'")
+            Log.info("Auto-registered server: $name ($host:$port) in group '$group'")
         }
     }
 
@@ -116,7 +117,7 @@ class VelocityServerSync(
             count++
         }
         if (count > 0) {
-            println("[Brennon] Synced $count servers from registry to Velocity.")
+            Log.info("Synced $count servers from registry to Velocity.")
         }
     }
 
@@ -131,7 +132,7 @@ class VelocityServerSync(
             )
             proxy.registerServer(serverInfo)
         } catch (e: Exception) {
-            println("[Brennon] Failed to register server '${def.name}' with Velocity: ${e.message}")
+            Log.warn("Failed to register server with Velocity", e, "server" to def.name)
         }
     }
 
@@ -149,7 +150,7 @@ class VelocityServerSync(
                         for (player in players) {
                             player.createConnectionRequest(fallbackServer).fireAndForget()
                         }
-                        println("[Brennon] Evacuated ${players.size} players from '$serverName' to '${fallback.name}'")
+                        Log.info("Evacuated ${players.size} players from '$serverName' to '${fallback.name}'")
                     }
                 }
             }
@@ -157,7 +158,7 @@ class VelocityServerSync(
             proxy.unregisterServer(registered.serverInfo)
             lastOnlineTimestamps.remove(serverName)
         } catch (e: Exception) {
-            println("[Brennon] Failed to unregister server '$serverName' from Velocity: ${e.message}")
+            Log.warn("Failed to unregister server from Velocity", e, "server" to serverName)
         }
     }
 
@@ -176,7 +177,7 @@ class VelocityServerSync(
             } else {
                 val lastSeen = lastOnlineTimestamps[def.name] ?: now.also { lastOnlineTimestamps[def.name] = it }
                 if (now - lastSeen > timeout) {
-                    println("[Brennon] Auto-unregistering offline server: ${def.name} (offline for ${(now - lastSeen) / 1000}s)")
+                    Log.info("Auto-unregistering offline server: ${def.name} (offline for ${(now - lastSeen) / 1000}s)")
                     registryService.unregisterServer(def.name)
                 }
             }
@@ -1,6 +1,8 @@
 package com.envarcade.brennon.sponge
 
 import com.envarcade.brennon.api.Platform
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.logging.Log4jLogSink
 import com.envarcade.brennon.core.Brennon
 import com.google.inject.Inject
 import org.apache.logging.log4j.Logger
@@ -36,6 +38,7 @@ class BrennonSponge @Inject constructor(
         val dataFolder = configDir.toFile()
         dataFolder.mkdirs()
 
+        Log.install(Log4jLogSink(logger))
         brennon = Brennon(Platform.SPONGE, dataFolder)
         brennon.enable()
 
@@ -61,12 +64,13 @@ class BrennonSponge @Inject constructor(
         // Register commands
         SpongeCommandBridge(brennon, pluginContainer).registerAll()
 
-        logger.info("[Brennon] Sponge plugin loaded. ${brennon.commandRegistry.getCommands().size} commands registered.")
+        Log.info("Sponge plugin loaded.", "commands" to brennon.commandRegistry.getCommands().size)
     }
 
     @Listener(order = Order.LATE)
     fun onServerStopping(event: StoppingEngineEvent<Server>) {
         brennon.disable()
-        logger.info("[Brennon] Sponge plugin unloaded.")
+        Log.info("Sponge plugin unloaded.")
+        Log.shutdown()
     }
 }
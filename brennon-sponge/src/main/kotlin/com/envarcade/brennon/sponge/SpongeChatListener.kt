@@ -1,5 +1,6 @@
 package com.envarcade.brennon.sponge
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.common.util.TextUtil
 import com.envarcade.brennon.core.Brennon
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer
@@ -38,7 +39,7 @@ class SpongeChatListener(private val brennon: Brennon) {
                 player.sendMessage(TextUtil.error("You are muted and cannot chat."))
             }
         } catch (e: Exception) {
-            println("[Brennon] Error checking mute for ${player.name()}: ${e.message}")
+            Log.warn("Error checking mute", e, "player" to player.name())
         }
     }
 }
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.sponge
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import net.kyori.adventure.text.Component
 import net.kyori.adventure.text.format.NamedTextColor
@@ -48,7 +49,7 @@ class SpongePlayerListener(private val brennon: Brennon) {
                 }
             }
         } catch (e: Exception) {
-            println("[Brennon] Error during login check for ${profile.name().orElse("unknown")}: ${e.message}")
+            Log.error("Error during login check", e, "player" to profile.name().orElse("unknown"))
         }
     }
 
@@ -66,7 +67,7 @@ class SpongePlayerListener(private val brennon: Brennon) {
             ip = ip
         ).whenComplete { _, error ->
             if (error != null) {
-                println("[Brennon] Failed to handle join for $name: ${error.message}")
+                Log.warn("Failed to handle join", error, "player" to name)
             }
         }
 
@@ -82,7 +83,7 @@ class SpongePlayerListener(private val brennon: Brennon) {
 
         brennon.corePlayerManager.handleQuit(uuid).whenComplete { _, error ->
             if (error != null) {
-                println("[Brennon] Failed to handle quit for ${event.player().name()}: ${error.message}")
+                Log.warn("Failed to handle quit", error, "player" to event.player().name())
             }
         }
 
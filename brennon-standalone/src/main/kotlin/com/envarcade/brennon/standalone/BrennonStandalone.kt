@@ -1,6 +1,8 @@
 package com.envarcade.brennon.standalone
 
 import com.envarcade.brennon.api.Platform
+import com.envarcade.brennon.common.logging.ConsoleLogSink
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import java.io.File
 import java.util.Scanner
@@ -10,8 +12,12 @@ import java.util.Scanner
  *
  * Used for running Brennon services outside of Minecraft
  * (e.g., Discord bots, REST APIs, analytics, etc.)
+ *
+ * `loadgen [options]` runs the synthetic load generator instead.
  */
 fun main(args: Array<String>) {
+    Log.install(ConsoleLogSink())
+
     println()
     println("  ____                                    ")
     println(" | __ ) _ __ ___ _ __  _ __   ___  _ __   ")
@@ -22,6 +28,11 @@ fun main(args: Array<String>) {
     println("  Network Core — Standalone Mode")
     println()
 
+    if (args.firstOrNull() == "loadgen") {
+        com.envarcade.brennon.standalone.loadgen.runLoadGenerator(args.drop(1))
+        return
+    }
+
     val dataFolder = File(args.firstOrNull() ?: "data")
     dataFolder.mkdirs()
 
@@ -30,18 +41,19 @@ fun main(args: Array<String>) {
     // Shutdown hook for Ctrl+C
     Runtime.getRuntime().addShutdownHook(Thread {
         brennon.disable()
+        Log.shutdown()
     })
 
     try {
         brennon.enable()
     } catch (e: Exception) {
-        println("[Brennon] FATAL: Failed to start: ${e.message}")
-        e.printStackTrace()
+        Log.error("FATAL: Failed to start", e)
+        Log.shutdown()
         return
     }
 
     println()
-    println("[Brennon] Standalone mode active. Type 'stop' to shut down.")
+    Log.info("Standalone mode active. Type 'stop' to shut down.")
     println()
 
     // Simple console command loop
@@ -54,17 +66,17 @@ fun main(args: Array<String>) {
                 break
             }
             "status" -> {
-                println("[Brennon] Status: Running")
-                println("[Brennon] Platform: ${brennon.getPlatform().displayName}")
-                println("[Brennon] Database: ${if (brennon.databaseManager.isConnected()) "Connected" else "Disconnected"}")
-                println("[Brennon] Redis: ${if (brennon.redisMessaging.isConnected()) "Connected" else "Disconnected"}")
+                Log.info("Status: Running")
+                Log.info("Platform: ${brennon.getPlatform().displayName}")
+                Log.info("Database: ${if (brennon.databaseManager.isConnected()) "Connected" else "Disconnected"}")
+                Log.info("Redis: ${if (brennon.redisMessaging.isConnected()) "Connected" else "Disconnected"}")
             }
             "help" -> {
-                println("[Brennon] Commands: stop, status, help")
+                Log.info("Commands: stop, status, help")
             }
             else -> {
                 if (line.isNotEmpty()) {
-                    println("[Brennon] Unknown command: $line (type 'help' for commands)")
+                    Log.info("Unknown command: $line (type 'help' for commands)")
                 }
             }
         }
@@ -0,0 +1,83 @@
+package com.envarcade.brennon.standalone.loadgen
+
+/**
+ * Something the load generator does to the network, with its command-line
+ * rate option and default rate (operations per second, network-wide).
+ */
+enum class Operation(val option: String, val defaultRate: Double) {
+    JOIN("join-rate", 5.0),
+    QUIT("quit-rate", 5.0),
+    SWITCH("switch-rate", 10.0),
+    CHAT("chat-rate", 50.0),
+    STAT("stat-rate", 100.0),
+    TRANSFER("transfer-rate", 20.0),
+    PUNISHMENT("punishment-rate", 1.0);
+
+    val label: String get() = name.lowercase()
+}
+
+/**
+ * Load generator options, parsed from `--key=value` arguments.
+ *
+ * Every player in the pool joins during setup, so [players] is also the
+ * starting online count; joins and quits then move it up and down.
+ */
+data class LoadConfig(
+    val dataFolder: String = "data",
+    val nodes: Int = 4,
+    val players: Int = 500,
+    val durationSeconds: Int = 60,
+    val reportSeconds: Int = 10,
+    val threads: Int = 32,
+    val maxInFlight: Int = 10_000,
+    val nodePoolSize: Int = 4,
+    val startingBalance: Double = 1_000_000.0,
+    val reportFile: String = "loadgen-report.json",
+    val rates: Map<Operation, Double> = Operation.values().associateWith { it.defaultRate }
+) {
+
+    companion object {
+
+        val USAGE = """
+            |Usage: loadgen [--option=value ...]
+            |  --data=data                  Folder holding config.json (Redis and database settings)
+            |  --nodes=4                    Simulated servers, each a full Brennon instance
+            |  --players=500                Simulated players, all joined during setup
+            |  --duration=60                Seconds to run after setup
+            |  --report-interval=10         Seconds between progress reports
+            |  --threads=32                 Worker threads issuing operations
+            |  --max-in-flight=10000        Operations dropped (and counted) beyond this backlog
+            |  --node-pool-size=4           Database and Redis pool size per node
+            |  --starting-balance=1000000   Balance given to every player during setup
+            |  --report-file=loadgen-report.json
+            |${Operation.values().joinToString("\n") { "  --${it.option.padEnd(27)}Per second, default ${it.defaultRate}" }}
+        """.trimMargin()
+
+        fun parse(args: List<String>): LoadConfig {
+            var config = LoadConfig()
+            for (arg in args) {
+                require(arg.startsWith("--") && '=' in arg) { "Expected --option=value, got '$arg'" }
+                val key = arg.substring(2).substringBefore('=')
+                val value = arg.substringAfter('=')
+                val operation = Operation.values().find { it.option == key }
+                config = when {
+                    operation != null -> config.copy(rates = config.rates + (operation to value.toDouble()))
+                    key == "data" -> config.copy(dataFolder = value)
+                    key == "nodes" -> config.copy(nodes = value.toInt())
+                    key == "players" -> config.copy(players = value.toInt())
+                    key == "duration" -> config.copy(durationSeconds = value.toInt())
+                    key == "report-interval" -> config.copy(reportSeconds = value.toInt())
+                    key == "threads" -> config.copy(threads = value.toInt())
+                    key == "max-in-flight" -> config.copy(maxInFlight = value.toInt())
+                    key == "node-pool-size" -> config.copy(nodePoolSize = value.toInt())
+                    key == "starting-balance" -> config.copy(startingBalance = value.toDouble())
+                    key == "report-file" -> config.copy(reportFile = value)
+                    else -> throw IllegalArgumentException("Unknown option --$key")
+                }
+            }
+            require(config.nodes >= 1) { "--nodes must be at least 1" }
+            require(config.players >= 2) { "--players must be at least 2" }
+            return config
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.envarcade.brennon.standalone.loadgen
+
+import com.envarcade.brennon.common.config.BrennonConfig
+import com.envarcade.brennon.common.config.ConfigLoader
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.metrics.Histogram
+import com.envarcade.brennon.common.metrics.Metrics
+import java.io.File
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicIntegerArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * Entry point for `brennon-standalone loadgen`: parses the options, loads
+ * the Redis and database settings from the data folder and runs a
+ * [LoadGenerator] until its duration is up or the process is stopped.
+ */
+fun runLoadGenerator(args: List<String>) {
+    if ("--help" in args) {
+        println(LoadConfig.USAGE)
+        return
+    }
+
+    val config = try {
+        LoadConfig.parse(args)
+    } catch (e: IllegalArgumentException) {
+        println(e.message)
+        println(LoadConfig.USAGE)
+        return
+    }
+
+    val dataFolder = File(config.dataFolder)
+    dataFolder.mkdirs()
+    val generator = LoadGenerator(config, ConfigLoader.loadBrennonConfig(dataFolder), dataFolder)
+
+    Runtime.getRuntime().addShutdownHook(Thread {
+        generator.shutdown()
+        Log.shutdown()
+    })
+
+    try {
+        generator.run()
+    } catch (e: Exception) {
+        Log.error("LoadGen failed", e)
+    } finally {
+        // The nodes share this JVM's logger, so it is only stopped once all of them are down
+        generator.shutdown()
+        Log.shutdown()
+    }
+}
+
+/**
+ * Drives a simulated network of [LoadConfig.nodes] servers and
+ * [LoadConfig.players] players against the configured Redis and database.
+ *
+ * Load is open-loop: each operation has a fixed schedule at its configured
+ * rate and is issued whether or not earlier ones have finished. Latency is
+ * measured from the scheduled start, so time spent waiting for a worker
+ * counts against the operation instead of quietly lowering the rate.
+ * Results go to the `brennon_loadgen_*` metrics, the console, and a JSON
+ * report.
+ */
+class LoadGenerator(
+    private val config: LoadConfig,
+    private val base: BrennonConfig,
+    dataFolder: File
+) {
+
+    private val nodes = (1..config.nodes).map { i ->
+        SimulatedNode("loadgen-$i", nodeConfig(i), dataFolder)
+    }
+
+    private val names = Array(config.players) { "LoadGen$it" }
+    private val uuids = Array(config.players) { UUID.nameUUIDFromBytes("OfflinePlayer:${names[it]}".toByteArray()) }
+
+    /** [OFFLINE], [ONLINE], or [BUSY] while a join, quit or switch is in flight */
+    private val states = AtomicIntegerArray(config.players)
+    private val locations = AtomicReferenceArray<SimulatedNode?>(config.players)
+
+    private val stats = Operation.values().associateWith { OperationStats(it) }
+    private val rates = config.rates.filter { (operation, rate) -> rate > 0 && isAvailable(operation) }
+    private val inFlight = AtomicInteger()
+
+    private val workers = Executors.newFixedThreadPool(config.threads) { runnable ->
+        Thread(runnable, "Brennon-LoadGen-Worker").apply { isDaemon = true }
+    }
+    private val driver = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "Brennon-LoadGen-Driver").apply { isDaemon = true }
+    }
+
+    /** Scheduled start of each operation's next run, in System.nanoTime() */
+    private val nextStart = LongArray(Operation.values().size)
+    private val statIds = base.leaderboards.stats.ifEmpty { listOf("kills") }
+    private val stopped = AtomicBoolean(false)
+    private var startedAt = 0L
+
+    fun run() {
+        Log.info("LoadGen: starting ${nodes.size} nodes")
+        nodes.forEach { it.start() }
+
+        for (operation in Operation.values()) {
+            if ((config.rates[operation] ?: 0.0) > 0 && !isAvailable(operation)) {
+                Log.info("LoadGen: ${operation.label} skipped, its module is disabled")
+            }
+        }
+
+        populate()
+
+        println("[Brennon] LoadGen: running for ${config.durationSeconds}s at " +
+            rates.entries.joinToString { (operation, rate) -> "${operation.label} $rate/s" })
+        startedAt = System.nanoTime()
+        nextStart.fill(startedAt)
+        val tick = driver.scheduleAtFixedRate(::tick, 0, 1, TimeUnit.MILLISECONDS)
+        val progress = driver.scheduleAtFixedRate(
+            { printReport() }, config.reportSeconds.toLong(), config.reportSeconds.toLong(), TimeUnit.SECONDS
+        )
+
+        Thread.sleep(config.durationSeconds * 1000L)
+        tick.cancel(false)
+        progress.cancel(false)
+        awaitInFlight()
+
+        printReport()
+        writeReport()
+    }
+
+    fun shutdown() {
+        if (!stopped.compareAndSet(false, true)) return
+        driver.shutdownNow()
+        workers.shutdownNow()
+
+        val quits = (0 until config.players).mapNotNull { i ->
+            locations.get(i)?.let { node -> node.quit(uuids[i]).exceptionally { null } }
+        }
+        try {
+            CompletableFuture.allOf(*quits.toTypedArray()).get(30, TimeUnit.SECONDS)
+        } catch (e: Exception) {
+            Log.warn("LoadGen: players still leaving at shutdown", e)
+        }
+        nodes.forEach { it.stop() }
+    }
+
+    // ============================================================
+    // Setup
+    // ============================================================
+
+    private fun nodeConfig(index: Int): BrennonConfig = base.copy(
+        serverName = "loadgen-$index",
+        serverGroup = "loadgen",
+        database = base.database.copy(poolSize = config.nodePoolSize),
+        redis = base.redis.copy(poolSize = config.nodePoolSize),
+        // Only one node can own the exporter port
+        metrics = if (index == 1) base.metrics else base.metrics.copy(exporter = false)
+    )
+
+    private fun isAvailable(operation: Operation): Boolean = when (operation) {
+        Operation.CHAT -> base.modules.chat
+        Operation.STAT -> base.modules.stats
+        else -> true
+    }
+
+    /** Joins every player, spread evenly over the nodes, and funds them for transfers */
+    private fun populate() {
+        val start = System.currentTimeMillis()
+        for (batch in (0 until config.players).chunked(SETUP_BATCH)) {
+            val joins = batch.map { i ->
+                val node = nodes[i % nodes.size]
+                node.join(uuids[i], names[i])
+                    .thenCompose { node.brennon.coreEconomyManager.setBalance(uuids[i], config.startingBalance) }
+                    .thenRun {
+                        locations.set(i, node)
+                        states.set(i, ONLINE)
+                    }
+            }
+            CompletableFuture.allOf(*joins.toTypedArray()).join()
+        }
+        Log.info("LoadGen: ${config.players} players joined in ${System.currentTimeMillis() - start}ms")
+    }
+
+    // ============================================================
+    // Load
+    // ============================================================
+
+    private fun tick() {
+        val now = System.nanoTime()
+        for ((operation, rate) in rates) {
+            val interval = (1_000_000_000 / rate).toLong().coerceAtLeast(1)
+            while (nextStart[operation.ordinal] <= now) {
+                issue(operation, nextStart[operation.ordinal])
+                nextStart[operation.ordinal] += interval
+            }
+        }
+    }
+
+    private fun issue(operation: Operation, scheduledAt: Long) {
+        val stat = stats.getValue(operation)
+        if (inFlight.get() >= config.maxInFlight) {
+            stat.dropped.inc()
+            return
+        }
+
+        inFlight.incrementAndGet()
+        workers.execute {
+            val future = try {
+                perform(operation)
+            } catch (e: Exception) {
+                CompletableFuture.failedFuture<Any>(e)
+            }
+
+            if (future == null) {
+                stat.skipped.inc()
+                inFlight.decrementAndGet()
+                return@execute
+            }
+
+            future.whenComplete { _, error ->
+                stat.latency.record((System.nanoTime() - scheduledAt) / 1_000_000.0)
+                if (error == null) {
+                    stat.completed.inc()
+                } else {
+                    stat.failed.inc()
+                    if (stat.failed.value <= LOGGED_ERRORS) {
+                        Log.warn("LoadGen operation failed", error, "operation" to operation.label)
+                    }
+                }
+                inFlight.decrementAndGet()
+            }
+        }
+    }
+
+    /** Starts one operation, or returns null when no player is in a state to do it */
+    private fun perform(operation: Operation): CompletableFuture<*>? {
+        val random = ThreadLocalRandom.current()
+        return when (operation) {
+            Operation.JOIN -> {
+                val i = claim(OFFLINE) ?: return null
+                val node = nodes[random.nextInt(nodes.size)]
+                node.join(uuids[i], names[i]).whenComplete { _, error -> release(i, if (error == null) node else null) }
+            }
+            Operation.QUIT -> {
+                val i = claim(ONLINE) ?: return null
+                val node = locations.get(i)
+                if (node == null) {
+                    release(i, null)
+                    return null
+                }
+                node.quit(uuids[i]).whenComplete { _, _ -> release(i, null) }
+            }
+            Operation.SWITCH -> {
+                val i = claim(ONLINE) ?: return null
+                val from = locations.get(i)
+                if (from == null) {
+                    release(i, null)
+                    return null
+                }
+                val to = nodes.filter { it !== from }.randomOrNull() ?: from
+                from.quit(uuids[i])
+                    .thenCompose { to.join(uuids[i], names[i]) }
+                    .whenComplete { _, error -> release(i, if (error == null) to else null) }
+            }
+            Operation.CHAT -> {
+                val i = findOnline() ?: return null
+                val chat = (locations.get(i) ?: return null).brennon.coreChatManager
+                chat.sendMessage(uuids[i], names[i], chat.getDefaultChannel().id, MESSAGES[random.nextInt(MESSAGES.size)])
+                CompletableFuture.completedFuture<Void>(null)
+            }
+            Operation.STAT -> {
+                val i = findOnline() ?: return null
+                val node = locations.get(i) ?: return null
+                node.brennon.coreStatsManager.incrementStat(uuids[i], statIds[random.nextInt(statIds.size)], 1.0)
+            }
+            Operation.TRANSFER -> {
+                val from = findOnline() ?: return null
+                val to = random.nextInt(config.players)
+                if (to == from) return null
+                val node = locations.get(from) ?: return null
+                node.brennon.coreEconomyManager.transfer(uuids[from], uuids[to], 1.0)
+            }
+            Operation.PUNISHMENT -> {
+                val i = findOnline() ?: return null
+                val node = locations.get(i) ?: return null
+                node.brennon.corePunishmentManager.warn(uuids[i], "Load test", null)
+            }
+        }
+    }
+
+    /** Marks a random player in [state] as busy and returns them */
+    private fun claim(state: Int): Int? {
+        val random = ThreadLocalRandom.current()
+        repeat(PICK_ATTEMPTS) {
+            val i = random.nextInt(config.players)
+            if (states.compareAndSet(i, state, BUSY)) return i
+        }
+        return null
+    }
+
+    private fun release(i: Int, node: SimulatedNode?) {
+        locations.set(i, node)
+        states.set(i, if (node != null) ONLINE else OFFLINE)
+    }
+
+    private fun findOnline(): Int? {
+        val random = ThreadLocalRandom.current()
+        repeat(PICK_ATTEMPTS) {
+            val i = random.nextInt(config.players)
+            if (states.get(i) == ONLINE) return i
+        }
+        return null
+    }
+
+    private fun awaitInFlight() {
+        val deadline = System.currentTimeMillis() + DRAIN_MILLIS
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+        if (inFlight.get() > 0) {
+            Log.info("LoadGen: ${inFlight.get()} operations still running after ${DRAIN_MILLIS / 1000}s")
+        }
+    }
+
+    // ============================================================
+    // Reporting
+    // ============================================================
+
+    private fun elapsedSeconds(): Double = (System.nanoTime() - startedAt) / 1_000_000_000.0
+
+    private fun printReport() {
+        val elapsed = elapsedSeconds()
+        val online = (0 until config.players).count { states.get(it) == ONLINE }
+        println("[Brennon] LoadGen %.0fs: %d online, %d in flight".format(elapsed, online, inFlight.get()))
+        println("[Brennon]   %-10s %9s %7s %7s %7s %9s %8s %8s %8s %8s".format(
+            "operation", "ok", "failed", "dropped", "skipped", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms"
+        ))
+        for (operation in rates.keys) {
+            val stat = stats.getValue(operation)
+            val latency = stat.latency.snapshot()
+            println("[Brennon]   %-10s %9d %7d %7d %7d %9.1f %8.1f %8.1f %8.1f %8.1f".format(
+                operation.label, stat.completed.value, stat.failed.value, stat.dropped.value, stat.skipped.value,
+                stat.completed.value / elapsed, latency.quantile(0.5), latency.quantile(0.95),
+                latency.quantile(0.99), latency.max
+            ))
+        }
+    }
+
+    private fun writeReport() {
+        val elapsed = elapsedSeconds()
+        val report = mapOf(
+            "nodes" to config.nodes,
+            "players" to config.players,
+            "durationSeconds" to elapsed,
+            "rates" to rates.mapKeys { it.key.label },
+            "operations" to rates.keys.associate { it.label to stats.getValue(it).toMap(elapsed) }
+        )
+        val file = File(config.reportFile)
+        file.writeText(ConfigLoader.gson.toJson(report))
+        Log.info("LoadGen: report written to ${file.absolutePath}")
+    }
+
+    private class OperationStats(operation: Operation) {
+        val latency = Metrics.histogram(
+            "brennon_loadgen_operation_milliseconds", "Time from an operation's scheduled start to its completion",
+            Histogram.LATENCY_MILLIS, "operation" to operation.label
+        )
+        val completed = result(operation, "ok")
+        val failed = result(operation, "error")
+        val dropped = result(operation, "dropped")
+        val skipped = result(operation, "skipped")
+
+        fun toMap(elapsedSeconds: Double): Map<String, Any> = latency.snapshot().toMap() + mapOf(
+            "ok" to completed.value,
+            "failed" to failed.value,
+            "dropped" to dropped.value,
+            "skipped" to skipped.value,
+            "throughput" to completed.value / elapsedSeconds
+        )
+
+        private fun result(operation: Operation, result: String) = Metrics.counter(
+            "brennon_loadgen_operations_total", "Load generator operations by result",
+            "operation" to operation.label, "result" to result
+        )
+    }
+
+    companion object {
+        private const val OFFLINE = 0
+        private const val ONLINE = 1
+        private const val BUSY = 2
+
+        private const val SETUP_BATCH = 500
+        private const val PICK_ATTEMPTS = 16
+        private const val LOGGED_ERRORS = 5L
+        private const val DRAIN_MILLIS = 30_000L
+
+        private val MESSAGES = listOf(
+            "anyone want to trade diamonds for emeralds?",
+            "gg",
+            "where is the nether portal on this server",
+            "selling 64 oak logs, 10 coins each",
+            "lol",
+            "is the event starting soon?"
+        )
+    }
+}
@@ -0,0 +1,44 @@
+package com.envarcade.brennon.standalone.loadgen
+
+import com.envarcade.brennon.api.Platform
+import com.envarcade.brennon.api.stats.StatTypes
+import com.envarcade.brennon.common.config.BrennonConfig
+import com.envarcade.brennon.core.Brennon
+import com.envarcade.brennon.core.player.CoreNetworkPlayer
+import java.io.File
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+/**
+ * One simulated server: a full standalone [Brennon] instance with its own
+ * pools and subscriptions, sharing Redis and the database with the others.
+ * Joins and quits do what the Bukkit player listener does on a real server.
+ */
+class SimulatedNode(val name: String, private val config: BrennonConfig, dataFolder: File) {
+
+    val brennon = Brennon(Platform.STANDALONE, dataFolder)
+
+    fun start() {
+        brennon.enable(config, registerApi = false)
+    }
+
+    fun join(uuid: UUID, playerName: String): CompletableFuture<CoreNetworkPlayer> {
+        val future = brennon.corePlayerManager.handleJoin(uuid, playerName, name, "127.0.0.1")
+        if (config.modules.stats) {
+            brennon.coreStatsManager.handlePlayerJoin(uuid)
+            brennon.coreStatsManager.incrementStat(uuid, StatTypes.SESSIONS, 1.0)
+        }
+        return future
+    }
+
+    fun quit(uuid: UUID): CompletableFuture<Void> {
+        val future = brennon.corePlayerManager.handleQuit(uuid)
+        if (config.modules.stats) brennon.coreStatsManager.handlePlayerQuit(uuid)
+        if (config.modules.chat) brennon.coreChatManager.handlePlayerQuit(uuid)
+        return future
+    }
+
+    fun stop() {
+        brennon.disable()
+    }
+}
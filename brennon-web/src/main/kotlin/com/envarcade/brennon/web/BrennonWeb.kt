@@ -1,6 +1,7 @@
 package com.envarcade.brennon.web
 
 import com.envarcade.brennon.common.config.WebConfig
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.web.routes.*
 import spark.Spark
@@ -19,11 +20,11 @@ class BrennonWeb(
 
     fun initialize() {
         if (!config.enabled) {
-            println("[Brennon] Web API is disabled.")
+            Log.info("Web API is disabled.")
             return
         }
 
-        println("[Brennon] Starting Web API on port ${config.port}...")
+        Log.info("Starting Web API on port ${config.port}...")
 
         Spark.port(config.port)
 
@@ -58,11 +59,11 @@ class BrennonWeb(
         }
 
         Spark.awaitInitialization()
-        println("[Brennon] Web API started on port ${config.port}.")
+        Log.info("Web API started on port ${config.port}.")
     }
 
     fun shutdown() {
         Spark.stop()
-        println("[Brennon] Web API stopped.")
+        Log.info("Web API stopped.")
     }
 }
@@ -4,6 +4,8 @@ import com.envarcade.brennon.api.Platform
 import com.envarcade.brennon.common.config.BrennonConfig
 import com.envarcade.brennon.common.config.DiscordConfig
 import com.envarcade.brennon.common.config.LuckPermsConfig
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.logging.Slf4jLogSink
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.webserver.audit.AuditCategory
 import com.envarcade.brennon.webserver.audit.AuditLogEntry
@@ -21,10 +23,13 @@ import com.google.gson.JsonParser
 import io.javalin.Javalin
 import io.javalin.http.Context
 import io.javalin.http.staticfiles.Location
+import org.slf4j.LoggerFactory
 import java.io.File
 import java.util.UUID
 
 fun main(args: Array<String>) {
+    Log.install(Slf4jLogSink(LoggerFactory.getLogger("Brennon")))
+
     println()
     println("  ____                                    ")
     println(" | __ ) _ __ ___ _ __  _ __   ___  _ __   ")
@@ -58,13 +63,14 @@ fun main(args: Array<String>) {
 
     Runtime.getRuntime().addShutdownHook(Thread {
         brennon.disable()
+        Log.shutdown()
     })
 
     try {
         brennon.enable(brennonConfig)
     } catch (e: Exception) {
-        println("[Brennon] FATAL: Failed to start: ${e.message}")
-        e.printStackTrace()
+        Log.error("FATAL: Failed to start", e)
+        Log.shutdown()
         return
     }
 
@@ -209,6 +215,14 @@ fun main(args: Array<String>) {
     AppealRoutes(brennon, appealRepository, jwtAuth, webConfig).register(app)
     PlayerProfileRoutes(brennon, jwtAuth, webConfig).register(app)
     AdminPlayerRoutes(brennon, jwtAuth, webConfig).register(app)
+    DatabaseRoutes(brennon, jwtAuth, webConfig).register(app)
+    if (webConfig.metricsEnabled) {
+        if (webConfig.metricsToken.isBlank()) {
+            Log.warn("Not serving /metrics: metricsEnabled is set but metricsToken is blank")
+        } else {
+            MetricsRoutes(webConfig).register(app)
+        }
+    }
     PublicRoutes(brennon, appealRepository).register(app)
 
     if (brennon.config.modules.tickets) {
@@ -239,10 +253,10 @@ fun main(args: Array<String>) {
     redisBridge?.start()
 
     app.start(webConfig.port)
-    println("[Brennon] Web server started on port ${webConfig.port}")
-    println("[Brennon] Dashboard: http://localhost:${webConfig.port}")
+    Log.info("Web server started on port ${webConfig.port}")
+    Log.info("Dashboard: http://localhost:${webConfig.port}")
     if (webConfig.wsEnabled) {
-        println("[Brennon] WebSocket: ws://localhost:${webConfig.port}/ws")
+        Log.info("WebSocket: ws://localhost:${webConfig.port}/ws")
     }
 
     // Keep main thread alive
@@ -256,7 +270,7 @@ private fun loadWebServerConfig(dataFolder: File): WebServerConfig {
     if (!configFile.exists()) {
         configFile.parentFile.mkdirs()
         configFile.writeText(gson.newBuilder().setPrettyPrinting().create().toJson(WebServerConfig()))
-        println("[Brennon] Created default webserver.json — please configure it.")
+        Log.info("Created default webserver.json — please configure it.")
     }
 
     return gson.fromJson(configFile.readText(), WebServerConfig::class.java)
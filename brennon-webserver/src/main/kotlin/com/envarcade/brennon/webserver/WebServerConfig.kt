@@ -18,6 +18,8 @@ data class WebServerConfig(
     val jwtSecret: String = "change-me-to-a-random-secret",
     val jwtExpirationMinutes: Long = 480,
     val wsEnabled: Boolean = true,
+    val metricsEnabled: Boolean = false,
+    val metricsToken: String = "", // bearer token for /metrics; required when metricsEnabled
     val dashboardUsers: List<DashboardUser> = listOf(
         DashboardUser("admin", "admin")
     ),
@@ -1,10 +1,15 @@
 package com.envarcade.brennon.webserver.audit
 
+import com.envarcade.brennon.common.logging.Log
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.database.DatabaseManager
 import com.envarcade.brennon.database.driver.MongoDatabaseDriver
+import com.envarcade.brennon.database.driver.MongoIndexes
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
 import com.envarcade.brennon.webserver.AuditConfig
 import com.google.gson.Gson
+import com.mongodb.client.model.Filters
 import org.bson.Document
 import java.io.File
 import java.io.FileWriter
@@ -29,18 +34,18 @@ class AuditLogger(
         if (config.logToDatabase) {
             try {
                 createDatabaseSchema()
-                println("[Brennon] Audit log database schema initialized.")
+                Log.info("Audit log database schema initialized.")
             } catch (e: Exception) {
-                println("[Brennon] Failed to initialize audit log database: ${e.message}")
+                Log.warn("Failed to initialize audit log database", e)
             }
         }
 
         if (config.logToFile) {
             auditFile.parentFile?.mkdirs()
-            println("[Brennon] Audit log file: ${auditFile.absolutePath}")
+            Log.info("Audit log file: ${auditFile.absolutePath}")
         }
 
-        println("[Brennon] Audit logging enabled (file=${config.logToFile}, database=${config.logToDatabase})")
+        Log.info("Audit logging enabled (file=${config.logToFile}, database=${config.logToDatabase})")
     }
 
     fun log(entry: AuditLogEntry) {
@@ -51,7 +56,7 @@ class AuditLogger(
                 if (config.logToFile) writeToFile(entry)
                 if (config.logToDatabase) writeToDatabase(entry)
             } catch (e: Exception) {
-                println("[Brennon] Audit log error: ${e.message}")
+                Log.warn("Audit log error", e)
             }
         }
     }
@@ -71,6 +76,23 @@ class AuditLogger(
         }
     }
 
+    /**
+     * Gets entries newest first, keyset-paged on (timestamp, id), so deep
+     * pages cost the same as the first.
+     */
+    fun getRecentEntriesPage(limit: Int, after: PageCursor?): Page<AuditLogEntry> {
+        val driver = databaseManager.driver
+        // One extra entry tells whether another page follows
+        val list = when (driver) {
+            is MongoDatabaseDriver -> queryMongoPage(limit + 1, after)
+            is SQLDatabaseDriver -> querySQLPage(driver, limit + 1, after)
+            else -> emptyList()
+        }
+        val items = list.take(limit)
+        val next = if (list.size > limit) items.last().let { PageCursor(it.timestamp, it.id) } else null
+        return Page(items, next)
+    }
+
     fun getEntriesByUser(username: String, limit: Int): List<AuditLogEntry> {
         val driver = databaseManager.driver
         return when (driver) {
@@ -103,7 +125,10 @@ class AuditLogger(
         val driver = databaseManager.driver
         when (driver) {
             is MongoDatabaseDriver -> {
-                // MongoDB creates collections on first insert, nothing to do
+                val collection = driver.getDatabase().getCollection("audit_log")
+                MongoIndexes.ensure(collection, "idx_audit_timestamp_id", Document("timestamp", -1).append("_id", -1))
+                MongoIndexes.ensure(collection, "idx_audit_username", Document("username", 1).append("timestamp", -1))
+                MongoIndexes.ensure(collection, "idx_audit_category", Document("category", 1).append("timestamp", -1))
             }
             is SQLDatabaseDriver -> {
                 driver.getConnection().use { conn ->
@@ -125,9 +150,10 @@ class AuditLogger(
                     }
                     // Create indexes for common queries
                     val indexStatements = listOf(
-                        "CREATE INDEX IF NOT EXISTS idx_audit_timestamp ON brennon_audit_log (timestamp DESC)",
-                        "CREATE INDEX IF NOT EXISTS idx_audit_username ON brennon_audit_log (username)",
-                        "CREATE INDEX IF NOT EXISTS idx_audit_category ON brennon_audit_log (category)"
+                        driver.dialect.createIndex("idx_audit_timestamp", "brennon_audit_log", "timestamp DESC"),
+                        driver.dialect.createIndex("idx_audit_timestamp_id", "brennon_audit_log", "timestamp, id"),
+                        driver.dialect.createIndex("idx_audit_username", "brennon_audit_log", "username"),
+                        driver.dialect.createIndex("idx_audit_category", "brennon_audit_log", "category")
                     )
                     conn.createStatement().use { stmt ->
                         for (sql in indexStatements) {
@@ -194,6 +220,22 @@ class AuditLogger(
             .toList()
     }
 
+    private fun queryMongoPage(limit: Int, after: PageCursor?): List<AuditLogEntry> {
+        val driver = databaseManager.driver as MongoDatabaseDriver
+        val collection = driver.getDatabase().getCollection("audit_log")
+        val filter = if (after != null) {
+            Filters.or(
+                Filters.lt("timestamp", after.sortKey),
+                Filters.and(Filters.eq("timestamp", after.sortKey), Filters.lt("_id", after.id))
+            )
+        } else Document()
+        return collection.find(filter)
+            .sort(Document("timestamp", -1).append("_id", -1))
+            .limit(limit)
+            .map { docToEntry(it) }
+            .toList()
+    }
+
     private fun queryMongoByField(field: String, value: String, limit: Int): List<AuditLogEntry> {
         val driver = databaseManager.driver as MongoDatabaseDriver
         val collection = driver.getDatabase().getCollection("audit_log")
@@ -220,8 +262,8 @@ class AuditLogger(
     }
 
     private fun querySQL(driver: SQLDatabaseDriver, limit: Int, offset: Int): List<AuditLogEntry> {
-        val entries = mutableListOf<AuditLogEntry>()
-        driver.getConnection().use { conn ->
+        return driver.withReadConnection { conn ->
+            val entries = mutableListOf<AuditLogEntry>()
             conn.prepareStatement(
                 "SELECT * FROM brennon_audit_log ORDER BY timestamp DESC LIMIT ? OFFSET ?"
             ).use { stmt ->
@@ -232,13 +274,38 @@ class AuditLogger(
                     entries.add(rsToEntry(rs))
                 }
             }
+            entries
+        }
+    }
+
+    private fun querySQLPage(driver: SQLDatabaseDriver, limit: Int, after: PageCursor?): List<AuditLogEntry> {
+        return driver.withReadConnection { conn ->
+            val entries = mutableListOf<AuditLogEntry>()
+            val sql = buildString {
+                append("SELECT * FROM brennon_audit_log")
+                if (after != null) append(" WHERE timestamp < ? OR (timestamp = ? AND id < ?)")
+                append(" ORDER BY timestamp DESC, id DESC LIMIT ?")
+            }
+            conn.prepareStatement(sql).use { stmt ->
+                var index = 1
+                if (after != null) {
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setLong(index++, after.sortKey)
+                    stmt.setString(index++, after.id)
+                }
+                stmt.setInt(index, limit)
+                val rs = stmt.executeQuery()
+                while (rs.next()) {
+                    entries.add(rsToEntry(rs))
+                }
+            }
+            entries
         }
-        return entries
     }
 
     private fun querySQLByField(driver: SQLDatabaseDriver, field: String, value: String, limit: Int): List<AuditLogEntry> {
-        val entries = mutableListOf<AuditLogEntry>()
-        driver.getConnection().use { conn ->
+        return driver.withReadConnection { conn ->
+            val entries = mutableListOf<AuditLogEntry>()
             conn.prepareStatement(
                 "SELECT * FROM brennon_audit_log WHERE $field = ? ORDER BY timestamp DESC LIMIT ?"
             ).use { stmt ->
@@ -249,8 +316,8 @@ class AuditLogger(
                     entries.add(rsToEntry(rs))
                 }
             }
+            entries
         }
-        return entries
     }
 
     private fun rsToEntry(rs: java.sql.ResultSet): AuditLogEntry {
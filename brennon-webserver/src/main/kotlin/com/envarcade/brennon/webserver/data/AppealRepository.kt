@@ -1,7 +1,9 @@
 package com.envarcade.brennon.webserver.data
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.database.DatabaseManager
 import com.envarcade.brennon.database.driver.MongoDatabaseDriver
+import com.envarcade.brennon.database.driver.MongoIndexes
 import com.envarcade.brennon.database.driver.SQLDatabaseDriver
 import org.bson.Document
 import java.util.UUID
@@ -12,7 +14,10 @@ class AppealRepository(private val databaseManager: DatabaseManager) {
         val driver = databaseManager.driver
         when (driver) {
             is MongoDatabaseDriver -> {
-                // MongoDB creates collections on first insert
+                val collection = driver.getDatabase().getCollection("appeals")
+                MongoIndexes.ensure(collection, "idx_appeals_player", Document("playerUuid", 1).append("createdAt", -1))
+                MongoIndexes.ensure(collection, "idx_appeals_status", Document("status", 1).append("createdAt", -1))
+                MongoIndexes.ensure(collection, "idx_appeals_punishment", Document("punishmentId", 1))
             }
             is SQLDatabaseDriver -> {
                 driver.getConnection().use { conn ->
@@ -33,9 +38,9 @@ class AppealRepository(private val databaseManager: DatabaseManager) {
                         """.trimIndent())
                     }
                     val indexes = listOf(
-                        "CREATE INDEX IF NOT EXISTS idx_appeals_player ON brennon_appeals (player_uuid)",
-                        "CREATE INDEX IF NOT EXISTS idx_appeals_status ON brennon_appeals (status)",
-                        "CREATE INDEX IF NOT EXISTS idx_appeals_punishment ON brennon_appeals (punishment_id)"
+                        driver.dialect.createIndex("idx_appeals_player", "brennon_appeals", "player_uuid"),
+                        driver.dialect.createIndex("idx_appeals_status", "brennon_appeals", "status"),
+                        driver.dialect.createIndex("idx_appeals_punishment", "brennon_appeals", "punishment_id")
                     )
                     conn.createStatement().use { stmt ->
                         for (sql in indexes) {
@@ -45,7 +50,7 @@ class AppealRepository(private val databaseManager: DatabaseManager) {
                 }
             }
         }
-        println("[Brennon] Appeals repository initialized.")
+        Log.info("Appeals repository initialized.")
     }
 
     fun create(appeal: AppealData) {
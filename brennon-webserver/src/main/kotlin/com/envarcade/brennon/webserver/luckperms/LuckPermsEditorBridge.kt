@@ -1,5 +1,6 @@
 package com.envarcade.brennon.webserver.luckperms
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
 import com.google.gson.JsonObject
@@ -39,7 +40,7 @@ class LuckPermsEditorBridge(
                     future.complete(json.get("url").asString)
                 }
             } catch (e: Exception) {
-                println("[Brennon] Failed to process LP editor response: ${e.message}")
+                Log.warn("Failed to process LP editor response", e)
             }
         }
     }
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.webserver.routes
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.webserver.WebServerConfig
 import com.envarcade.brennon.webserver.auth.JwtAuth
@@ -151,7 +152,7 @@ class AppealRoutes(
                         brennon.corePunishmentManager.unban(playerUuid, null).join()
                     }
                 } catch (e: Exception) {
-                    println("[Brennon] Auto-unban failed for appeal $id: ${e.message}")
+                    Log.warn("Auto-unban failed for appeal", e, "appeal" to id)
                 }
             }
 
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.webserver.routes
 
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.webserver.audit.AuditCategory
 import com.envarcade.brennon.webserver.audit.AuditLogger
 import io.javalin.Javalin
@@ -7,11 +8,23 @@ import io.javalin.Javalin
 class AuditRoutes(private val auditLogger: AuditLogger) {
 
     fun register(app: Javalin) {
-        // GET /api/audit?limit=50&offset=0
+        // GET /api/audit?limit=50&cursor=  (keyset paging, recommended)
+        // GET /api/audit?limit=50&offset=0  (kept for older clients)
         app.get("/api/audit") { ctx ->
-            val limit = ctx.queryParam("limit")?.toIntOrNull() ?: 50
+            val limit = (ctx.queryParam("limit")?.toIntOrNull() ?: 50).coerceIn(1, 200)
+            val cursor = ctx.queryParam("cursor")
+            val pageCursor = PageCursor.decode(cursor)
+            if (!cursor.isNullOrEmpty() && pageCursor == null) {
+                ctx.status(400).json(mapOf("error" to "Invalid cursor"))
+                return@get
+            }
+            if (cursor != null) {
+                val page = auditLogger.getRecentEntriesPage(limit, pageCursor)
+                ctx.json(mapOf("entries" to page.items, "nextCursor" to page.nextCursor?.encode()))
+                return@get
+            }
             val offset = ctx.queryParam("offset")?.toIntOrNull() ?: 0
-            val entries = auditLogger.getRecentEntries(limit.coerceIn(1, 200), offset.coerceAtLeast(0))
+            val entries = auditLogger.getRecentEntries(limit, offset.coerceAtLeast(0))
             ctx.json(entries)
         }
 
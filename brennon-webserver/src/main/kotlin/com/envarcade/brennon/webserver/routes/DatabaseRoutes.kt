@@ -0,0 +1,22 @@
+package com.envarcade.brennon.webserver.routes
+
+import com.envarcade.brennon.core.Brennon
+import com.envarcade.brennon.webserver.WebServerConfig
+import com.envarcade.brennon.webserver.auth.JwtAuth
+import com.envarcade.brennon.webserver.auth.RoleMiddleware
+import io.javalin.Javalin
+
+class DatabaseRoutes(
+    private val brennon: Brennon,
+    private val jwtAuth: JwtAuth,
+    private val config: WebServerConfig
+) {
+
+    fun register(app: Javalin) {
+        // Admin: connection pool, statement and repository timings, recent slow queries
+        app.get("/api/admin/database/metrics") { ctx ->
+            if (!RoleMiddleware.requireAdmin(ctx, jwtAuth, config.apiKey)) return@get
+            ctx.json(brennon.databaseManager.metrics.snapshot())
+        }
+    }
+}
@@ -7,6 +7,23 @@ import java.util.UUID
 class EconomyRoutes(private val brennon: Brennon) {
 
     fun register(app: Javalin) {
+        app.get("/api/economy/top") { ctx ->
+            val page = (ctx.queryParam("page")?.toIntOrNull() ?: 1).coerceAtLeast(1)
+            val limit = (ctx.queryParam("limit")?.toIntOrNull() ?: 10).coerceIn(1, 100)
+            val top = brennon.balanceLeaderboard.getPage(page, limit).join()
+            val entries = top.entries.mapIndexed { index, (uuid, balance) ->
+                val name = brennon.corePlayerManager.getCachedPlayer(uuid)?.name ?: uuid.toString()
+                mapOf("rank" to (page - 1) * limit + index + 1, "uuid" to uuid.toString(), "name" to name, "balance" to balance)
+            }
+            ctx.json(mapOf("page" to page, "entries" to entries))
+        }
+
+        app.get("/api/economy/{uuid}/rank") { ctx ->
+            val uuid = UUID.fromString(ctx.pathParam("uuid"))
+            val rank = brennon.balanceLeaderboard.getRank(uuid).join()
+            ctx.json(mapOf("uuid" to uuid.toString(), "rank" to rank))
+        }
+
         app.get("/api/economy/{uuid}") { ctx ->
             val uuid = UUID.fromString(ctx.pathParam("uuid"))
             val balance = brennon.coreEconomyManager.getBalance(uuid).join()
@@ -0,0 +1,20 @@
+package com.envarcade.brennon.webserver.routes
+
+import com.envarcade.brennon.common.metrics.PrometheusFormat
+import com.envarcade.brennon.webserver.WebServerConfig
+import io.javalin.Javalin
+
+class MetricsRoutes(private val config: WebServerConfig) {
+
+    fun register(app: Javalin) {
+        // GET /metrics — Prometheus scrape endpoint, outside /api so scrapers need no JWT
+        app.get("/metrics") { ctx ->
+            if (ctx.header("Authorization") != "Bearer ${config.metricsToken}") {
+                ctx.status(401).result("Unauthorized")
+                return@get
+            }
+            ctx.contentType(PrometheusFormat.CONTENT_TYPE)
+            ctx.result(PrometheusFormat.write())
+        }
+    }
+}
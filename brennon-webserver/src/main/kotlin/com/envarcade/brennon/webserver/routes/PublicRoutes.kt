@@ -1,6 +1,9 @@
 package com.envarcade.brennon.webserver.routes
 
 import com.envarcade.brennon.api.punishment.PunishmentType
+import com.envarcade.brennon.api.stats.StatPeriod
+import com.envarcade.brennon.common.model.Page
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.core.Brennon
 import com.envarcade.brennon.webserver.data.AppealRepository
 import io.javalin.Javalin
@@ -39,8 +42,20 @@ class PublicRoutes(
         app.get("/api/public/players") { ctx ->
             val limit = (ctx.queryParam("limit")?.toIntOrNull() ?: 20).coerceIn(1, 100)
             val offset = (ctx.queryParam("offset")?.toIntOrNull() ?: 0).coerceAtLeast(0)
+            val cursor = ctx.queryParam("cursor")
+            val pageCursor = PageCursor.decode(cursor)
+            if (!cursor.isNullOrEmpty() && pageCursor == null) {
+                ctx.status(400).json(mapOf("error" to "Invalid cursor"))
+                return@get
+            }
 
-            val players = brennon.databaseManager.players.findRecent(limit, offset).join()
+            // A cursor (empty for the first page) selects keyset paging; offset is kept for older clients
+            val page = if (cursor != null) {
+                brennon.databaseManager.players.findRecentPage(limit, pageCursor).join()
+            } else {
+                Page(brennon.databaseManager.players.findRecent(limit, offset).join(), null)
+            }
+            val players = page.items
             val total = brennon.databaseManager.players.countAll().join()
 
             val entries = players.map { p ->
@@ -58,6 +73,7 @@ class PublicRoutes(
                 "total" to total,
                 "limit" to limit,
                 "offset" to offset,
+                "nextCursor" to page.nextCursor?.encode(),
                 "players" to entries
             ))
         }
@@ -104,12 +120,15 @@ class PublicRoutes(
 
             val statId = ctx.pathParam("statId")
             val limit = ctx.queryParam("limit")?.toIntOrNull() ?: 10
-            val leaderboard = brennon.coreStatsManager.getLeaderboard(statId, limit).join()
+            val period = ctx.queryParam("period")
+                ?.let { runCatching { StatPeriod.valueOf(it.uppercase()) }.getOrNull() }
+                ?: StatPeriod.ALL_TIME
+            val leaderboard = brennon.coreStatsManager.getLeaderboard(statId, period, limit).join()
             val entries = leaderboard.entries.mapIndexed { index, (uuid, value) ->
                 val name = brennon.corePlayerManager.getCachedPlayer(uuid)?.name ?: uuid.toString()
                 mapOf("rank" to index + 1, "uuid" to uuid.toString(), "name" to name, "value" to value)
             }
-            ctx.json(mapOf("statId" to statId, "entries" to entries))
+            ctx.json(mapOf("statId" to statId, "period" to period.name, "entries" to entries))
         }
 
         // Public: player profile (limited info)
@@ -162,9 +181,20 @@ class PublicRoutes(
         app.get("/api/public/bans") { ctx ->
             val limit = (ctx.queryParam("limit")?.toIntOrNull() ?: 20).coerceIn(1, 100)
             val offset = (ctx.queryParam("offset")?.toIntOrNull() ?: 0).coerceAtLeast(0)
+            val cursor = ctx.queryParam("cursor")
+            val pageCursor = PageCursor.decode(cursor)
+            if (!cursor.isNullOrEmpty() && pageCursor == null) {
+                ctx.status(400).json(mapOf("error" to "Invalid cursor"))
+                return@get
+            }
 
-            val bans = brennon.databaseManager.punishments
-                .findAllByType(PunishmentType.BAN, limit, offset).join()
+            val page = if (cursor != null) {
+                brennon.databaseManager.punishments
+                    .findAllByTypePage(PunishmentType.BAN, limit, pageCursor).join()
+            } else {
+                Page(brennon.databaseManager.punishments.findAllByType(PunishmentType.BAN, limit, offset).join(), null)
+            }
+            val bans = page.items
 
             val punishmentIds = bans.map { it.id }
             val appeals = appealRepository.getByPunishmentIds(punishmentIds)
@@ -196,6 +226,7 @@ class PublicRoutes(
                 "total" to total,
                 "limit" to limit,
                 "offset" to offset,
+                "nextCursor" to page.nextCursor?.encode(),
                 "bans" to entries
             ))
         }
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.webserver.routes
 
+import com.envarcade.brennon.api.stats.StatPeriod
 import com.envarcade.brennon.core.Brennon
 import io.javalin.Javalin
 import java.util.UUID
@@ -30,12 +31,15 @@ class StatsRoutes(private val brennon: Brennon) {
         app.get("/api/leaderboard/{statId}") { ctx ->
             val statId = ctx.pathParam("statId")
             val limit = ctx.queryParam("limit")?.toIntOrNull() ?: 10
-            val leaderboard = brennon.coreStatsManager.getLeaderboard(statId, limit).join()
+            val period = ctx.queryParam("period")
+                ?.let { runCatching { StatPeriod.valueOf(it.uppercase()) }.getOrNull() }
+                ?: StatPeriod.ALL_TIME
+            val leaderboard = brennon.coreStatsManager.getLeaderboard(statId, period, limit).join()
             val entries = leaderboard.entries.mapIndexed { index, (uuid, value) ->
                 val name = brennon.corePlayerManager.getCachedPlayer(uuid)?.name ?: uuid.toString()
                 mapOf("rank" to index + 1, "uuid" to uuid.toString(), "name" to name, "value" to value)
             }
-            ctx.json(mapOf("statId" to statId, "entries" to entries))
+            ctx.json(mapOf("statId" to statId, "period" to period.name, "entries" to entries))
         }
 
         app.post("/api/stats/increment") { ctx ->
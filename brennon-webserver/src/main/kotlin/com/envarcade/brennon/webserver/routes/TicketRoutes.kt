@@ -1,7 +1,9 @@
 package com.envarcade.brennon.webserver.routes
 
+import com.envarcade.brennon.api.ticket.Ticket
 import com.envarcade.brennon.api.ticket.TicketPriority
 import com.envarcade.brennon.api.ticket.TicketStatus
+import com.envarcade.brennon.common.model.PageCursor
 import com.envarcade.brennon.core.Brennon
 import io.javalin.Javalin
 import java.util.UUID
@@ -10,8 +12,7 @@ class TicketRoutes(private val brennon: Brennon) {
 
     fun register(app: Javalin) {
         app.get("/api/tickets") { ctx ->
-            val tickets = brennon.coreTicketManager.getOpenTickets().join()
-            ctx.json(tickets.map { t ->
+            val summary = { t: Ticket ->
                 mapOf(
                     "id" to t.id,
                     "subject" to t.subject,
@@ -21,7 +22,25 @@ class TicketRoutes(private val brennon: Brennon) {
                     "server" to t.server,
                     "assignee" to t.assignee?.toString()
                 )
-            })
+            }
+
+            // Paged when a limit or cursor is given, otherwise the full list as before
+            if (ctx.queryParam("limit") == null && ctx.queryParam("cursor") == null) {
+                ctx.json(brennon.coreTicketManager.getOpenTickets().join().map(summary))
+                return@get
+            }
+            val limit = (ctx.queryParam("limit")?.toIntOrNull() ?: 50).coerceIn(1, 200)
+            val cursor = ctx.queryParam("cursor")
+            val pageCursor = PageCursor.decode(cursor)
+            if (!cursor.isNullOrEmpty() && pageCursor == null) {
+                ctx.status(400).json(mapOf("error" to "Invalid cursor"))
+                return@get
+            }
+            val page = brennon.coreTicketManager.getOpenTicketPage(limit, pageCursor).join()
+            ctx.json(mapOf(
+                "tickets" to page.items.map(summary),
+                "nextCursor" to page.nextCursor?.encode()
+            ))
         }
 
         app.get("/api/tickets/{id}") { ctx ->
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.webserver.ws
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.webserver.PterodactylConfig
 import com.envarcade.brennon.webserver.auth.JwtAuth
 import com.envarcade.brennon.webserver.pterodactyl.PterodactylClient
@@ -66,7 +67,7 @@ class ConsoleWebSocketHandler(
         ws.onClose { ctx ->
             val session = sessions.remove(ctx) ?: return@onClose
             session.upstream?.sendClose(WebSocket.NORMAL_CLOSURE, "Client disconnected")
-            println("[Brennon] Console WS disconnected: ${session.serverName}")
+            Log.info("Console WS disconnected: ${session.serverName}")
         }
 
         ws.onError { ctx ->
@@ -123,7 +124,7 @@ class ConsoleWebSocketHandler(
             .join()
 
         sessions[clientCtx] = UpstreamSession(upstream, serverName)
-        println("[Brennon] Console WS connected: $serverName")
+        Log.info("Console WS connected: $serverName")
     }
 
     fun getActiveCount(): Int = sessions.size
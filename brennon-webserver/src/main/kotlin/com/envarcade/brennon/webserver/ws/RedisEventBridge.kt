@@ -1,5 +1,6 @@
 package com.envarcade.brennon.webserver.ws
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.messaging.channel.Channels
 import com.envarcade.brennon.messaging.redis.RedisMessagingService
 import com.google.gson.Gson
@@ -34,7 +35,7 @@ class RedisEventBridge(
     )
 
     fun start() {
-        println("[Brennon] Starting Redis → WebSocket event bridge...")
+        Log.info("Starting Redis → WebSocket event bridge...")
 
         for ((redisChannel, wsEventType) in channelMapping) {
             redis.subscribe(redisChannel) { _, message ->
@@ -48,12 +49,12 @@ class RedisEventBridge(
 
                     wsHandler.broadcast(wsEventType, data)
                 } catch (e: Exception) {
-                    println("[Brennon] Error bridging event $wsEventType: ${e.message}")
+                    Log.warn("Error bridging event", e, "event" to wsEventType)
                 }
             }
         }
 
-        println("[Brennon] Event bridge active — ${channelMapping.size} channels mapped.")
+        Log.info("Event bridge active — ${channelMapping.size} channels mapped.")
     }
 
     private fun parseJsonValue(element: com.google.gson.JsonElement): Any? {
@@ -1,5 +1,6 @@
 package com.envarcade.brennon.webserver.ws
 
+import com.envarcade.brennon.common.logging.Log
 import com.envarcade.brennon.webserver.auth.JwtAuth
 import com.google.gson.Gson
 import com.google.gson.JsonParser
@@ -23,7 +24,7 @@ class WebSocketHandler(private val jwtAuth: JwtAuth) {
 
             val username = jwtAuth.getUsername(token) ?: "unknown"
             sessions[ctx] = ClientSession(username, mutableSetOf())
-            println("[Brennon] WebSocket connected: $username")
+            Log.info("WebSocket connected: $username")
         }
 
         ws.onMessage { ctx ->
@@ -61,14 +62,14 @@ class WebSocketHandler(private val jwtAuth: JwtAuth) {
                     }
                 }
             } catch (e: Exception) {
-                println("[Brennon] WebSocket message error: ${e.message}")
+                Log.warn("WebSocket message error", e)
             }
         }
 
         ws.onClose { ctx ->
             val session = sessions.remove(ctx)
             if (session != null) {
-                println("[Brennon] WebSocket disconnected: ${session.username}")
+                Log.info("WebSocket disconnected: ${session.username}")
             }
         }
 
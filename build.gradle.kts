@@ -5,6 +5,7 @@ plugins {
     java
     kotlin("jvm") version "1.9.22" apply false
     id("com.github.johnrengelman.shadow") version "8.1.1" apply false
+    id("me.champeau.jmh") version "0.7.2" apply false
 }
 
 // ============================================================
@@ -17,6 +18,7 @@ val hikariVersion = "5.1.0"
 val mongoVersion = "4.11.1"
 val mysqlVersion = "8.3.0"
 val postgresVersion = "42.7.2"
+val h2Version = "2.2.224"
 val velocityVersion = "3.3.0-SNAPSHOT"
 val paperVersion = "1.20.4-R0.1-SNAPSHOT"
 val spongeVersion = "8.2.0"
@@ -26,6 +28,9 @@ val javalinVersion = "6.1.3"
 val jwtVersion = "4.4.0"
 val jlineVersion = "3.25.1"
 val luckPermsVersion = "5.5"
+val slf4jVersion = "2.0.9"
+val log4jVersion = "2.19.0"
+val jmhCoreVersion = "1.37"
 
 // Modules that use their own Gradle toolchains (ForgeGradle / NeoGradle)
 val modLoaderModules = setOf("brennon-forge", "brennon-neoforge")
@@ -91,6 +96,9 @@ project(":brennon-common") {
     dependencies {
         add("api", project(":brennon-api"))
         add("implementation", "com.google.code.gson:gson:$gsonVersion")
+        // Logging bridges; each platform provides the one it uses
+        add("compileOnly", "org.slf4j:slf4j-api:$slf4jVersion")
+        add("compileOnly", "org.apache.logging.log4j:log4j-api:$log4jVersion")
     }
 }
 
@@ -100,8 +108,10 @@ project(":brennon-database") {
         add("implementation", project(":brennon-common"))
         add("implementation", "com.zaxxer:HikariCP:$hikariVersion")
         add("implementation", "org.mongodb:mongodb-driver-sync:$mongoVersion")
+        add("implementation", "org.mongodb:mongodb-driver-reactivestreams:$mongoVersion")
         add("runtimeOnly", "com.mysql:mysql-connector-j:$mysqlVersion")
         add("runtimeOnly", "org.postgresql:postgresql:$postgresVersion")
+        add("runtimeOnly", "com.h2database:h2:$h2Version")
     }
 }
 
@@ -147,6 +157,8 @@ fun Project.applyPlatformDeps() {
         relocate("org.mongodb", "com.envarcade.brennon.libs.mongodb")
         relocate("org.apache.commons.pool2", "com.envarcade.brennon.libs.pool2")
         relocate("org.bson", "com.envarcade.brennon.libs.bson")
+        relocate("org.reactivestreams", "com.envarcade.brennon.libs.reactivestreams")
+        relocate("reactor", "com.envarcade.brennon.libs.reactor")
         // Do NOT relocate Gson, Adventure, or Kotlin — shared with platform code
     }
 }
@@ -249,7 +261,7 @@ project(":brennon-webserver") {
         // Adventure not provided at runtime — include in fat JAR
         add("implementation", "net.kyori:adventure-api:$adventureVersion")
         add("implementation", "net.kyori:adventure-text-minimessage:$adventureVersion")
-        add("implementation", "org.slf4j:slf4j-simple:2.0.9")
+        add("implementation", "org.slf4j:slf4j-simple:$slf4jVersion")
     }
 
     tasks.named<ShadowJar>("shadowJar") {
@@ -258,3 +270,31 @@ project(":brennon-webserver") {
         }
     }
 }
+
+// ============================================================
+// Benchmarks
+// ============================================================
+
+// JMH benchmarks of core hot paths: ./gradlew :brennon-benchmarks:jmh
+// Results are written as JSON to build/results/jmh/results.json
+project(":brennon-benchmarks") {
+    apply(plugin = "me.champeau.jmh")
+    dependencies {
+        add("jmhImplementation", project(":brennon-api"))
+        add("jmhImplementation", project(":brennon-common"))
+        add("jmhImplementation", project(":brennon-database"))
+        add("jmhImplementation", project(":brennon-messaging"))
+        add("jmhImplementation", project(":brennon-core"))
+        add("jmhImplementation", "com.google.code.gson:gson:$gsonVersion")
+        add("jmhImplementation", "net.kyori:adventure-api:$adventureVersion")
+        add("jmhImplementation", "net.kyori:adventure-text-minimessage:$adventureVersion")
+    }
+
+    configure<me.champeau.jmh.JmhParameters> {
+        jmhVersion.set(jmhCoreVersion)
+        resultFormat.set("JSON")
+        resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+        // ./gradlew :brennon-benchmarks:jmh -Pjmh.includes=ChatBenchmark
+        (findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+    }
+}
@@ -38,5 +38,8 @@ include(
     "brennon-standalone",
 
     // Web server (full-stack dashboard)
-    "brennon-webserver"
+    "brennon-webserver",
+
+    // JMH benchmarks
+    "brennon-benchmarks"
 )